@@ -0,0 +1,82 @@
+package com.biglakesystems.biglib.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * {@link BenchmarkRunner} runs the full BigLib benchmark suite and writes the results, in JMH's JSON format, to a
+ * directory given as the sole command line argument, so that results can be compared across releases:
+ * <ul>
+ * <li>{@code maps.json}: {@link MapBenchmark} and {@link ChurnBenchmark}, with allocation rates from the GC
+ * profiler.</li>
+ * <li>{@code unique-id-<em>N</em>-threads.json}: {@link UniqueIdBenchmark} with <em>N</em> concurrent threads, for
+ * each of 1, 2, 4, 8, 16, 32 and 64 threads.</li>
+ * </ul>
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class BenchmarkRunner
+{
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    /**
+     * Construct a {@link BenchmarkRunner} instance.
+     */
+    private BenchmarkRunner()
+    {
+        super();
+    }
+
+    /**
+     * Run the benchmark suite.
+     *
+     * @param args the command line arguments: the directory to receive the results.
+     * @throws RunnerException if a benchmark fails.
+     */
+    public static void main(final String[] args) throws RunnerException
+    {
+        if (1 != args.length)
+        {
+            throw new IllegalArgumentException(String.format("Usage: %s <results directory>",
+                    BenchmarkRunner.class.getName()));
+        }
+        final File directory = new File(args[0]);
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IllegalArgumentException(String.format("Unable to create results directory [%s].", directory));
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(MapBenchmark.class.getName())
+                .include(ChurnBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(directory, "maps.json").getPath())
+                .build()).run();
+
+        for (final int nextThreadCount : THREAD_COUNTS)
+        {
+            new Runner(new OptionsBuilder()
+                    .include(UniqueIdBenchmark.class.getName())
+                    .threads(nextThreadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(directory, String.format("unique-id-%d-threads.json", nextThreadCount))
+                            .getPath())
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.biglakesystems.biglib.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChurnBenchmark} measures lookup throughput on the weak maps while a proportion of operations also insert a key
+ * which immediately becomes garbage. This keeps the collector clearing references and the maps purging them, as happens
+ * in production when short-lived objects are used as keys.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChurnBenchmark
+{
+    private static final Object VALUE = new Object();
+
+    @Param({"WEAK_IDENTITY_HASH_MAP", "CONCURRENT_WEAK_IDENTITY_HASH_MAP", "WEAK_HASH_MAP"})
+    public MapType m_mapType;
+
+    @Param({"1024", "65536"})
+    public int m_size;
+
+    @Param({"0", "1", "10", "50"})
+    public int m_transientPercent;
+
+    private Map<Object, Object> m_map;
+    private Object[] m_keys;
+    private int m_next;
+    private int m_operation;
+
+    /**
+     * Construct a {@link ChurnBenchmark} instance.
+     */
+    public ChurnBenchmark()
+    {
+        super();
+    }
+
+    /**
+     * Create and populate the map.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        m_map = m_mapType.create(m_size);
+        m_keys = new Object[m_size];
+        for (int i = 0; i < m_size; i += 1)
+        {
+            m_keys[i] = new Object();
+            m_map.put(m_keys[i], VALUE);
+        }
+    }
+
+    /**
+     * Measure {@link Map#get(Object)} for a key which is present, inserting a transient key first on {@link
+     * #m_transientPercent} percent of operations.
+     *
+     * @return {@link Object} value.
+     */
+    @Benchmark
+    public Object getWithChurn()
+    {
+        m_operation = m_operation == 99 ? 0 : m_operation + 1;
+        if (m_operation < m_transientPercent)
+        {
+            m_map.put(new Object(), VALUE);
+        }
+        final Object result = m_map.get(m_keys[m_next]);
+        m_next = (m_next + 1) & (m_size - 1);
+        return result;
+    }
+}
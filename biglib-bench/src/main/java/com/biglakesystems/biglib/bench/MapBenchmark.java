@@ -0,0 +1,114 @@
+package com.biglakesystems.biglib.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MapBenchmark} measures the throughput of the basic {@link Map} operations against a map holding a fixed set of
+ * strongly reachable keys, for each {@link MapType} and a range of map sizes. Run with the GC profiler, as {@link
+ * BenchmarkRunner} does, to also report the allocation rate per operation.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark
+{
+    private static final Object VALUE = new Object();
+
+    @Param({"WEAK_IDENTITY_HASH_MAP", "CONCURRENT_WEAK_IDENTITY_HASH_MAP", "WEAK_HASH_MAP", "IDENTITY_HASH_MAP"})
+    public MapType m_mapType;
+
+    @Param({"16", "1024", "65536"})
+    public int m_size;
+
+    private Map<Object, Object> m_map;
+    private Object[] m_keys;
+    private int m_next;
+
+    /**
+     * Construct a {@link MapBenchmark} instance.
+     */
+    public MapBenchmark()
+    {
+        super();
+    }
+
+    /**
+     * Create and populate the map.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        m_map = m_mapType.create(m_size);
+        m_keys = new Object[m_size];
+        for (int i = 0; i < m_size; i += 1)
+        {
+            m_keys[i] = new Object();
+            m_map.put(m_keys[i], VALUE);
+        }
+    }
+
+    /**
+     * Measure {@link Map#get(Object)} for a key which is present.
+     *
+     * @return {@link Object} value.
+     */
+    @Benchmark
+    public Object get()
+    {
+        return m_map.get(nextKey());
+    }
+
+    /**
+     * Measure {@link Map#put(Object, Object)} replacing the value of a key which is present.
+     *
+     * @return {@link Object} previous value.
+     */
+    @Benchmark
+    public Object put()
+    {
+        return m_map.put(nextKey(), VALUE);
+    }
+
+    /**
+     * Measure {@link Map#remove(Object)} of a key which is present, followed by {@link Map#put(Object, Object)} to
+     * restore it.
+     *
+     * @return {@link Object} previous value.
+     */
+    @Benchmark
+    public Object removeAndPut()
+    {
+        final Object key = nextKey();
+        m_map.remove(key);
+        return m_map.put(key, VALUE);
+    }
+
+    /**
+     * Get the next key, cycling through all keys in order.
+     *
+     * @return {@link Object} key.
+     */
+    private Object nextKey()
+    {
+        final Object result = m_keys[m_next];
+        m_next = (m_next + 1) & (m_size - 1);
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package com.biglakesystems.biglib.bench;
+
+import com.biglakesystems.biglib.impl.quality.ConcurrentWeakIdentityHashMap;
+import com.biglakesystems.biglib.impl.quality.WeakIdentityHashMap;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * {@link MapType} enumerates the map implementations compared by the map benchmarks: the BigLib weak identity maps, and
+ * the JDK maps which each provide one half of their semantics.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public enum MapType
+{
+    WEAK_IDENTITY_HASH_MAP
+            {
+                @Override
+                public <K, V> Map<K, V> create(final int capacity)
+                {
+                    return new WeakIdentityHashMap<K, V>(capacity);
+                }
+            },
+    CONCURRENT_WEAK_IDENTITY_HASH_MAP
+            {
+                @Override
+                public <K, V> Map<K, V> create(final int capacity)
+                {
+                    return new ConcurrentWeakIdentityHashMap<K, V>(capacity);
+                }
+            },
+    WEAK_HASH_MAP
+            {
+                @Override
+                public <K, V> Map<K, V> create(final int capacity)
+                {
+                    return new WeakHashMap<K, V>(capacity);
+                }
+            },
+    IDENTITY_HASH_MAP
+            {
+                @Override
+                public <K, V> Map<K, V> create(final int capacity)
+                {
+                    return new IdentityHashMap<K, V>(capacity);
+                }
+            };
+
+    /**
+     * Create an empty map of this type.
+     *
+     * @param capacity the expected number of entries.
+     * @param <K> the map key type.
+     * @param <V> the map value type.
+     * @return {@link Map} new map.
+     */
+    public abstract <K, V> Map<K, V> create(int capacity);
+}
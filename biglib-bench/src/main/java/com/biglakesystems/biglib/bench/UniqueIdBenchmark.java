@@ -0,0 +1,174 @@
+package com.biglakesystems.biglib.bench;
+
+import com.biglakesystems.biglib.impl.quality.CounterExceptionIdGenerator;
+import com.biglakesystems.biglib.impl.quality.Sha1ExceptionIdGenerator;
+import com.biglakesystems.biglib.impl.quality.TimeOrderedExceptionIdGenerator;
+import com.biglakesystems.biglib.quality.ExceptionIdGenerator;
+import com.biglakesystems.biglib.quality.Exceptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UniqueIdBenchmark} measures the throughput of {@link Exceptions#uniqueId(Throwable)}, both for exceptions
+ * which already have an identifier and for new exceptions, with each built-in {@link ExceptionIdGenerator}. The
+ * exceptions used do not capture stack traces, so that the cost of identification is not masked by the cost of
+ * construction. {@link BenchmarkRunner} runs this benchmark at a range of thread counts to measure contention.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UniqueIdBenchmark
+{
+    private static final int IDENTIFIED_COUNT = 1024;
+
+    @Param({"sha1", "counter", "time"})
+    public String m_generator;
+
+    private ExceptionIdGenerator m_originalGenerator;
+
+    /**
+     * Construct a {@link UniqueIdBenchmark} instance.
+     */
+    public UniqueIdBenchmark()
+    {
+        super();
+    }
+
+    /**
+     * Install the generator under test.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        m_originalGenerator = Exceptions.getIdGenerator();
+        final ExceptionIdGenerator generator;
+        if ("counter".equals(m_generator))
+        {
+            generator = new CounterExceptionIdGenerator();
+        }
+        else if ("time".equals(m_generator))
+        {
+            generator = new TimeOrderedExceptionIdGenerator();
+        }
+        else
+        {
+            generator = new Sha1ExceptionIdGenerator();
+        }
+        Exceptions.setIdGenerator(generator);
+    }
+
+    /**
+     * Restore the original generator.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        Exceptions.setIdGenerator(m_originalGenerator);
+    }
+
+    /**
+     * Measure {@link Exceptions#uniqueId(Throwable)} for an exception which already has an identifier.
+     *
+     * @param state the per-thread state.
+     * @return {@link String} identifier.
+     */
+    @Benchmark
+    public String identified(final ThreadState state)
+    {
+        return Exceptions.uniqueId(state.nextIdentified());
+    }
+
+    /**
+     * Measure {@link Exceptions#uniqueId(Throwable)} for a new exception.
+     *
+     * @return {@link String} identifier.
+     */
+    @Benchmark
+    public String unidentified()
+    {
+        return Exceptions.uniqueId(new TracelessException());
+    }
+
+    /**
+     * {@link ThreadState} holds, for each benchmark thread, a set of exceptions which have already been identified.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState
+    {
+        private final Throwable[] m_identified = new Throwable[IDENTIFIED_COUNT];
+        private int m_next;
+
+        /**
+         * Construct a {@link ThreadState} instance.
+         */
+        public ThreadState()
+        {
+            super();
+        }
+
+        /**
+         * Create and identify the exceptions.
+         */
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            for (int i = 0; i < m_identified.length; i += 1)
+            {
+                m_identified[i] = new TracelessException();
+                Exceptions.uniqueId(m_identified[i]);
+            }
+        }
+
+        /**
+         * Get the next identified exception, cycling through all of them in order.
+         *
+         * @return {@link Throwable} exception.
+         */
+        public Throwable nextIdentified()
+        {
+            final Throwable result = m_identified[m_next];
+            m_next = (m_next + 1) & (IDENTIFIED_COUNT - 1);
+            return result;
+        }
+    }
+
+    /**
+     * {@link TracelessException} is an exception which does not capture a stack trace.
+     */
+    private static class TracelessException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Construct a {@link TracelessException} instance.
+         */
+        public TracelessException()
+        {
+            super();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            return this;
+        }
+    }
+}
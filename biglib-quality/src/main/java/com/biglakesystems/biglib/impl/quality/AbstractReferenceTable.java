@@ -0,0 +1,986 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * {@link AbstractReferenceTable} is the open-addressing hash table shared by the single-threaded reference maps. It
+ * owns the key side of the table, along with purging of collected entries, backward-shift deletion, resizing and
+ * statistics. Subclasses own the value side, typically a parallel array of objects or primitives, and keep it in step
+ * with the keys through the value hooks invoked by this class.
+ * <p/>
+ * Every key is held by a {@link Reference} of the configured {@link ReferenceStrength}; strongly held keys use a
+ * reference which never clears, so that lookups treat all strengths alike. Key hash codes are held in a parallel
+ * {@code int[]}, so probing compares hashes without dereferencing the references, and a key is compared only when its
+ * hash matches. Keys are hashed and compared according to the configured {@link Equivalence}.
+ * <p/>
+ * All references created by the table, including any value references created by subclasses via {@link
+ * #newValueReference(ReferenceStrength, Object, Reference, int)}, are registered with a single queue. Purging removes
+ * the entry of each enqueued reference, at most a small fixed number per operation; only operations which report the
+ * number of entries drain the queue completely, so that the count reflects every collection already enqueued.
+ * <p/>
+ * Every structural change, including one made by purging, increments a modification count, against which subclass
+ * iterators detect concurrent modification. Because a purge may shift entries to slots an iterator has already passed,
+ * an iterator may also {@link #holdPurges() hold} purging until it is exhausted or the table is otherwise structurally
+ * modified, so that lookups made while iterating do not disturb the iteration.
+ * <p/>
+ * Because the table allocates its initial value storage from within its own constructor, subclass value storage fields
+ * must not have initializers, which would run afterward and discard the storage.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are not thread-safe. All operations must be performed on a
+ * single thread or appropriate publication and synchronization constructs must be applied externally.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * @param <K> the key type.
+ */
+abstract class AbstractReferenceTable<K>
+{
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final float MAXIMUM_LOAD_FACTOR = 0.9f;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int MAXIMUM_PURGE_BATCH = 64;
+
+    /**
+     * Estimated sizes used for {@link WeakMapStatistics#getEstimatedFootprint()}, assuming compressed references: an
+     * array header, an array element, a hash code, and a key reference with its four inherited reference fields and
+     * hash code.
+     */
+    private static final int ESTIMATED_HEADER_BYTES = 16;
+    private static final int ESTIMATED_REFERENCE_BYTES = 4;
+    private static final int ESTIMATED_HASH_BYTES = 4;
+    private static final int ESTIMATED_KEY_REFERENCE_BYTES = 32;
+
+    private final ReferenceStrength m_keyStrength;
+    private final boolean m_identity;
+    private final float m_loadFactor;
+    private final ReferenceQueue<Object> m_queue = new ReferenceQueue<Object>();
+    private Reference<K>[] m_keys;
+    private int[] m_hashes;
+    private int m_size;
+    private int m_threshold;
+    private int m_modCount;
+    private int m_purgeHoldModCount;
+    private boolean m_purgeHeld;
+    private WeakMapStatistics m_statistics;
+
+    /**
+     * Construct an {@link AbstractReferenceTable} instance.
+     *
+     * @param initialCapacity the initial capacity.
+     * @param loadFactor the load factor. Because the table is open-addressed, values above {@code 0.9} are treated as
+     * {@code 0.9}.
+     * @param keyStrength the strength with which keys are held.
+     * @param equivalence the key equivalence.
+     */
+    AbstractReferenceTable(final int initialCapacity, final float loadFactor, final ReferenceStrength keyStrength,
+                           final Equivalence equivalence)
+    {
+        super();
+        Assert.argumentNotNegative("initialCapacity", initialCapacity);
+        Assert.argument(loadFactor > 0.0f, "Argument [loadFactor] must be positive; was [%s].", loadFactor);
+        Assert.argumentNotNull("keyStrength", keyStrength);
+        Assert.argumentNotNull("equivalence", equivalence);
+        m_keyStrength = keyStrength;
+        m_identity = Equivalence.IDENTITY == equivalence;
+        m_loadFactor = Math.min(loadFactor, MAXIMUM_LOAD_FACTOR);
+        allocate(tableSizeFor((int) Math.min(MAXIMUM_CAPACITY, initialCapacity / m_loadFactor + 1.0f)));
+    }
+
+    /**
+     * Begin collecting statistics for this map, if not already doing so. Statistics are disabled by default, since
+     * collecting them adds a small cost to every operation.
+     *
+     * @return {@link WeakMapStatistics} statistics.
+     */
+    public WeakMapStatistics enableStatistics()
+    {
+        WeakMapStatistics result = m_statistics;
+        if (null == result)
+        {
+            result = new WeakMapStatistics(new WeakMapStatistics.Gauges()
+            {
+                @Override
+                public int capacity()
+                {
+                    return m_keys.length;
+                }
+
+                @Override
+                public long estimatedFootprint()
+                {
+                    return 3L * ESTIMATED_HEADER_BYTES + (long) m_keys.length * (ESTIMATED_REFERENCE_BYTES +
+                            ESTIMATED_HASH_BYTES + valueSlotBytes()) + (long) m_size * ESTIMATED_KEY_REFERENCE_BYTES;
+                }
+
+                @Override
+                public int size()
+                {
+                    return m_size;
+                }
+            });
+            m_statistics = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the statistics collected for this map.
+     *
+     * @return {@link WeakMapStatistics} statistics, or {@code null} if not enabled via {@link #enableStatistics()}.
+     */
+    public WeakMapStatistics getStatistics()
+    {
+        return m_statistics;
+    }
+
+    /**
+     * Install new, empty value storage of a given capacity.
+     *
+     * @param capacity the capacity.
+     * @return {@link Object} the previous storage, or {@code null} if none.
+     */
+    abstract Object allocateValues(int capacity);
+
+    /**
+     * Reset a value slot to its empty state. The slot's previous content may have been moved to another slot, so any
+     * value reference it held must not be cleared.
+     *
+     * @param index the slot index.
+     */
+    abstract void clearValue(int index);
+
+    /**
+     * Copy a value from a slot of previous value storage into a slot of the current storage.
+     *
+     * @param source the previous storage, as returned by {@link #allocateValues(int)}.
+     * @param sourceIndex the slot index within the previous storage.
+     * @param targetIndex the slot index within the current storage.
+     */
+    abstract void copyValue(Object source, int sourceIndex, int targetIndex);
+
+    /**
+     * Move a value from one slot of the current storage to another.
+     *
+     * @param sourceIndex the source slot index.
+     * @param targetIndex the target slot index.
+     */
+    abstract void moveValue(int sourceIndex, int targetIndex);
+
+    /**
+     * Get the size of each value slot, for footprint estimates.
+     *
+     * @return {@code int} bytes per slot.
+     */
+    abstract int valueSlotBytes();
+
+    /**
+     * Determine whether the value in a slot is still live. Subclasses holding values by reference override this to
+     * report values which have been collected; the entries holding them are then treated as absent.
+     *
+     * @param index the slot index.
+     * @return {@code boolean} {@code true} if the value is live.
+     */
+    boolean isValueLive(final int index)
+    {
+        return true;
+    }
+
+    /**
+     * Determine whether a reference taken from the queue is the value reference currently held in a slot, meaning that
+     * the slot's value has been collected.
+     *
+     * @param index the slot index.
+     * @param reference the reference.
+     * @return {@code boolean} {@code true} if the slot holds the reference.
+     */
+    boolean isValueReference(final int index, final Reference<?> reference)
+    {
+        return false;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    final void clearTable()
+    {
+        purge();
+        final Reference<K>[] keys = m_keys;
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            if (null != keys[i])
+            {
+                /* No need for the collector to enqueue a reference we no longer care about. */
+                keys[i].clear();
+                keys[i] = null;
+                clearValue(i);
+            }
+        }
+        m_size = 0;
+        m_modCount += 1;
+    }
+
+    /**
+     * Count the entries whose keys and values are both live, by scanning the table. Unlike {@link #tableSize()}, this
+     * excludes collected entries which have not yet been purged.
+     *
+     * @return {@code int} live entry count.
+     */
+    final int countLive()
+    {
+        int result = 0;
+        final Reference<K>[] keys = m_keys;
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            if (null != keys[i] && null != keys[i].get() && isValueLive(i))
+            {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete the entry in a table slot. Subsequent entries in the same probe cluster are shifted back as needed so that
+     * no probe sequence is broken, which avoids the need for deletion markers.
+     *
+     * @param index the slot index.
+     */
+    final void delete(final int index)
+    {
+        final Reference<K>[] keys = m_keys;
+        final int[] hashes = m_hashes;
+        final int mask = keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        for (Reference<K> candidate = keys[next]; null != candidate; candidate = keys[next])
+        {
+            /* The candidate may fill the hole unless its home slot lies cyclically within (hole, next]. */
+            final int home = hashes[next] & mask;
+            if (hole <= next ? (home <= hole || home > next) : (home <= hole && home > next))
+            {
+                keys[hole] = candidate;
+                hashes[hole] = hashes[next];
+                moveValue(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = null;
+        clearValue(hole);
+        m_size -= 1;
+        m_modCount += 1;
+    }
+
+    /**
+     * Determine whether keys are compared by identity.
+     *
+     * @return {@code boolean} {@code true} for {@link Equivalence#IDENTITY}.
+     */
+    final boolean identity()
+    {
+        return m_identity;
+    }
+
+    /**
+     * Find the table slot holding a key. A slot whose value has been collected is not considered to hold its key.
+     *
+     * @param key the key.
+     * @return {@code int} slot index, or {@code -1} if the key is not present.
+     */
+    final int indexOf(final Object key)
+    {
+        Assert.argumentNotNull("key", key);
+        final int hash = hash(key);
+        final Reference<K>[] keys = m_keys;
+        final int[] hashes = m_hashes;
+        final int mask = keys.length - 1;
+        int result = hash & mask;
+        for (Reference<K> next = keys[result]; true; next = keys[result])
+        {
+            if (null == next)
+            {
+                result = -1;
+                break;
+            }
+            if (hash == hashes[result] && equivalent(key, next.get()))
+            {
+                if (!isValueLive(result))
+                {
+                    result = -1;
+                }
+                break;
+            }
+            result = (result + 1) & mask;
+        }
+        return result;
+    }
+
+    /**
+     * Find the table slot holding a particular key reference.
+     *
+     * @param reference the key reference.
+     * @return {@code int} slot index, or {@code -1} if the reference is not present.
+     */
+    final int indexOfReference(final Reference<?> reference)
+    {
+        final Reference<K>[] keys = m_keys;
+        final int mask = keys.length - 1;
+        int result = ((TableReference) reference).hash() & mask;
+        for (Reference<K> next = keys[result]; reference != next; next = keys[result])
+        {
+            if (null == next)
+            {
+                result = -1;
+                break;
+            }
+            result = (result + 1) & mask;
+        }
+        return result;
+    }
+
+    /**
+     * Find the table slot holding a key, inserting the key into an empty slot if it is not present. A newly inserted
+     * key's value slot is in its empty state. A slot whose value has been collected is reused, and reported as holding
+     * the key; its value slot must be overwritten by the caller.
+     *
+     * @param key the key.
+     * @return {@code int} slot index if the key was already present, or {@code -(index + 1)} if it was inserted.
+     */
+    final int insert(final K key)
+    {
+        Assert.argumentNotNull("key", key);
+        final int hash = hash(key);
+        Reference<K>[] keys = m_keys;
+        int mask = keys.length - 1;
+        int index = hash & mask;
+        int result = -1;
+        for (Reference<K> next = keys[index]; null != next; next = keys[index])
+        {
+            if (hash == m_hashes[index] && equivalent(key, next.get()))
+            {
+                result = isValueLive(index) ? index : -(index + 1);
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+        if (-1 == result)
+        {
+            if (m_size >= m_threshold)
+            {
+                /* Grow the table, then find the end of the key's probe cluster in the new table. */
+                resize();
+                keys = m_keys;
+                mask = keys.length - 1;
+                index = hash & mask;
+                while (null != keys[index])
+                {
+                    index = (index + 1) & mask;
+                }
+            }
+            keys[index] = newKeyReference(key, hash);
+            m_hashes[index] = hash;
+            m_size += 1;
+            m_modCount += 1;
+            result = -(index + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Hold purging until the table is next structurally modified, or until {@link #releasePurges(int)} is invoked
+     * with the current modification count. Enqueued references remain queued meanwhile, and are processed once purging
+     * resumes.
+     */
+    final void holdPurges()
+    {
+        m_purgeHoldModCount = m_modCount;
+        m_purgeHeld = true;
+    }
+
+    /**
+     * Get the key reference array. Its length is the table capacity.
+     *
+     * @return {@link Reference}[] key references.
+     */
+    final Reference<K>[] keys()
+    {
+        return m_keys;
+    }
+
+    /**
+     * Create a reference to a value, registered with the table's queue so that the entry holding it is purged once the
+     * value is collected.
+     *
+     * @param strength the value strength; either {@link ReferenceStrength#WEAK} or {@link ReferenceStrength#SOFT}.
+     * @param value the value.
+     * @param keyReference the reference to the key of the entry holding the value.
+     * @param hash the hash of the key.
+     * @return {@link Reference} value reference.
+     */
+    final Reference<Object> newValueReference(final ReferenceStrength strength, final Object value,
+                                              final Reference<?> keyReference, final int hash)
+    {
+        return ReferenceStrength.SOFT == strength ? new SoftValueReference(value, keyReference, hash, m_queue) :
+                new WeakValueReference(value, keyReference, hash, m_queue);
+    }
+
+    /**
+     * Get the hash of the key in a slot.
+     *
+     * @param index the slot index.
+     * @return {@code int} key hash.
+     */
+    final int hashAt(final int index)
+    {
+        return m_hashes[index];
+    }
+
+    /**
+     * Get the number of structural changes made to the table: insertions, deletions, whether explicit or by purging,
+     * and clearing. Updating the value of an existing entry is not a structural change.
+     *
+     * @return {@code int} modification count.
+     */
+    final int modCount()
+    {
+        return m_modCount;
+    }
+
+    /**
+     * Purge the table of up to {@link #MAXIMUM_PURGE_BATCH} entries whose keys or values have been garbage collected.
+     * Capping the work done per operation keeps the cost of draining the queue after a large collection spread across
+     * many operations; any collected entries still in the table when it is next resized are dropped then.
+     * Nothing is purged while purging is {@link #holdPurges() held}.
+     */
+    final void purge()
+    {
+        purge(MAXIMUM_PURGE_BATCH);
+    }
+
+    /**
+     * Purge the table of every entry whose key or value has been garbage collected and enqueued. Operations which
+     * report the number of entries call this rather than {@link #purge()}, since a capped purge would leave collected
+     * entries counted.
+     */
+    final void purgeAll()
+    {
+        purge(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determine whether purging is currently held by {@link #holdPurges()}.
+     *
+     * @return {@code boolean} {@code true} if held.
+     */
+    final boolean purgesHeld()
+    {
+        return m_purgeHeld && m_purgeHoldModCount == m_modCount;
+    }
+
+    /**
+     * Record a lookup, if collecting statistics.
+     *
+     * @param hit whether the lookup found an entry.
+     */
+    final void recordLookup(final boolean hit)
+    {
+        final WeakMapStatistics statistics = m_statistics;
+        if (null != statistics)
+        {
+            statistics.lookup(hit);
+        }
+    }
+
+    /**
+     * Record an insertion or replacement, if collecting statistics.
+     */
+    final void recordPut()
+    {
+        final WeakMapStatistics statistics = m_statistics;
+        if (null != statistics)
+        {
+            statistics.put();
+        }
+    }
+
+    /**
+     * Release a hold on purging taken by {@link #holdPurges()}, unless the table has since been structurally modified,
+     * in which case the hold has already lapsed.
+     *
+     * @param modCount the modification count when the hold was taken.
+     */
+    final void releasePurges(final int modCount)
+    {
+        if (modCount == m_modCount)
+        {
+            m_purgeHeld = false;
+        }
+    }
+
+    /**
+     * Get the number of entries, including any whose keys or values have been collected but not yet purged.
+     *
+     * @return {@code int} entry count.
+     */
+    final int tableSize()
+    {
+        return m_size;
+    }
+
+    /**
+     * Allocate empty table storage of a given capacity.
+     *
+     * @param capacity the capacity, a power of two.
+     * @return {@link Object} the previous value storage, or {@code null} if none.
+     */
+    @SuppressWarnings("unchecked")
+    private Object allocate(final int capacity)
+    {
+        m_keys = (Reference<K>[]) new Reference<?>[capacity];
+        m_hashes = new int[capacity];
+        m_threshold = Math.min(capacity - 1, (int) (capacity * m_loadFactor));
+        m_size = 0;
+        return allocateValues(capacity);
+    }
+
+    /**
+     * Compare a key with the referent of a key reference.
+     *
+     * @param key the key.
+     * @param candidate the referent; {@code null} if collected.
+     * @return {@code boolean} {@code true} if equivalent.
+     */
+    private boolean equivalent(final Object key, final Object candidate)
+    {
+        return m_identity ? key == candidate : null != candidate && key.equals(candidate);
+    }
+
+    /**
+     * Hash a key according to the table's equivalence. Hash codes from {@link Object#hashCode()} are spread, since the
+     * table uses their low-order bits.
+     *
+     * @param key the key.
+     * @return {@code int} hash.
+     */
+    private int hash(final Object key)
+    {
+        int result;
+        if (m_identity)
+        {
+            result = System.identityHashCode(key);
+        }
+        else
+        {
+            result = key.hashCode() * 0x9e3779b9;
+            result ^= result >>> 16;
+        }
+        return result;
+    }
+
+    /**
+     * Create a reference to a key, of the table's key strength.
+     *
+     * @param key the key.
+     * @param hash the key hash.
+     * @return {@link Reference} key reference.
+     */
+    private Reference<K> newKeyReference(final K key, final int hash)
+    {
+        final Reference<K> result;
+        switch (m_keyStrength)
+        {
+            case STRONG:
+                result = new StrongKeyReference<K>(key, hash, m_queue);
+                break;
+            case SOFT:
+                result = new SoftKeyReference<K>(key, hash, m_queue);
+                break;
+            default:
+                result = new WeakKeyReference<K>(key, hash, m_queue);
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Purge the table of up to a given number of entries whose keys or values have been garbage collected.
+     *
+     * @param limit the maximum number of enqueued references to process.
+     */
+    private void purge(final int limit)
+    {
+        Reference<?> next = purgesHeld() ? null : m_queue.poll();
+        if (null != next)
+        {
+            final WeakMapStatistics statistics = m_statistics;
+            final long started = null == statistics ? 0L : System.nanoTime();
+            int expunged = 0;
+            for (int purged = 1; null != next; purged += 1)
+            {
+                final Reference<?> keyReference = ((TableReference) next).keyReference();
+                final int index = indexOfReference(keyReference);
+                if (index >= 0 && (next == keyReference || isValueReference(index, next)))
+                {
+                    /* If only the value was collected, the key reference need no longer be enqueued. */
+                    keyReference.clear();
+                    delete(index);
+                    expunged += 1;
+                }
+                next = purged < limit ? m_queue.poll() : null;
+            }
+            if (null != statistics)
+            {
+                statistics.purged(expunged, System.nanoTime() - started);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the table, dropping entries whose keys or values have been collected, and doubling its capacity unless
+     * enough collected entries were dropped to make room.
+     */
+    private void resize()
+    {
+        final Reference<K>[] oldKeys = m_keys;
+        final int[] oldHashes = m_hashes;
+        final boolean[] live = new boolean[oldKeys.length];
+        int liveCount = 0;
+        for (int i = 0; i < oldKeys.length; i += 1)
+        {
+            if (null != oldKeys[i] && null != oldKeys[i].get() && isValueLive(i))
+            {
+                live[i] = true;
+                liveCount += 1;
+            }
+        }
+        final int capacity = liveCount >= m_threshold / 2 && oldKeys.length < MAXIMUM_CAPACITY ?
+                oldKeys.length << 1 : oldKeys.length;
+        final WeakMapStatistics statistics = m_statistics;
+        if (null != statistics)
+        {
+            statistics.expunged(m_size - liveCount);
+        }
+        final Object oldValues = allocate(capacity);
+        final Reference<K>[] keys = m_keys;
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i += 1)
+        {
+            if (live[i])
+            {
+                int index = oldHashes[i] & mask;
+                while (null != keys[index])
+                {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                m_hashes[index] = oldHashes[i];
+                copyValue(oldValues, i, index);
+            }
+            else if (null != oldKeys[i])
+            {
+                /* Dropped here, so the collector need not enqueue it. */
+                oldKeys[i].clear();
+            }
+        }
+        m_size = liveCount;
+        m_modCount += 1;
+    }
+
+    /**
+     * Get the smallest power of two greater than or equal to a given value.
+     *
+     * @param value the value.
+     * @return {@code int} table size.
+     */
+    private static int tableSizeFor(final int value)
+    {
+        int result = 2;
+        while (result < value && result < MAXIMUM_CAPACITY)
+        {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /**
+     * {@link TableReference} is implemented by every reference registered with the table's queue, so that the slot of
+     * the entry to which it belongs can be located once it has been cleared.
+     */
+    interface TableReference
+    {
+        /**
+         * Get the hash of the entry's key.
+         *
+         * @return {@code int} key hash.
+         */
+        int hash();
+
+        /**
+         * Get the reference to the entry's key; for a key reference, the reference itself.
+         *
+         * @return {@link Reference} key reference.
+         */
+        Reference<?> keyReference();
+    }
+
+    /**
+     * {@link WeakKeyReference} holds a key weakly.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
+     * multithreaded access, provided the same is true of all dependencies provided via constructor.
+     *
+     * @param <K> the key type.
+     */
+    private static final class WeakKeyReference<K> extends WeakReference<K> implements TableReference
+    {
+        private final int m_hash;
+
+        /**
+         * Construct a {@link WeakKeyReference} instance.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param queue the queue with which to register the reference.
+         */
+        public WeakKeyReference(final K key, final int hash, final ReferenceQueue<Object> queue)
+        {
+            super(key, queue);
+            m_hash = hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hash()
+        {
+            return m_hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Reference<?> keyReference()
+        {
+            return this;
+        }
+    }
+
+    /**
+     * {@link SoftKeyReference} holds a key softly.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
+     * multithreaded access, provided the same is true of all dependencies provided via constructor.
+     *
+     * @param <K> the key type.
+     */
+    private static final class SoftKeyReference<K> extends SoftReference<K> implements TableReference
+    {
+        private final int m_hash;
+
+        /**
+         * Construct a {@link SoftKeyReference} instance.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param queue the queue with which to register the reference.
+         */
+        public SoftKeyReference(final K key, final int hash, final ReferenceQueue<Object> queue)
+        {
+            super(key, queue);
+            m_hash = hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hash()
+        {
+            return m_hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Reference<?> keyReference()
+        {
+            return this;
+        }
+    }
+
+    /**
+     * {@link StrongKeyReference} holds a key strongly, while presenting the same interface as the other key references.
+     * The underlying reference has no referent, so the collector never clears or enqueues it; it is enqueued only
+     * explicitly, by an iterator removing its entry.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are not thread-safe.
+     *
+     * @param <K> the key type.
+     */
+    private static final class StrongKeyReference<K> extends WeakReference<K> implements TableReference
+    {
+        private final int m_hash;
+        private K m_key;
+
+        /**
+         * Construct a {@link StrongKeyReference} instance.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param queue the queue with which to register the reference.
+         */
+        public StrongKeyReference(final K key, final int hash, final ReferenceQueue<Object> queue)
+        {
+            super(null, queue);
+            m_key = key;
+            m_hash = hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear()
+        {
+            m_key = null;
+            super.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public K get()
+        {
+            return m_key;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hash()
+        {
+            return m_hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Reference<?> keyReference()
+        {
+            return this;
+        }
+    }
+
+    /**
+     * {@link WeakValueReference} holds a value weakly, remembering the key reference of its entry.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
+     * multithreaded access, provided the same is true of all dependencies provided via constructor.
+     */
+    private static final class WeakValueReference extends WeakReference<Object> implements TableReference
+    {
+        private final Reference<?> m_keyReference;
+        private final int m_hash;
+
+        /**
+         * Construct a {@link WeakValueReference} instance.
+         *
+         * @param value the value.
+         * @param keyReference the key reference of the entry.
+         * @param hash the key hash.
+         * @param queue the queue with which to register the reference.
+         */
+        public WeakValueReference(final Object value, final Reference<?> keyReference, final int hash,
+                                  final ReferenceQueue<Object> queue)
+        {
+            super(value, queue);
+            m_keyReference = keyReference;
+            m_hash = hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hash()
+        {
+            return m_hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Reference<?> keyReference()
+        {
+            return m_keyReference;
+        }
+    }
+
+    /**
+     * {@link SoftValueReference} holds a value softly, remembering the key reference of its entry.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
+     * multithreaded access, provided the same is true of all dependencies provided via constructor.
+     */
+    private static final class SoftValueReference extends SoftReference<Object> implements TableReference
+    {
+        private final Reference<?> m_keyReference;
+        private final int m_hash;
+
+        /**
+         * Construct a {@link SoftValueReference} instance.
+         *
+         * @param value the value.
+         * @param keyReference the key reference of the entry.
+         * @param hash the key hash.
+         * @param queue the queue with which to register the reference.
+         */
+        public SoftValueReference(final Object value, final Reference<?> keyReference, final int hash,
+                                  final ReferenceQueue<Object> queue)
+        {
+            super(value, queue);
+            m_keyReference = keyReference;
+            m_hash = hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hash()
+        {
+            return m_hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Reference<?> keyReference()
+        {
+            return m_keyReference;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.biglakesystems.biglib.impl.quality;
+
+/**
+ * {@link Clock} is a source of monotonic time. Classes whose behavior depends on the passage of time, such as expiring
+ * entries or measuring rates, take a clock at construction rather than reading {@link System#nanoTime()} directly, so
+ * that tests may supply a clock which they advance explicitly. Everywhere else, {@link #SYSTEM} is used.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface Clock
+{
+    /**
+     * The clock read via {@link System#nanoTime()}.
+     */
+    Clock SYSTEM = new Clock()
+    {
+        @Override
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Get the current time.
+     *
+     * @return {@code long} time in nanoseconds, relative to an arbitrary origin.
+     */
+    long nanoTime();
+}
@@ -0,0 +1,1725 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ConcurrentWeakIdentityHashMap} is an implementation of the {@link ConcurrentMap} interface which, like {@link
+ * WeakIdentityHashMap}, combines <em>weak</em> and <em>identity</em> semantics: it does not prevent its keys from being
+ * garbage collected, and it uses object identity when performing key comparisons.
+ * <p/>
+ * The map is divided into a number of independently locked segments. Retrieval operations are lock-free; updates lock
+ * only the segment owning the key, and entries whose keys have been garbage collected are purged concurrently by
+ * whichever threads happen to be performing updates. Iterators are <em>weakly consistent</em>: they never throw {@link
+ * ConcurrentModificationException}, and reflect the state of the map at some point at or since their creation.
+ * <p/>
+ * By default, collected entries are purged by updating threads, at most a small fixed number per operation so that no
+ * single caller bears the cost of draining the queue after a large collection. Alternatively, a map may be constructed
+ * with a {@link ReferenceDrainer}, in which case collected entries are purged on the drainer's thread and callers never
+ * purge at all.
+ * <p/>
+ * A map may also be constructed to expire entries a fixed time after they were last written, or last read or written;
+ * see {@link Expiry}. An expired entry is treated as absent as soon as it expires, and is removed from the map by a
+ * per-segment timing wheel: a ring of buckets, each a list of the entries due to expire in one tick, so that
+ * scheduling an entry, and removing it once due, take constant time. The wheel is advanced by the same operations
+ * which purge collected entries, and by insertions into its segment, so there is no timer thread or per-entry task.
+ * Every entry's deadline falls within one revolution of the wheel, so a single level suffices. Reads do not move an
+ * entry on the wheel: an entry read since it was scheduled is rescheduled when its bucket comes due. Like entries whose
+ * keys have been collected, expired entries are counted by {@link #size()} until they have been removed.
+ * <p/>
+ * Neither keys nor values may be {@code null}; as specified by {@link ConcurrentMap}, operations given either throw
+ * {@link NullPointerException}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * @param <K> the map key type.
+ * @param <V> the map value type.
+ */
+public class ConcurrentWeakIdentityHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
+{
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int MAXIMUM_SEGMENTS = 1 << 16;
+    private static final int MAXIMUM_PURGE_BATCH = 64;
+
+    /**
+     * Buckets per timing wheel. Ticks are sized so that an expiry duration spans between 16 and 32 of them, so that
+     * every deadline falls within one revolution.
+     */
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int TICKS_PER_EXPIRY = 16;
+
+    /**
+     * Estimated sizes used for {@link WeakMapStatistics#getEstimatedFootprint()}, assuming compressed references: a
+     * segment with its lock state, an array header, and an {@link Entry} with its four inherited reference fields, hash
+     * code, value, next pointer and replacement pointer, padded to eight bytes.
+     */
+    private static final int ESTIMATED_SEGMENT_BYTES = 48;
+    private static final int ESTIMATED_HEADER_BYTES = 16;
+    private static final int ESTIMATED_REFERENCE_BYTES = 4;
+    private static final int ESTIMATED_ENTRY_BYTES = 48;
+    private static final int ESTIMATED_EXPIRY_BYTES = 24;
+
+    private final Segment[] m_segments;
+    private final int m_segmentShift;
+    private final int m_segmentMask;
+    private final ReferenceQueue<? super K> m_queue;
+    private final boolean m_callerPurges;
+    private final Expiry m_expiry;
+    private final Clock m_clock;
+    private final long m_expiryNanos;
+    private final int m_tickShift;
+    private int m_expiryCursor;
+    private Set<Map.Entry<K, V>> m_entrySet;
+    private volatile WeakMapStatistics m_statistics;
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     */
+    public ConcurrentWeakIdentityHashMap()
+    {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     *
+     * @param drainer the drainer which should purge collected entries, such as {@link ReferenceDrainer#shared()}, or
+     * {@code null} to have updating threads purge them.
+     */
+    public ConcurrentWeakIdentityHashMap(final ReferenceDrainer drainer)
+    {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL, drainer);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance whose entries expire.
+     *
+     * @param drainer the drainer which should purge collected entries, such as {@link ReferenceDrainer#shared()}, or
+     * {@code null} to have updating threads purge them.
+     * @param expiry the event after which entries expire.
+     * @param duration the time after that event at which entries expire.
+     * @param unit the unit of {@code duration}.
+     */
+    public ConcurrentWeakIdentityHashMap(final ReferenceDrainer drainer, final Expiry expiry, final long duration,
+                                         final TimeUnit unit)
+    {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL, drainer, expiry, duration, unit);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     */
+    public ConcurrentWeakIdentityHashMap(final int initialCapacity)
+    {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     * @param loadFactor the per-segment load factor.
+     * @param concurrencyLevel the estimated number of concurrently updating threads.
+     */
+    public ConcurrentWeakIdentityHashMap(final int initialCapacity, final float loadFactor, final int concurrencyLevel)
+    {
+        this(initialCapacity, loadFactor, concurrencyLevel, null);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     * @param loadFactor the per-segment load factor.
+     * @param concurrencyLevel the estimated number of concurrently updating threads.
+     * @param drainer the drainer which should purge collected entries, such as {@link ReferenceDrainer#shared()}, or
+     * {@code null} to have updating threads purge them.
+     */
+    public ConcurrentWeakIdentityHashMap(final int initialCapacity, final float loadFactor, final int concurrencyLevel,
+                                         final ReferenceDrainer drainer)
+    {
+        this(initialCapacity, loadFactor, concurrencyLevel, drainer, null, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     * @param loadFactor the per-segment load factor.
+     * @param concurrencyLevel the estimated number of concurrently updating threads.
+     * @param drainer the drainer which should purge collected entries, such as {@link ReferenceDrainer#shared()}, or
+     * {@code null} to have updating threads purge them.
+     * @param expiry the event after which entries expire, or {@code null} if entries should not expire.
+     * @param duration the time after that event at which entries expire; ignored if {@code expiry} is {@code null}.
+     * @param unit the unit of {@code duration}.
+     */
+    public ConcurrentWeakIdentityHashMap(final int initialCapacity, final float loadFactor, final int concurrencyLevel,
+                                         final ReferenceDrainer drainer, final Expiry expiry, final long duration,
+                                         final TimeUnit unit)
+    {
+        this(initialCapacity, loadFactor, concurrencyLevel, drainer, expiry, duration, unit, Clock.SYSTEM);
+    }
+
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     * @param loadFactor the per-segment load factor.
+     * @param concurrencyLevel the estimated number of concurrently updating threads.
+     * @param drainer the drainer which should purge collected entries, such as {@link ReferenceDrainer#shared()}, or
+     * {@code null} to have updating threads purge them.
+     * @param expiry the event after which entries expire, or {@code null} if entries should not expire.
+     * @param duration the time after that event at which entries expire; ignored if {@code expiry} is {@code null}.
+     * @param unit the unit of {@code duration}.
+     * @param clock the clock by which entries expire.
+     */
+    @SuppressWarnings("unchecked")
+    ConcurrentWeakIdentityHashMap(final int initialCapacity, final float loadFactor, final int concurrencyLevel,
+                                  final ReferenceDrainer drainer, final Expiry expiry, final long duration,
+                                  final TimeUnit unit, final Clock clock)
+    {
+        super();
+        Assert.argumentNotNegative("initialCapacity", initialCapacity);
+        Assert.argument(loadFactor > 0.0f, "Argument [loadFactor] must be positive; was [%s].", loadFactor);
+        Assert.argumentPositive("concurrencyLevel", concurrencyLevel);
+        Assert.argumentNotNull("clock", clock);
+        m_expiry = expiry;
+        m_clock = clock;
+        if (null == expiry)
+        {
+            m_expiryNanos = 0L;
+            m_tickShift = 0;
+        }
+        else
+        {
+            Assert.argumentPositive("duration", duration);
+            Assert.argumentNotNull("unit", unit);
+            m_expiryNanos = unit.toNanos(duration);
+            m_tickShift = Math.max(0, 63 - Long.numberOfLeadingZeros(m_expiryNanos / TICKS_PER_EXPIRY));
+        }
+
+        /* Size the segment array to a power of two at least as large as the requested concurrency level. */
+        int segmentShift = 0;
+        int segmentCount = 1;
+        while (segmentCount < Math.min(concurrencyLevel, MAXIMUM_SEGMENTS))
+        {
+            segmentShift += 1;
+            segmentCount <<= 1;
+        }
+        m_segmentShift = 32 - segmentShift;
+        m_segmentMask = segmentCount - 1;
+        m_callerPurges = null == drainer;
+        m_queue = m_callerPurges ? new ReferenceQueue<Object>() : drainer.queue();
+
+        /* Divide the requested capacity among the segments, again rounding up to a power of two. */
+        final int capacity = Math.min(initialCapacity, MAXIMUM_CAPACITY);
+        int perSegment = capacity / segmentCount;
+        if (perSegment * segmentCount < capacity)
+        {
+            perSegment += 1;
+        }
+        int segmentCapacity = 1;
+        while (segmentCapacity < perSegment)
+        {
+            segmentCapacity <<= 1;
+        }
+        m_segments = (Segment[]) new ConcurrentWeakIdentityHashMap<?, ?>.Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i += 1)
+        {
+            m_segments[i] = new Segment(segmentCapacity, loadFactor);
+        }
+    }
+
+    /**
+     * Begin collecting statistics for this map, if not already doing so. Statistics are disabled by default, since
+     * collecting them adds a small cost to every operation. When a {@link ReferenceDrainer} purges the map, entries it
+     * expunges are counted, but its purges are not timed.
+     *
+     * @return {@link WeakMapStatistics} statistics.
+     */
+    public synchronized WeakMapStatistics enableStatistics()
+    {
+        WeakMapStatistics result = m_statistics;
+        if (null == result)
+        {
+            result = new WeakMapStatistics(new WeakMapStatistics.Gauges()
+            {
+                @Override
+                public int capacity()
+                {
+                    long result = 0L;
+                    for (final Segment nextSegment : m_segments)
+                    {
+                        result += nextSegment.m_table.length();
+                    }
+                    return (int) Math.min(result, Integer.MAX_VALUE);
+                }
+
+                @Override
+                public long estimatedFootprint()
+                {
+                    long result = ESTIMATED_HEADER_BYTES + (long) m_segments.length * (ESTIMATED_REFERENCE_BYTES +
+                            ESTIMATED_SEGMENT_BYTES);
+                    for (final Segment nextSegment : m_segments)
+                    {
+                        result += ESTIMATED_HEADER_BYTES + (long) nextSegment.m_table.length() *
+                                ESTIMATED_REFERENCE_BYTES + (long) nextSegment.m_count * ESTIMATED_ENTRY_BYTES;
+                        if (null != m_expiry)
+                        {
+                            result += ESTIMATED_HEADER_BYTES + WHEEL_SIZE * ESTIMATED_REFERENCE_BYTES +
+                                    (long) nextSegment.m_count * ESTIMATED_EXPIRY_BYTES;
+                        }
+                    }
+                    return result;
+                }
+
+                @Override
+                public int size()
+                {
+                    return count();
+                }
+            });
+            m_statistics = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the statistics collected for this map.
+     *
+     * @return {@link WeakMapStatistics} statistics, or {@code null} if not enabled via {@link #enableStatistics()}.
+     */
+    public WeakMapStatistics getStatistics()
+    {
+        return m_statistics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        purge();
+        for (final Segment nextSegment : m_segments)
+        {
+            nextSegment.clear();
+        }
+    }
+
+    /**
+     * Get the value mapped to a key, computing and mapping a value if there is none. Unlike a {@link #get(Object)}
+     * followed by {@link #putIfAbsent(Object, Object)}, the function is invoked at most once per absent key, even when
+     * several threads miss concurrently, and the map never holds a value other than the one returned.
+     * <p/>
+     * The function is invoked while holding the lock of the key's segment; it should be short, and must not update this
+     * map.
+     * <p/>
+     * This method is deliberately not named {@code computeIfAbsent}, which on Java 8 and later would overload the
+     * {@link Map} method of that name, making lambda arguments ambiguous. That method, inherited from {@link
+     * ConcurrentMap}, is not atomic for this map: its function may be invoked more than once per absent key.
+     *
+     * @param key the key.
+     * @param function the function which computes the value.
+     * @return {@link V} existing or computed value, or {@code null} if {@code function} returned {@code null}.
+     */
+    public V getOrCompute(final K key, final MappingFunction<? super K, ? extends V> function)
+    {
+        notNull("key", key);
+        notNull("function", function);
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        V result = segment.get(key, hash);
+        final WeakMapStatistics statistics = m_statistics;
+        if (null != statistics)
+        {
+            statistics.lookup(null != result);
+        }
+        if (null == result)
+        {
+            purge();
+            result = segment.getOrCompute(key, hash, function);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        return null != get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(final Object value)
+    {
+        notNull("value", value);
+        boolean result = false;
+        for (final Segment nextSegment : m_segments)
+        {
+            if (nextSegment.containsValue(value))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        Set<Map.Entry<K, V>> result = m_entrySet;
+        if (null == result)
+        {
+            result = new EntrySet();
+            m_entrySet = result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V get(final Object key)
+    {
+        notNull("key", key);
+        final int hash = hash(key);
+        final V result = segmentFor(hash).get(key, hash);
+        final WeakMapStatistics statistics = m_statistics;
+        if (null != statistics)
+        {
+            statistics.lookup(null != result);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return 0 == size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V put(final K key, final V value)
+    {
+        notNull("key", key);
+        notNull("value", value);
+        purge();
+        final int hash = hash(key);
+        final V result = segmentFor(hash).put(key, hash, value, false);
+        recordPut(true);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> all)
+    {
+        for (final Map.Entry<? extends K, ? extends V> nextEntry : all.entrySet())
+        {
+            put(nextEntry.getKey(), nextEntry.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V putIfAbsent(final K key, final V value)
+    {
+        notNull("key", key);
+        notNull("value", value);
+        purge();
+        final int hash = hash(key);
+        final V result = segmentFor(hash).put(key, hash, value, true);
+        recordPut(null == result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V remove(final Object key)
+    {
+        notNull("key", key);
+        purge();
+        final int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object key, final Object value)
+    {
+        notNull("key", key);
+        purge();
+        final int hash = hash(key);
+        return null != value && null != segmentFor(hash).remove(key, hash, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue)
+    {
+        notNull("key", key);
+        notNull("oldValue", oldValue);
+        notNull("newValue", newValue);
+        purge();
+        final int hash = hash(key);
+        final boolean result = segmentFor(hash).replace(key, hash, oldValue, newValue);
+        recordPut(result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V replace(final K key, final V value)
+    {
+        notNull("key", key);
+        notNull("value", value);
+        purge();
+        final int hash = hash(key);
+        final V result = segmentFor(hash).replace(key, hash, value);
+        recordPut(null != result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        purge();
+        return count();
+    }
+
+    /**
+     * Sum the entry counts of all segments, without purging.
+     *
+     * @return {@code int} entry count.
+     */
+    private int count()
+    {
+        long result = 0L;
+        for (final Segment nextSegment : m_segments)
+        {
+            result += nextSegment.m_count;
+        }
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the current time for the purposes of expiry.
+     *
+     * @return {@code long} current time, or zero if entries do not expire.
+     */
+    private long expiryClock()
+    {
+        return null == m_expiry ? 0L : m_clock.nanoTime();
+    }
+
+    /**
+     * Purge the map of up to {@link #MAXIMUM_PURGE_BATCH} entries whose keys have been garbage collected, unless a
+     * {@link ReferenceDrainer} is responsible for doing so. Any number of threads may purge concurrently; each expunged
+     * entry is removed under the lock of its own segment only. If entries expire, also advance the timing wheel of the
+     * next segment in turn, unless another thread holds its lock.
+     */
+    @SuppressWarnings("unchecked")
+    private void purge()
+    {
+        if (m_callerPurges)
+        {
+            Reference<?> next = m_queue.poll();
+            if (null != next)
+            {
+                final WeakMapStatistics statistics = m_statistics;
+                final long started = null == statistics ? 0L : System.nanoTime();
+                int expunged = 0;
+                for (int purged = 1; null != next; purged += 1)
+                {
+                    if (((Entry) next).remove())
+                    {
+                        expunged += 1;
+                    }
+                    next = purged < MAXIMUM_PURGE_BATCH ? m_queue.poll() : null;
+                }
+                if (null != statistics)
+                {
+                    statistics.purged(expunged, System.nanoTime() - started);
+                }
+            }
+        }
+        if (null != m_expiry)
+        {
+            /* The cursor is advanced without synchronization; a lost update merely revisits a segment. */
+            final Segment segment = m_segments[m_expiryCursor & m_segmentMask];
+            m_expiryCursor += 1;
+            if (segment.tryLock())
+            {
+                try
+                {
+                    segment.expire(m_clock.nanoTime());
+                }
+                finally
+                {
+                    segment.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record an insertion or replacement, if collecting statistics.
+     *
+     * @param stored whether a value was actually stored.
+     */
+    private void recordPut(final boolean stored)
+    {
+        final WeakMapStatistics statistics = m_statistics;
+        if (stored && null != statistics)
+        {
+            statistics.put();
+        }
+    }
+
+    /**
+     * Record the removal of expired entries, if collecting statistics.
+     *
+     * @param count the number of entries removed.
+     */
+    private void recordExpired(final int count)
+    {
+        final WeakMapStatistics statistics = m_statistics;
+        if (0 != count && null != statistics)
+        {
+            statistics.expired(count);
+        }
+    }
+
+    /**
+     * Get the segment responsible for a given hash value.
+     *
+     * @param hash the spread identity hash of a key.
+     * @return {@link Segment} owning the hash.
+     */
+    private Segment segmentFor(final int hash)
+    {
+        return m_segments[(hash >>> m_segmentShift) & m_segmentMask];
+    }
+
+    /**
+     * Calculate the hash value for a key, based on its identity hash code. The identity hash code is spread with a
+     * variant of the single-word Wang/Jenkins hash so that both the high bits (used for segment selection) and the low
+     * bits (used for bucket selection) are well distributed.
+     *
+     * @param key the key.
+     * @return {@code int} hash value.
+     */
+    private static int hash(final Object key)
+    {
+        int result = System.identityHashCode(key);
+        result += (result << 15) ^ 0xffffcd7d;
+        result ^= (result >>> 10);
+        result += (result << 3);
+        result ^= (result >>> 6);
+        result += (result << 2) + (result << 14);
+        return result ^ (result >>> 16);
+    }
+
+    /**
+     * Check that an argument is not {@code null}. As specified by {@link ConcurrentMap}, a {@code null} key or value is
+     * rejected with a {@link NullPointerException} rather than an {@link IllegalArgumentException}.
+     *
+     * @param name the name of the argument, for inclusion in the exception.
+     * @param value the value to check.
+     * @throws NullPointerException if the {@code value} is {@code null}.
+     */
+    private static void notNull(final String name, final Object value) throws NullPointerException
+    {
+        if (null == value)
+        {
+            throw new NullPointerException(String.format("Argument [%s] cannot be null.", name));
+        }
+    }
+
+    /**
+     * {@link Segment} is a lockable, independently resizable hash table holding a subset of the map's entries. Readers
+     * traverse the current table without locking; all structural changes are made while holding the segment lock.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+     */
+    private final class Segment extends ReentrantLock
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final float m_loadFactor;
+        private volatile AtomicReferenceArray<Entry> m_table;
+        private volatile int m_count;
+        private int m_threshold;
+        private ExpiringEntry[] m_wheel;
+        private long m_wheelTick;
+
+        /**
+         * Construct a {@link Segment} instance.
+         *
+         * @param initialCapacity the initial table capacity, a power of two.
+         * @param loadFactor the load factor.
+         */
+        @SuppressWarnings("unchecked")
+        public Segment(final int initialCapacity, final float loadFactor)
+        {
+            super();
+            m_loadFactor = loadFactor;
+            setTable(new AtomicReferenceArray<Entry>(initialCapacity));
+            if (null != m_expiry)
+            {
+                m_wheel = (ExpiringEntry[]) new ConcurrentWeakIdentityHashMap<?, ?>.ExpiringEntry[WHEEL_SIZE];
+                m_wheelTick = m_clock.nanoTime() >> m_tickShift;
+            }
+        }
+
+        /**
+         * Remove all entries from this segment.
+         */
+        public void clear()
+        {
+            lock();
+            try
+            {
+                setTable(new AtomicReferenceArray<Entry>(m_table.length()));
+                m_count = 0;
+                if (null != m_wheel)
+                {
+                    Arrays.fill(m_wheel, null);
+                }
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        /**
+         * Determine whether any entry with a live key in this segment maps to a value.
+         *
+         * @param value the value.
+         * @return {@code boolean} true if found.
+         */
+        public boolean containsValue(final Object value)
+        {
+            boolean result = false;
+            final long now = expiryClock();
+            final AtomicReferenceArray<Entry> table = m_table;
+            for (int i = 0; !result && i < table.length(); i += 1)
+            {
+                for (Entry next = table.get(i); null != next; next = next.m_next)
+                {
+                    final Entry current = next.current();
+                    if (value.equals(current.m_value) && null != current.get() && !current.isExpired(now))
+                    {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Get the value mapped to a key, without locking. An entry which has expired, but has not yet been removed, is
+         * ignored.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @return {@link V} value, or {@code null} if none.
+         */
+        public V get(final Object key, final int hash)
+        {
+            final Entry entry = find(m_table, key, hash);
+            V result = null;
+            if (null != entry)
+            {
+                final long now = expiryClock();
+                if (!entry.isExpired(now))
+                {
+                    result = entry.m_value;
+                    entry.accessed(now);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Map a key to a value.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the value.
+         * @param onlyIfAbsent whether to leave an existing mapping unchanged.
+         * @return {@link V} previous value, or {@code null} if none.
+         */
+        public V put(final K key, final int hash, final V value, final boolean onlyIfAbsent)
+        {
+            lock();
+            try
+            {
+                final long now = expiryClock();
+                expire(now);
+                if (m_count >= m_threshold)
+                {
+                    rehash(now);
+                }
+                final V result;
+                final AtomicReferenceArray<Entry> table = m_table;
+                final Entry existing = findUnexpired(key, hash, now);
+                if (null != existing)
+                {
+                    result = existing.m_value;
+                    if (onlyIfAbsent)
+                    {
+                        existing.accessed(now);
+                    }
+                    else
+                    {
+                        existing.m_value = value;
+                        existing.written(now);
+                    }
+                }
+                else
+                {
+                    result = null;
+                    insert(table, key, hash, value, now);
+                }
+                return result;
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        /**
+         * Get the value mapped to a key, computing and mapping a value under the segment lock if there is none.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param function the function which computes the value.
+         * @return {@link V} existing or computed value, or {@code null} if none.
+         */
+        public V getOrCompute(final K key, final int hash, final MappingFunction<? super K, ? extends V> function)
+        {
+            lock();
+            try
+            {
+                V result;
+                final long now = expiryClock();
+                expire(now);
+                final Entry existing = findUnexpired(key, hash, now);
+                if (null != existing)
+                {
+                    result = existing.m_value;
+                    existing.accessed(now);
+                }
+                else
+                {
+                    result = function.apply(key);
+                    if (null != result)
+                    {
+                        /* Rehash only after computing, since the function may have been slow or may have failed. */
+                        if (m_count >= m_threshold)
+                        {
+                            rehash(now);
+                        }
+                        insert(m_table, key, hash, result, now);
+                        recordPut(true);
+                    }
+                }
+                return result;
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        /**
+         * Remove the mapping for a key, optionally only if it is mapped to a given value.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the expected value, or {@code null} to remove unconditionally.
+         * @return {@link V} removed value, or {@code null} if nothing was removed.
+         */
+        public V remove(final Object key, final int hash, final Object value)
+        {
+            lock();
+            try
+            {
+                V result = null;
+                final AtomicReferenceArray<Entry> table = m_table;
+                final int index = hash & (table.length() - 1);
+                Entry previous = null;
+                for (Entry next = table.get(index); null != next; next = next.m_next)
+                {
+                    if (hash == next.m_hash && key == next.get())
+                    {
+                        if (next.isExpired(expiryClock()))
+                        {
+                            unlink(table, index, previous, next);
+                            recordExpired(1);
+                        }
+                        else if (null == value || value.equals(next.m_value))
+                        {
+                            result = next.m_value;
+                            unlink(table, index, previous, next);
+                        }
+                        break;
+                    }
+                    previous = next;
+                }
+                return result;
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        /**
+         * Remove a specific entry, typically one whose key has been garbage collected. Does nothing if the entry has
+         * already been removed, or was discarded by a rehash.
+         *
+         * @param entry the entry.
+         * @return {@code boolean} {@code true} if the entry was removed.
+         */
+        public boolean removeEntry(final Entry entry)
+        {
+            final boolean result;
+            lock();
+            try
+            {
+                result = unlinkEntry(entry);
+            }
+            finally
+            {
+                unlock();
+            }
+            return result;
+        }
+
+        /**
+         * Replace the value for a key, only if currently mapped to a given value.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param oldValue the expected value.
+         * @param newValue the replacement value.
+         * @return {@code boolean} true if replaced.
+         */
+        public boolean replace(final K key, final int hash, final V oldValue, final V newValue)
+        {
+            lock();
+            try
+            {
+                boolean result = false;
+                final long now = expiryClock();
+                final Entry existing = findUnexpired(key, hash, now);
+                if (null != existing && oldValue.equals(existing.m_value))
+                {
+                    existing.m_value = newValue;
+                    existing.written(now);
+                    result = true;
+                }
+                return result;
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        /**
+         * Replace the value for a key, only if currently mapped to some value.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the replacement value.
+         * @return {@link V} previous value, or {@code null} if none.
+         */
+        public V replace(final K key, final int hash, final V value)
+        {
+            lock();
+            try
+            {
+                V result = null;
+                final long now = expiryClock();
+                final Entry existing = findUnexpired(key, hash, now);
+                if (null != existing)
+                {
+                    result = existing.m_value;
+                    existing.m_value = value;
+                    existing.written(now);
+                }
+                return result;
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        /**
+         * Remove the entries due to expire in each tick which has elapsed since the wheel was last advanced. Entries
+         * which are not yet due, having been read or written since they were scheduled, are rescheduled. Must be
+         * called with the segment lock held.
+         *
+         * @param now the current time.
+         */
+        private void expire(final long now)
+        {
+            if (null != m_wheel)
+            {
+                /* After a long idle period, one revolution visits every bucket. */
+                final long nowTick = now >> m_tickShift;
+                m_wheelTick = Math.max(m_wheelTick, nowTick - WHEEL_SIZE);
+                int expired = 0;
+                while (m_wheelTick < nowTick)
+                {
+                    m_wheelTick += 1L;
+                    final int bucket = (int) m_wheelTick & WHEEL_MASK;
+                    ExpiringEntry next = m_wheel[bucket];
+                    m_wheel[bucket] = null;
+                    while (null != next)
+                    {
+                        final ExpiringEntry entry = next;
+                        next = entry.m_wheelNext;
+                        entry.m_bucket = -1;
+                        entry.m_wheelNext = null;
+                        entry.m_wheelPrevious = null;
+                        if (!entry.isExpired(now))
+                        {
+                            schedule(entry, now);
+                        }
+                        else if (unlinkEntry(entry))
+                        {
+                            expired += 1;
+                        }
+                    }
+                }
+                recordExpired(expired);
+            }
+        }
+
+        /**
+         * Find the entry for a key within the current table, removing it if it has expired. Must be called with the
+         * segment lock held.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param now the current time.
+         * @return {@link Entry} found entry, or {@code null} if none, or if the entry found had expired.
+         */
+        private Entry findUnexpired(final Object key, final int hash, final long now)
+        {
+            Entry result = find(m_table, key, hash);
+            if (null != result && result.isExpired(now))
+            {
+                unlinkEntry(result);
+                recordExpired(1);
+                result = null;
+            }
+            return result;
+        }
+
+        /**
+         * Add a new entry to a table, and schedule its expiry. Must be called with the segment lock held.
+         *
+         * @param table the current table.
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the value.
+         * @param now the current time.
+         */
+        private void insert(final AtomicReferenceArray<Entry> table, final K key, final int hash, final V value,
+                            final long now)
+        {
+            final int index = hash & (table.length() - 1);
+            table.set(index, newEntry(key, hash, value, table.get(index), now));
+            m_count += 1;
+        }
+
+        /**
+         * Create an entry, scheduling its expiry if entries expire. Must be called with the segment lock held.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the value.
+         * @param next the next entry in the bucket chain, or {@code null} if none.
+         * @param touched the time from which the entry's expiry is measured.
+         * @return {@link Entry} new entry.
+         */
+        private Entry newEntry(final K key, final int hash, final V value, final Entry next, final long touched)
+        {
+            final Entry result;
+            if (null == m_wheel)
+            {
+                result = new Entry(key, hash, value, next);
+            }
+            else
+            {
+                final ExpiringEntry entry = new ExpiringEntry(key, hash, value, next, touched);
+                schedule(entry, touched);
+                result = entry;
+            }
+            return result;
+        }
+
+        /**
+         * Add an entry to the wheel bucket for the tick by which it will have expired, measured from the time it was
+         * last read or written. Must be called with the segment lock held.
+         *
+         * @param entry the entry, which must not already be scheduled.
+         * @param now the current time.
+         */
+        private void schedule(final ExpiringEntry entry, final long now)
+        {
+            /* Two ticks of slack allow for rounding both the current time and the time remaining down to a tick. */
+            final long remaining = m_expiryNanos - (now - entry.m_touched);
+            final long tick = Math.max((now >> m_tickShift) + (remaining >> m_tickShift) + 2L, m_wheelTick + 1L);
+            final int bucket = (int) tick & WHEEL_MASK;
+            entry.m_bucket = bucket;
+            entry.m_wheelNext = m_wheel[bucket];
+            if (null != entry.m_wheelNext)
+            {
+                entry.m_wheelNext.m_wheelPrevious = entry;
+            }
+            m_wheel[bucket] = entry;
+        }
+
+        /**
+         * Remove an entry from its wheel bucket, if it is scheduled. Must be called with the segment lock held.
+         *
+         * @param entry the entry.
+         */
+        private void deschedule(final ExpiringEntry entry)
+        {
+            if (entry.m_bucket >= 0)
+            {
+                if (null == entry.m_wheelPrevious)
+                {
+                    m_wheel[entry.m_bucket] = entry.m_wheelNext;
+                }
+                else
+                {
+                    entry.m_wheelPrevious.m_wheelNext = entry.m_wheelNext;
+                }
+                if (null != entry.m_wheelNext)
+                {
+                    entry.m_wheelNext.m_wheelPrevious = entry.m_wheelPrevious;
+                }
+                entry.m_bucket = -1;
+                entry.m_wheelNext = null;
+                entry.m_wheelPrevious = null;
+            }
+        }
+
+        /**
+         * Remove a specific entry from the current table. Must be called with the segment lock held.
+         *
+         * @param entry the entry.
+         * @return {@code boolean} {@code true} if the entry was removed; {@code false} if it was not in the table.
+         */
+        private boolean unlinkEntry(final Entry entry)
+        {
+            boolean result = false;
+            final AtomicReferenceArray<Entry> table = m_table;
+            final int index = entry.m_hash & (table.length() - 1);
+            Entry previous = null;
+            for (Entry next = table.get(index); null != next; next = next.m_next)
+            {
+                if (entry == next)
+                {
+                    unlink(table, index, previous, next);
+                    result = true;
+                    break;
+                }
+                previous = next;
+            }
+            return result;
+        }
+
+        /**
+         * Find the entry for a key within a table.
+         *
+         * @param table the table.
+         * @param key the key.
+         * @param hash the key hash.
+         * @return {@link Entry} found entry, or {@code null} if none; if the table has since been replaced by a rehash,
+         * the entry's copy in the current table.
+         */
+        private Entry find(final AtomicReferenceArray<Entry> table, final Object key, final int hash)
+        {
+            Entry result = table.get(hash & (table.length() - 1));
+            while (null != result && !(hash == result.m_hash && key == result.current().get()))
+            {
+                result = result.m_next;
+            }
+            return null == result ? null : result.current();
+        }
+
+        /**
+         * Double the size of the table, copying all entries with live keys into the new table and dropping any whose
+         * keys have been collected or which have expired. Entries are copied rather than relinked so that readers
+         * concurrently traversing the old table are unaffected; if entries expire, the copies are scheduled on an
+         * empty wheel in place of the originals. Each original is then cleared, so that its key is enqueued and
+         * expunged only once, via its copy; readers still traversing the old table follow the original to its copy.
+         * Must be called with the segment lock held.
+         *
+         * @param now the current time.
+         */
+        private void rehash(final long now)
+        {
+            final AtomicReferenceArray<Entry> oldTable = m_table;
+            final int oldCapacity = oldTable.length();
+            if (oldCapacity < MAXIMUM_CAPACITY)
+            {
+                final AtomicReferenceArray<Entry> newTable = new AtomicReferenceArray<Entry>(oldCapacity << 1);
+                final int mask = newTable.length() - 1;
+                if (null != m_wheel)
+                {
+                    Arrays.fill(m_wheel, null);
+                }
+                int count = 0;
+                int expired = 0;
+                for (int i = 0; i < oldCapacity; i += 1)
+                {
+                    for (Entry next = oldTable.get(i); null != next; next = next.m_next)
+                    {
+                        final K key = next.get();
+                        if (null != key && next.isExpired(now))
+                        {
+                            expired += 1;
+                            next.clear();
+                        }
+                        else if (null != key)
+                        {
+                            final int index = next.m_hash & mask;
+                            final Entry copy = newEntry(key, next.m_hash, next.m_value, newTable.get(index),
+                                    next.touched());
+                            newTable.set(index, copy);
+                            next.m_replacement = copy;
+                            next.clear();
+                            count += 1;
+                        }
+                    }
+                }
+                setTable(newTable);
+                final WeakMapStatistics statistics = m_statistics;
+                if (null != statistics)
+                {
+                    statistics.expunged(m_count - count - expired);
+                }
+                recordExpired(expired);
+                m_count = count;
+            }
+        }
+
+        /**
+         * Install a new table and recalculate the resize threshold. Must be called with the segment lock held, or from
+         * the constructor.
+         *
+         * @param table the table.
+         */
+        private void setTable(final AtomicReferenceArray<Entry> table)
+        {
+            m_threshold = (int) (table.length() * m_loadFactor);
+            m_table = table;
+        }
+
+        /**
+         * Unlink an entry from its bucket chain. Must be called with the segment lock held. The unlinked entry's own
+         * {@code next} pointer is left intact, so that readers currently positioned on it may continue traversing.
+         *
+         * @param table the table.
+         * @param index the bucket index.
+         * @param previous the entry preceding the unlinked entry in the chain, or {@code null} if it is the first.
+         * @param entry the entry to unlink.
+         */
+        private void unlink(final AtomicReferenceArray<Entry> table, final int index, final Entry previous,
+                            final Entry entry)
+        {
+            if (null == previous)
+            {
+                table.set(index, entry.m_next);
+            }
+            else
+            {
+                previous.m_next = entry.m_next;
+            }
+            m_count -= 1;
+            if (null != m_wheel)
+            {
+                deschedule((ExpiringEntry) entry);
+            }
+
+            /* No need for the collector to enqueue a reference we no longer care about. */
+            entry.clear();
+        }
+    }
+
+    /**
+     * {@link Expiry} enumerates the events after which the entries of a map constructed with expiry expire.
+     */
+    public static enum Expiry
+    {
+        /**
+         * Entries expire a fixed time after their value was last set.
+         */
+        AFTER_WRITE,
+
+        /**
+         * Entries expire a fixed time after their value was last set or retrieved.
+         */
+        AFTER_ACCESS
+    }
+
+    /**
+     * {@link Entry} is a bucket chain entry. Each entry is itself the weak reference to its key, registered with the
+     * map's reference queue or that of its {@link ReferenceDrainer}. Entries of a map whose entries do not expire are
+     * of this class; the expiry hooks do nothing.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access. The {@code next} and
+     * {@code value} fields are modified only with the owning segment's lock held.
+     */
+    private class Entry extends WeakReference<K> implements ReferenceDrainer.Expungeable
+    {
+        private final int m_hash;
+        private volatile V m_value;
+        private volatile Entry m_next;
+
+        /* Copy of this entry installed by a rehash, which cleared this entry; set with the segment lock held. */
+        private volatile Entry m_replacement;
+
+        /**
+         * Construct an {@link Entry} instance.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the value.
+         * @param next the next entry in the bucket chain, or {@code null} if none.
+         */
+        public Entry(final K key, final int hash, final V value, final Entry next)
+        {
+            super(key, m_queue);
+            m_hash = hash;
+            m_value = value;
+            m_next = next;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void expunge()
+        {
+            final WeakMapStatistics statistics = m_statistics;
+            if (remove() && null != statistics)
+            {
+                statistics.expunged(1);
+            }
+        }
+
+        /**
+         * Get the entry currently holding this entry's mapping: this entry, or if it has been copied by one or more
+         * rehashes, its latest copy.
+         *
+         * @return {@link Entry} current entry.
+         */
+        public Entry current()
+        {
+            /* The key is read before the replacement, which a rehash sets before clearing the key. */
+            Entry result = this;
+            while (null == result.get() && null != result.m_replacement)
+            {
+                result = result.m_replacement;
+            }
+            return result;
+        }
+
+        /**
+         * Remove this entry from its segment.
+         *
+         * @return {@code boolean} {@code true} if the entry was removed; {@code false} if it had already been removed,
+         * or was discarded by a rehash.
+         */
+        public boolean remove()
+        {
+            return segmentFor(m_hash).removeEntry(this);
+        }
+
+        /**
+         * Note that this entry's value has been retrieved.
+         *
+         * @param now the current time.
+         */
+        public void accessed(final long now)
+        {
+            /* Entries do not expire. */
+        }
+
+        /**
+         * Determine whether this entry has expired.
+         *
+         * @param now the current time.
+         * @return {@code boolean} {@code true} if expired.
+         */
+        public boolean isExpired(final long now)
+        {
+            return false;
+        }
+
+        /**
+         * Get the time from which this entry's expiry is measured.
+         *
+         * @return {@code long} time in nanoseconds.
+         */
+        public long touched()
+        {
+            return 0L;
+        }
+
+        /**
+         * Note that this entry's value has been set. Must be called with the owning segment's lock held.
+         *
+         * @param now the current time.
+         */
+        public void written(final long now)
+        {
+            /* Entries do not expire. */
+        }
+    }
+
+    /**
+     * {@link ExpiringEntry} is the bucket chain entry of a map whose entries expire. It records the time from which its
+     * expiry is measured, and links itself into a list of the entries in the same bucket of its segment's timing wheel.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access. The wheel fields are
+     * accessed only with the owning segment's lock held; the time may be advanced by concurrent readers.
+     */
+    private final class ExpiringEntry extends Entry
+    {
+        private volatile long m_touched;
+        private int m_bucket = -1;
+        private ExpiringEntry m_wheelPrevious;
+        private ExpiringEntry m_wheelNext;
+
+        /**
+         * Construct an {@link ExpiringEntry} instance.
+         *
+         * @param key the key.
+         * @param hash the key hash.
+         * @param value the value.
+         * @param next the next entry in the bucket chain, or {@code null} if none.
+         * @param touched the time from which the entry's expiry is measured.
+         */
+        public ExpiringEntry(final K key, final int hash, final V value, final Entry next, final long touched)
+        {
+            super(key, hash, value, next);
+            m_touched = touched;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * Under {@link Expiry#AFTER_ACCESS}, restarts the expiry time, unless it was restarted within the current tick;
+         * so that frequently read entries are not written on every read.
+         */
+        @Override
+        public void accessed(final long now)
+        {
+            if (Expiry.AFTER_ACCESS == m_expiry && (now - m_touched) >> m_tickShift != 0L)
+            {
+                m_touched = now;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isExpired(final long now)
+        {
+            return now - m_touched >= m_expiryNanos;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long touched()
+        {
+            return m_touched;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void written(final long now)
+        {
+            m_touched = now;
+        }
+    }
+
+    /**
+     * {@link EntrySet} is the live {@link Set} view returned by {@link #entrySet()}.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear()
+        {
+            ConcurrentWeakIdentityHashMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(final Object baseEntry)
+        {
+            boolean result = false;
+            if (baseEntry instanceof Map.Entry)
+            {
+                final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) baseEntry;
+                if (null != entry.getKey())
+                {
+                    final V value = get(entry.getKey());
+                    result = null != value && value.equals(entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(final Object baseEntry)
+        {
+            boolean result = false;
+            if (baseEntry instanceof Map.Entry)
+            {
+                final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) baseEntry;
+                result = null != entry.getKey() && ConcurrentWeakIdentityHashMap.this.remove(entry.getKey(),
+                        entry.getValue());
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size()
+        {
+            return ConcurrentWeakIdentityHashMap.this.size();
+        }
+    }
+
+    /**
+     * {@link EntryIterator} is a weakly consistent iterator over the entries of the map. It skips entries whose keys
+     * have been collected or which have expired, and holds a strong reference to the key of the next entry to be
+     * returned so that it cannot be collected between {@link #hasNext()} and {@link #next()}.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are not thread-safe.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>>
+    {
+        private int m_segmentIndex = m_segments.length;
+        private int m_bucketIndex = -1;
+        private AtomicReferenceArray<Entry> m_table;
+        private Entry m_nextEntry;
+        private K m_nextKey;
+        private K m_lastKey;
+
+        /**
+         * Construct an {@link EntryIterator} instance.
+         */
+        public EntryIterator()
+        {
+            super();
+            advance();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext()
+        {
+            return null != m_nextKey;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            if (null == m_nextKey)
+            {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K, V> result = new WriteThroughEntry(m_nextKey, m_nextEntry.current().m_value);
+            m_lastKey = m_nextKey;
+            advance();
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove()
+        {
+            if (null == m_lastKey)
+            {
+                throw new IllegalStateException();
+            }
+            ConcurrentWeakIdentityHashMap.this.remove(m_lastKey);
+            m_lastKey = null;
+        }
+
+        /**
+         * Advance to the next entry with a live key, if any.
+         */
+        private void advance()
+        {
+            final long now = expiryClock();
+            m_nextKey = null;
+            Entry candidate = null == m_nextEntry ? null : m_nextEntry.m_next;
+            while (null == m_nextKey)
+            {
+                if (null != candidate)
+                {
+                    final Entry current = candidate.current();
+                    m_nextKey = current.isExpired(now) ? null : current.get();
+                    m_nextEntry = candidate;
+                    candidate = candidate.m_next;
+                }
+                else if (null != m_table && m_bucketIndex > 0)
+                {
+                    m_bucketIndex -= 1;
+                    candidate = m_table.get(m_bucketIndex);
+                }
+                else if (m_segmentIndex > 0)
+                {
+                    m_segmentIndex -= 1;
+                    m_table = m_segments[m_segmentIndex].m_table;
+                    m_bucketIndex = m_table.length();
+                }
+                else
+                {
+                    m_nextEntry = null;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link WriteThroughEntry} is the {@link Map.Entry} implementation returned by map iterators. Its {@link
+     * #setValue(Object)} method writes through to the map.
+     */
+    private final class WriteThroughEntry extends AbstractMap.SimpleEntry<K, V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Construct a {@link WriteThroughEntry} instance.
+         *
+         * @param key the key.
+         * @param value the value.
+         */
+        public WriteThroughEntry(final K key, final V value)
+        {
+            super(key, value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public V setValue(final V value)
+        {
+            notNull("value", value);
+            final V result = super.setValue(value);
+            put(getKey(), value);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.CompactExceptionIdGenerator;
+import com.biglakesystems.biglib.quality.ExceptionId;
+import com.biglakesystems.biglib.quality.ExceptionIdGenerator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CounterExceptionIdGenerator} is a fast {@link ExceptionIdGenerator} strategy which combines a random node
+ * identifier, chosen once per generator instance, with an ever-incrementing counter. Identifiers are encoded in
+ * Crockford base 32: eight characters of node identifier followed by as few characters of counter as are needed, so
+ * early identifiers are as short as nine characters. Generating an identifier costs one atomic increment and one small
+ * allocation, since identifiers are minted in compact form.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class CounterExceptionIdGenerator implements CompactExceptionIdGenerator
+{
+    private static final int NODE_CHARACTERS = 8;
+
+    private final long m_node;
+    private final AtomicLong m_nextCounter = new AtomicLong(0L);
+
+    /**
+     * Construct a {@link CounterExceptionIdGenerator} instance with a random 40-bit node identifier.
+     */
+    public CounterExceptionIdGenerator()
+    {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Construct a {@link CounterExceptionIdGenerator} instance.
+     *
+     * @param node the node identifier; only the low-order 40 bits are used.
+     */
+    public CounterExceptionIdGenerator(final long node)
+    {
+        super();
+        m_node = node & 0xffffffffffL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExceptionId newExceptionId(final Throwable exception)
+    {
+        final long counter = m_nextCounter.getAndIncrement();
+
+        /* As few characters of counter as are needed, which is at least one and at most 13 (65 bits). */
+        final int counterCharacters = Math.max(1, (68 - Long.numberOfLeadingZeros(counter)) / 5);
+        final int counterBits = counterCharacters * 5;
+        final long middle = counterBits >= 64 ? m_node << (counterBits - 64) : m_node >>> (64 - counterBits);
+        final long low = counterBits >= 64 ? counter : counter | (m_node << counterBits);
+        return ExceptionId.base32(0L, middle, low, NODE_CHARACTERS + counterCharacters);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String newId(final Throwable exception)
+    {
+        return newExceptionId(exception).toString();
+    }
+}
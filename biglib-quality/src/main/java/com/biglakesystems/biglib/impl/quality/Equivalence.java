@@ -0,0 +1,28 @@
+package com.biglakesystems.biglib.impl.quality;
+
+/**
+ * {@link Equivalence} is the means by which a {@link ReferenceMap} compares and hashes its keys.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public enum Equivalence
+{
+    /**
+     * Keys are the same only if they are the same object, as by {@code ==} and {@link System#identityHashCode(Object)}.
+     */
+    IDENTITY,
+
+    /**
+     * Keys are the same if equal, as by {@link Object#equals(Object)} and {@link Object#hashCode()}.
+     */
+    EQUALS
+}
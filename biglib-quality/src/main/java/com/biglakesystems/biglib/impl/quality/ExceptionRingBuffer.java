@@ -0,0 +1,199 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+import com.biglakesystems.biglib.quality.CapturedException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ExceptionRingBuffer} is a bounded, lock-free, multi-producer multi-consumer queue of exception snapshots,
+ * after Dmitry Vyukov's array-based queue. Each slot carries a sequence number which tells producers and consumers
+ * whether the slot is free for the lap in progress; a producer claims a slot by advancing the enqueue position with a
+ * single compare-and-set, writes its fields, then publishes by advancing the slot's sequence. Consumers proceed
+ * symmetrically. Producers and consumers contend only on their own position counter, never on each other's. Sequence
+ * numbers are read with acquire and written with release ordering via {@link SequenceArray}, and contended retries are
+ * hinted via {@link Platform#onSpinWait()}; both are cheaper on newer platforms.
+ * <p/>
+ * Slots are preallocated as parallel arrays of fields, so publishing allocates nothing beyond the stack trace snapshot
+ * which {@link Throwable#getStackTrace()} returns. When the buffer is full, {@link #offer(String, Throwable, long,
+ * String)} fails immediately rather than waiting.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionRingBuffer
+{
+    private static final int MAXIMUM_CAPACITY = 1 << 24;
+
+    private final int m_mask;
+    private final SequenceArray m_sequences;
+    private final String[] m_ids;
+    private final String[] m_classNames;
+    private final String[] m_messages;
+    private final StackTraceElement[][] m_stackTraces;
+    private final long[] m_timestamps;
+    private final String[] m_threadNames;
+    private final AtomicLong m_enqueuePosition = new AtomicLong(0L);
+    private final AtomicLong m_dequeuePosition = new AtomicLong(0L);
+
+    /**
+     * Construct a {@link ExceptionRingBuffer} instance.
+     *
+     * @param capacity the minimum capacity, which is rounded up to a power of two.
+     */
+    public ExceptionRingBuffer(final int capacity)
+    {
+        super();
+        Assert.argumentInRange("capacity", capacity, 2, MAXIMUM_CAPACITY);
+        int size = 2;
+        while (size < capacity)
+        {
+            size <<= 1;
+        }
+        m_mask = size - 1;
+        m_sequences = new SequenceArray(size);
+        m_ids = new String[size];
+        m_classNames = new String[size];
+        m_messages = new String[size];
+        m_stackTraces = new StackTraceElement[size][];
+        m_timestamps = new long[size];
+        m_threadNames = new String[size];
+    }
+
+    /**
+     * Get the capacity of this buffer.
+     *
+     * @return {@code int} capacity.
+     */
+    public int capacity()
+    {
+        return m_mask + 1;
+    }
+
+    /**
+     * Publish a snapshot of an exception, if there is room.
+     *
+     * @param id the exception identifier.
+     * @param exception the exception.
+     * @param timestamp the capture time, in milliseconds since the epoch.
+     * @param threadName the name of the capturing thread.
+     * @return {@code boolean} {@code true} if published, {@code false} if the buffer was full.
+     */
+    public boolean offer(final String id, final Throwable exception, final long timestamp, final String threadName)
+    {
+        /* Take the snapshot before claiming a slot, so that an exception whose accessors fail cannot leave a claimed
+        slot unpublished and stall every consumer. */
+        final String className = exception.getClass().getName();
+        final String message = exception.getMessage();
+        final StackTraceElement[] stackTrace = exception.getStackTrace();
+        boolean result = false;
+        boolean done = false;
+        long position = m_enqueuePosition.get();
+        while (!done)
+        {
+            final int index = (int) position & m_mask;
+            final long difference = m_sequences.getAcquire(index) - position;
+            if (0L == difference)
+            {
+                if (m_enqueuePosition.compareAndSet(position, position + 1L))
+                {
+                    m_ids[index] = id;
+                    m_classNames[index] = className;
+                    m_messages[index] = message;
+                    m_stackTraces[index] = stackTrace;
+                    m_timestamps[index] = timestamp;
+                    m_threadNames[index] = threadName;
+                    /* Release write publishes the fields above to the consumer which reads this sequence. */
+                    m_sequences.setRelease(index, position + 1L);
+                    result = true;
+                    done = true;
+                }
+                else
+                {
+                    Platform.onSpinWait();
+                    position = m_enqueuePosition.get();
+                }
+            }
+            else if (difference < 0L)
+            {
+                /* The slot still holds an element from the previous lap; the buffer is full. */
+                done = true;
+            }
+            else
+            {
+                /* Another producer claimed this position; catch up. */
+                position = m_enqueuePosition.get();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Take the oldest published snapshot, if any.
+     *
+     * @return {@link CapturedException} snapshot, or {@code null} if the buffer is empty.
+     */
+    public CapturedException poll()
+    {
+        CapturedException result = null;
+        boolean done = false;
+        long position = m_dequeuePosition.get();
+        while (!done)
+        {
+            final int index = (int) position & m_mask;
+            final long difference = m_sequences.getAcquire(index) - (position + 1L);
+            if (0L == difference)
+            {
+                if (m_dequeuePosition.compareAndSet(position, position + 1L))
+                {
+                    result = new CapturedException(m_ids[index], m_classNames[index], m_messages[index],
+                            m_stackTraces[index], m_timestamps[index], m_threadNames[index]);
+                    m_ids[index] = null;
+                    m_classNames[index] = null;
+                    m_messages[index] = null;
+                    m_stackTraces[index] = null;
+                    m_threadNames[index] = null;
+                    /* Release the slot to the producer of the next lap. */
+                    m_sequences.setRelease(index, position + m_mask + 1L);
+                    done = true;
+                }
+                else
+                {
+                    Platform.onSpinWait();
+                    position = m_dequeuePosition.get();
+                }
+            }
+            else if (difference < 0L)
+            {
+                /* Nothing has been published at this position yet; the buffer is empty. */
+                done = true;
+            }
+            else
+            {
+                position = m_dequeuePosition.get();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the approximate number of snapshots in this buffer, including any claimed but not yet published.
+     *
+     * @return {@code int} size.
+     */
+    public int size()
+    {
+        final long size = m_enqueuePosition.get() - m_dequeuePosition.get();
+        return (int) Math.max(0L, Math.min(size, capacity()));
+    }
+}
@@ -0,0 +1,381 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+import com.biglakesystems.biglib.quality.CapturedException;
+import com.biglakesystems.biglib.quality.CompactStackTrace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * {@link JournalSegment} is a single fixed-size, memory-mapped file of an exception journal. Records are appended to a
+ * data region and located through an open-addressed hash index stored in the same file, so that finding a record by
+ * exception identifier touches a handful of pages regardless of the segment's size. The layout is:
+ * <pre>
+ * header  magic, version, index slot count, data offset, write position, record count  (32 bytes)
+ * index   slots of [64-bit identifier hash, 32-bit record offset], offset 0 meaning empty  (12 bytes each)
+ * data    records of [length, timestamp, id, class name, message, thread name, frames]
+ * </pre>
+ * Strings are stored as a length followed by UTF-8 bytes, with a length of {@code -1} for {@code null}. Each record is
+ * written in full, then indexed, and only then covered by the write position in the header; readers ignore index slots
+ * beyond the write position, so a segment whose writer stopped abruptly remains readable up to its last complete
+ * record.
+ * <p/>
+ * Appending encodes directly into the mapped buffer, and never forces it to storage; the operating system writes dirty
+ * pages back in its own time, or when {@link #force()} is invoked.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are not thread-safe. All operations must be performed on a
+ * single thread or appropriate publication and synchronization constructs must be applied externally.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class JournalSegment
+{
+    /**
+     * Minimum segment size, which leaves room for the header, a small index and a few records.
+     */
+    public static final int MINIMUM_SIZE = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x424c454a;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 12;
+    private static final int DATA_BYTES_PER_SLOT = 1024;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOTS_OFFSET = 8;
+    private static final int DATA_OFFSET = 12;
+    private static final int POSITION_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+    private static final int MAXIMUM_FRAMES = 1024;
+
+    private final File m_file;
+    private final MappedByteBuffer m_buffer;
+    private final int m_slotMask;
+    private int m_position;
+    private int m_count;
+
+    /**
+     * Construct a {@link JournalSegment} instance over a buffer.
+     *
+     * @param file the segment file.
+     * @param buffer the mapped buffer.
+     * @throws IOException if the buffer does not hold a valid segment.
+     */
+    private JournalSegment(final File file, final MappedByteBuffer buffer) throws IOException
+    {
+        super();
+        m_file = file;
+        m_buffer = buffer;
+        final int slots = buffer.getInt(SLOTS_OFFSET);
+        final int dataStart = buffer.getInt(DATA_OFFSET);
+        m_position = buffer.getInt(POSITION_OFFSET);
+        m_count = buffer.getInt(COUNT_OFFSET);
+        if (MAGIC != buffer.getInt(MAGIC_OFFSET) || VERSION != buffer.getInt(VERSION_OFFSET) ||
+                slots <= 0 || 0 != (slots & (slots - 1)) || dataStart != HEADER_BYTES + slots * SLOT_BYTES ||
+                m_position < dataStart || m_position > buffer.capacity())
+        {
+            throw new IOException(String.format("File [%s] is not a valid journal segment.", file));
+        }
+        m_slotMask = slots - 1;
+    }
+
+    /**
+     * Create a new, empty segment file.
+     *
+     * @param file the file, which must not exist.
+     * @param size the segment size in bytes.
+     * @return {@link JournalSegment} segment, open for appending.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static JournalSegment create(final File file, final int size) throws IOException
+    {
+        Assert.argumentNotNull("file", file);
+        Assert.argument(size >= MINIMUM_SIZE, "Segment size must be at least [%d]; was [%d].", MINIMUM_SIZE, size);
+        if (!file.createNewFile())
+        {
+            throw new IOException(String.format("Journal segment [%s] already exists.", file));
+        }
+        int slots = 1;
+        while (slots < size / DATA_BYTES_PER_SLOT)
+        {
+            slots <<= 1;
+        }
+        final MappedByteBuffer buffer = map(file, size, false);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(SLOTS_OFFSET, slots);
+        buffer.putInt(DATA_OFFSET, HEADER_BYTES + slots * SLOT_BYTES);
+        buffer.putInt(POSITION_OFFSET, HEADER_BYTES + slots * SLOT_BYTES);
+        buffer.putInt(COUNT_OFFSET, 0);
+        return new JournalSegment(file, buffer);
+    }
+
+    /**
+     * Compute the 64-bit FNV-1a hash under which an identifier is indexed. Never returns zero.
+     *
+     * @param id the exception identifier.
+     * @return {@code long} hash.
+     */
+    public static long hash(final String id)
+    {
+        long result = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i += 1)
+        {
+            result ^= id.charAt(i);
+            result *= 0x100000001b3L;
+        }
+        return 0L == result ? 1L : result;
+    }
+
+    /**
+     * Open an existing segment file for reading.
+     *
+     * @param file the file.
+     * @return {@link JournalSegment} segment, which must not be appended to.
+     * @throws IOException if the file cannot be mapped, or is not a valid segment.
+     */
+    public static JournalSegment open(final File file) throws IOException
+    {
+        Assert.argumentNotNull("file", file);
+        return new JournalSegment(file, map(file, file.length(), true));
+    }
+
+    /**
+     * Append a record, if it fits in the remaining space and the index is not too full. Stack traces are limited to
+     * 1024 frames; a record too large for an empty segment never fits.
+     *
+     * @param exception the captured exception.
+     * @return {@code boolean} {@code true} if appended, {@code false} if the segment is full.
+     */
+    public boolean append(final CapturedException exception)
+    {
+        int length = 0;
+        if (m_count < (m_slotMask + 1) / 4 * 3)
+        {
+            final ByteBuffer target = m_buffer.duplicate();
+            target.position(m_position + 4);
+            try
+            {
+                target.putLong(exception.getTimestamp());
+                putString(target, exception.getId());
+                putString(target, exception.getClassName());
+                putString(target, exception.getMessage());
+                putString(target, exception.getThreadName());
+                final StackTraceElement[] frames = exception.getStackTrace();
+                final int frameCount = Math.min(frames.length, MAXIMUM_FRAMES);
+                target.putInt(frameCount);
+                for (int i = 0; i < frameCount; i += 1)
+                {
+                    putString(target, frames[i].getClassName());
+                    putString(target, frames[i].getMethodName());
+                    putString(target, frames[i].getFileName());
+                    target.putInt(frames[i].getLineNumber());
+                }
+                length = target.position() - m_position;
+            }
+            catch (final BufferOverflowException e)
+            {
+                /* The record does not fit; nothing written beyond the write position is visible to readers. */
+            }
+        }
+        final boolean result = 0 != length;
+        if (result)
+        {
+            /* Index the record, then publish it by advancing the write position. */
+            m_buffer.putInt(m_position, length);
+            final long hash = hash(exception.getId());
+            int slot = (int) hash & m_slotMask;
+            while (0 != m_buffer.getInt(slotOffset(slot) + 8))
+            {
+                slot = (slot + 1) & m_slotMask;
+            }
+            m_buffer.putLong(slotOffset(slot), hash);
+            m_buffer.putInt(slotOffset(slot) + 8, m_position);
+            m_position += length;
+            m_count += 1;
+            m_buffer.putInt(COUNT_OFFSET, m_count);
+            m_buffer.putInt(POSITION_OFFSET, m_position);
+        }
+        return result;
+    }
+
+    /**
+     * Find the most recently appended record for an identifier.
+     *
+     * @param id the exception identifier.
+     * @return {@link CapturedException} record, or {@code null} if not found.
+     */
+    public CapturedException find(final String id)
+    {
+        CapturedException result = null;
+        final long hash = hash(id);
+        final int limit = m_buffer.getInt(POSITION_OFFSET);
+        int slot = (int) hash & m_slotMask;
+        int offset = m_buffer.getInt(slotOffset(slot) + 8);
+        while (0 != offset)
+        {
+            if (hash == m_buffer.getLong(slotOffset(slot)) && offset < limit)
+            {
+                final CapturedException candidate = read(offset);
+                if (id.equals(candidate.getId()))
+                {
+                    /* Later duplicates are further along the probe sequence; keep looking. */
+                    result = candidate;
+                }
+            }
+            slot = (slot + 1) & m_slotMask;
+            offset = m_buffer.getInt(slotOffset(slot) + 8);
+        }
+        return result;
+    }
+
+    /**
+     * Force any changes to storage. May be slow; must not be invoked on latency-sensitive threads.
+     */
+    public void force()
+    {
+        m_buffer.force();
+    }
+
+    /**
+     * Get the number of records in this segment.
+     *
+     * @return {@code int} record count.
+     */
+    public int getCount()
+    {
+        return m_count;
+    }
+
+    /**
+     * Get the segment file.
+     *
+     * @return {@link File} file.
+     */
+    public File getFile()
+    {
+        return m_file;
+    }
+
+
+    /**
+     * Map a file into memory. The channel is closed once mapped; the mapping remains valid until collected.
+     *
+     * @param file the file.
+     * @param size the mapping size.
+     * @param readOnly whether to map read-only.
+     * @return {@link MappedByteBuffer} buffer.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private static MappedByteBuffer map(final File file, final long size, final boolean readOnly) throws IOException
+    {
+        final MappedByteBuffer result;
+        final RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
+        try
+        {
+            result = raf.getChannel().map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+                    0L, size);
+        }
+        finally
+        {
+            raf.close();
+        }
+        return result;
+    }
+
+    /**
+     * Write a string as a length followed by UTF-8 bytes.
+     *
+     * @param target the target buffer.
+     * @param value the string, or {@code null}.
+     */
+    private static void putString(final ByteBuffer target, final String value)
+    {
+        if (null == value)
+        {
+            target.putInt(-1);
+        }
+        else
+        {
+            final byte[] bytes = value.getBytes(UTF_8);
+            target.putInt(bytes.length);
+            target.put(bytes);
+        }
+    }
+
+    /**
+     * Read a string written by {@link #putString(ByteBuffer, String)}.
+     *
+     * @param source the source buffer.
+     * @return {@link String} string, or {@code null}.
+     */
+    private static String getString(final ByteBuffer source)
+    {
+        String result = null;
+        final int length = source.getInt();
+        if (length >= 0)
+        {
+            final byte[] bytes = new byte[length];
+            source.get(bytes);
+            result = new String(bytes, UTF_8);
+        }
+        return result;
+    }
+
+
+    /**
+     * Decode the record at an offset.
+     *
+     * @param offset the record offset.
+     * @return {@link CapturedException} record.
+     */
+    private CapturedException read(final int offset)
+    {
+        final ByteBuffer source = m_buffer.duplicate();
+        source.position(offset + 4);
+        final long timestamp = source.getLong();
+        final String id = getString(source);
+        final String className = getString(source);
+        final String message = getString(source);
+        final String threadName = getString(source);
+        final StackTraceElement[] frames = new StackTraceElement[source.getInt()];
+        for (int i = 0; i < frames.length; i += 1)
+        {
+            final String declaringClass = getString(source);
+            final String methodName = getString(source);
+            final String fileName = getString(source);
+            frames[i] = new StackTraceElement(declaringClass, methodName, fileName, source.getInt());
+        }
+        /* Decoded traces are not interned, so that lookups do not fill the bounded shared table. */
+        return new CapturedException(id, className, message, CompactStackTrace.copyOf(frames), timestamp,
+                threadName);
+    }
+
+    /**
+     * Get the file offset of an index slot.
+     *
+     * @param slot the slot.
+     * @return {@code int} offset.
+     */
+    private static int slotOffset(final int slot)
+    {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,33 @@
+package com.biglakesystems.biglib.impl.quality;
+
+/**
+ * {@link MappingFunction} computes a value from a key, for operations such as {@link
+ * WeakIdentityCache#getOrCompute(Object, MappingFunction)} which create a mapping only when one is needed.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access if used with
+ * a thread-safe map or cache.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public interface MappingFunction<K, V>
+{
+    /**
+     * Compute the value for a key.
+     *
+     * @param key the key.
+     * @return {@link V} value, or {@code null} to create no mapping.
+     */
+    V apply(K key);
+}
@@ -0,0 +1,147 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import java.lang.ref.PhantomReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Platform} isolates the few operations for which newer platform versions offer cheaper implementations than
+ * the Java 6 baseline. This is the baseline implementation; the library JAR is a multi-release JAR, and on Java 9 and
+ * later this class is replaced by a version under {@code META-INF/versions/9} which uses {@code Thread.onSpinWait()},
+ * {@code StackWalker} and {@code java.lang.ref.Cleaner}. Both versions have the same members and semantics.
+ * <p/>
+ * <strong>Thread Safety:</strong> this class is safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class Platform
+{
+    /**
+     * Phantom references awaiting collection of their referents; a phantom reference which is not itself strongly
+     * reachable may be collected before it is enqueued.
+     */
+    private static final Set<CleanupReference> s_pending =
+            Collections.newSetFromMap(new ConcurrentHashMap<CleanupReference, Boolean>());
+
+    /**
+     * Construct a {@link Platform} instance.
+     */
+    private Platform()
+    {
+        super();
+    }
+
+    /**
+     * Capture the stack of the calling thread, as {@link Throwable#getStackTrace()} would for an exception created by
+     * the caller.
+     *
+     * @param skipFrames the number of frames to omit below the caller's own frame.
+     * @param maximumFrames the maximum number of frames to capture.
+     * @return {@link StackTraceElement} array, innermost frame first.
+     */
+    public static StackTraceElement[] captureStackTrace(final int skipFrames, final int maximumFrames)
+    {
+        /* Omit this method's own frame. The baseline must fill in the whole stack, then copy the part wanted. */
+        final StackTraceElement[] stack = new Throwable().getStackTrace();
+        final int from = Math.min(stack.length, 1 + skipFrames);
+        return Arrays.copyOfRange(stack, from, from + Math.min(stack.length - from, maximumFrames));
+    }
+
+    /**
+     * Get the platform level this implementation targets.
+     *
+     * @return {@code int} platform feature version.
+     */
+    public static int featureVersion()
+    {
+        return 6;
+    }
+
+    /**
+     * Indicate to the processor that the caller is in a spin loop, awaiting an action by another thread.
+     */
+    public static void onSpinWait()
+    {
+        /* No equivalent hint before Java 9. */
+    }
+
+    /**
+     * Register an action to run once an object becomes phantom reachable. The action must not reference the object,
+     * or it will never become unreachable.
+     *
+     * @param referent the object.
+     * @param action the action, which runs on a background thread.
+     * @return {@link Cleanup} handle through which the action may be run early; it runs at most once.
+     */
+    public static Cleanup registerCleanup(final Object referent, final Runnable action)
+    {
+        final CleanupReference result = new CleanupReference(referent, action);
+        s_pending.add(result);
+        return result;
+    }
+
+    /**
+     * {@link Cleanup} is a handle to an action registered via {@link #registerCleanup(Object, Runnable)}.
+     */
+    public interface Cleanup
+    {
+        /**
+         * Run the action now, if it has not already run, and unregister it.
+         */
+        void clean();
+    }
+
+    /**
+     * {@link CleanupReference} runs its action when expunged by the shared {@link ReferenceDrainer}.
+     */
+    private static final class CleanupReference extends PhantomReference<Object>
+            implements Cleanup, ReferenceDrainer.Expungeable
+    {
+        private final Runnable m_action;
+
+        /**
+         * Construct a {@link CleanupReference} instance.
+         *
+         * @param referent the object.
+         * @param action the action.
+         */
+        public CleanupReference(final Object referent, final Runnable action)
+        {
+            super(referent, ReferenceDrainer.shared().queue());
+            m_action = action;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clean()
+        {
+            if (s_pending.remove(this))
+            {
+                clear();
+                m_action.run();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void expunge()
+        {
+            clean();
+        }
+    }
+}
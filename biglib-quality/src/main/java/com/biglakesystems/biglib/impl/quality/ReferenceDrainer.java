@@ -0,0 +1,180 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ReferenceDrainer} drains a {@link ReferenceQueue} on a dedicated daemon thread, expunging each cleared
+ * reference from whatever structure owns it. Maps which register their references with a drainer release the values of
+ * collected keys promptly even when the map itself is rarely touched, and never make callers pay for draining the queue
+ * after a large collection.
+ * <p/>
+ * References registered with {@link #queue()} must implement {@link Expungeable}; the drainer invokes {@link
+ * Expungeable#expunge()} on its own thread, so owning structures must be thread-safe. References are drained in batches
+ * of bounded size, yielding between full batches.
+ * <p/>
+ * Most code should use the {@link #shared()} instance, whose thread is started on first use.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ReferenceDrainer
+{
+    private static final Logger s_logger = LoggerFactory.getLogger(ReferenceDrainer.class);
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final ReferenceQueue<Object> m_queue = new ReferenceQueue<Object>();
+    private final AtomicLong m_expungedCount = new AtomicLong(0L);
+    private final int m_batchSize;
+    private final Thread m_thread;
+    private volatile boolean m_shutdown;
+
+    /**
+     * Construct and start a {@link ReferenceDrainer} instance.
+     *
+     * @param threadName the name of the draining thread.
+     * @param batchSize the maximum number of references to expunge before yielding.
+     */
+    public ReferenceDrainer(final String threadName, final int batchSize)
+    {
+        super();
+        Assert.argumentNotNull("threadName", threadName);
+        Assert.argumentPositive("batchSize", batchSize);
+        m_batchSize = batchSize;
+        m_thread = new Thread(threadName)
+        {
+            @Override
+            public void run()
+            {
+                drainUntilShutdown();
+            }
+        };
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Get the shared drainer instance, starting its thread if this is the first use.
+     *
+     * @return {@link ReferenceDrainer} shared instance.
+     */
+    public static ReferenceDrainer shared()
+    {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Get the total number of references expunged by this drainer.
+     *
+     * @return {@code long} expunged reference count.
+     */
+    public long getExpungedCount()
+    {
+        return m_expungedCount.get();
+    }
+
+    /**
+     * Get the queue with which drained references must be registered. Every reference registered with this queue must
+     * implement {@link Expungeable}.
+     *
+     * @return {@link ReferenceQueue} queue.
+     */
+    public ReferenceQueue<Object> queue()
+    {
+        return m_queue;
+    }
+
+    /**
+     * Stop the draining thread. References enqueued afterward are not expunged. The shared instance should never be
+     * shut down.
+     */
+    public void shutdown()
+    {
+        m_shutdown = true;
+        m_thread.interrupt();
+    }
+
+    /**
+     * Drain the queue until {@link #shutdown()} is called. Blocks waiting for the first reference of each batch, then
+     * expunges up to {@link #m_batchSize} references before yielding.
+     */
+    private void drainUntilShutdown()
+    {
+        while (!m_shutdown)
+        {
+            try
+            {
+                int drained = 0;
+                Reference<?> next = m_queue.remove();
+                while (null != next)
+                {
+                    expunge(next);
+                    drained += 1;
+                    next = drained < m_batchSize ? m_queue.poll() : null;
+                }
+                m_expungedCount.addAndGet(drained);
+                if (drained == m_batchSize)
+                {
+                    Thread.yield();
+                }
+            }
+            catch (final InterruptedException e)
+            {
+                /* Loop condition will determine whether we were shut down. */
+            }
+        }
+    }
+
+    /**
+     * Expunge a single reference, logging but otherwise ignoring any failure so that the draining thread survives.
+     *
+     * @param reference the reference.
+     */
+    private void expunge(final Reference<?> reference)
+    {
+        try
+        {
+            ((Expungeable) reference).expunge();
+        }
+        catch (final RuntimeException e)
+        {
+            s_logger.error(String.format("Failed to expunge reference [%s].", reference), e);
+        }
+    }
+
+    /**
+     * {@link Expungeable} must be implemented by every reference registered with a {@link ReferenceDrainer} queue.
+     */
+    public interface Expungeable
+    {
+        /**
+         * Remove this reference, and any associated state, from the structure which owns it. Invoked on the drainer
+         * thread after the reference has been cleared by the garbage collector.
+         */
+        void expunge();
+    }
+
+    /**
+     * {@link SharedHolder} lazily holds the shared {@link ReferenceDrainer} instance.
+     */
+    private static final class SharedHolder
+    {
+        private static final ReferenceDrainer INSTANCE =
+                new ReferenceDrainer("biglib-reference-drainer", DEFAULT_BATCH_SIZE);
+    }
+}
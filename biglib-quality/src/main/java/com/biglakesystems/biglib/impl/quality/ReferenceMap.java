@@ -0,0 +1,997 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+
+import java.lang.ref.Reference;
+import java.util.*;
+
+/**
+ * {@link ReferenceMap} is an implementation of the {@link Map} interface whose keys and values may each be held
+ * strongly, softly or weakly, and whose keys may be compared by identity or by {@link Object#equals(Object)}. An entry
+ * disappears from the map as soon as its key or value is collected. Common configurations include weak identity keys
+ * for associating state with objects ({@link WeakIdentityHashMap} is a preset of this class), soft keys or values for
+ * memory-sensitive caches, and weak values for canonicalizing maps. Instances are configured via {@link #builder()}:
+ * <pre>
+ * Map&lt;String, Pattern&gt; patterns = ReferenceMap.&lt;String, Pattern&gt;builder()
+ *         .keyStrength(ReferenceStrength.STRONG).valueStrength(ReferenceStrength.SOFT)
+ *         .equivalence(Equivalence.EQUALS).build();
+ * </pre>
+ * Entries are held in an open-addressing table of parallel key reference, hash code and value arrays, probed linearly
+ * from the key's hash. Lookups compare hash codes before dereferencing key references, so retrieval and removal
+ * operations allocate nothing. Keys cannot be {@code null}; values can, and a {@code null} value is never collected.
+ * <p/>
+ * The {@link #keySet()}, {@link #values()} and {@link #entrySet()} collections are live views over the table rather
+ * than copies. Their iterators skip entries whose keys or values have been collected, support {@link
+ * Iterator#remove()}, and are <em>fail-fast</em>: like those of {@link HashMap}, they throw {@link
+ * ConcurrentModificationException} if the map is structurally modified after their creation other than through the
+ * iterator itself. Collected entries are not purged while an iterator is in progress, so lookups and value updates may
+ * be freely interleaved with iteration; purging resumes once the iterator is exhausted, or once the map is
+ * structurally modified. Purging also takes place before an iteration begins, so an iterator abandoned part way defers
+ * purging only until the next insertion or removal.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are not thread-safe. All operations must be performed on a
+ * single thread or appropriate publication and synchronization constructs must be applied externally.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * @param <K> the map key type.
+ * @param <V> the map value type.
+ */
+public class ReferenceMap<K, V> extends AbstractReferenceTable<K> implements Map<K, V>
+{
+    /**
+     * Estimated size of a value slot, assuming compressed references.
+     */
+    private static final int ESTIMATED_VALUE_BYTES = 4;
+
+    private final ReferenceStrength m_valueStrength;
+    private final boolean m_strongValues;
+    private Object[] m_values;
+    private Set<K> m_keySet;
+    private Collection<V> m_valueCollection;
+    private Set<Map.Entry<K, V>> m_entrySet;
+
+    /**
+     * Construct a {@link ReferenceMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     * @param loadFactor the map load factor. Because the table is open-addressed, values above {@code 0.9} are treated
+     * as {@code 0.9}.
+     * @param keyStrength the strength with which keys are held.
+     * @param valueStrength the strength with which values are held.
+     * @param equivalence the key equivalence.
+     */
+    public ReferenceMap(final int initialCapacity, final float loadFactor, final ReferenceStrength keyStrength,
+                        final ReferenceStrength valueStrength, final Equivalence equivalence)
+    {
+        super(initialCapacity, loadFactor, keyStrength, equivalence);
+        Assert.argumentNotNull("valueStrength", valueStrength);
+        m_valueStrength = valueStrength;
+        m_strongValues = ReferenceStrength.STRONG == valueStrength;
+    }
+
+    /**
+     * Create a builder for a {@link ReferenceMap}. By default, the map holds keys weakly and values strongly, and
+     * compares keys by identity.
+     *
+     * @param <K> the map key type.
+     * @param <V> the map value type.
+     * @return {@link Builder} builder.
+     */
+    public static <K, V> Builder<K, V> builder()
+    {
+        return new Builder<K, V>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        clearTable();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        purge();
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(final Object value)
+    {
+        purge();
+        boolean result = false;
+        final Reference<K>[] keys = keys();
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            if (null != keys[i] && isValueLive(i))
+            {
+                final Object candidate = valueOf(m_values[i]);
+                if (null == value ? null == candidate : value.equals(candidate))
+                {
+                    /* We have the value, but verify that its key has not been collected. */
+                    if (null != keys[i].get())
+                    {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V get(final Object key)
+    {
+        purge();
+        final int index = indexOf(key);
+        recordLookup(index >= 0);
+        return index < 0 ? null : valueOf(m_values[index]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        purge();
+        boolean result = true;
+        if (0 != tableSize())
+        {
+            final Reference<K>[] keys = keys();
+            for (int i = 0; i < keys.length; i += 1)
+            {
+                if (null != keys[i] && null != keys[i].get() && isValueLive(i))
+                {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<K> keySet()
+    {
+        Set<K> result = m_keySet;
+        if (null == result)
+        {
+            result = new KeySet();
+            m_keySet = result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V remove(final Object key)
+    {
+        purge();
+        V result = null;
+        final int index = indexOf(key);
+        if (index >= 0)
+        {
+            result = valueOf(m_values[index]);
+            removeAt(index);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<V> values()
+    {
+        Collection<V> result = m_valueCollection;
+        if (null == result)
+        {
+            result = new Values();
+            m_valueCollection = result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        purgeAll();
+        return purgesHeld() ? countLive() : tableSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> all)
+    {
+        purge();
+        for (final Map.Entry<? extends K, ? extends V> nextEntry : all.entrySet())
+        {
+            put(nextEntry.getKey(), nextEntry.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        Set<Map.Entry<K, V>> result = m_entrySet;
+        if (null == result)
+        {
+            result = new EntrySet();
+            m_entrySet = result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V put(final K key, final V value)
+    {
+        purge();
+        final int index = insert(key);
+        recordPut();
+        V result = null;
+        if (index >= 0)
+        {
+            result = valueOf(m_values[index]);
+            setValueAt(index, value);
+        }
+        else
+        {
+            setValueAt(-(index + 1), value);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Object allocateValues(final int capacity)
+    {
+        final Object[] result = m_values;
+        m_values = new Object[capacity];
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void clearValue(final int index)
+    {
+        m_values[index] = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void copyValue(final Object source, final int sourceIndex, final int targetIndex)
+    {
+        m_values[targetIndex] = ((Object[]) source)[sourceIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void moveValue(final int sourceIndex, final int targetIndex)
+    {
+        m_values[targetIndex] = m_values[sourceIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int valueSlotBytes()
+    {
+        return ESTIMATED_VALUE_BYTES;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isValueLive(final int index)
+    {
+        final Object stored = m_values[index];
+        return m_strongValues || null == stored || null != ((Reference<?>) stored).get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isValueReference(final int index, final Reference<?> reference)
+    {
+        return reference == m_values[index];
+    }
+
+    /**
+     * Remove the entry in a table slot, clearing its references so that the collector need not enqueue them.
+     *
+     * @param index the slot index.
+     */
+    private void removeAt(final int index)
+    {
+        keys()[index].clear();
+        release(m_values[index]);
+        delete(index);
+    }
+
+    /**
+     * Clear a stored value reference which is being discarded, so that the collector need not enqueue it.
+     *
+     * @param stored the stored value, as held in the value array.
+     */
+    private void release(final Object stored)
+    {
+        if (!m_strongValues && null != stored)
+        {
+            ((Reference<?>) stored).clear();
+        }
+    }
+
+    /**
+     * Store a value in a table slot, discarding any value already there.
+     *
+     * @param index the slot index.
+     * @param value the value.
+     */
+    private void setValueAt(final int index, final V value)
+    {
+        release(m_values[index]);
+        m_values[index] = m_strongValues || null == value ? value :
+                newValueReference(m_valueStrength, value, keys()[index], hashAt(index));
+    }
+
+    /**
+     * Get the value represented by the content of a value slot.
+     *
+     * @param stored the stored value, as held in the value array.
+     * @return {@link V} the value, or {@code null} if it has been collected.
+     */
+    @SuppressWarnings("unchecked")
+    private V valueOf(final Object stored)
+    {
+        return (V) (m_strongValues || null == stored ? stored : ((Reference<?>) stored).get());
+    }
+
+    /**
+     * {@link KeySet} is the live {@link Set} view returned by {@link #keySet()}.
+     */
+    private final class KeySet extends AbstractSet<K>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear()
+        {
+            ReferenceMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(final Object key)
+        {
+            return null != key && containsKey(key);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Iterator<K> iterator()
+        {
+            return new TableIterator<K>()
+            {
+                @Override
+                protected K element(final int index, final K key, final V value)
+                {
+                    return key;
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(final Object key)
+        {
+            boolean result = false;
+            if (null != key)
+            {
+                purge();
+                final int index = indexOf(key);
+                if (index >= 0)
+                {
+                    removeAt(index);
+                    result = true;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size()
+        {
+            return ReferenceMap.this.size();
+        }
+    }
+
+    /**
+     * {@link Values} is the live {@link Collection} view returned by {@link #values()}.
+     */
+    private final class Values extends AbstractCollection<V>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear()
+        {
+            ReferenceMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(final Object value)
+        {
+            return containsValue(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Iterator<V> iterator()
+        {
+            return new TableIterator<V>()
+            {
+                @Override
+                protected V element(final int index, final K key, final V value)
+                {
+                    return value;
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size()
+        {
+            return ReferenceMap.this.size();
+        }
+    }
+
+    /**
+     * {@link EntrySet} is the live {@link Set} view returned by {@link #entrySet()}.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear()
+        {
+            ReferenceMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(final Object baseEntry)
+        {
+            return indexOfEntry(baseEntry) >= 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            return new TableIterator<Map.Entry<K, V>>()
+            {
+                @Override
+                protected Map.Entry<K, V> element(final int index, final K key, final V value)
+                {
+                    return new TableEntry(iteratorKeys()[index], key, index, value);
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(final Object baseEntry)
+        {
+            final int index = indexOfEntry(baseEntry);
+            if (index >= 0)
+            {
+                removeAt(index);
+            }
+            return index >= 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size()
+        {
+            return ReferenceMap.this.size();
+        }
+
+        /**
+         * Find the table slot holding a mapping equivalent to a given entry.
+         *
+         * @param baseEntry the entry.
+         * @return {@code int} slot index, or {@code -1} if the mapping is not present.
+         */
+        private int indexOfEntry(final Object baseEntry)
+        {
+            int result = -1;
+            if (baseEntry instanceof Map.Entry)
+            {
+                final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) baseEntry;
+                if (null != entry.getKey())
+                {
+                    purge();
+                    result = indexOf(entry.getKey());
+                    if (result >= 0)
+                    {
+                        final Object value = valueOf(m_values[result]);
+                        if (!(null == value ? null == entry.getValue() : value.equals(entry.getValue())))
+                        {
+                            result = -1;
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@link TableIterator} is the base class for iterators over the live views. It walks the table arrays in place,
+     * skipping empty slots and entries whose keys or values have been collected, and holds strong references to the
+     * key and value of the next element so that they cannot be collected between {@link #hasNext()} and {@link
+     * #next()}.
+     * <p/>
+     * Any deletion may move later entries of the same probe cluster back toward the deleted slot, possibly to a slot
+     * the walk has already passed. The iterator therefore holds purging until it is exhausted, and throws {@link
+     * ConcurrentModificationException} if the table is structurally modified other than through {@link #remove()}.
+     * {@link #remove()} deletes the entry from its slot itself; the walk begins just after a slot which was empty when
+     * the iterator was created, so that no cluster straddles its start, and resumes after a removal from the removed
+     * slot. Neither interleaved lookups nor removal through the iterator can cause the iteration to skip or repeat
+     * elements.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are not thread-safe.
+     *
+     * @param <T> the element type.
+     */
+    private abstract class TableIterator<T> implements Iterator<T>
+    {
+        private final Reference<K>[] m_iteratorKeys;
+        private final Object[] m_iteratorValues;
+        private final int m_origin;
+        private int m_expectedModCount;
+        private int m_position = -1;
+        private int m_nextIndex;
+        private K m_nextKey;
+        private V m_nextValue;
+        private int m_lastPosition;
+        private Reference<K> m_lastReference;
+
+        /**
+         * Construct a {@link TableIterator} instance.
+         */
+        protected TableIterator()
+        {
+            super();
+            purge();
+            m_iteratorKeys = keys();
+            m_iteratorValues = m_values;
+            m_expectedModCount = modCount();
+            holdPurges();
+
+            /* The table is never full, so there is always an empty slot after which to begin. */
+            int empty = 0;
+            while (null != m_iteratorKeys[empty])
+            {
+                empty += 1;
+            }
+            m_origin = empty + 1;
+            advance();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext()
+        {
+            return null != m_nextKey;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public T next()
+        {
+            checkForComodification();
+            if (null == m_nextKey)
+            {
+                throw new NoSuchElementException();
+            }
+            final T result = element(m_nextIndex, m_nextKey, m_nextValue);
+            m_lastPosition = m_position;
+            m_lastReference = m_iteratorKeys[m_nextIndex];
+            advance();
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove()
+        {
+            if (null == m_lastReference)
+            {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            final int index = indexOfReference(m_lastReference);
+            if (index >= 0)
+            {
+                removeAt(index);
+                m_expectedModCount = modCount();
+                holdPurges();
+
+                /* Entries may have shifted back into the removed slot; rescan from it to find the next element. */
+                m_position = m_lastPosition - 1;
+                advance();
+            }
+            m_lastReference = null;
+        }
+
+        /**
+         * Get the element to be returned for a table slot.
+         *
+         * @param index the slot index within {@link #iteratorKeys()}.
+         * @param key the (strongly held) key in the slot.
+         * @param value the (strongly held) value in the slot.
+         * @return {@link T} element.
+         */
+        protected abstract T element(int index, K key, V value);
+
+        /**
+         * Get the key reference array being iterated.
+         *
+         * @return {@link Reference}[] key references.
+         */
+        protected final Reference<K>[] iteratorKeys()
+        {
+            return m_iteratorKeys;
+        }
+
+        /**
+         * Throw {@link ConcurrentModificationException} if the table has been structurally modified other than through
+         * this iterator.
+         */
+        private void checkForComodification()
+        {
+            if (modCount() != m_expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        /**
+         * Advance to the next slot holding a live key and value, if any, releasing the hold on purging once there are
+         * none.
+         */
+        private void advance()
+        {
+            m_nextKey = null;
+            m_nextValue = null;
+            while (null == m_nextKey && ++m_position < m_iteratorKeys.length)
+            {
+                m_nextIndex = (m_origin + m_position) & (m_iteratorKeys.length - 1);
+                final Reference<K> next = m_iteratorKeys[m_nextIndex];
+                if (null != next)
+                {
+                    final Object stored = m_iteratorValues[m_nextIndex];
+                    m_nextValue = valueOf(stored);
+                    if (m_strongValues || null == stored || null != m_nextValue)
+                    {
+                        m_nextKey = next.get();
+                    }
+                }
+            }
+            if (null == m_nextKey)
+            {
+                releasePurges(m_expectedModCount);
+            }
+        }
+    }
+
+    /**
+     * {@link TableEntry} is the {@link Map.Entry} implementation for {@link ReferenceMap}. It remembers the slot it was
+     * read from, and reads and writes its value directly in that slot for as long as the entry remains there. Keys are
+     * compared according to the map's {@link Equivalence}, following {@link IdentityHashMap} for identity maps, and
+     * values by {@link Object#equals(Object)}.
+     */
+    private final class TableEntry implements Map.Entry<K, V>
+    {
+        private final Reference<K> m_reference;
+        private final K m_key;
+        private int m_index;
+        private V m_value;
+
+        /**
+         * Construct a {@link TableEntry} instance.
+         *
+         * @param reference the key reference in the slot.
+         * @param key the map key.
+         * @param index the slot index.
+         * @param value the map value.
+         */
+        public TableEntry(final Reference<K> reference, final K key, final int index, final V value)
+        {
+            super();
+            m_reference = reference;
+            m_key = key;
+            m_index = index;
+            m_value = value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object baseOther)
+        {
+            boolean result = false;
+            if (baseOther instanceof Map.Entry)
+            {
+                final Map.Entry<?, ?> other = (Map.Entry<?, ?>) baseOther;
+                final V value = getValue();
+                result = (identity() ? m_key == other.getKey() : m_key.equals(other.getKey())) &&
+                        (null == value ? null == other.getValue() : value.equals(other.getValue()));
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public K getKey()
+        {
+            return m_key;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public V getValue()
+        {
+            locate();
+            return m_value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            final V value = getValue();
+            return (identity() ? System.identityHashCode(m_key) : m_key.hashCode()) ^
+                    (null == value ? 0 : value.hashCode());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public V setValue(final V value)
+        {
+            final V result = getValue();
+            m_value = value;
+            if (m_index >= 0)
+            {
+                setValueAt(m_index, value);
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            return m_key + "=" + getValue();
+        }
+
+        /**
+         * Confirm that the entry is still in its remembered slot, relocating it if the table has been rebuilt or
+         * shifted since, and refresh the cached value from the slot. If the entry is no longer in the map, or its value
+         * has been collected, the last value seen is retained.
+         */
+        private void locate()
+        {
+            final Reference<K>[] keys = keys();
+            if (m_index < 0 || m_index >= keys.length || m_reference != keys[m_index])
+            {
+                m_index = indexOfReference(m_reference);
+            }
+            if (m_index >= 0 && isValueLive(m_index))
+            {
+                m_value = valueOf(m_values[m_index]);
+            }
+        }
+    }
+
+    /**
+     * {@link Builder} configures and creates {@link ReferenceMap} instances.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are not thread-safe.
+     *
+     * @param <K> the map key type.
+     * @param <V> the map value type.
+     */
+    public static final class Builder<K, V>
+    {
+        private int m_initialCapacity = DEFAULT_INITIAL_CAPACITY;
+        private float m_loadFactor = DEFAULT_LOAD_FACTOR;
+        private ReferenceStrength m_keyStrength = ReferenceStrength.WEAK;
+        private ReferenceStrength m_valueStrength = ReferenceStrength.STRONG;
+        private Equivalence m_equivalence = Equivalence.IDENTITY;
+
+        /**
+         * Construct a {@link Builder} instance.
+         */
+        private Builder()
+        {
+            super();
+        }
+
+        /**
+         * Create a map with the current configuration.
+         *
+         * @return {@link ReferenceMap} map.
+         */
+        public ReferenceMap<K, V> build()
+        {
+            return new ReferenceMap<K, V>(m_initialCapacity, m_loadFactor, m_keyStrength, m_valueStrength,
+                    m_equivalence);
+        }
+
+        /**
+         * Set the key equivalence; {@link Equivalence#IDENTITY} by default.
+         *
+         * @param equivalence the key equivalence.
+         * @return {@link Builder} this builder.
+         */
+        public Builder<K, V> equivalence(final Equivalence equivalence)
+        {
+            Assert.argumentNotNull("equivalence", equivalence);
+            m_equivalence = equivalence;
+            return this;
+        }
+
+        /**
+         * Set the initial map capacity.
+         *
+         * @param initialCapacity the initial capacity.
+         * @return {@link Builder} this builder.
+         */
+        public Builder<K, V> initialCapacity(final int initialCapacity)
+        {
+            Assert.argumentNotNegative("initialCapacity", initialCapacity);
+            m_initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Set the strength with which keys are held; {@link ReferenceStrength#WEAK} by default.
+         *
+         * @param keyStrength the key strength.
+         * @return {@link Builder} this builder.
+         */
+        public Builder<K, V> keyStrength(final ReferenceStrength keyStrength)
+        {
+            Assert.argumentNotNull("keyStrength", keyStrength);
+            m_keyStrength = keyStrength;
+            return this;
+        }
+
+        /**
+         * Set the map load factor. Because the table is open-addressed, values above {@code 0.9} are treated as {@code
+         * 0.9}.
+         *
+         * @param loadFactor the load factor.
+         * @return {@link Builder} this builder.
+         */
+        public Builder<K, V> loadFactor(final float loadFactor)
+        {
+            Assert.argument(loadFactor > 0.0f, "Argument [loadFactor] must be positive; was [%s].", loadFactor);
+            m_loadFactor = loadFactor;
+            return this;
+        }
+
+        /**
+         * Set the strength with which values are held; {@link ReferenceStrength#STRONG} by default.
+         *
+         * @param valueStrength the value strength.
+         * @return {@link Builder} this builder.
+         */
+        public Builder<K, V> valueStrength(final ReferenceStrength valueStrength)
+        {
+            Assert.argumentNotNull("valueStrength", valueStrength);
+            m_valueStrength = valueStrength;
+            return this;
+        }
+    }
+}
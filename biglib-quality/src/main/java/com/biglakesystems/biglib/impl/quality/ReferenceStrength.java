@@ -0,0 +1,34 @@
+package com.biglakesystems.biglib.impl.quality;
+
+/**
+ * {@link ReferenceStrength} is the strength with which a {@link ReferenceMap} holds its keys or values.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public enum ReferenceStrength
+{
+    /**
+     * Held by an ordinary reference; never collected while in the map.
+     */
+    STRONG,
+
+    /**
+     * Held by a {@link java.lang.ref.SoftReference}; collected only when memory is needed, making the map suitable for
+     * memory-sensitive caches.
+     */
+    SOFT,
+
+    /**
+     * Held by a {@link java.lang.ref.WeakReference}; collected as soon as no longer strongly reachable elsewhere.
+     */
+    WEAK
+}
@@ -0,0 +1,75 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link SequenceArray} is an array of {@code long} sequence numbers, as used by lock-free queues to hand slots between
+ * producers and consumers, offering only the acquire and release orderings such hand-offs require. This is the
+ * baseline implementation, over an {@link AtomicLongArray} whose reads are full volatile reads; on Java 9 and later the
+ * multi-release JAR replaces it with a version using {@code VarHandle} acquire reads over a plain array, which are
+ * cheaper on weakly ordered processors. Both versions have the same members and semantics.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class SequenceArray
+{
+    private final AtomicLongArray m_values;
+
+    /**
+     * Construct a {@link SequenceArray} instance, with each element initialized to its own index.
+     *
+     * @param length the array length.
+     */
+    public SequenceArray(final int length)
+    {
+        super();
+        m_values = new AtomicLongArray(length);
+        for (int i = 0; i < length; i += 1)
+        {
+            m_values.set(i, i);
+        }
+    }
+
+    /**
+     * Read an element, with acquire ordering: no later read or write by this thread is performed before it.
+     *
+     * @param index the element index.
+     * @return {@code long} value.
+     */
+    public long getAcquire(final int index)
+    {
+        return m_values.get(index);
+    }
+
+    /**
+     * Get the array length.
+     *
+     * @return {@code int} length.
+     */
+    public int length()
+    {
+        return m_values.length();
+    }
+
+    /**
+     * Write an element, with release ordering: no earlier read or write by this thread is performed after it.
+     *
+     * @param index the element index.
+     * @param value the value.
+     */
+    public void setRelease(final int index, final long value)
+    {
+        m_values.lazySet(index, value);
+    }
+}
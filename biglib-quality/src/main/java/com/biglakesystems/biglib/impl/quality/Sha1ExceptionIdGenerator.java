@@ -0,0 +1,83 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.CompactExceptionIdGenerator;
+import com.biglakesystems.biglib.quality.ExceptionId;
+import com.biglakesystems.biglib.quality.ExceptionIdGenerator;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Sha1ExceptionIdGenerator} is the original {@link ExceptionIdGenerator} strategy. It combines the exception
+ * class name, identity hash code, and an ever-incrementing sequence value into a string and then performs a SHA-1 hash
+ * of that string, returning the 40-character hex hash. It is comparatively expensive, and is retained for compatibility
+ * with systems which expect identifiers in this form. In compact form, the 160-bit hash is held as bits rather than
+ * as hexadecimal text.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class Sha1ExceptionIdGenerator implements CompactExceptionIdGenerator
+{
+    private static final int HASH_CHARACTERS = 40;
+
+    private final AtomicLong m_nextSequence = new AtomicLong(0L);
+
+    /**
+     * Construct a {@link Sha1ExceptionIdGenerator} instance.
+     */
+    public Sha1ExceptionIdGenerator()
+    {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExceptionId newExceptionId(final Throwable exception)
+    {
+        final String content = String.format("%s_%08x_%08x", exception.getClass().getName(),
+                System.identityHashCode(exception), m_nextSequence.getAndIncrement());
+        final byte[] hash = DigestUtils.sha1(content);
+        return ExceptionId.hex(bytesToLong(hash, 0, 4), bytesToLong(hash, 4, 8), bytesToLong(hash, 12, 8),
+                HASH_CHARACTERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String newId(final Throwable exception)
+    {
+        return newExceptionId(exception).toString();
+    }
+
+    /**
+     * Read bytes as a big-endian integer.
+     *
+     * @param bytes the bytes.
+     * @param offset the offset of the first byte.
+     * @param count the number of bytes, at most eight.
+     * @return {@code long} value.
+     */
+    private static long bytesToLong(final byte[] bytes, final int offset, final int count)
+    {
+        long result = 0L;
+        for (int i = offset; i < offset + count; i += 1)
+        {
+            result = (result << 8) | (bytes[i] & 0xffL);
+        }
+        return result;
+    }
+}
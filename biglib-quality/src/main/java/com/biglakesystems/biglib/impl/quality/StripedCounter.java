@@ -0,0 +1,119 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link StripedCounter} is a counter optimized for frequent updates from many threads and infrequent reads. Updates
+ * are spread across a number of cells, each padded onto its own cache line, with each thread always updating the same
+ * cell; reading the counter sums all cells. Under contention this avoids the cache-line ping-pong of a single {@link
+ * java.util.concurrent.atomic.AtomicLong}, at the cost of a few hundred bytes per counter. It serves the same purpose
+ * as {@code java.util.concurrent.atomic.LongAdder}, which is unavailable on the platforms this library supports.
+ * <p/>
+ * Sums are not atomic snapshots: updates made concurrently with {@link #sum()} may or may not be included.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class StripedCounter
+{
+    /**
+     * Array elements per cell; sixteen {@code long} values span two 64-byte cache lines, so the value at the center of
+     * each cell never shares a line with that of another cell.
+     */
+    private static final int CELL_STRIDE = 16;
+    private static final int MAXIMUM_CELLS = 64;
+
+    private final AtomicLongArray m_cells;
+    private final int m_mask;
+
+    /**
+     * Construct a {@link StripedCounter} instance, with a number of cells suited to the number of processors.
+     */
+    public StripedCounter()
+    {
+        super();
+        int cells = 1;
+        while (cells < Runtime.getRuntime().availableProcessors() && cells < MAXIMUM_CELLS)
+        {
+            cells <<= 1;
+        }
+        m_cells = new AtomicLongArray(cells * CELL_STRIDE);
+        m_mask = cells - 1;
+    }
+
+    /**
+     * Add a value to the counter.
+     *
+     * @param delta the value to add.
+     */
+    public void add(final long delta)
+    {
+        m_cells.getAndAdd(cellIndex(), delta);
+    }
+
+    /**
+     * Add one to the counter.
+     */
+    public void increment()
+    {
+        m_cells.getAndIncrement(cellIndex());
+    }
+
+    /**
+     * Reset the counter to zero. Updates made concurrently may be lost.
+     */
+    public void reset()
+    {
+        for (int i = 0; i <= m_mask; i += 1)
+        {
+            m_cells.set(i * CELL_STRIDE + CELL_STRIDE / 2, 0L);
+        }
+    }
+
+    /**
+     * Get the current value of the counter.
+     *
+     * @return {@code long} sum of all cells.
+     */
+    public long sum()
+    {
+        long result = 0L;
+        for (int i = 0; i <= m_mask; i += 1)
+        {
+            result += m_cells.get(i * CELL_STRIDE + CELL_STRIDE / 2);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return Long.toString(sum());
+    }
+
+    /**
+     * Get the array index of the value of the current thread's cell.
+     *
+     * @return {@code int} array index.
+     */
+    private int cellIndex()
+    {
+        /* Thread identifiers are sequential, so spread them before masking. */
+        long id = Thread.currentThread().getId() * 0x9e3779b97f4a7c15L;
+        id ^= id >>> 32;
+        return ((int) id & m_mask) * CELL_STRIDE + CELL_STRIDE / 2;
+    }
+}
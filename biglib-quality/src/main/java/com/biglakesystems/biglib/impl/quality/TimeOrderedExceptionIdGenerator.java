@@ -0,0 +1,79 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.CompactExceptionIdGenerator;
+import com.biglakesystems.biglib.quality.ExceptionId;
+import com.biglakesystems.biglib.quality.ExceptionIdGenerator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TimeOrderedExceptionIdGenerator} is an {@link ExceptionIdGenerator} strategy producing 26-character
+ * identifiers laid out like a <a href="https://github.com/ulid/spec">ULID</a>: a 48-bit millisecond timestamp followed
+ * by 80 further bits, all encoded in Crockford base 32. Identifiers therefore sort lexicographically by creation time,
+ * to the millisecond, which makes them convenient to search for in time-ordered logs.
+ * <p/>
+ * Where a ULID uses 80 random bits, this strategy uses a 16-bit random node identifier, chosen once per generator
+ * instance, followed by a 64-bit counter starting from a random value. This guarantees uniqueness within a generator
+ * without requiring a random number per identifier, or any locking.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class TimeOrderedExceptionIdGenerator implements CompactExceptionIdGenerator
+{
+    private static final int CHARACTERS = 26;
+
+    private final long m_node;
+    private final AtomicLong m_nextCounter;
+
+    /**
+     * Construct a {@link TimeOrderedExceptionIdGenerator} instance.
+     */
+    public TimeOrderedExceptionIdGenerator()
+    {
+        super();
+        final Random random = new Random();
+        m_node = random.nextInt() & 0xffffL;
+        m_nextCounter = new AtomicLong(random.nextLong());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExceptionId newExceptionId(final Throwable exception)
+    {
+        final long high = (currentTimeMillis() << 16) | m_node;
+        return ExceptionId.base32(0L, high, m_nextCounter.getAndIncrement(), CHARACTERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String newId(final Throwable exception)
+    {
+        return newExceptionId(exception).toString();
+    }
+
+    /**
+     * Get the current time, in milliseconds since the epoch, truncated to 48 bits.
+     *
+     * @return {@code long} timestamp.
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis() & 0xffffffffffffL;
+    }
+}
@@ -0,0 +1,572 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.Assert;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link WeakIdentityCache} is a bounded cache which associates values with live objects, using the weak and identity
+ * semantics of {@link ConcurrentWeakIdentityHashMap}. Unlike a plain weak map, it also bounds the memory held for keys
+ * which remain reachable: each entry has a weight, by default {@code 1}, and entries are evicted whenever the total
+ * weight exceeds the configured maximum.
+ * <p/>
+ * Eviction uses the CLOCK algorithm. Entries are kept on a circular list with a <em>referenced</em> bit which every hit
+ * sets; when space is needed, a hand sweeps the list, clearing referenced bits and evicting the first entry whose bit
+ * is already clear. Hits therefore cost only a map lookup and, at most, a volatile write; the eviction lock is taken
+ * only when entries are added or removed.
+ * <p/>
+ * {@link #getOrCompute(Object, MappingFunction)} is atomic per key: concurrent misses for the same key wait for a
+ * single computation rather than each computing the value. Computations for different keys proceed in parallel. A
+ * function which returns {@code null} or throws creates no entry, and a waiting caller then computes in its place.
+ * <p/>
+ * As with any weak map, a value which strongly references its own key prevents that key from ever being collected.
+ * Such entries are still removed by eviction.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * @param <K> the cache key type.
+ * @param <V> the cache value type.
+ */
+public class WeakIdentityCache<K, V>
+{
+    private static final int MAXIMUM_DRAIN_BATCH = 64;
+
+    private final ConcurrentWeakIdentityHashMap<K, Node<K, V>> m_map;
+    private final ReferenceQueue<K> m_queue = new ReferenceQueue<K>();
+    private final ReentrantLock m_evictionLock = new ReentrantLock();
+    private final StripedCounter m_hitCount = new StripedCounter();
+    private final StripedCounter m_missCount = new StripedCounter();
+    private final StripedCounter m_loadFailureCount = new StripedCounter();
+    private final StripedCounter m_loadNanos = new StripedCounter();
+    private final Weigher<? super K, ? super V> m_weigher;
+    private final long m_maximumWeight;
+
+    /* Guarded by m_evictionLock; written only under the lock but read without it by the getters. */
+    private Node<K, V> m_hand;
+    private volatile long m_weight;
+    private volatile int m_size;
+    private volatile long m_evictionCount;
+
+    /**
+     * Construct a {@link WeakIdentityCache} instance in which every entry has a weight of {@code 1}, bounding the
+     * number of entries.
+     *
+     * @param maximumSize the maximum number of entries.
+     */
+    public WeakIdentityCache(final long maximumSize)
+    {
+        this(maximumSize, null);
+    }
+
+    /**
+     * Construct a {@link WeakIdentityCache} instance.
+     *
+     * @param maximumWeight the maximum total weight of all entries.
+     * @param weigher the entry weigher, or {@code null} for a weight of {@code 1} per entry.
+     */
+    public WeakIdentityCache(final long maximumWeight, final Weigher<? super K, ? super V> weigher)
+    {
+        super();
+        Assert.argumentPositive("maximumWeight", maximumWeight);
+        m_maximumWeight = maximumWeight;
+        m_weigher = weigher;
+        m_map = new ConcurrentWeakIdentityHashMap<K, Node<K, V>>(ReferenceDrainer.shared());
+    }
+
+    /**
+     * Remove all entries from this cache. Computations in progress are unaffected, and their entries are added when
+     * they complete.
+     */
+    public void clear()
+    {
+        m_evictionLock.lock();
+        try
+        {
+            while (null != m_hand)
+            {
+                final Node<K, V> node = m_hand;
+                final K key = node.get();
+                node.m_retired = true;
+                unlink(node);
+                if (null != key)
+                {
+                    m_map.remove(key, node);
+                }
+            }
+        }
+        finally
+        {
+            m_evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Get the value cached for a key, computing and caching it if there is none. If another thread is already
+     * computing the value for the same key, wait for that computation rather than starting another.
+     *
+     * @param key the key.
+     * @param function the function which computes the value.
+     * @return {@link V} value, or {@code null} if {@code function} returned {@code null}.
+     * @throws IllegalStateException if {@code function} recursively computes the value for the same key.
+     */
+    public V getOrCompute(final K key, final MappingFunction<? super K, ? extends V> function)
+            throws IllegalStateException
+    {
+        Assert.argumentNotNull("key", key);
+        Assert.argumentNotNull("function", function);
+        V result = null;
+        boolean done = false;
+        while (!done)
+        {
+            final Node<K, V> existing = m_map.get(key);
+            if (null == existing)
+            {
+                final Node<K, V> created = new Node<K, V>(key, m_queue);
+                synchronized (created)
+                {
+                    if (null == m_map.putIfAbsent(key, created))
+                    {
+                        m_missCount.increment();
+                        result = load(key, created, function);
+                        done = true;
+                    }
+                }
+            }
+            else if (existing.m_state == Node.READY)
+            {
+                result = hit(existing);
+                done = true;
+            }
+            else
+            {
+                Assert.state(!Thread.holdsLock(existing), "Recursive computation for key [%s].", key);
+                synchronized (existing)
+                {
+                    /* The computing thread holds the monitor until the node is ready or failed. */
+                    if (existing.m_state == Node.READY)
+                    {
+                        result = hit(existing);
+                        done = true;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the value cached for a key. Does not wait for a computation in progress.
+     *
+     * @param key the key.
+     * @return {@link V} value, or {@code null} if none is cached.
+     */
+    public V get(final Object key)
+    {
+        V result = null;
+        final Node<K, V> node = null == key ? null : m_map.get(key);
+        if (null != node && node.m_state == Node.READY)
+        {
+            result = hit(node);
+        }
+        else
+        {
+            m_missCount.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of entries evicted to stay within the maximum weight. Entries whose keys were collected are not
+     * counted.
+     *
+     * @return {@code long} eviction count.
+     */
+    public long getEvictionCount()
+    {
+        return m_evictionCount;
+    }
+
+    /**
+     * Get the number of lookups which found a cached value.
+     *
+     * @return {@code long} hit count.
+     */
+    public long getHitCount()
+    {
+        return m_hitCount.sum();
+    }
+
+    /**
+     * Get the fraction of lookups which found a cached value.
+     *
+     * @return {@code double} hit rate, or {@code 1.0} if there have been no lookups.
+     */
+    public double getHitRate()
+    {
+        final long hits = m_hitCount.sum();
+        final long total = hits + m_missCount.sum();
+        return 0L == total ? 1.0 : (double) hits / total;
+    }
+
+    /**
+     * Get the number of computations which threw an exception.
+     *
+     * @return {@code long} load failure count.
+     */
+    public long getLoadFailureCount()
+    {
+        return m_loadFailureCount.sum();
+    }
+
+    /**
+     * Get the total time spent computing values, in nanoseconds.
+     *
+     * @return {@code long} load time.
+     */
+    public long getLoadNanos()
+    {
+        return m_loadNanos.sum();
+    }
+
+    /**
+     * Get the maximum total weight of all entries.
+     *
+     * @return {@code long} maximum weight.
+     */
+    public long getMaximumWeight()
+    {
+        return m_maximumWeight;
+    }
+
+    /**
+     * Get the number of lookups which did not find a cached value.
+     *
+     * @return {@code long} miss count.
+     */
+    public long getMissCount()
+    {
+        return m_missCount.sum();
+    }
+
+    /**
+     * Get the total weight of all entries.
+     *
+     * @return {@code long} weight.
+     */
+    public long getWeight()
+    {
+        return m_weight;
+    }
+
+    /**
+     * Cache a value for a key, replacing any value already cached.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put(final K key, final V value)
+    {
+        Assert.argumentNotNull("key", key);
+        Assert.argumentNotNull("value", value);
+        final Node<K, V> node = new Node<K, V>(key, m_queue);
+        node.m_value = value;
+        node.m_state = Node.READY;
+        final Node<K, V> previous = m_map.put(key, node);
+        if (null != previous)
+        {
+            retire(previous);
+        }
+        admit(key, node);
+    }
+
+    /**
+     * Remove the value cached for a key.
+     *
+     * @param key the key.
+     * @return {@link V} the value removed, or {@code null} if none was cached.
+     */
+    public V remove(final Object key)
+    {
+        V result = null;
+        final Node<K, V> node = null == key ? null : m_map.remove(key);
+        if (null != node)
+        {
+            result = node.m_value;
+            retire(node);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of entries in this cache, which may include entries whose keys have been collected but not yet
+     * removed.
+     *
+     * @return {@code int} size.
+     */
+    public int size()
+    {
+        return m_size;
+    }
+
+    /**
+     * Add a ready node to the clock, then evict entries until the total weight is within the maximum. A node retired
+     * before it could be added is ignored.
+     *
+     * @param key the node key.
+     * @param node the node.
+     */
+    private void admit(final K key, final Node<K, V> node)
+    {
+        node.m_weight = null == m_weigher ? 1 : m_weigher.weigh(key, node.m_value);
+        Assert.state(node.m_weight >= 0, "Weigher returned negative weight [%s].", node.m_weight);
+        m_evictionLock.lock();
+        try
+        {
+            drainCollected();
+            if (!node.m_retired)
+            {
+                if (null == m_hand)
+                {
+                    node.m_next = node;
+                    node.m_previous = node;
+                    m_hand = node;
+                }
+                else
+                {
+                    /* Insert behind the hand, so that the new entry is the last the hand will reach. */
+                    node.m_next = m_hand;
+                    node.m_previous = m_hand.m_previous;
+                    m_hand.m_previous.m_next = node;
+                    m_hand.m_previous = node;
+                }
+                m_weight += node.m_weight;
+                m_size += 1;
+                evict();
+            }
+        }
+        finally
+        {
+            m_evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Unlink nodes whose keys have been collected. The map removes its own entries for them independently. Must be
+     * called while holding {@link #m_evictionLock}.
+     */
+    private void drainCollected()
+    {
+        int drained = 0;
+        Object next = m_queue.poll();
+        while (null != next)
+        {
+            @SuppressWarnings("unchecked")
+            final Node<K, V> node = (Node<K, V>) next;
+            node.m_retired = true;
+            unlink(node);
+            drained += 1;
+            next = drained < MAXIMUM_DRAIN_BATCH ? m_queue.poll() : null;
+        }
+    }
+
+    /**
+     * Sweep the clock hand, evicting unreferenced entries until the total weight is within the maximum. Must be called
+     * while holding {@link #m_evictionLock}.
+     */
+    private void evict()
+    {
+        while (m_weight > m_maximumWeight && null != m_hand)
+        {
+            final Node<K, V> node = m_hand;
+            if (node.m_referenced)
+            {
+                node.m_referenced = false;
+                m_hand = node.m_next;
+            }
+            else
+            {
+                final K key = node.get();
+                node.m_retired = true;
+                unlink(node);
+                if (null != key && m_map.remove(key, node))
+                {
+                    m_evictionCount += 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a hit on a ready node.
+     *
+     * @param node the node.
+     * @return {@link V} node value.
+     */
+    private V hit(final Node<K, V> node)
+    {
+        m_hitCount.increment();
+        if (!node.m_referenced)
+        {
+            /* Avoid dirtying the cache line of a node which is already marked. */
+            node.m_referenced = true;
+        }
+        return node.m_value;
+    }
+
+    /**
+     * Compute the value for a node which this thread has just installed in the map, while holding its monitor. On
+     * failure, or if the function returns {@code null}, the node is removed so that waiting threads retry.
+     *
+     * @param key the key.
+     * @param node the node.
+     * @param function the function which computes the value.
+     * @return {@link V} value, or {@code null}.
+     */
+    private V load(final K key, final Node<K, V> node, final MappingFunction<? super K, ? extends V> function)
+    {
+        final long start = System.nanoTime();
+        V result = null;
+        try
+        {
+            result = function.apply(key);
+        }
+        catch (final RuntimeException e)
+        {
+            m_loadFailureCount.increment();
+            throw e;
+        }
+        catch (final Error e)
+        {
+            m_loadFailureCount.increment();
+            throw e;
+        }
+        finally
+        {
+            m_loadNanos.add(System.nanoTime() - start);
+            if (null == result)
+            {
+                node.m_state = Node.FAILED;
+                m_map.remove(key, node);
+            }
+        }
+        node.m_value = result;
+        node.m_state = Node.READY;
+        admit(key, node);
+        return result;
+    }
+
+    /**
+     * Retire a node which has been removed from the map, unlinking it from the clock if it was added.
+     *
+     * @param node the node.
+     */
+    private void retire(final Node<K, V> node)
+    {
+        node.m_retired = true;
+        m_evictionLock.lock();
+        try
+        {
+            unlink(node);
+            drainCollected();
+        }
+        finally
+        {
+            m_evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Unlink a node from the clock, if it is linked. Must be called while holding {@link #m_evictionLock}.
+     *
+     * @param node the node.
+     */
+    private void unlink(final Node<K, V> node)
+    {
+        if (null != node.m_next)
+        {
+            if (node.m_next == node)
+            {
+                m_hand = null;
+            }
+            else
+            {
+                node.m_previous.m_next = node.m_next;
+                node.m_next.m_previous = node.m_previous;
+                if (m_hand == node)
+                {
+                    m_hand = node.m_next;
+                }
+            }
+            node.m_next = null;
+            node.m_previous = null;
+            m_weight -= node.m_weight;
+            m_size -= 1;
+        }
+    }
+
+    /**
+     * {@link Weigher} computes the weight of a cache entry, in whatever unit the maximum weight is expressed.
+     *
+     * @param <K> the key type.
+     * @param <V> the value type.
+     */
+    public interface Weigher<K, V>
+    {
+        /**
+         * Compute the weight of an entry. Invoked once, when the entry is added.
+         *
+         * @param key the key.
+         * @param value the value.
+         * @return {@code int} non-negative weight.
+         */
+        int weigh(K key, V value);
+    }
+
+    /**
+     * {@link Node} holds a cached value, weakly references its key so that the clock can find entries whose keys have
+     * been collected, and links the entry into the clock.
+     *
+     * @param <K> the key type.
+     * @param <V> the value type.
+     */
+    private static final class Node<K, V> extends WeakReference<K>
+    {
+        static final int LOADING = 0;
+        static final int READY = 1;
+        static final int FAILED = 2;
+
+        volatile int m_state = LOADING;
+        volatile V m_value;
+        volatile boolean m_referenced;
+        volatile boolean m_retired;
+
+        /* Guarded by the owning cache's eviction lock. */
+        int m_weight;
+        Node<K, V> m_next;
+        Node<K, V> m_previous;
+
+        /**
+         * Construct a {@link Node} instance.
+         *
+         * @param key the key.
+         * @param queue the queue with which to register the key reference.
+         */
+        public Node(final K key, final ReferenceQueue<K> queue)
+        {
+            super(key, queue);
+        }
+    }
+}
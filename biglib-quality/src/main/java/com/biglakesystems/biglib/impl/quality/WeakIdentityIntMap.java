@@ -0,0 +1,241 @@
+package com.biglakesystems.biglib.impl.quality;
+
+/**
+ * {@link WeakIdentityIntMap} is a primitive-valued counterpart of {@link WeakIdentityHashMap}, mapping weakly held
+ * keys, compared by identity, to {@code int} values. Values are stored directly in an {@code int[]} parallel to the key
+ * references, so no value is ever boxed, and updating the value of an existing key allocates nothing. This makes it
+ * suitable for attaching counters and sequence numbers to live objects.
+ * <p/>
+ * Absent keys are reported with a caller-supplied default value, and {@link #addAndGet(Object, int)} treats an absent
+ * key as having the value zero.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are not thread-safe. All operations must be performed on a
+ * single thread or appropriate publication and synchronization constructs must be applied externally.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * @param <K> the map key type.
+ */
+public class WeakIdentityIntMap<K> extends AbstractReferenceTable<K>
+{
+    private static final int VALUE_BYTES = 4;
+
+    private int[] m_values;
+
+    /**
+     * Construct a {@link WeakIdentityIntMap} instance.
+     */
+    public WeakIdentityIntMap()
+    {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Construct a {@link WeakIdentityIntMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     */
+    public WeakIdentityIntMap(final int initialCapacity)
+    {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Construct a {@link WeakIdentityIntMap} instance.
+     *
+     * @param initialCapacity the initial map capacity.
+     * @param loadFactor the map load factor. Because the table is open-addressed, values above {@code 0.9} are treated
+     * as {@code 0.9}.
+     */
+    public WeakIdentityIntMap(final int initialCapacity, final float loadFactor)
+    {
+        super(initialCapacity, loadFactor, ReferenceStrength.WEAK, Equivalence.IDENTITY);
+    }
+
+    /**
+     * Add a value to the value of a key, treating an absent key as having the value zero.
+     *
+     * @param key the key.
+     * @param delta the value to add.
+     * @return {@code int} the updated value.
+     */
+    public int addAndGet(final K key, final int delta)
+    {
+        purge();
+        final int index = insert(key);
+        recordPut();
+        final int slot = index >= 0 ? index : -(index + 1);
+        final int result = m_values[slot] + delta;
+        m_values[slot] = result;
+        return result;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear()
+    {
+        clearTable();
+    }
+
+    /**
+     * Determine whether a key is present.
+     *
+     * @param key the key.
+     * @return {@code boolean} {@code true} if present.
+     */
+    public boolean containsKey(final Object key)
+    {
+        purge();
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key the key.
+     * @param defaultValue the value to return if the key is absent.
+     * @return {@code int} the value, or {@code defaultValue} if the key is absent.
+     */
+    public int getOrDefault(final Object key, final int defaultValue)
+    {
+        purge();
+        final int index = indexOf(key);
+        recordLookup(index >= 0);
+        return index < 0 ? defaultValue : m_values[index];
+    }
+
+    /**
+     * Add one to the value of a key, treating an absent key as having the value zero.
+     *
+     * @param key the key.
+     * @return {@code int} the updated value.
+     */
+    public int increment(final K key)
+    {
+        return addAndGet(key, 1);
+    }
+
+    /**
+     * Determine whether the map is empty.
+     *
+     * @return {@code boolean} {@code true} if no live keys are present.
+     */
+    public boolean isEmpty()
+    {
+        return 0 == size();
+    }
+
+    /**
+     * Set the value of a key.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @param defaultValue the value to return if the key was absent.
+     * @return {@code int} the previous value, or {@code defaultValue} if the key was absent.
+     */
+    public int put(final K key, final int value, final int defaultValue)
+    {
+        purge();
+        final int index = insert(key);
+        recordPut();
+        final int result;
+        if (index >= 0)
+        {
+            result = m_values[index];
+            m_values[index] = value;
+        }
+        else
+        {
+            result = defaultValue;
+            m_values[-(index + 1)] = value;
+        }
+        return result;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key the key.
+     * @return {@code boolean} {@code true} if the key was present.
+     */
+    public boolean remove(final Object key)
+    {
+        purge();
+        final int index = indexOf(key);
+        if (index >= 0)
+        {
+            /* No need for the collector to enqueue a reference we no longer care about. */
+            keys()[index].clear();
+            delete(index);
+        }
+        return index >= 0;
+    }
+
+    /**
+     * Get the number of entries. Keys collected since the last operation on the map may still be counted.
+     *
+     * @return {@code int} entry count.
+     */
+    public int size()
+    {
+        purgeAll();
+        return tableSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Object allocateValues(final int capacity)
+    {
+        final int[] result = m_values;
+        m_values = new int[capacity];
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void clearValue(final int index)
+    {
+        m_values[index] = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void copyValue(final Object source, final int sourceIndex, final int targetIndex)
+    {
+        m_values[targetIndex] = ((int[]) source)[sourceIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void moveValue(final int sourceIndex, final int targetIndex)
+    {
+        m_values[targetIndex] = m_values[sourceIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int valueSlotBytes()
+    {
+        return VALUE_BYTES;
+    }
+}
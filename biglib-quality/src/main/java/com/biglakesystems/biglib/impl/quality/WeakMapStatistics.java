@@ -0,0 +1,283 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link WeakMapStatistics} collects operational statistics for a weak map: lookup hits and misses, puts, expunged and
+ * expired entries, and the size and duration of purges, along with gauges of the map's current capacity, load and
+ * estimated footprint. Statistics are collected only once enabled on a map, via {@link
+ * WeakIdentityHashMap#enableStatistics()} or {@link ConcurrentWeakIdentityHashMap#enableStatistics()}; a map without
+ * statistics pays only a {@code null} check per operation. Counters are {@link StripedCounter} instances, so concurrent
+ * updates do not contend.
+ * <p/>
+ * Instances implement {@link WeakMapStatisticsMBean}, and so may be registered directly with an {@link
+ * javax.management.MBeanServer}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access. Gauges read the map's
+ * fields without synchronization, so may be slightly stale for a map which is not itself thread-safe.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class WeakMapStatistics implements WeakMapStatisticsMBean
+{
+    private final Gauges m_gauges;
+    private final StripedCounter m_hitCount = new StripedCounter();
+    private final StripedCounter m_missCount = new StripedCounter();
+    private final StripedCounter m_putCount = new StripedCounter();
+    private final StripedCounter m_expungedCount = new StripedCounter();
+    private final StripedCounter m_expiredCount = new StripedCounter();
+    private final StripedCounter m_purgeCount = new StripedCounter();
+    private final StripedCounter m_purgeNanos = new StripedCounter();
+    private final AtomicLong m_maximumPurgeBatch = new AtomicLong(0L);
+
+    /**
+     * Construct a {@link WeakMapStatistics} instance.
+     *
+     * @param gauges the source of gauge values.
+     */
+    WeakMapStatistics(final Gauges gauges)
+    {
+        super();
+        m_gauges = gauges;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAveragePurgeNanos()
+    {
+        final long purges = m_purgeCount.sum();
+        return 0L == purges ? 0L : m_purgeNanos.sum() / purges;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCapacity()
+    {
+        return m_gauges.capacity();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEstimatedFootprint()
+    {
+        return m_gauges.estimatedFootprint();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getExpiredCount()
+    {
+        return m_expiredCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getExpungedCount()
+    {
+        return m_expungedCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHitCount()
+    {
+        return m_hitCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getLoad()
+    {
+        final int capacity = m_gauges.capacity();
+        return 0 == capacity ? 0.0 : (double) m_gauges.size() / capacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaximumPurgeBatch()
+    {
+        return m_maximumPurgeBatch.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMissCount()
+    {
+        return m_missCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPurgeCount()
+    {
+        return m_purgeCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPurgeNanos()
+    {
+        return m_purgeNanos.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPutCount()
+    {
+        return m_putCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize()
+    {
+        return m_gauges.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset()
+    {
+        m_hitCount.reset();
+        m_missCount.reset();
+        m_putCount.reset();
+        m_expungedCount.reset();
+        m_expiredCount.reset();
+        m_purgeCount.reset();
+        m_purgeNanos.reset();
+        m_maximumPurgeBatch.set(0L);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("hits=%d, misses=%d, puts=%d, expunged=%d, expired=%d, purges=%d, size=%d, capacity=%d",
+                getHitCount(), getMissCount(), getPutCount(), getExpungedCount(), getExpiredCount(), getPurgeCount(),
+                getSize(), getCapacity());
+    }
+
+    /**
+     * Record entries expunged outside of a purge, such as by a {@link ReferenceDrainer} or a table rebuild.
+     *
+     * @param count the number of entries expunged.
+     */
+    void expunged(final int count)
+    {
+        m_expungedCount.add(count);
+    }
+
+    /**
+     * Record entries removed because they expired.
+     *
+     * @param count the number of entries removed.
+     */
+    void expired(final int count)
+    {
+        m_expiredCount.add(count);
+    }
+
+    /**
+     * Record a lookup.
+     *
+     * @param hit whether the lookup found an entry.
+     */
+    void lookup(final boolean hit)
+    {
+        (hit ? m_hitCount : m_missCount).increment();
+    }
+
+    /**
+     * Record a purge.
+     *
+     * @param batch the number of entries expunged.
+     * @param nanos the duration of the purge, in nanoseconds.
+     */
+    void purged(final int batch, final long nanos)
+    {
+        m_expungedCount.add(batch);
+        m_purgeCount.increment();
+        m_purgeNanos.add(nanos);
+        long maximum = m_maximumPurgeBatch.get();
+        while (batch > maximum && !m_maximumPurgeBatch.compareAndSet(maximum, batch))
+        {
+            maximum = m_maximumPurgeBatch.get();
+        }
+    }
+
+    /**
+     * Record an insertion or replacement.
+     */
+    void put()
+    {
+        m_putCount.increment();
+    }
+
+    /**
+     * {@link Gauges} is implemented by each instrumented map to supply point-in-time gauge values.
+     * <p/>
+     * <strong>Thread Safety:</strong> implementations of this interface must tolerate invocation from any thread.
+     */
+    interface Gauges
+    {
+        /**
+         * Get the total number of table slots.
+         *
+         * @return {@code int} capacity.
+         */
+        int capacity();
+
+        /**
+         * Get an estimate of the heap retained by the map itself, excluding keys and values.
+         *
+         * @return {@code long} estimated footprint in bytes.
+         */
+        long estimatedFootprint();
+
+        /**
+         * Get the number of entries.
+         *
+         * @return {@code int} entry count.
+         */
+        int size();
+    }
+}
@@ -0,0 +1,116 @@
+package com.biglakesystems.biglib.impl.quality;
+
+/**
+ * {@link WeakMapStatisticsMBean} is the JMX management interface of {@link WeakMapStatistics}.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface WeakMapStatisticsMBean
+{
+    /**
+     * Get the average duration of a purge.
+     *
+     * @return {@code long} average duration in nanoseconds, or zero if no purges have been recorded.
+     */
+    long getAveragePurgeNanos();
+
+    /**
+     * Get the total number of table slots.
+     *
+     * @return {@code int} capacity.
+     */
+    int getCapacity();
+
+    /**
+     * Get an estimate of the heap retained by the map itself, excluding keys and values.
+     *
+     * @return {@code long} estimated footprint in bytes.
+     */
+    long getEstimatedFootprint();
+
+    /**
+     * Get the number of entries removed because they expired. Always zero for a map whose entries do not expire.
+     *
+     * @return {@code long} expired entry count.
+     */
+    long getExpiredCount();
+
+    /**
+     * Get the number of entries removed because their keys were garbage collected.
+     *
+     * @return {@code long} expunged entry count.
+     */
+    long getExpungedCount();
+
+    /**
+     * Get the number of lookups which found an entry.
+     *
+     * @return {@code long} hit count.
+     */
+    long getHitCount();
+
+    /**
+     * Get the ratio of entries to table slots.
+     *
+     * @return {@code double} load.
+     */
+    double getLoad();
+
+    /**
+     * Get the largest number of entries expunged by a single purge.
+     *
+     * @return {@code long} maximum purge batch size.
+     */
+    long getMaximumPurgeBatch();
+
+    /**
+     * Get the number of lookups which found no entry.
+     *
+     * @return {@code long} miss count.
+     */
+    long getMissCount();
+
+    /**
+     * Get the number of purges which found at least one collected key.
+     *
+     * @return {@code long} purge count.
+     */
+    long getPurgeCount();
+
+    /**
+     * Get the total duration of all purges.
+     *
+     * @return {@code long} total duration in nanoseconds.
+     */
+    long getPurgeNanos();
+
+    /**
+     * Get the number of insertions and replacements.
+     *
+     * @return {@code long} put count.
+     */
+    long getPutCount();
+
+    /**
+     * Get the number of entries, possibly including some whose keys have been collected but not yet expunged.
+     *
+     * @return {@code int} entry count.
+     */
+    int getSize();
+
+    /**
+     * Reset all counters to zero.
+     */
+    void reset();
+}
@@ -1,8 +1,21 @@
 package com.biglakesystems.biglib.quality;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IllegalFormatException;
+import java.util.Map;
+
 /**
  * {@link Assert} provides utility methods for performing assertions against values and properties on objects.
  * <p/>
+ * Assertions are written to be cheap enough for hot paths: each one's success path is a single comparison, small enough
+ * to be inlined by the JIT compiler, and never allocates. Failure messages are built only once an assertion has failed,
+ * in separate methods which are expected never to be compiled, and which take their arguments individually so that no
+ * boxing or array creation appears in the assertion itself. Assertions accepting a message take a {@link
+ * String#format(String, Object...)} template and a fixed number of arguments, rather than a pre-built message or a
+ * varargs array, for the same reason; arguments which are primitives should be passed to the {@code long} overloads to
+ * avoid boxing.
+ * <p/>
  * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
  * multithreaded access, provided the same is true of all dependencies provided via constructor.
  * <p/>
@@ -28,6 +41,185 @@ public class Assert
     }
 
 
+    /**
+     * Assert that a condition concerning one or more arguments holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @throws IllegalArgumentException if the {@code condition} is {@code false}.
+     */
+    public static void argument(final boolean condition, final String template) throws IllegalArgumentException
+    {
+        if (!condition)
+        {
+            throw illegalArgument(template);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning one or more arguments holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg the failure message argument.
+     * @throws IllegalArgumentException if the {@code condition} is {@code false}.
+     */
+    public static void argument(final boolean condition, final String template, final Object arg)
+            throws IllegalArgumentException
+    {
+        if (!condition)
+        {
+            throw illegalArgument(template, arg);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning one or more arguments holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg1 the first failure message argument.
+     * @param arg2 the second failure message argument.
+     * @throws IllegalArgumentException if the {@code condition} is {@code false}.
+     */
+    public static void argument(final boolean condition, final String template, final Object arg1, final Object arg2)
+            throws IllegalArgumentException
+    {
+        if (!condition)
+        {
+            throw illegalArgument(template, arg1, arg2);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning one or more arguments holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg the failure message argument.
+     * @throws IllegalArgumentException if the {@code condition} is {@code false}.
+     */
+    public static void argument(final boolean condition, final String template, final long arg)
+            throws IllegalArgumentException
+    {
+        if (!condition)
+        {
+            throw illegalArgument(template, arg);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning one or more arguments holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg1 the first failure message argument.
+     * @param arg2 the second failure message argument.
+     * @throws IllegalArgumentException if the {@code condition} is {@code false}.
+     */
+    public static void argument(final boolean condition, final String template, final long arg1, final long arg2)
+            throws IllegalArgumentException
+    {
+        if (!condition)
+        {
+            throw illegalArgument(template, arg1, arg2);
+        }
+    }
+
+    /**
+     * Assert that a named argument falls within an inclusive range.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @param minimum the minimum permitted value.
+     * @param maximum the maximum permitted value.
+     * @throws IllegalArgumentException if the {@code value} is less than {@code minimum} or greater than {@code
+     * maximum}.
+     */
+    public static void argumentInRange(final String name, final long value, final long minimum, final long maximum)
+            throws IllegalArgumentException
+    {
+        if (value < minimum || value > maximum)
+        {
+            throw argumentOutOfRange(name, value, minimum, maximum);
+        }
+    }
+
+    /**
+     * Assert that a named argument is not negative.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @throws IllegalArgumentException if the {@code value} is less than zero.
+     */
+    public static void argumentNotNegative(final String name, final long value) throws IllegalArgumentException
+    {
+        if (value < 0L)
+        {
+            throw negativeArgument(name, value);
+        }
+    }
+
+    /**
+     * Assert that a named argument is neither {@code null} nor empty.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @throws IllegalArgumentException if the {@code value} is {@code null} or has zero length.
+     */
+    public static void argumentNotEmpty(final String name, final CharSequence value) throws IllegalArgumentException
+    {
+        if (null == value || 0 == value.length())
+        {
+            throw emptyArgument(name);
+        }
+    }
+
+    /**
+     * Assert that a named argument is neither {@code null} nor empty.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @throws IllegalArgumentException if the {@code value} is {@code null} or has no elements.
+     */
+    public static void argumentNotEmpty(final String name, final Collection<?> value) throws IllegalArgumentException
+    {
+        if (null == value || value.isEmpty())
+        {
+            throw emptyArgument(name);
+        }
+    }
+
+    /**
+     * Assert that a named argument is neither {@code null} nor empty.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @throws IllegalArgumentException if the {@code value} is {@code null} or has no entries.
+     */
+    public static void argumentNotEmpty(final String name, final Map<?, ?> value) throws IllegalArgumentException
+    {
+        if (null == value || value.isEmpty())
+        {
+            throw emptyArgument(name);
+        }
+    }
+
+    /**
+     * Assert that a named argument is neither {@code null} nor empty.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @throws IllegalArgumentException if the {@code value} is {@code null} or has zero length.
+     */
+    public static void argumentNotEmpty(final String name, final Object[] value) throws IllegalArgumentException
+    {
+        if (null == value || 0 == value.length)
+        {
+            throw emptyArgument(name);
+        }
+    }
+
     /**
      * Assert that a named argument, such as a method or constructor argument, cannot be {@code null}.
      *
@@ -35,11 +227,57 @@ public class Assert
      * @param value the value to check.
      * @throws IllegalArgumentException if the {@code value} is {@code null}.
      */
-    public static void argumentNotNull(String name, Object value) throws IllegalArgumentException
+    public static void argumentNotNull(final String name, final Object value) throws IllegalArgumentException
     {
         if (null == value)
         {
-            throw new IllegalArgumentException(String.format("Argument [%s] cannot be null.", name));
+            throw illegalArgument("Argument [%s] cannot be null.", name);
+        }
+    }
+
+    /**
+     * Assert that a named argument is positive.
+     *
+     * @param name the name of the argument, for inclusion in an assertion failure exception.
+     * @param value the value to check.
+     * @throws IllegalArgumentException if the {@code value} is zero or less.
+     */
+    public static void argumentPositive(final String name, final long value) throws IllegalArgumentException
+    {
+        if (value <= 0L)
+        {
+            throw nonPositiveArgument(name, value);
+        }
+    }
+
+    /**
+     * Assert that an index refers to an element of an array, list or string of a given size.
+     *
+     * @param index the index to check.
+     * @param size the size of the array, list or string.
+     * @throws IndexOutOfBoundsException if the {@code index} is negative, or not less than {@code size}.
+     */
+    public static void elementIndex(final int index, final int size) throws IndexOutOfBoundsException
+    {
+        if (index < 0 || index >= size)
+        {
+            throw indexOutOfBounds("Index [%s] is out of bounds for size [%s].", index, size);
+        }
+    }
+
+    /**
+     * Assert that an index refers to a position within an array, list or string of a given size; that is, that it
+     * refers to an element or to the end.
+     *
+     * @param index the index to check.
+     * @param size the size of the array, list or string.
+     * @throws IndexOutOfBoundsException if the {@code index} is negative, or greater than {@code size}.
+     */
+    public static void positionIndex(final int index, final int size) throws IndexOutOfBoundsException
+    {
+        if (index < 0 || index > size)
+        {
+            throw indexOutOfBounds("Position [%s] is out of bounds for size [%s].", index, size);
         }
     }
 
@@ -50,11 +288,305 @@ public class Assert
      * @param value the value to check.
      * @throws IllegalStateException if the {@code value} is not {@code null}.
      */
-    public static void propertyNotAlreadySet(String name, Object value) throws IllegalStateException
+    public static void propertyNotAlreadySet(final String name, final Object value) throws IllegalStateException
     {
         if (null != value)
         {
-            throw new IllegalStateException(String.format("Property [%s] has already been set.", name));
+            throw illegalState("Property [%s] has already been set.", name);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning the state of an object holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @throws IllegalStateException if the {@code condition} is {@code false}.
+     */
+    public static void state(final boolean condition, final String template) throws IllegalStateException
+    {
+        if (!condition)
+        {
+            throw illegalState(template);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning the state of an object holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg the failure message argument.
+     * @throws IllegalStateException if the {@code condition} is {@code false}.
+     */
+    public static void state(final boolean condition, final String template, final Object arg)
+            throws IllegalStateException
+    {
+        if (!condition)
+        {
+            throw illegalState(template, arg);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning the state of an object holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg1 the first failure message argument.
+     * @param arg2 the second failure message argument.
+     * @throws IllegalStateException if the {@code condition} is {@code false}.
+     */
+    public static void state(final boolean condition, final String template, final Object arg1, final Object arg2)
+            throws IllegalStateException
+    {
+        if (!condition)
+        {
+            throw illegalState(template, arg1, arg2);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning the state of an object holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg the failure message argument.
+     * @throws IllegalStateException if the {@code condition} is {@code false}.
+     */
+    public static void state(final boolean condition, final String template, final long arg)
+            throws IllegalStateException
+    {
+        if (!condition)
+        {
+            throw illegalState(template, arg);
+        }
+    }
+
+    /**
+     * Assert that a condition concerning the state of an object holds.
+     *
+     * @param condition the condition.
+     * @param template the failure message template.
+     * @param arg1 the first failure message argument.
+     * @param arg2 the second failure message argument.
+     * @throws IllegalStateException if the {@code condition} is {@code false}.
+     */
+    public static void state(final boolean condition, final String template, final long arg1, final long arg2)
+            throws IllegalStateException
+    {
+        if (!condition)
+        {
+            throw illegalState(template, arg1, arg2);
+        }
+    }
+
+    /**
+     * Create the exception thrown when an argument is out of range.
+     *
+     * @param name the argument name.
+     * @param value the argument value.
+     * @param minimum the minimum permitted value.
+     * @param maximum the maximum permitted value.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException argumentOutOfRange(final String name, final long value,
+                                                               final long minimum, final long maximum)
+    {
+        return new IllegalArgumentException(String.format("Argument [%s] must be between [%d] and [%d]; was [%d].",
+                name, minimum, maximum, value));
+    }
+
+    /**
+     * Create the exception thrown when an argument is empty.
+     *
+     * @param name the argument name.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException emptyArgument(final String name)
+    {
+        return new IllegalArgumentException(String.format("Argument [%s] cannot be null or empty.", name));
+    }
+
+    /**
+     * Create an {@link IllegalArgumentException} with an unformatted message.
+     *
+     * @param template the message template.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException illegalArgument(final String template)
+    {
+        return new IllegalArgumentException(format(template));
+    }
+
+    /**
+     * Create an {@link IllegalArgumentException} with a formatted message.
+     *
+     * @param template the message template.
+     * @param arg the message argument.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException illegalArgument(final String template, final Object arg)
+    {
+        return new IllegalArgumentException(format(template, arg));
+    }
+
+    /**
+     * Create an {@link IllegalArgumentException} with a formatted message.
+     *
+     * @param template the message template.
+     * @param arg1 the first message argument.
+     * @param arg2 the second message argument.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException illegalArgument(final String template, final Object arg1, final Object arg2)
+    {
+        return new IllegalArgumentException(format(template, arg1, arg2));
+    }
+
+    /**
+     * Create an {@link IllegalArgumentException} with a message formatted from a primitive argument.
+     *
+     * @param template the message template.
+     * @param arg the message argument.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException illegalArgument(final String template, final long arg)
+    {
+        return new IllegalArgumentException(format(template, arg));
+    }
+
+    /**
+     * Create an {@link IllegalArgumentException} with a message formatted from primitive arguments.
+     *
+     * @param template the message template.
+     * @param arg1 the first message argument.
+     * @param arg2 the second message argument.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException illegalArgument(final String template, final long arg1, final long arg2)
+    {
+        return new IllegalArgumentException(format(template, arg1, arg2));
+    }
+
+    /**
+     * Create an {@link IllegalStateException} with an unformatted message.
+     *
+     * @param template the message template.
+     * @return {@link IllegalStateException} exception.
+     */
+    private static IllegalStateException illegalState(final String template)
+    {
+        return new IllegalStateException(format(template));
+    }
+
+    /**
+     * Create an {@link IllegalStateException} with a formatted message.
+     *
+     * @param template the message template.
+     * @param arg the message argument.
+     * @return {@link IllegalStateException} exception.
+     */
+    private static IllegalStateException illegalState(final String template, final Object arg)
+    {
+        return new IllegalStateException(format(template, arg));
+    }
+
+    /**
+     * Create an {@link IllegalStateException} with a formatted message.
+     *
+     * @param template the message template.
+     * @param arg1 the first message argument.
+     * @param arg2 the second message argument.
+     * @return {@link IllegalStateException} exception.
+     */
+    private static IllegalStateException illegalState(final String template, final Object arg1, final Object arg2)
+    {
+        return new IllegalStateException(format(template, arg1, arg2));
+    }
+
+    /**
+     * Create an {@link IllegalStateException} with a message formatted from a primitive argument.
+     *
+     * @param template the message template.
+     * @param arg the message argument.
+     * @return {@link IllegalStateException} exception.
+     */
+    private static IllegalStateException illegalState(final String template, final long arg)
+    {
+        return new IllegalStateException(format(template, arg));
+    }
+
+    /**
+     * Create an {@link IllegalStateException} with a message formatted from primitive arguments.
+     *
+     * @param template the message template.
+     * @param arg1 the first message argument.
+     * @param arg2 the second message argument.
+     * @return {@link IllegalStateException} exception.
+     */
+    private static IllegalStateException illegalState(final String template, final long arg1, final long arg2)
+    {
+        return new IllegalStateException(format(template, arg1, arg2));
+    }
+
+    /**
+     * Create an {@link IndexOutOfBoundsException} with a message formatted from an index and size.
+     *
+     * @param template the message template.
+     * @param index the index.
+     * @param size the size.
+     * @return {@link IndexOutOfBoundsException} exception.
+     */
+    private static IndexOutOfBoundsException indexOutOfBounds(final String template, final int index,
+                                                              final int size)
+    {
+        return new IndexOutOfBoundsException(String.format(template, index, size));
+    }
+
+    /**
+     * Create the exception thrown when an argument is negative.
+     *
+     * @param name the argument name.
+     * @param value the argument value.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException negativeArgument(final String name, final long value)
+    {
+        return new IllegalArgumentException(String.format("Argument [%s] cannot be negative; was [%d].", name, value));
+    }
+
+    /**
+     * Create the exception thrown when an argument is not positive.
+     *
+     * @param name the argument name.
+     * @param value the argument value.
+     * @return {@link IllegalArgumentException} exception.
+     */
+    private static IllegalArgumentException nonPositiveArgument(final String name, final long value)
+    {
+        return new IllegalArgumentException(String.format("Argument [%s] must be positive; was [%d].", name, value));
+    }
+
+    /**
+     * Format a failure message. A template which cannot be formatted with the given arguments is not allowed to mask
+     * the original failure; the template and arguments are returned verbatim instead.
+     *
+     * @param template the message template.
+     * @param args the message arguments.
+     * @return {@link String} message.
+     */
+    private static String format(final String template, final Object... args)
+    {
+        String result;
+        try
+        {
+            result = String.format(String.valueOf(template), args);
+        }
+        catch (final IllegalFormatException e)
+        {
+            result = template + " " + Arrays.toString(args);
         }
+        return result;
     }
 }
@@ -0,0 +1,153 @@
+package com.biglakesystems.biglib.quality;
+
+/**
+ * {@link CapturedException} is a snapshot of an exception taken when it was first identified, as delivered to {@link
+ * ExceptionSink} implementations by an {@link ExceptionCapture} pipeline. It holds only the exception's identifier,
+ * class name, message and stack trace, together with when and on which thread it was captured; it does not retain the
+ * exception itself, so sinks may hold snapshots without keeping failed objects reachable. The stack trace is held as a
+ * {@link CompactStackTrace}, so that snapshots of exceptions thrown from the same call paths share their frames.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are immutable and therefore safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class CapturedException
+{
+    private final String m_id;
+    private final String m_className;
+    private final String m_message;
+    private final CompactStackTrace m_stackTrace;
+    private final long m_timestamp;
+    private final String m_threadName;
+
+    /**
+     * Construct a {@link CapturedException} instance.
+     *
+     * @param id the exception identifier.
+     * @param className the exception class name.
+     * @param message the exception message, or {@code null} if none.
+     * @param stackTrace the exception stack trace, which is interned in the {@link StackTraceTable#shared() shared}
+     * table.
+     * @param timestamp the capture time, in milliseconds since the epoch.
+     * @param threadName the name of the thread on which the exception was identified.
+     */
+    public CapturedException(final String id, final String className, final String message,
+                             final StackTraceElement[] stackTrace, final long timestamp, final String threadName)
+    {
+        this(id, className, message, StackTraceTable.shared().intern(stackTrace), timestamp, threadName);
+    }
+
+    /**
+     * Construct a {@link CapturedException} instance.
+     *
+     * @param id the exception identifier.
+     * @param className the exception class name.
+     * @param message the exception message, or {@code null} if none.
+     * @param stackTrace the exception stack trace.
+     * @param timestamp the capture time, in milliseconds since the epoch.
+     * @param threadName the name of the thread on which the exception was identified.
+     */
+    public CapturedException(final String id, final String className, final String message,
+                             final CompactStackTrace stackTrace, final long timestamp, final String threadName)
+    {
+        super();
+        Assert.argumentNotNull("id", id);
+        Assert.argumentNotNull("className", className);
+        Assert.argumentNotNull("stackTrace", stackTrace);
+        m_id = id;
+        m_className = className;
+        m_message = message;
+        m_stackTrace = stackTrace;
+        m_timestamp = timestamp;
+        m_threadName = threadName;
+    }
+
+    /**
+     * Get the exception class name.
+     *
+     * @return {@link String} class name.
+     */
+    public String getClassName()
+    {
+        return m_className;
+    }
+
+    /**
+     * Get the exception stack trace, in compact form.
+     *
+     * @return {@link CompactStackTrace} stack trace.
+     */
+    public CompactStackTrace getCompactStackTrace()
+    {
+        return m_stackTrace;
+    }
+
+    /**
+     * Get the exception identifier.
+     *
+     * @return {@link String} identifier.
+     */
+    public String getId()
+    {
+        return m_id;
+    }
+
+    /**
+     * Get the exception message.
+     *
+     * @return {@link String} message, or {@code null} if none.
+     */
+    public String getMessage()
+    {
+        return m_message;
+    }
+
+    /**
+     * Get the exception stack trace.
+     *
+     * @return {@link StackTraceElement} array, expanded from the compact form.
+     */
+    public StackTraceElement[] getStackTrace()
+    {
+        return m_stackTrace.expand();
+    }
+
+    /**
+     * Get the name of the thread on which the exception was identified.
+     *
+     * @return {@link String} thread name.
+     */
+    public String getThreadName()
+    {
+        return m_threadName;
+    }
+
+    /**
+     * Get the capture time.
+     *
+     * @return {@code long} milliseconds since the epoch.
+     */
+    public long getTimestamp()
+    {
+        return m_timestamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[id=%s, className=%s, message=%s, timestamp=%d, threadName=%s]",
+                getClass().getSimpleName(), m_id, m_className, m_message, m_timestamp, m_threadName);
+    }
+}
@@ -0,0 +1,93 @@
+package com.biglakesystems.biglib.quality;
+
+/**
+ * {@link CheapException} is a base class for unchecked exceptions thrown on expected paths, whose stack is captured
+ * according to a {@link StackCapturePolicy} rather than in full. The policy is given to the constructor, for a policy
+ * chosen per throw site, or otherwise found via {@link StackCapturePolicy#forType(Class)}, for a policy chosen per
+ * exception type:
+ * <pre>
+ * private static final StackCapturePolicy MISS_POLICY = StackCapturePolicy.sampled(1000);
+ * ...
+ * throw new CacheMissException(key, MISS_POLICY);
+ * </pre>
+ * Such exceptions are otherwise ordinary: they may be identified via {@link Exceptions#uniqueId(Throwable)}, captured,
+ * journaled and reported like any other, with whatever stack trace was captured. {@link #isStackTraceElided()} reports
+ * whether any frames were omitted, so that a missing or short trace can be recognized as deliberate.
+ * <p/>
+ * Because the stack is captured on construction, {@link #fillInStackTrace()} does nothing.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are not safe for multithreaded access once thrown, no more
+ * than other exceptions are; they are safe to publish via a thread-safe handoff.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class CheapException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final boolean m_stackTraceElided;
+
+    /**
+     * Construct a {@link CheapException} instance, with the policy for its type.
+     *
+     * @param message the detail message.
+     */
+    public CheapException(final String message)
+    {
+        this(message, null, null);
+    }
+
+    /**
+     * Construct a {@link CheapException} instance.
+     *
+     * @param message the detail message.
+     * @param policy the stack capture policy, or {@code null} for the policy for its type.
+     */
+    public CheapException(final String message, final StackCapturePolicy policy)
+    {
+        this(message, null, policy);
+    }
+
+    /**
+     * Construct a {@link CheapException} instance.
+     *
+     * @param message the detail message.
+     * @param cause the cause, or {@code null} if none.
+     * @param policy the stack capture policy, or {@code null} for the policy for its type.
+     */
+    public CheapException(final String message, final Throwable cause, final StackCapturePolicy policy)
+    {
+        super(message, cause);
+        m_stackTraceElided = (null == policy ? StackCapturePolicy.forType(getClass()) : policy).applyTo(this);
+    }
+
+    /**
+     * Does nothing; the stack is captured on construction, according to the policy.
+     *
+     * @return {@link Throwable} this exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace()
+    {
+        return this;
+    }
+
+    /**
+     * Determine whether any frames of the stack at construction were omitted from this exception's stack trace.
+     *
+     * @return {@code boolean} {@code true} if the stack trace is absent or truncated.
+     */
+    public boolean isStackTraceElided()
+    {
+        return m_stackTraceElided;
+    }
+}
@@ -0,0 +1,33 @@
+package com.biglakesystems.biglib.quality;
+
+/**
+ * {@link CompactExceptionIdGenerator} is an {@link ExceptionIdGenerator} which can mint identifiers directly in compact
+ * form, as {@link ExceptionId} instances, without rendering their strings. {@link Exceptions} uses {@link
+ * #newExceptionId(Throwable)} for generators implementing this interface; identifiers minted by other generators are
+ * converted via {@link ExceptionId#parse(String)}. All of the built-in generators implement it.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface CompactExceptionIdGenerator extends ExceptionIdGenerator
+{
+    /**
+     * Generate a new identifier for an exception, in compact form. Each invocation must return a different identifier,
+     * even for the same exception instance, and the string form of each must be as {@link #newId(Throwable)} would
+     * return.
+     *
+     * @param exception the exception.
+     * @return {@link ExceptionId} new identifier, never {@code null}.
+     */
+    ExceptionId newExceptionId(Throwable exception);
+}
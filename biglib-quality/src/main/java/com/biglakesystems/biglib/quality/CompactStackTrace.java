@@ -0,0 +1,156 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.Arrays;
+
+/**
+ * {@link CompactStackTrace} is a memory-efficient representation of a stack trace, interned by a {@link
+ * StackTraceTable}. An interned trace holds only a reference into its table's trie of shared frames; the {@link
+ * StackTraceElement} array is rebuilt on demand by {@link #expand()}. Code which retains exceptions, or their stack
+ * traces, for long periods can retain a compact trace in place of the frames; see {@link
+ * Exceptions#compactStackTrace(Throwable)}.
+ * <p/>
+ * Compact traces are equal when they represent the same sequence of frames. Two traces interned by the same table are
+ * compared in constant time.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are immutable and therefore safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class CompactStackTrace
+{
+    private final StackTraceTable m_table;
+    private final int m_node;
+    private final int m_depth;
+    private final StackTraceElement[] m_frames;
+    private int m_hashCode;
+
+    /**
+     * Construct a {@link CompactStackTrace} instance.
+     *
+     * @param table the interning table.
+     * @param node the table node of the innermost frame, or {@code -1} if the trace is empty or not interned.
+     * @param depth the number of frames.
+     * @param frames the frames of a trace which could not be interned, or {@code null}.
+     */
+    CompactStackTrace(final StackTraceTable table, final int node, final int depth, final StackTraceElement[] frames)
+    {
+        super();
+        m_table = table;
+        m_node = node;
+        m_depth = depth;
+        m_frames = frames;
+    }
+
+    /**
+     * Hold a stack trace without interning it, in a private copy of its frames. Suited to traces which are unlikely to
+     * be shared and not retained for long, such as those decoded from storage, which would otherwise fill a table with
+     * frames never seen again.
+     *
+     * @param stackTrace the stack trace.
+     * @return {@link CompactStackTrace} trace, not interned.
+     */
+    public static CompactStackTrace copyOf(final StackTraceElement[] stackTrace)
+    {
+        Assert.argumentNotNull("stackTrace", stackTrace);
+        return new CompactStackTrace(null, -1, stackTrace.length, stackTrace.clone());
+    }
+
+    /**
+     * Intern the stack trace of an exception in the {@link StackTraceTable#shared() shared} table.
+     *
+     * @param exception the exception.
+     * @return {@link CompactStackTrace} trace.
+     */
+    public static CompactStackTrace of(final Throwable exception)
+    {
+        Assert.argumentNotNull("exception", exception);
+        return StackTraceTable.shared().intern(exception.getStackTrace());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object other)
+    {
+        boolean result = this == other;
+        if (!result && other instanceof CompactStackTrace)
+        {
+            final CompactStackTrace that = (CompactStackTrace) other;
+            if (m_table == that.m_table && null == m_frames && null == that.m_frames)
+            {
+                result = m_node == that.m_node;
+            }
+            else
+            {
+                result = m_depth == that.m_depth && Arrays.equals(expand(), that.expand());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expand this trace into a new array of frames.
+     *
+     * @return {@link StackTraceElement} array, innermost frame first, as returned by {@link Throwable#getStackTrace()}.
+     */
+    public StackTraceElement[] expand()
+    {
+        return null == m_frames ? m_table.expand(m_node, m_depth) : m_frames.clone();
+    }
+
+    /**
+     * Get the number of frames in this trace.
+     *
+     * @return {@code int} depth.
+     */
+    public int getDepth()
+    {
+        return m_depth;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        /* Racy single-check caching, as for String; the computed value is the same on every thread. */
+        int result = m_hashCode;
+        if (0 == result)
+        {
+            result = Arrays.hashCode(expand());
+            m_hashCode = result;
+        }
+        return result;
+    }
+
+    /**
+     * Determine whether this trace is interned, rather than holding its own copy of the frames because its table was
+     * full, or because it was created by {@link #copyOf(StackTraceElement[])}.
+     *
+     * @return {@code boolean} {@code true} if interned.
+     */
+    public boolean isInterned()
+    {
+        return null == m_frames;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[depth=%d, interned=%s]", getClass().getSimpleName(), m_depth, isInterned());
+    }
+}
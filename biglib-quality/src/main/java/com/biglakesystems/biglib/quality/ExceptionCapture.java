@@ -0,0 +1,279 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.ExceptionRingBuffer;
+import com.biglakesystems.biglib.impl.quality.Platform;
+import com.biglakesystems.biglib.impl.quality.StripedCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link ExceptionCapture} is a pipeline which captures every identified exception for later inspection without slowing
+ * the failing thread. Registered as an {@link ExceptionListener} via {@link Exceptions#addListener(ExceptionListener)},
+ * it publishes a snapshot of each newly identified exception (its identifier, class name, message and stack trace) into
+ * a preallocated, lock-free {@link ExceptionRingBuffer}. Background consumer threads drain the buffer in batches and
+ * deliver each batch to every configured {@link ExceptionSink}.
+ * <p/>
+ * Publishing never blocks: when the buffer is full, the snapshot is dropped and counted, on the principle that a
+ * system already failing fast enough to outrun its consumers is better served by sustained throughput than by a
+ * complete record. Consumers which find the buffer empty park briefly rather than being signalled, so producers never
+ * touch a lock or wake a thread.
+ * <p/>
+ * Consumer threads are daemons, started on construction. {@link #shutdown()} stops them once the buffer has been
+ * drained. The threads do not keep the pipeline reachable, so a pipeline which is discarded without being shut down
+ * is shut down once it has been garbage collected, via {@link Platform#registerCleanup(Object, Runnable)}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access, provided the same is true
+ * of the sinks provided via constructor.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionCapture implements ExceptionListener
+{
+    private static final Logger s_logger = LoggerFactory.getLogger(ExceptionCapture.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+    private static final long MAXIMUM_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+
+    private final ExceptionRingBuffer m_buffer;
+    private final Consumers m_consumers;
+    private final Platform.Cleanup m_cleanup;
+    private final StripedCounter m_droppedCount = new StripedCounter();
+
+    /**
+     * Construct and start a {@link ExceptionCapture} instance.
+     *
+     * @param capacity the minimum buffer capacity, which is rounded up to a power of two.
+     * @param consumerCount the number of consumer threads.
+     * @param batchSize the maximum number of exceptions delivered to sinks in a single batch.
+     * @param sinks the sinks to which captured exceptions are delivered.
+     */
+    public ExceptionCapture(final int capacity, final int consumerCount, final int batchSize,
+                            final ExceptionSink... sinks)
+    {
+        super();
+        Assert.argumentPositive("consumerCount", consumerCount);
+        Assert.argumentPositive("batchSize", batchSize);
+        Assert.argumentNotEmpty("sinks", sinks);
+        m_buffer = new ExceptionRingBuffer(capacity);
+        m_consumers = new Consumers(m_buffer, Collections.unmodifiableList(new ArrayList<ExceptionSink>(
+                Arrays.asList(sinks))), batchSize, consumerCount);
+        m_cleanup = Platform.registerCleanup(this, m_consumers);
+    }
+
+    /**
+     * Wait for the consumer threads to stop after {@link #shutdown()}.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of {@code timeout}.
+     * @return {@code boolean} {@code true} if all consumers stopped, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean result = true;
+        for (final Thread nextConsumer : m_consumers.m_threads)
+        {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis > 0L)
+            {
+                nextConsumer.join(remainingMillis);
+            }
+            result &= !nextConsumer.isAlive();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Publishes a snapshot of the exception, or counts it as dropped if the buffer is full or the pipeline has been
+     * shut down.
+     */
+    @Override
+    public void exceptionIdentified(final Throwable exception, final String id)
+    {
+        if (m_consumers.m_shutdown || !m_buffer.offer(id, exception, System.currentTimeMillis(),
+                Thread.currentThread().getName()))
+        {
+            m_droppedCount.increment();
+        }
+    }
+
+    /**
+     * Get the number of captured exceptions delivered to sinks. An exception delivered to several sinks is counted
+     * once.
+     *
+     * @return {@code long} delivered count.
+     */
+    public long getDeliveredCount()
+    {
+        return m_consumers.m_deliveredCount.get();
+    }
+
+    /**
+     * Get the number of exceptions dropped because the buffer was full or the pipeline had been shut down.
+     *
+     * @return {@code long} dropped count.
+     */
+    public long getDroppedCount()
+    {
+        return m_droppedCount.sum();
+    }
+
+    /**
+     * Get the approximate number of captured exceptions awaiting delivery.
+     *
+     * @return {@code int} pending count.
+     */
+    public int getPendingCount()
+    {
+        return m_buffer.size();
+    }
+
+    /**
+     * Stop accepting exceptions, and stop the consumer threads once they have delivered everything already captured.
+     * Returns immediately; see {@link #awaitTermination(long, TimeUnit)}. The pipeline should also be removed from
+     * {@link Exceptions} via {@link Exceptions#removeListener(ExceptionListener)}.
+     */
+    public void shutdown()
+    {
+        m_cleanup.clean();
+    }
+
+    /**
+     * {@link Consumers} holds the state shared by the consumer threads. It does not reference the owning {@link
+     * ExceptionCapture}, so that the consumers do not keep a discarded pipeline reachable. Running it shuts the
+     * consumers down; it is the pipeline's cleanup action.
+     */
+    private static final class Consumers implements Runnable
+    {
+        private final ExceptionRingBuffer m_buffer;
+        private final List<ExceptionSink> m_sinks;
+        private final int m_batchSize;
+        private final Thread[] m_threads;
+        private final AtomicLong m_deliveredCount = new AtomicLong(0L);
+        private volatile boolean m_shutdown;
+
+        /**
+         * Construct and start a {@link Consumers} instance.
+         *
+         * @param buffer the buffer to drain.
+         * @param sinks the sinks to which captured exceptions are delivered.
+         * @param batchSize the maximum number of exceptions delivered to sinks in a single batch.
+         * @param threadCount the number of consumer threads.
+         */
+        public Consumers(final ExceptionRingBuffer buffer, final List<ExceptionSink> sinks, final int batchSize,
+                         final int threadCount)
+        {
+            super();
+            m_buffer = buffer;
+            m_sinks = sinks;
+            m_batchSize = batchSize;
+            m_threads = new Thread[threadCount];
+            for (int i = 0; i < threadCount; i += 1)
+            {
+                m_threads[i] = new Thread(String.format("biglib-exception-capture-%d", i))
+                {
+                    @Override
+                    public void run()
+                    {
+                        consumeUntilShutdown();
+                    }
+                };
+                m_threads[i].setDaemon(true);
+                m_threads[i].start();
+            }
+        }
+
+        /**
+         * Stop the consumer threads once the buffer is empty.
+         */
+        @Override
+        public void run()
+        {
+            m_shutdown = true;
+            for (final Thread nextThread : m_threads)
+            {
+                LockSupport.unpark(nextThread);
+            }
+        }
+
+        /**
+         * Drain the buffer in batches until {@link #run()} is called and the buffer is empty. An idle consumer
+         * parks for a period which doubles, up to a limit, each time it again finds the buffer empty.
+         */
+        private void consumeUntilShutdown()
+        {
+            final List<CapturedException> batch = new ArrayList<CapturedException>(m_batchSize);
+            final List<CapturedException> view = Collections.unmodifiableList(batch);
+            long parkNanos = IDLE_PARK_NANOS;
+            boolean done = false;
+            while (!done)
+            {
+                /* Read the flag before draining, so that anything published before shutdown is delivered. */
+                final boolean shutdown = m_shutdown;
+                CapturedException next = m_buffer.poll();
+                while (null != next)
+                {
+                    batch.add(next);
+                    next = batch.size() < m_batchSize ? m_buffer.poll() : null;
+                }
+                if (!batch.isEmpty())
+                {
+                    deliver(view);
+                    batch.clear();
+                    parkNanos = IDLE_PARK_NANOS;
+                }
+                else if (shutdown)
+                {
+                    done = true;
+                }
+                else
+                {
+                    LockSupport.parkNanos(this, parkNanos);
+                    parkNanos = Math.min(parkNanos << 1, MAXIMUM_IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        /**
+         * Deliver a batch to every sink, logging but otherwise ignoring any failure so that the consumer thread
+         * survives.
+         *
+         * @param batch the batch.
+         */
+        private void deliver(final List<CapturedException> batch)
+        {
+            for (final ExceptionSink nextSink : m_sinks)
+            {
+                try
+                {
+                    nextSink.write(batch);
+                }
+                catch (final RuntimeException e)
+                {
+                    s_logger.error(String.format("Exception sink [%s] failed to write a batch of [%d] exceptions.",
+                            nextSink, batch.size()), e);
+                }
+            }
+            m_deliveredCount.addAndGet(batch.size());
+        }
+    }
+}
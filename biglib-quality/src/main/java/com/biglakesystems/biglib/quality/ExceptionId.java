@@ -0,0 +1,320 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.Arrays;
+
+/**
+ * {@link ExceptionId} is the compact form of an exception identifier, as returned by {@link
+ * Exceptions#exceptionId(Throwable)}. Identifiers minted by the built-in generators are hexadecimal or Crockford base
+ * 32 strings of up to 160 bits, so rather than retaining a string of up to 40 characters for every identified
+ * exception, an {@link ExceptionId} holds the raw bits in three {@code long} fields, together with the encoding and the
+ * number of characters. The string form is rendered each time {@link #toString()} is called, and is deliberately not
+ * cached: an identifier retained for the lifetime of its exception thereby never retains a string as well, and most
+ * identifiers are never displayed, and so never rendered.
+ * <p/>
+ * Every identifier has exactly one form, so two instances are equal exactly when their string forms are equal, and
+ * {@link #parse(String)} of a string form returns an equal instance. Hexadecimal identifiers are rendered in lower
+ * case, and base 32 identifiers in upper case; one consisting entirely of decimal digits, which would be valid in
+ * either encoding, is always held as hexadecimal. Strings which fit neither encoding, such as those minted by custom
+ * {@link ExceptionIdGenerator} implementations, are held as they are.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are immutable and therefore safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class ExceptionId
+{
+    /**
+     * Maximum number of characters in a hexadecimal identifier held in compact form.
+     */
+    public static final int MAXIMUM_HEX_CHARACTERS = 48;
+
+    /**
+     * Maximum number of characters in a base 32 identifier held in compact form.
+     */
+    public static final int MAXIMUM_BASE32_CHARACTERS = 38;
+
+    private static final byte HEX = 4;
+    private static final byte BASE32 = 5;
+    private static final byte TEXT = 0;
+    private static final char[] HEX_ALPHABET = "0123456789abcdef".toCharArray();
+    private static final char[] BASE32_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] HEX_VALUES = values(HEX_ALPHABET);
+    private static final byte[] BASE32_VALUES = values(BASE32_ALPHABET);
+
+    private final long m_high;
+    private final long m_middle;
+    private final long m_low;
+    private final byte m_encoding;
+    private final byte m_length;
+    private final String m_text;
+
+    /**
+     * Construct a {@link ExceptionId} instance.
+     *
+     * @param high the high-order 64 bits.
+     * @param middle the middle 64 bits.
+     * @param low the low-order 64 bits.
+     * @param encoding the number of bits per character, or {@link #TEXT}.
+     * @param length the number of characters.
+     * @param text the text of an identifier held as text, otherwise {@code null}.
+     */
+    private ExceptionId(final long high, final long middle, final long low, final byte encoding, final int length,
+                        final String text)
+    {
+        super();
+        final int bits = encoding * length;
+        m_high = mask(high, bits - 128);
+        m_middle = mask(middle, bits - 64);
+        m_low = mask(low, bits);
+        m_encoding = encoding;
+        m_length = (byte) length;
+        m_text = text;
+    }
+
+    /**
+     * Create a base 32 identifier.
+     *
+     * @param high the high-order 64 bits.
+     * @param middle the middle 64 bits.
+     * @param low the low-order 64 bits.
+     * @param characters the number of characters, encoding the low-order {@code 5 * characters} bits; higher-order
+     * bits are ignored.
+     * @return {@link ExceptionId} identifier.
+     */
+    public static ExceptionId base32(final long high, final long middle, final long low, final int characters)
+    {
+        Assert.argumentInRange("characters", characters, 1L, MAXIMUM_BASE32_CHARACTERS);
+        final ExceptionId result = new ExceptionId(high, middle, low, BASE32, characters, null);
+
+        /* Digits-only identifiers are held in hexadecimal, so that each string has exactly one form. */
+        final ExceptionId decimal = result.decimalAsHex();
+        return null == decimal ? result : decimal;
+    }
+
+    /**
+     * Create a hexadecimal identifier.
+     *
+     * @param high the high-order 64 bits.
+     * @param middle the middle 64 bits.
+     * @param low the low-order 64 bits.
+     * @param characters the number of characters, encoding the low-order {@code 4 * characters} bits; higher-order
+     * bits are ignored.
+     * @return {@link ExceptionId} identifier.
+     */
+    public static ExceptionId hex(final long high, final long middle, final long low, final int characters)
+    {
+        Assert.argumentInRange("characters", characters, 1L, MAXIMUM_HEX_CHARACTERS);
+        return new ExceptionId(high, middle, low, HEX, characters, null);
+    }
+
+    /**
+     * Parse the string form of an identifier. Any string is a valid identifier: those in either supported encoding are
+     * held in compact form, and others as they are.
+     *
+     * @param text the string form.
+     * @return {@link ExceptionId} identifier.
+     */
+    public static ExceptionId parse(final String text)
+    {
+        Assert.argumentNotNull("text", text);
+        ExceptionId result = decode(text, HEX, HEX_VALUES, MAXIMUM_HEX_CHARACTERS);
+        if (null == result)
+        {
+            result = decode(text, BASE32, BASE32_VALUES, MAXIMUM_BASE32_CHARACTERS);
+        }
+        if (null == result)
+        {
+            result = new ExceptionId(0L, 0L, 0L, TEXT, 0, text);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        boolean result = this == obj;
+        if (!result && obj instanceof ExceptionId)
+        {
+            final ExceptionId other = (ExceptionId) obj;
+            result = m_encoding == other.m_encoding && m_length == other.m_length && m_low == other.m_low &&
+                    m_middle == other.m_middle && m_high == other.m_high &&
+                    (TEXT != m_encoding || m_text.equals(other.m_text));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        int result;
+        if (TEXT == m_encoding)
+        {
+            result = m_text.hashCode();
+        }
+        else
+        {
+            long hash = m_high * 31L + m_middle;
+            hash = hash * 31L + m_low;
+            hash = (hash * 31L + m_length) * 0x9e3779b97f4a7c15L + m_encoding;
+            result = (int) (hash ^ (hash >>> 32));
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of characters in the string form, without rendering it.
+     *
+     * @return {@code int} length.
+     */
+    public int length()
+    {
+        return TEXT == m_encoding ? m_text.length() : m_length;
+    }
+
+    /**
+     * Get the string form of this identifier, as returned by {@link Exceptions#uniqueId(Throwable)}. It is rendered
+     * afresh on each call.
+     *
+     * @return {@link String} string form.
+     */
+    @Override
+    public String toString()
+    {
+        return TEXT == m_encoding ? m_text : render();
+    }
+
+    /**
+     * Decode a string in a given encoding.
+     *
+     * @param text the string.
+     * @param encoding the number of bits per character.
+     * @param values the value of each character in the encoding, indexed by character, or {@code -1}.
+     * @param maximumLength the maximum number of characters held in compact form.
+     * @return {@link ExceptionId} identifier, or {@code null} if the string is not in canonical form in the encoding.
+     */
+    private static ExceptionId decode(final String text, final byte encoding, final byte[] values,
+                                      final int maximumLength)
+    {
+        final int length = text.length();
+        boolean valid = length > 0 && length <= maximumLength;
+        long high = 0L;
+        long middle = 0L;
+        long low = 0L;
+        for (int i = 0; i < length && valid; i += 1)
+        {
+            final char next = text.charAt(i);
+            final int value = next < values.length ? values[next] : -1;
+            valid = value >= 0;
+            high = (high << encoding) | (middle >>> (64 - encoding));
+            middle = (middle << encoding) | (low >>> (64 - encoding));
+            low = (low << encoding) | value;
+        }
+        return valid ? new ExceptionId(high, middle, low, encoding, length, null) : null;
+    }
+
+    /**
+     * Mask a word to its low-order bits.
+     *
+     * @param word the word.
+     * @param bits the number of bits to keep; all if {@code 64} or more, none if zero or fewer.
+     * @return {@code long} masked word.
+     */
+    private static long mask(final long word, final int bits)
+    {
+        return bits >= 64 ? word : bits <= 0 ? 0L : word & ((1L << bits) - 1L);
+    }
+
+    /**
+     * Build a table of the values of the characters of an alphabet.
+     *
+     * @param alphabet the alphabet.
+     * @return {@code byte} array indexed by character, holding each character's value, or {@code -1}.
+     */
+    private static byte[] values(final char[] alphabet)
+    {
+        final byte[] result = new byte[128];
+        Arrays.fill(result, (byte) -1);
+        for (int i = 0; i < alphabet.length; i += 1)
+        {
+            result[alphabet[i]] = (byte) i;
+        }
+        return result;
+    }
+
+    /**
+     * Convert a base 32 identifier consisting entirely of decimal digits to the equivalent hexadecimal identifier.
+     *
+     * @return {@link ExceptionId} hexadecimal identifier, or {@code null} if any character is not a decimal digit.
+     */
+    private ExceptionId decimalAsHex()
+    {
+        long high = m_high;
+        long middle = m_middle;
+        long low = m_low;
+        long hexHigh = 0L;
+        long hexMiddle = 0L;
+        long hexLow = 0L;
+        boolean decimal = true;
+        for (int i = 0; i < m_length && decimal; i += 1)
+        {
+            /* Take characters least significant first; each lands in its own hexadecimal digit. */
+            final long digit = low & 0x1fL;
+            decimal = digit < 10L;
+            final long shifted = digit << ((i & 15) << 2);
+            if (i < 16)
+            {
+                hexLow |= shifted;
+            }
+            else if (i < 32)
+            {
+                hexMiddle |= shifted;
+            }
+            else
+            {
+                hexHigh |= shifted;
+            }
+            low = (low >>> BASE32) | (middle << (64 - BASE32));
+            middle = (middle >>> BASE32) | (high << (64 - BASE32));
+            high >>>= BASE32;
+        }
+        return decimal ? new ExceptionId(hexHigh, hexMiddle, hexLow, HEX, m_length, null) : null;
+    }
+
+    /**
+     * Render the string form of an identifier held in compact form.
+     *
+     * @return {@link String} string form.
+     */
+    private String render()
+    {
+        final char[] alphabet = HEX == m_encoding ? HEX_ALPHABET : BASE32_ALPHABET;
+        final int mask = (1 << m_encoding) - 1;
+        long high = m_high;
+        long middle = m_middle;
+        long low = m_low;
+        final char[] result = new char[m_length];
+        for (int i = m_length - 1; i >= 0; i -= 1)
+        {
+            result[i] = alphabet[(int) low & mask];
+            low = (low >>> m_encoding) | (middle << (64 - m_encoding));
+            middle = (middle >>> m_encoding) | (high << (64 - m_encoding));
+            high >>>= m_encoding;
+        }
+        return new String(result);
+    }
+}
@@ -0,0 +1,34 @@
+package com.biglakesystems.biglib.quality;
+
+/**
+ * {@link ExceptionIdGenerator} is the strategy interface used by {@link Exceptions#uniqueId(Throwable)} to mint a new
+ * identifier for an exception which has not been identified before. Identifiers need only be unique; they are not
+ * required to be unpredictable.
+ * <p/>
+ * The generator used by {@link Exceptions} is selected at startup via the {@value Exceptions#ID_GENERATOR_PROPERTY}
+ * system property, or by calling {@link Exceptions#setIdGenerator(ExceptionIdGenerator)}.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface ExceptionIdGenerator
+{
+    /**
+     * Generate a new identifier for an exception. Each invocation must return a different identifier, even for the same
+     * exception instance.
+     *
+     * @param exception the exception.
+     * @return {@link String} new identifier, never {@code null}.
+     */
+    String newId(Throwable exception);
+}
@@ -0,0 +1,306 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.JournalSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * {@link ExceptionJournal} is a persistent, append-only record of captured exceptions, indexed by the identifiers
+ * produced by {@link Exceptions#uniqueId(Throwable)}, so that an identifier reported by a user can be resolved to its
+ * stack trace without searching logs. It is an {@link ExceptionSink}, normally fed by an {@link ExceptionCapture}
+ * pipeline, so that journal writes happen on the pipeline's consumer threads rather than on failing threads.
+ * <p/>
+ * The journal is a directory of fixed-size, memory-mapped {@link JournalSegment} files, each with its own hash index,
+ * so that a lookup costs a few page touches per segment. When the active segment fills, a new one is created; once
+ * there are more than the configured maximum number of segments, the oldest are deleted. Existing segments in the
+ * directory are retained, read-only, when a journal is opened. Records are never forced to storage on the writing
+ * thread; the operating system writes them back in its own time, or on {@link #force()} or {@link #close()}.
+ * <p/>
+ * Records may be looked up from another process with {@link #lookup(File, String)}, or from the command line with
+ * {@link ExceptionJournalTool}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionJournal implements ExceptionSink
+{
+    /**
+     * Default segment size, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Default maximum number of segments retained.
+     */
+    public static final int DEFAULT_MAXIMUM_SEGMENTS = 16;
+
+    private static final Logger s_logger = LoggerFactory.getLogger(ExceptionJournal.class);
+    private static final String SEGMENT_PREFIX = "exceptions-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final File m_directory;
+    private final int m_segmentSize;
+    private final int m_maximumSegments;
+    private final LinkedList<JournalSegment> m_segments = new LinkedList<JournalSegment>();
+    private JournalSegment m_active;
+    private long m_nextSequence;
+    private long m_droppedCount;
+    private boolean m_closed;
+
+    /**
+     * Construct a {@link ExceptionJournal} instance with default segment size and retention.
+     *
+     * @param directory the journal directory, which is created if necessary.
+     * @throws IOException if the directory or the first segment cannot be created.
+     */
+    public ExceptionJournal(final File directory) throws IOException
+    {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAXIMUM_SEGMENTS);
+    }
+
+    /**
+     * Construct a {@link ExceptionJournal} instance.
+     *
+     * @param directory the journal directory, which is created if necessary.
+     * @param segmentSize the size of each segment file, in bytes.
+     * @param maximumSegments the maximum number of segments retained, including the active segment.
+     * @throws IOException if the directory or the first segment cannot be created.
+     */
+    public ExceptionJournal(final File directory, final int segmentSize, final int maximumSegments)
+            throws IOException
+    {
+        super();
+        Assert.argumentNotNull("directory", directory);
+        Assert.argument(segmentSize >= JournalSegment.MINIMUM_SIZE, "Segment size must be at least [%d]; was [%d].",
+                JournalSegment.MINIMUM_SIZE, segmentSize);
+        Assert.argumentPositive("maximumSegments", maximumSegments);
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException(String.format("Failed to create journal directory [%s].", directory));
+        }
+        m_directory = directory;
+        m_segmentSize = segmentSize;
+        m_maximumSegments = maximumSegments;
+        for (final File nextFile : segmentFiles(directory))
+        {
+            try
+            {
+                m_segments.add(JournalSegment.open(nextFile));
+            }
+            catch (final IOException e)
+            {
+                s_logger.error(String.format("Ignoring unreadable journal segment [%s].", nextFile), e);
+            }
+            m_nextSequence = Math.max(m_nextSequence, sequenceOf(nextFile) + 1L);
+        }
+        roll();
+    }
+
+    /**
+     * Find a record in a journal directory without opening the journal for writing; suitable for use from another
+     * process while the journal is being written.
+     *
+     * @param directory the journal directory.
+     * @param id the exception identifier.
+     * @return {@link CapturedException} record, or {@code null} if not found.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static CapturedException lookup(final File directory, final String id) throws IOException
+    {
+        Assert.argumentNotNull("directory", directory);
+        Assert.argumentNotNull("id", id);
+        CapturedException result = null;
+        final File[] files = segmentFiles(directory);
+        for (int i = files.length - 1; i >= 0 && null == result; i -= 1)
+        {
+            result = JournalSegment.open(files[i]).find(id);
+        }
+        return result;
+    }
+
+    /**
+     * Force the active segment to storage, then stop accepting records. Records subsequently written are dropped.
+     */
+    public synchronized void close()
+    {
+        if (!m_closed)
+        {
+            m_active.force();
+            m_segments.clear();
+            m_active = null;
+            m_closed = true;
+        }
+    }
+
+    /**
+     * Force the active segment to storage. May be slow; must not be invoked on latency-sensitive threads.
+     */
+    public synchronized void force()
+    {
+        if (!m_closed)
+        {
+            m_active.force();
+        }
+    }
+
+    /**
+     * Get the number of records which could not be written: those too large for an empty segment, those written
+     * while a new segment could not be created, and those written after {@link #close()}.
+     *
+     * @return {@code long} dropped count.
+     */
+    public synchronized long getDroppedCount()
+    {
+        return m_droppedCount;
+    }
+
+    /**
+     * Get the number of segments currently retained, including the active segment.
+     *
+     * @return {@code int} segment count.
+     */
+    public synchronized int getSegmentCount()
+    {
+        return m_segments.size();
+    }
+
+    /**
+     * Find the most recent record for an exception identifier.
+     *
+     * @param id the exception identifier.
+     * @return {@link CapturedException} record, or {@code null} if not found.
+     */
+    public synchronized CapturedException lookup(final String id)
+    {
+        Assert.argumentNotNull("id", id);
+        CapturedException result = null;
+        final Iterator<JournalSegment> segments = m_segments.descendingIterator();
+        while (null == result && segments.hasNext())
+        {
+            result = segments.next().find(id);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void write(final List<CapturedException> batch)
+    {
+        for (final CapturedException nextException : batch)
+        {
+            if (m_closed)
+            {
+                m_droppedCount += 1;
+            }
+            else if (!m_active.append(nextException))
+            {
+                try
+                {
+                    roll();
+                    if (!m_active.append(nextException))
+                    {
+                        s_logger.warn(String.format("Exception [%s] is too large for a journal segment; dropped.",
+                                nextException.getId()));
+                        m_droppedCount += 1;
+                    }
+                }
+                catch (final IOException e)
+                {
+                    s_logger.error(String.format("Failed to create journal segment in [%s]; dropped exception [%s].",
+                            m_directory, nextException.getId()), e);
+                    m_droppedCount += 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * List the segment files in a directory, oldest first.
+     *
+     * @param directory the directory.
+     * @return {@link File} array.
+     */
+    static File[] segmentFiles(final File directory)
+    {
+        File[] result = directory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(final File dir, final String name)
+            {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (null == result)
+        {
+            result = new File[0];
+        }
+
+        /* Sequence numbers are fixed-width hexadecimal, so names sort in sequence order. */
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Parse the sequence number from a segment file name.
+     *
+     * @param file the segment file.
+     * @return {@code long} sequence number, or {@code -1} if the name is malformed.
+     */
+    private static long sequenceOf(final File file)
+    {
+        final String name = file.getName();
+        long result;
+        try
+        {
+            result = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()),
+                    16);
+        }
+        catch (final NumberFormatException e)
+        {
+            result = -1L;
+        }
+        return result;
+    }
+
+    /**
+     * Create a new active segment, then delete the oldest segments in excess of the maximum.
+     *
+     * @throws IOException if the segment cannot be created.
+     */
+    private void roll() throws IOException
+    {
+        final File file = new File(m_directory, String.format("%s%016x%s", SEGMENT_PREFIX, m_nextSequence,
+                SEGMENT_SUFFIX));
+        m_nextSequence += 1L;
+        m_active = JournalSegment.create(file, m_segmentSize);
+        m_segments.add(m_active);
+        while (m_segments.size() > m_maximumSegments)
+        {
+            final File expired = m_segments.removeFirst().getFile();
+            if (!expired.delete())
+            {
+                s_logger.warn(String.format("Failed to delete expired journal segment [%s].", expired));
+            }
+        }
+    }
+}
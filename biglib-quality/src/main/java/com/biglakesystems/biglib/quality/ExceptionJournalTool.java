@@ -0,0 +1,115 @@
+package com.biglakesystems.biglib.quality;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * {@link ExceptionJournalTool} is a command-line tool which looks up exceptions in an {@link ExceptionJournal} by
+ * identifier, printing each in the familiar stack trace format. Usage:
+ * <pre>
+ * java com.biglakesystems.biglib.quality.ExceptionJournalTool &lt;journal directory&gt; &lt;id&gt; [&lt;id&gt; ...]
+ * </pre>
+ * The exit status is {@code 0} if every identifier was found, {@code 1} if any was not, and {@code 2} on a usage or
+ * I/O error. The journal may be in use by another process.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
+ * multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class ExceptionJournalTool
+{
+    /**
+     * Construct a {@link ExceptionJournalTool} instance.
+     */
+    private ExceptionJournalTool()
+    {
+        super();
+    }
+
+    /**
+     * Run the tool.
+     *
+     * @param args the journal directory, followed by one or more exception identifiers.
+     */
+    public static void main(final String[] args)
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Look up each identifier and print the result.
+     *
+     * @param args the journal directory, followed by one or more exception identifiers.
+     * @param out the stream to which records are printed.
+     * @param err the stream to which errors are printed.
+     * @return {@code int} exit status.
+     */
+    static int run(final String[] args, final PrintStream out, final PrintStream err)
+    {
+        int result = 0;
+        if (args.length < 2)
+        {
+            err.printf("Usage: %s <journal directory> <id> [<id> ...]%n", ExceptionJournalTool.class.getName());
+            result = 2;
+        }
+        else
+        {
+            final File directory = new File(args[0]);
+            try
+            {
+                for (int i = 1; i < args.length; i += 1)
+                {
+                    final CapturedException found = ExceptionJournal.lookup(directory, args[i]);
+                    if (null == found)
+                    {
+                        err.printf("Exception [%s] not found.%n", args[i]);
+                        result = 1;
+                    }
+                    else
+                    {
+                        print(found, out);
+                    }
+                }
+            }
+            catch (final IOException e)
+            {
+                err.printf("Failed to read journal [%s]: %s%n", directory, e.getMessage());
+                result = 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Print a record.
+     *
+     * @param exception the record.
+     * @param out the target stream.
+     */
+    private static void print(final CapturedException exception, final PrintStream out)
+    {
+        out.printf("%s at %s on thread [%s]%n", exception.getId(),
+                new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date(exception.getTimestamp())),
+                exception.getThreadName());
+        out.println(null == exception.getMessage() ? exception.getClassName() :
+                exception.getClassName() + ": " + exception.getMessage());
+        for (final StackTraceElement nextFrame : exception.getStackTrace())
+        {
+            out.println("\tat " + nextFrame);
+        }
+        out.println();
+    }
+}
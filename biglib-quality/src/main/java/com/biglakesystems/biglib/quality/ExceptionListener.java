@@ -0,0 +1,34 @@
+package com.biglakesystems.biglib.quality;
+
+/**
+ * {@link ExceptionListener} is notified by {@link Exceptions} each time a new identifier is assigned to an exception;
+ * that is, the first time {@link Exceptions#uniqueId(Throwable)} is invoked for a given exception instance. Listeners
+ * are registered via {@link Exceptions#addListener(ExceptionListener)}.
+ * <p/>
+ * Listeners are invoked synchronously on the thread which requested the identifier, so they should do as little work as
+ * possible. A listener which throws a {@link RuntimeException} does not prevent the identifier from being assigned, or
+ * other listeners from being notified.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface ExceptionListener
+{
+    /**
+     * Handle the assignment of a new identifier to an exception.
+     *
+     * @param exception the exception.
+     * @param id the identifier assigned.
+     */
+    void exceptionIdentified(Throwable exception, String id);
+}
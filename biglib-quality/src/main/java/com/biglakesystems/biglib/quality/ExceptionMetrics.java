@@ -0,0 +1,544 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.Clock;
+import com.biglakesystems.biglib.impl.quality.ConcurrentWeakIdentityHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link ExceptionMetrics} counts exceptions by class and throw site, and measures the rate at which each occurs over a
+ * sliding window of recent seconds. Each distinct site is counted by a {@link Recorder}, which may be obtained once via
+ * {@link #recorder(Class, String)} and held, in the manner of a logger, by the code which throws or handles the
+ * exception; recording through a held recorder takes no locks and allocates nothing. Alternatively, {@link
+ * #record(Throwable)} resolves the recorder from the exception's class and innermost stack frame. That path is
+ * considerably more expensive, and is not allocation-free: the platform offers no way to read a frame of an exception's
+ * stack trace without {@link Throwable#getStackTrace()}, which copies the whole trace on every call. Registered as an
+ * {@link ExceptionListener} via {@link Exceptions#addListener(ExceptionListener)}, an instance records every exception
+ * identified by {@link Exceptions#uniqueId(Throwable)} by that path; code on which exceptions are frequent should hold
+ * a recorder instead.
+ * <p/>
+ * Each recorder keeps its counts in an {@link AtomicLongArray} divided into stripes, one of which is chosen for each
+ * recording thread, so that threads recording at the same site rarely contend for a cache line. Each stripe holds a
+ * running total and a ring of one-second buckets; a bucket packs the second it counts alongside its count, and is reset
+ * with a single compare-and-set by the first recording in a new second, so that stale buckets never need clearing.
+ * Snapshots, via {@link #snapshot(int)}, read the stripes without coordinating with recorders: a snapshot taken while
+ * recording continues is consistent to within the recordings made while it was taken.
+ * <p/>
+ * The number of distinct sites is bounded; occurrences at further sites are counted together at a single overflow site.
+ * Sites are held weakly by exception class, so that the sites of a class which is unloaded are discarded. The sites
+ * discarded are not discounted immediately; once the bound is reached, the count of sites is reconciled with the sites
+ * still held, at most once per second, so that their places may be taken by new sites. Instances
+ * implement {@link ExceptionMetricsMXBean}, and may be registered with an {@link MBeanServer} via {@link
+ * #registerMBean(MBeanServer, String)}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionMetrics implements ExceptionListener, ExceptionMetricsMXBean
+{
+    /**
+     * Default maximum number of distinct sites.
+     */
+    public static final int DEFAULT_MAXIMUM_SITES = 1024;
+
+    /**
+     * Default, and maximum, length of the window over which rates are measured, in seconds.
+     */
+    public static final int MAXIMUM_WINDOW_SECONDS = 60;
+
+    /**
+     * Template of the object name under which {@link #registerMBean(MBeanServer, String)} registers an instance; the
+     * argument is the instance name.
+     */
+    public static final String MBEAN_NAME_TEMPLATE = "com.biglakesystems.biglib.quality:type=ExceptionMetrics,name=%s";
+
+    /**
+     * Buckets per stripe. A power of two larger than the maximum window, so that the bucket for the current second is
+     * never one which a snapshot of the window reads.
+     */
+    private static final int BUCKETS = 64;
+    private static final int STRIPE_LENGTH = BUCKETS + 1;
+    private static final int MAXIMUM_STRIPES = 8;
+    private static final long COUNT_MASK = 0xffffffffL;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    private static final String NO_STACK_TRACE = "(no stack trace)";
+    private static final Comparator<ExceptionSiteMetrics> BUSIEST_FIRST = new Comparator<ExceptionSiteMetrics>()
+    {
+        @Override
+        public int compare(final ExceptionSiteMetrics left, final ExceptionSiteMetrics right)
+        {
+            int result = compareDescending(left.getWindowCount(), right.getWindowCount());
+            if (0 == result)
+            {
+                result = compareDescending(left.getTotalCount(), right.getTotalCount());
+            }
+            return result;
+        }
+    };
+
+    private final ConcurrentWeakIdentityHashMap<Class<?>, ConcurrentMap<Object, Recorder>> m_sitesByType =
+            new ConcurrentWeakIdentityHashMap<Class<?>, ConcurrentMap<Object, Recorder>>();
+    private final AtomicInteger m_siteCount = new AtomicInteger(0);
+    private final AtomicLong m_reconciledSecond = new AtomicLong(-1L);
+    private final int m_maximumSites;
+    private final int m_stripeMask;
+    private final Clock m_clock;
+    private final long m_origin;
+    private final Recorder m_overflowSite;
+
+    /**
+     * Construct an {@link ExceptionMetrics} instance with the default maximum number of sites.
+     */
+    public ExceptionMetrics()
+    {
+        this(DEFAULT_MAXIMUM_SITES);
+    }
+
+    /**
+     * Construct an {@link ExceptionMetrics} instance.
+     *
+     * @param maximumSites the maximum number of distinct sites, excluding the overflow site.
+     */
+    public ExceptionMetrics(final int maximumSites)
+    {
+        this(maximumSites, Clock.SYSTEM);
+    }
+
+    /**
+     * Construct an {@link ExceptionMetrics} instance.
+     *
+     * @param maximumSites the maximum number of distinct sites, excluding the overflow site.
+     * @param clock the clock by which occurrences are assigned to seconds.
+     */
+    ExceptionMetrics(final int maximumSites, final Clock clock)
+    {
+        super();
+        Assert.argumentPositive("maximumSites", maximumSites);
+        Assert.argumentNotNull("clock", clock);
+        m_maximumSites = maximumSites;
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < MAXIMUM_STRIPES)
+        {
+            stripes <<= 1;
+        }
+        m_stripeMask = stripes - 1;
+        m_clock = clock;
+        m_origin = clock.nanoTime();
+        m_overflowSite = new Recorder(this, "(other classes)", "(other sites)");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Records the exception via {@link #record(Throwable)}.
+     */
+    @Override
+    public void exceptionIdentified(final Throwable exception, final String id)
+    {
+        record(exception);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRate()
+    {
+        final long second = currentSecond();
+        long count = 0L;
+        for (final Recorder nextRecorder : recorders())
+        {
+            count += nextRecorder.windowCount(second, MAXIMUM_WINDOW_SECONDS);
+        }
+        return (double) count / MAXIMUM_WINDOW_SECONDS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSiteCount()
+    {
+        return liveSiteCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ExceptionSiteMetrics> getSites()
+    {
+        return snapshot();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTotalCount()
+    {
+        long result = 0L;
+        for (final Recorder nextRecorder : recorders())
+        {
+            result += nextRecorder.getTotalCount();
+        }
+        return result;
+    }
+
+    /**
+     * Record an occurrence of an exception at its throw site: the innermost frame of its stack trace. Finding the frame
+     * copies the exception's stack trace, so this method allocates on every call; where the site is known in advance,
+     * recording through a recorder obtained via {@link #recorder(Class, String)} is much cheaper.
+     *
+     * @param exception the exception.
+     */
+    public void record(final Throwable exception)
+    {
+        Assert.argumentNotNull("exception", exception);
+        final StackTraceElement[] stackTrace = exception.getStackTrace();
+        recorderFor(exception.getClass(), 0 == stackTrace.length ? NO_STACK_TRACE : stackTrace[0]).record();
+    }
+
+    /**
+     * Get the recorder for a site, creating it if necessary. Sites named here are distinct from those identified by
+     * stack frame via {@link #record(Throwable)}.
+     *
+     * @param type the exception class.
+     * @param site the site name; typically the name of the operation which fails.
+     * @return {@link Recorder} recorder, or the overflow site's recorder if the maximum number of sites is reached.
+     */
+    public Recorder recorder(final Class<? extends Throwable> type, final String site)
+    {
+        Assert.argumentNotNull("type", type);
+        Assert.argumentNotNull("site", site);
+        return recorderFor(type, site);
+    }
+
+    /**
+     * Register this instance with an MBean server under {@link #MBEAN_NAME_TEMPLATE}. Does nothing if an MBean is
+     * already registered with that server under the same name.
+     *
+     * @param server the MBean server, such as {@link java.lang.management.ManagementFactory#getPlatformMBeanServer()}.
+     * @param name the instance name.
+     * @return {@link ObjectName} name under which this instance is registered.
+     * @throws JMException if registration fails.
+     */
+    public ObjectName registerMBean(final MBeanServer server, final String name) throws JMException
+    {
+        Assert.argumentNotNull("server", server);
+        Assert.argumentNotNull("name", name);
+        final ObjectName result = new ObjectName(String.format(MBEAN_NAME_TEMPLATE, ObjectName.quote(name)));
+        synchronized (this)
+        {
+            if (!server.isRegistered(result))
+            {
+                server.registerMBean(this, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Take a snapshot of every site at which exceptions have been recorded, with rates measured over the maximum
+     * window.
+     *
+     * @return {@link List} of {@link ExceptionSiteMetrics}, busiest first.
+     */
+    public List<ExceptionSiteMetrics> snapshot()
+    {
+        return snapshot(MAXIMUM_WINDOW_SECONDS);
+    }
+
+    /**
+     * Take a snapshot of every site at which exceptions have been recorded. The window comprises the most recent
+     * complete seconds; occurrences in the current second are included in totals only.
+     *
+     * @param windowSeconds the length of the window over which rates are measured, in seconds.
+     * @return {@link List} of {@link ExceptionSiteMetrics}, busiest first.
+     */
+    public List<ExceptionSiteMetrics> snapshot(final int windowSeconds)
+    {
+        Assert.argumentInRange("windowSeconds", windowSeconds, 1L, MAXIMUM_WINDOW_SECONDS);
+        final long second = currentSecond();
+        final List<ExceptionSiteMetrics> result = new ArrayList<ExceptionSiteMetrics>();
+        for (final Recorder nextRecorder : recorders())
+        {
+            result.add(nextRecorder.snapshot(second, windowSeconds));
+        }
+        Collections.sort(result, BUSIEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Compare two counts such that the larger sorts first.
+     *
+     * @param left the first count.
+     * @param right the second count.
+     * @return {@code int} comparison result.
+     */
+    private static int compareDescending(final long left, final long right)
+    {
+        return left > right ? -1 : left < right ? 1 : 0;
+    }
+
+    /**
+     * Get the number of whole seconds elapsed since construction.
+     *
+     * @return {@code long} current second.
+     */
+    private long currentSecond()
+    {
+        return (m_clock.nanoTime() - m_origin) / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Get the recorder for a site, creating it if necessary.
+     *
+     * @param type the exception class.
+     * @param siteKey the site name or stack frame.
+     * @return {@link Recorder} recorder, or the overflow site's recorder if the maximum number of sites is reached.
+     */
+    private Recorder recorderFor(final Class<?> type, final Object siteKey)
+    {
+        ConcurrentMap<Object, Recorder> sites = m_sitesByType.get(type);
+        if (null == sites)
+        {
+            final ConcurrentMap<Object, Recorder> created = new ConcurrentHashMap<Object, Recorder>();
+            final ConcurrentMap<Object, Recorder> existing = m_sitesByType.putIfAbsent(type, created);
+            sites = null == existing ? created : existing;
+        }
+        Recorder result = sites.get(siteKey);
+        if (null == result)
+        {
+            if (reserveSite())
+            {
+                final Recorder created = new Recorder(this, type.getName(), siteKey.toString());
+                final Recorder existing = sites.putIfAbsent(siteKey, created);
+                result = null == existing ? created : existing;
+                if (null != existing)
+                {
+                    m_siteCount.decrementAndGet();
+                }
+            }
+            else
+            {
+                result = m_overflowSite;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the sites still held, excluding the overflow site.
+     *
+     * @return {@code int} site count.
+     */
+    private int liveSiteCount()
+    {
+        int result = 0;
+        for (final ConcurrentMap<Object, Recorder> nextSites : m_sitesByType.values())
+        {
+            result += nextSites.size();
+        }
+        return result;
+    }
+
+    /**
+     * Get every recorder, including the overflow site's recorder.
+     *
+     * @return {@link List} of {@link Recorder}.
+     */
+    private List<Recorder> recorders()
+    {
+        final List<Recorder> result = new ArrayList<Recorder>();
+        for (final ConcurrentMap<Object, Recorder> nextSites : m_sitesByType.values())
+        {
+            result.addAll(nextSites.values());
+        }
+        result.add(m_overflowSite);
+        return result;
+    }
+
+    /**
+     * Reserve a place for a new site, if the maximum number of sites has not been reached. Once it has, the count of
+     * sites is reconciled with the sites still held, discounting those of unloaded classes, at most once per second.
+     * Reconciliation may race with other threads reserving places, so the maximum may be exceeded by a few sites.
+     *
+     * @return {@code boolean} {@code true} if a place was reserved.
+     */
+    private boolean reserveSite()
+    {
+        boolean result = m_siteCount.incrementAndGet() <= m_maximumSites;
+        if (!result)
+        {
+            m_siteCount.decrementAndGet();
+            final long second = currentSecond();
+            final long reconciled = m_reconciledSecond.get();
+            if (second != reconciled && m_reconciledSecond.compareAndSet(reconciled, second))
+            {
+                m_siteCount.set(liveSiteCount());
+                result = m_siteCount.incrementAndGet() <= m_maximumSites;
+                if (!result)
+                {
+                    m_siteCount.decrementAndGet();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the array offset of the current thread's stripe.
+     *
+     * @return {@code int} offset of the stripe's total; its buckets follow.
+     */
+    private int stripeOffset()
+    {
+        /* Thread identifiers are sequential, so spread them before masking. */
+        long id = Thread.currentThread().getId() * 0x9e3779b97f4a7c15L;
+        id ^= id >>> 32;
+        return ((int) id & m_stripeMask) * STRIPE_LENGTH;
+    }
+
+    /**
+     * {@link Recorder} counts the occurrences at a single site. Recording is lock-free and allocates nothing.
+     */
+    public static final class Recorder
+    {
+        private final ExceptionMetrics m_metrics;
+        private final String m_exceptionClassName;
+        private final String m_site;
+        private final AtomicLongArray m_cells;
+
+        /**
+         * Construct a {@link Recorder} instance.
+         *
+         * @param metrics the owning metrics, which supplies the clock and stripe selection.
+         * @param exceptionClassName the exception class name.
+         * @param site the site description.
+         */
+        Recorder(final ExceptionMetrics metrics, final String exceptionClassName, final String site)
+        {
+            super();
+            m_metrics = metrics;
+            m_exceptionClassName = exceptionClassName;
+            m_site = site;
+            m_cells = new AtomicLongArray((metrics.m_stripeMask + 1) * STRIPE_LENGTH);
+        }
+
+        /**
+         * Get the number of occurrences recorded at this site.
+         *
+         * @return {@code long} total count.
+         */
+        public long getTotalCount()
+        {
+            long result = 0L;
+            for (int offset = 0; offset < m_cells.length(); offset += STRIPE_LENGTH)
+            {
+                result += m_cells.get(offset);
+            }
+            return result;
+        }
+
+        /**
+         * Record an occurrence at this site.
+         */
+        public void record()
+        {
+            final int offset = m_metrics.stripeOffset();
+            m_cells.getAndIncrement(offset);
+            final long second = m_metrics.currentSecond();
+            final int index = offset + 1 + ((int) second & (BUCKETS - 1));
+            final long tag = second << 32;
+            long current = m_cells.get(index);
+            while (!m_cells.compareAndSet(index, current, (current & ~COUNT_MASK) == tag ? current + 1L : tag + 1L))
+            {
+                current = m_cells.get(index);
+            }
+        }
+
+        /**
+         * Take a snapshot of this site.
+         *
+         * @param windowSeconds the length of the window over which the rate is measured, in seconds.
+         * @return {@link ExceptionSiteMetrics} snapshot.
+         */
+        public ExceptionSiteMetrics snapshot(final int windowSeconds)
+        {
+            Assert.argumentInRange("windowSeconds", windowSeconds, 1L, MAXIMUM_WINDOW_SECONDS);
+            return snapshot(m_metrics.currentSecond(), windowSeconds);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("%s[exceptionClassName=%s, site=%s]", getClass().getSimpleName(),
+                    m_exceptionClassName, m_site);
+        }
+
+        /**
+         * Take a snapshot of this site.
+         *
+         * @param second the current second.
+         * @param windowSeconds the length of the window, in seconds.
+         * @return {@link ExceptionSiteMetrics} snapshot.
+         */
+        private ExceptionSiteMetrics snapshot(final long second, final int windowSeconds)
+        {
+            return new ExceptionSiteMetrics(m_exceptionClassName, m_site, getTotalCount(),
+                    windowCount(second, windowSeconds), windowSeconds);
+        }
+
+        /**
+         * Count the occurrences in the complete seconds preceding the current second. A bucket counts toward the
+         * window only if it is tagged with a second inside it.
+         *
+         * @param second the current second.
+         * @param windowSeconds the length of the window, in seconds.
+         * @return {@code long} window count.
+         */
+        private long windowCount(final long second, final int windowSeconds)
+        {
+            long result = 0L;
+            for (long next = Math.max(0L, second - windowSeconds); next < second; next += 1L)
+            {
+                final int bucket = 1 + ((int) next & (BUCKETS - 1));
+                for (int offset = 0; offset < m_cells.length(); offset += STRIPE_LENGTH)
+                {
+                    final long value = m_cells.get(offset + bucket);
+                    if (value >>> 32 == next)
+                    {
+                        result += value & COUNT_MASK;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
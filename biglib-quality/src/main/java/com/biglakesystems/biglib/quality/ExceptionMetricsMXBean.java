@@ -0,0 +1,51 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.List;
+
+/**
+ * {@link ExceptionMetricsMXBean} is the management interface of {@link ExceptionMetrics}. It is an MXBean, so that the
+ * per-site snapshots returned by {@link #getSites()} are exposed to generic JMX clients as open data.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface ExceptionMetricsMXBean
+{
+    /**
+     * Get the rate at which exceptions have occurred, at all sites, over the maximum window.
+     *
+     * @return {@code double} occurrences per second.
+     */
+    double getRate();
+
+    /**
+     * Get the number of distinct sites at which exceptions have been recorded, excluding the overflow site.
+     *
+     * @return {@code int} site count.
+     */
+    int getSiteCount();
+
+    /**
+     * Take a snapshot of every site at which exceptions have been recorded.
+     *
+     * @return {@link List} of {@link ExceptionSiteMetrics}, busiest first.
+     */
+    List<ExceptionSiteMetrics> getSites();
+
+    /**
+     * Get the number of exceptions recorded, at all sites.
+     *
+     * @return {@code long} total count.
+     */
+    long getTotalCount();
+}
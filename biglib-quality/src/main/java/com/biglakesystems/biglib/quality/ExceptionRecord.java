@@ -0,0 +1,144 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ExceptionRecord} summarizes every occurrence of one distinct failure recorded by an {@link ExceptionRegistry}:
+ * the failure's fingerprint, one canonical sample exception, the number of occurrences, and when the first and most
+ * recent occurrences were recorded.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionRecord
+{
+    private final long m_fingerprint;
+    private final Throwable m_sample;
+    private final String m_sampleId;
+    private final long m_firstSeen;
+    private final AtomicLong m_count = new AtomicLong(0L);
+    private volatile long m_lastSeen;
+    private volatile String m_lastId;
+
+    /**
+     * Construct an {@link ExceptionRecord} instance.
+     *
+     * @param fingerprint the fingerprint shared by all occurrences.
+     * @param sample the canonical sample exception; the first occurrence.
+     * @param sampleId the identifier of the sample exception.
+     * @param firstSeen the time of the first occurrence, in milliseconds since the epoch.
+     */
+    ExceptionRecord(final long fingerprint, final Throwable sample, final String sampleId, final long firstSeen)
+    {
+        super();
+        m_fingerprint = fingerprint;
+        m_sample = sample;
+        m_sampleId = sampleId;
+        m_firstSeen = firstSeen;
+        m_lastSeen = firstSeen;
+        m_lastId = sampleId;
+    }
+
+    /**
+     * Get the number of occurrences recorded.
+     *
+     * @return {@code long} occurrence count.
+     */
+    public long getCount()
+    {
+        return m_count.get();
+    }
+
+    /**
+     * Get the fingerprint shared by all occurrences.
+     *
+     * @return {@code long} fingerprint.
+     */
+    public long getFingerprint()
+    {
+        return m_fingerprint;
+    }
+
+    /**
+     * Get the time of the first occurrence.
+     *
+     * @return {@code long} milliseconds since the epoch.
+     */
+    public long getFirstSeen()
+    {
+        return m_firstSeen;
+    }
+
+    /**
+     * Get the identifier of the most recent occurrence.
+     *
+     * @return {@link String} identifier.
+     */
+    public String getLastId()
+    {
+        return m_lastId;
+    }
+
+    /**
+     * Get the time of the most recent occurrence.
+     *
+     * @return {@code long} milliseconds since the epoch.
+     */
+    public long getLastSeen()
+    {
+        return m_lastSeen;
+    }
+
+    /**
+     * Get the canonical sample exception, which is the first occurrence recorded.
+     *
+     * @return {@link Throwable} sample exception.
+     */
+    public Throwable getSample()
+    {
+        return m_sample;
+    }
+
+    /**
+     * Get the identifier of the canonical sample exception.
+     *
+     * @return {@link String} identifier.
+     */
+    public String getSampleId()
+    {
+        return m_sampleId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[fingerprint=%016x, sample=%s, count=%d, firstSeen=%d, lastSeen=%d]",
+                getClass().getSimpleName(), m_fingerprint, m_sample, m_count.get(), m_firstSeen, m_lastSeen);
+    }
+
+    /**
+     * Record an occurrence.
+     *
+     * @param id the identifier of the occurrence.
+     * @param time the time of the occurrence, in milliseconds since the epoch.
+     */
+    void occurred(final String id, final long time)
+    {
+        m_count.incrementAndGet();
+        m_lastSeen = time;
+        m_lastId = id;
+    }
+}
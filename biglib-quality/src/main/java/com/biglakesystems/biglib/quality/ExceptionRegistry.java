@@ -0,0 +1,317 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link ExceptionRegistry} deduplicates recorded exceptions by <em>fingerprint</em>: a hash of the exception class and
+ * the top frames of its stack trace, which is the same for every exception thrown from the same place for the same
+ * reason. For each distinct fingerprint the registry keeps a single {@link ExceptionRecord} holding one canonical
+ * sample exception, an occurrence count, and first- and last-seen times. Memory use is therefore bounded by the number
+ * of distinct failures rather than the number of occurrences; the number of records is additionally capped, with
+ * occurrences of further distinct failures only counted.
+ * <p/>
+ * The registry also maintains a bounded index from exception identifiers back to records, so that an identifier
+ * reported by a user can be resolved to its failure via {@link #lookup(String)}. The index retains the most recently
+ * recorded identifiers, up to its size, evicting the oldest first: identifiers are held in a map for lookup, and in a
+ * ring in the order recorded, and each identifier recorded overwrites the oldest ring slot and removes its identifier
+ * from the map. The most recent identifiers therefore always resolve, however their hashes fall, and memory use is
+ * bounded by the size of the index rather than by the number of occurrences. An evicted identifier is no longer found
+ * by {@link #lookup(String)}, but its record is unaffected, and remains available via {@link #get(long)} and {@link
+ * #getRecords()}. Size the index above the number of identifiers expected between an occurrence and its lookup.
+ * <p/>
+ * To record every exception identified via {@link Exceptions#uniqueId(Throwable)}, register the registry as a listener:
+ * <pre>
+ * Exceptions.addListener(registry);
+ * </pre>
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionRegistry implements ExceptionListener
+{
+    /**
+     * Default number of stack frames contributing to a fingerprint.
+     */
+    public static final int DEFAULT_FINGERPRINT_FRAMES = 8;
+
+    private static final int DEFAULT_MAXIMUM_RECORDS = 10000;
+    private static final int DEFAULT_ID_INDEX_SIZE = 8192;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ConcurrentMap<Long, ExceptionRecord> m_records = new ConcurrentHashMap<Long, ExceptionRecord>();
+    private final ConcurrentMap<String, IdIndexEntry> m_idIndex = new ConcurrentHashMap<String, IdIndexEntry>();
+    private final AtomicReferenceArray<IdIndexEntry> m_idRing;
+    private final AtomicInteger m_idRingNext = new AtomicInteger(0);
+    private final AtomicLong m_overflowCount = new AtomicLong(0L);
+    private final int m_fingerprintFrames;
+    private final int m_maximumRecords;
+
+    /**
+     * Construct an {@link ExceptionRegistry} instance with default limits.
+     */
+    public ExceptionRegistry()
+    {
+        this(DEFAULT_FINGERPRINT_FRAMES, DEFAULT_MAXIMUM_RECORDS, DEFAULT_ID_INDEX_SIZE);
+    }
+
+    /**
+     * Construct an {@link ExceptionRegistry} instance.
+     *
+     * @param fingerprintFrames the number of top stack frames contributing to a fingerprint.
+     * @param maximumRecords the maximum number of distinct records to retain.
+     * @param idIndexSize the number of most recently recorded identifiers which remain resolvable via {@link
+     * #lookup(String)}.
+     */
+    public ExceptionRegistry(final int fingerprintFrames, final int maximumRecords, final int idIndexSize)
+    {
+        super();
+        Assert.argumentNotNegative("fingerprintFrames", fingerprintFrames);
+        Assert.argumentPositive("maximumRecords", maximumRecords);
+        Assert.argumentInRange("idIndexSize", idIndexSize, 1, 1 << 30);
+        m_fingerprintFrames = fingerprintFrames;
+        m_maximumRecords = maximumRecords;
+        m_idRing = new AtomicReferenceArray<IdIndexEntry>(idIndexSize);
+    }
+
+    /**
+     * Calculate the fingerprint of an exception: a 64-bit FNV-1a hash of the exception class name, and of the class
+     * name, method name and line number of each of the top frames of its stack trace. Message text is deliberately
+     * excluded, since it frequently varies between occurrences of the same failure.
+     *
+     * @param exception the exception.
+     * @param frames the maximum number of top stack frames to include.
+     * @return {@code long} fingerprint.
+     */
+    public static long fingerprint(final Throwable exception, final int frames)
+    {
+        Assert.argumentNotNull("exception", exception);
+        long result = hash(FNV_OFFSET_BASIS, exception.getClass().getName());
+        final StackTraceElement[] stackTrace = exception.getStackTrace();
+        final int count = Math.min(frames, stackTrace.length);
+        for (int i = 0; i < count; i += 1)
+        {
+            final StackTraceElement nextFrame = stackTrace[i];
+            result = hash(result, nextFrame.getClassName());
+            result = hash(result, nextFrame.getMethodName());
+            result = (result ^ nextFrame.getLineNumber()) * FNV_PRIME;
+        }
+        return result;
+    }
+
+    /**
+     * Remove all records, and clear the identifier index.
+     */
+    public void clear()
+    {
+        m_records.clear();
+        for (int i = 0; i < m_idRing.length(); i += 1)
+        {
+            m_idRing.set(i, null);
+        }
+        m_idIndex.clear();
+        m_overflowCount.set(0L);
+    }
+
+    /**
+     * Record an exception identified via {@link Exceptions#uniqueId(Throwable)}.
+     *
+     * @param exception the exception.
+     * @param id the identifier assigned.
+     */
+    @Override
+    public void exceptionIdentified(final Throwable exception, final String id)
+    {
+        record(exception, id);
+    }
+
+    /**
+     * Get the record for a fingerprint.
+     *
+     * @param fingerprint the fingerprint.
+     * @return {@link ExceptionRecord} record, or {@code null} if none.
+     */
+    public ExceptionRecord get(final long fingerprint)
+    {
+        return m_records.get(fingerprint);
+    }
+
+    /**
+     * Get the number of recorded occurrences which were not attributed to a record, because the maximum number of
+     * records had been reached.
+     *
+     * @return {@code long} overflow count.
+     */
+    public long getOverflowCount()
+    {
+        return m_overflowCount.get();
+    }
+
+    /**
+     * Get a snapshot of all records.
+     *
+     * @return {@link Collection} of {@link ExceptionRecord} records.
+     */
+    public Collection<ExceptionRecord> getRecords()
+    {
+        return new ArrayList<ExceptionRecord>(m_records.values());
+    }
+
+    /**
+     * Find the record for the failure to which an exception identifier was assigned.
+     *
+     * @param id the identifier.
+     * @return {@link ExceptionRecord} record, or {@code null} if the identifier was never recorded, or has since been
+     * evicted from the index by more recent identifiers.
+     */
+    public ExceptionRecord lookup(final String id)
+    {
+        Assert.argumentNotNull("id", id);
+        final IdIndexEntry entry = m_idIndex.get(id);
+        return null != entry ? entry.m_record : null;
+    }
+
+    /**
+     * Record an occurrence of an exception.
+     *
+     * @param exception the exception.
+     * @param id the identifier assigned to the exception.
+     * @return {@link ExceptionRecord} record to which the occurrence was attributed, or {@code null} if the maximum
+     * number of records had been reached.
+     */
+    public ExceptionRecord record(final Throwable exception, final String id)
+    {
+        Assert.argumentNotNull("id", id);
+        final long fingerprint = fingerprint(exception, m_fingerprintFrames);
+        final long now = System.currentTimeMillis();
+        ExceptionRecord result = m_records.get(fingerprint);
+        if (null == result)
+        {
+            if (m_records.size() < m_maximumRecords)
+            {
+                final ExceptionRecord created = new ExceptionRecord(fingerprint, exception, id, now);
+                final ExceptionRecord existing = m_records.putIfAbsent(fingerprint, created);
+                result = null == existing ? created : existing;
+            }
+            else
+            {
+                m_overflowCount.incrementAndGet();
+            }
+        }
+        if (null != result)
+        {
+            result.occurred(id, now);
+            index(id, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of distinct records.
+     *
+     * @return {@code int} record count.
+     */
+    public int size()
+    {
+        return m_records.size();
+    }
+
+    /**
+     * Continue a 64-bit FNV-1a hash over the characters of a string.
+     *
+     * @param hash the hash so far.
+     * @param value the string; may be {@code null}.
+     * @return {@code long} updated hash.
+     */
+    private static long hash(final long hash, final String value)
+    {
+        long result = hash;
+        if (null != value)
+        {
+            for (int i = 0; i < value.length(); i += 1)
+            {
+                result = (result ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        /* Separate consecutive strings, so that ("ab", "c") and ("a", "bc") hash differently. */
+        return (result ^ 0xff) * FNV_PRIME;
+    }
+
+    /**
+     * Add an identifier to the index, evicting the oldest identifier if the index is full.
+     *
+     * @param id the identifier.
+     * @param record the record.
+     */
+    private void index(final String id, final ExceptionRecord record)
+    {
+        final IdIndexEntry entry = new IdIndexEntry(id, record);
+        m_idIndex.put(id, entry);
+        final IdIndexEntry evicted = m_idRing.getAndSet(nextRingSlot(), entry);
+        if (null != evicted)
+        {
+            /* Conditional, so that an identifier recorded again since is not removed with its older entry. */
+            m_idIndex.remove(evicted.m_id, evicted);
+        }
+    }
+
+    /**
+     * Claim the next identifier ring slot, which holds the oldest identifier once the ring is full.
+     *
+     * @return {@code int} slot index.
+     */
+    private int nextRingSlot()
+    {
+        int result;
+        int next;
+        do
+        {
+            result = m_idRingNext.get();
+            next = result + 1 == m_idRing.length() ? 0 : result + 1;
+        }
+        while (!m_idRingNext.compareAndSet(result, next));
+        return result;
+    }
+
+    /**
+     * {@link IdIndexEntry} is an entry in the identifier index.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class contain no mutable state and are therefore safe for
+     * multithreaded access, provided the same is true of all dependencies provided via constructor.
+     */
+    private static final class IdIndexEntry
+    {
+        private final String m_id;
+        private final ExceptionRecord m_record;
+
+        /**
+         * Construct an {@link IdIndexEntry} instance.
+         *
+         * @param id the identifier.
+         * @param record the record.
+         */
+        public IdIndexEntry(final String id, final ExceptionRecord record)
+        {
+            super();
+            m_id = id;
+            m_record = record;
+        }
+    }
+}
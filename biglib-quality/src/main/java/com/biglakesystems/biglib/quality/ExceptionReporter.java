@@ -0,0 +1,508 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ExceptionReporter} logs exceptions while limiting the volume of output produced by a failure which recurs at a
+ * high rate. Occurrences are grouped by <em>throw site</em>, as identified by an {@link ExceptionRegistry}
+ * fingerprint, and each site is subject to two token buckets:
+ * <ol>
+ * <li>While the <em>trace</em> bucket has tokens, each occurrence is logged with its full stack trace.</li>
+ * <li>Otherwise, while the <em>summary</em> bucket has tokens, each occurrence is logged as a single line including its
+ * {@link Exceptions#uniqueId(Throwable) unique identifier}.</li>
+ * <li>Otherwise the occurrence is suppressed, and merely counted. The number of occurrences suppressed at a site is
+ * logged as a single rollup line, to the logger of the latest suppressed occurrence, at most once per rollup
+ * interval.</li>
+ * </ol>
+ * Each report rolls up its own site once the interval has elapsed, and at most once per interval a report also sweeps
+ * every other site. So that the count suppressed at the tail of a storm is logged even if no further exceptions are
+ * reported anywhere, every site is also swept once per interval on a shared daemon thread, which holds the reporter
+ * only weakly. {@link #flush()} rolls up all suppressed occurrences immediately, and {@link #shutdown()} stops the
+ * periodic sweep and flushes; the reporter used by {@link Exceptions#report(Logger, Throwable, String, Object...)} is
+ * flushed on JVM shutdown.
+ * <p/>
+ * Each bucket permits a burst of occurrences, then refills at one token per period. Buckets are implemented using the
+ * generic cell rate algorithm, which represents a bucket as a single theoretical arrival time updated by
+ * compare-and-set; deciding the fate of an occurrence therefore takes no locks, and a suppressed occurrence costs only
+ * a fingerprint, a map lookup and a few atomic operations.
+ * <p/>
+ * The number of distinct sites tracked is bounded; once the bound is reached, occurrences at further sites share a
+ * single set of buckets.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionReporter
+{
+    private static final int DEFAULT_TRACE_BURST = 5;
+    private static final long DEFAULT_TRACE_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1L);
+    private static final int DEFAULT_SUMMARY_BURST = 20;
+    private static final long DEFAULT_SUMMARY_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(1L);
+    private static final long DEFAULT_ROLLUP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1L);
+    private static final int MAXIMUM_SITES = 1024;
+    private static final Logger s_logger = LoggerFactory.getLogger(ExceptionReporter.class);
+
+    private final ConcurrentMap<Long, Site> m_sites = new ConcurrentHashMap<Long, Site>();
+    private final Site m_overflowSite;
+    private final long m_traceInterval;
+    private final long m_traceTolerance;
+    private final long m_summaryInterval;
+    private final long m_summaryTolerance;
+    private final long m_rollupInterval;
+    private final Clock m_clock;
+    private final AtomicLong m_nextSweep;
+    private final Future<?> m_sweeper;
+
+    /**
+     * Construct an {@link ExceptionReporter} instance with default limits: a burst of 5 full traces per site, refilling
+     * at one per minute; a burst of 20 summaries per site, refilling at one per second; and rollups at most once per
+     * minute.
+     */
+    public ExceptionReporter()
+    {
+        this(DEFAULT_TRACE_BURST, DEFAULT_TRACE_PERIOD_MILLIS, DEFAULT_SUMMARY_BURST, DEFAULT_SUMMARY_PERIOD_MILLIS,
+                DEFAULT_ROLLUP_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Construct an {@link ExceptionReporter} instance.
+     *
+     * @param traceBurst the number of occurrences per site logged with full stack traces before limiting begins.
+     * @param tracePeriodMillis the period after which another full stack trace is permitted, in milliseconds.
+     * @param summaryBurst the number of occurrences per site logged as summaries before suppression begins; may be
+     * zero.
+     * @param summaryPeriodMillis the period after which another summary is permitted, in milliseconds.
+     * @param rollupIntervalMillis the minimum interval between rollups of suppressed occurrences, in milliseconds.
+     */
+    public ExceptionReporter(final int traceBurst, final long tracePeriodMillis, final int summaryBurst,
+                             final long summaryPeriodMillis, final long rollupIntervalMillis)
+    {
+        this(traceBurst, tracePeriodMillis, summaryBurst, summaryPeriodMillis, rollupIntervalMillis, Clock.SYSTEM,
+                SweeperHolder.INSTANCE);
+    }
+
+    /**
+     * Construct an {@link ExceptionReporter} instance.
+     *
+     * @param traceBurst the number of occurrences per site logged with full stack traces before limiting begins.
+     * @param tracePeriodMillis the period after which another full stack trace is permitted, in milliseconds.
+     * @param summaryBurst the number of occurrences per site logged as summaries before suppression begins; may be
+     * zero.
+     * @param summaryPeriodMillis the period after which another summary is permitted, in milliseconds.
+     * @param rollupIntervalMillis the minimum interval between rollups of suppressed occurrences, in milliseconds.
+     * @param clock the clock used to meter occurrences.
+     * @param sweeper the executor on which to sweep every site once per rollup interval, or {@code null} to sweep
+     * only as exceptions are reported.
+     */
+    ExceptionReporter(final int traceBurst, final long tracePeriodMillis, final int summaryBurst,
+                      final long summaryPeriodMillis, final long rollupIntervalMillis, final Clock clock,
+                      final ScheduledExecutorService sweeper)
+    {
+        super();
+        Assert.argumentNotNegative("traceBurst", traceBurst);
+        Assert.argumentPositive("tracePeriodMillis", tracePeriodMillis);
+        Assert.argumentNotNegative("summaryBurst", summaryBurst);
+        Assert.argumentPositive("summaryPeriodMillis", summaryPeriodMillis);
+        Assert.argumentPositive("rollupIntervalMillis", rollupIntervalMillis);
+        Assert.argumentNotNull("clock", clock);
+        m_traceInterval = TimeUnit.MILLISECONDS.toNanos(tracePeriodMillis);
+        m_traceTolerance = tolerance(traceBurst, m_traceInterval);
+        m_summaryInterval = TimeUnit.MILLISECONDS.toNanos(summaryPeriodMillis);
+        m_summaryTolerance = tolerance(summaryBurst, m_summaryInterval);
+        m_rollupInterval = TimeUnit.MILLISECONDS.toNanos(rollupIntervalMillis);
+        m_clock = clock;
+        final long now = clock.nanoTime();
+        m_overflowSite = new Site("(other sites)", now, m_rollupInterval);
+        m_nextSweep = new AtomicLong(now + m_rollupInterval);
+        if (null == sweeper)
+        {
+            m_sweeper = null;
+        }
+        else
+        {
+            final PeriodicSweep sweep = new PeriodicSweep(this);
+            m_sweeper = sweeper.scheduleWithFixedDelay(sweep, rollupIntervalMillis, rollupIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+            sweep.m_future = m_sweeper;
+        }
+    }
+
+    /**
+     * Log a rollup of the occurrences suppressed at every site, without waiting for the rollup interval to elapse.
+     */
+    public void flush()
+    {
+        rollupAll(m_clock.nanoTime(), true);
+    }
+
+    /**
+     * Report an exception at {@code ERROR} level, subject to the limits of this reporter. The message is formatted with
+     * {@link String#format(String, Object...)} only if the occurrence is actually logged.
+     *
+     * @param logger the logger to which to report.
+     * @param exception the exception.
+     * @param template the message template.
+     * @param args the message arguments.
+     * @return {@link Disposition} the way in which the occurrence was handled.
+     */
+    public Disposition report(final Logger logger, final Throwable exception, final String template,
+                              final Object... args)
+    {
+        Assert.argumentNotNull("logger", logger);
+        Assert.argumentNotNull("exception", exception);
+        final long now = m_clock.nanoTime();
+        final Site site = siteFor(exception, now);
+        final Disposition result;
+        if (acquire(site.m_traceArrival, m_traceInterval, m_traceTolerance, now))
+        {
+            result = Disposition.TRACE;
+            if (logger.isErrorEnabled())
+            {
+                logger.error(String.format("%s [exception ID: %s]", format(template, args),
+                        Exceptions.uniqueId(exception)), exception);
+            }
+        }
+        else if (acquire(site.m_summaryArrival, m_summaryInterval, m_summaryTolerance, now))
+        {
+            result = Disposition.SUMMARY;
+            if (logger.isErrorEnabled())
+            {
+                logger.error(String.format("%s [exception ID: %s; %s; stack trace suppressed]", format(template, args),
+                        Exceptions.uniqueId(exception), exception));
+            }
+        }
+        else
+        {
+            result = Disposition.SUPPRESSED;
+            site.m_logger = logger;
+            site.m_suppressed.incrementAndGet();
+        }
+        rollup(site, now, false);
+        sweep(now);
+        return result;
+    }
+
+    /**
+     * Stop sweeping sites periodically, and {@link #flush()} all suppressed occurrences. The reporter remains usable,
+     * but rolls up only as exceptions are reported.
+     */
+    public void shutdown()
+    {
+        if (null != m_sweeper)
+        {
+            m_sweeper.cancel(false);
+        }
+        flush();
+    }
+
+    /**
+     * Attempt to take a token from a bucket. The bucket is represented by its theoretical arrival time: the time at
+     * which it will next be full. A token is available if taking it would not push that time more than {@code
+     * tolerance} into the future.
+     *
+     * @param arrival the bucket's theoretical arrival time.
+     * @param interval the time taken to refill one token, in nanoseconds.
+     * @param tolerance the time taken to refill all but one token, in nanoseconds; negative if the bucket is empty.
+     * @param now the current time.
+     * @return {@code boolean} {@code true} if a token was taken.
+     */
+    private static boolean acquire(final AtomicLong arrival, final long interval, final long tolerance, final long now)
+    {
+        boolean result = false;
+        if (tolerance >= 0L)
+        {
+            long current = arrival.get();
+            while (current - now <= tolerance)
+            {
+                if (arrival.compareAndSet(current, Math.max(current - now, 0L) + now + interval))
+                {
+                    result = true;
+                    break;
+                }
+                current = arrival.get();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Describe the throw site of an exception, for inclusion in rollups.
+     *
+     * @param exception the exception.
+     * @return {@link String} description.
+     */
+    private static String describe(final Throwable exception)
+    {
+        final StackTraceElement[] stackTrace = exception.getStackTrace();
+        return 0 == stackTrace.length ? exception.getClass().getName() :
+                exception.getClass().getName() + " at " + stackTrace[0];
+    }
+
+    /**
+     * Format a message, tolerating a {@code null} or unformattable template.
+     *
+     * @param template the message template.
+     * @param args the message arguments.
+     * @return {@link String} message.
+     */
+    private static String format(final String template, final Object... args)
+    {
+        String result;
+        try
+        {
+            result = null == args || 0 == args.length ? String.valueOf(template) : String.format(template, args);
+        }
+        catch (final RuntimeException e)
+        {
+            result = String.valueOf(template);
+        }
+        return result;
+    }
+
+    /**
+     * Calculate the tolerance of a bucket: the time taken to refill all but one of its tokens.
+     *
+     * @param burst the bucket capacity.
+     * @param interval the time taken to refill one token, in nanoseconds.
+     * @return {@code long} tolerance in nanoseconds, or {@code -1} if the bucket has no capacity.
+     */
+    private static long tolerance(final int burst, final long interval)
+    {
+        return 0 == burst ? -1L : (burst - 1) * interval;
+    }
+
+    /**
+     * Log a rollup of the occurrences suppressed at a site, if there are any and the rollup interval has elapsed. Only
+     * the thread which advances the site's next rollup time logs the rollup.
+     *
+     * @param site the site.
+     * @param now the current time.
+     * @param force whether to roll up even if the rollup interval has not elapsed.
+     */
+    private void rollup(final Site site, final long now, final boolean force)
+    {
+        final long due = site.m_nextRollup.get();
+        if ((force || now - due >= 0L) && 0L != site.m_suppressed.get() && site.m_nextRollup.compareAndSet(due, now +
+                m_rollupInterval))
+        {
+            final long suppressed = site.m_suppressed.getAndSet(0L);
+            final Logger logger = site.m_logger;
+            if (0L != suppressed && logger.isWarnEnabled())
+            {
+                logger.warn(String.format("Suppressed [%d] occurrences of [%s] in the last [%d] seconds.", suppressed,
+                        site.m_description, TimeUnit.NANOSECONDS.toSeconds(now - site.m_lastRollup)));
+            }
+            site.m_lastRollup = now;
+        }
+    }
+
+    /**
+     * Roll up every site.
+     *
+     * @param now the current time.
+     * @param force whether to roll up sites whose rollup interval has not elapsed.
+     */
+    private void rollupAll(final long now, final boolean force)
+    {
+        for (final Site nextSite : m_sites.values())
+        {
+            rollup(nextSite, now, force);
+        }
+        rollup(m_overflowSite, now, force);
+    }
+
+    /**
+     * Roll up every site whose rollup is due, if the sweep interval has elapsed. Only the thread which advances the
+     * next sweep time performs the sweep.
+     *
+     * @param now the current time.
+     */
+    private void sweep(final long now)
+    {
+        final long due = m_nextSweep.get();
+        if (now - due >= 0L && m_nextSweep.compareAndSet(due, now + m_rollupInterval))
+        {
+            rollupAll(now, false);
+        }
+    }
+
+    /**
+     * Roll up every site whose rollup is due. Invoked once per rollup interval by the periodic sweep, and exposed to
+     * tests, which sweep explicitly.
+     */
+    void sweepDue()
+    {
+        rollupAll(m_clock.nanoTime(), false);
+    }
+
+    /**
+     * Get the site state for an exception, creating it if necessary.
+     *
+     * @param exception the exception.
+     * @param now the current time.
+     * @return {@link Site} site state.
+     */
+    private Site siteFor(final Throwable exception, final long now)
+    {
+        final Long fingerprint = ExceptionRegistry.fingerprint(exception, ExceptionRegistry.DEFAULT_FINGERPRINT_FRAMES);
+        Site result = m_sites.get(fingerprint);
+        if (null == result)
+        {
+            if (m_sites.size() < MAXIMUM_SITES)
+            {
+                final Site created = new Site(describe(exception), now, m_rollupInterval);
+                final Site existing = m_sites.putIfAbsent(fingerprint, created);
+                result = null == existing ? created : existing;
+            }
+            else
+            {
+                result = m_overflowSite;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@link Disposition} describes the way in which {@link #report(Logger, Throwable, String, Object...)} handled an
+     * occurrence.
+     */
+    public static enum Disposition
+    {
+        /**
+         * The occurrence was logged with its full stack trace.
+         */
+        TRACE,
+
+        /**
+         * The occurrence was logged as a single-line summary.
+         */
+        SUMMARY,
+
+        /**
+         * The occurrence was counted, for inclusion in a later rollup.
+         */
+        SUPPRESSED
+    }
+
+    /**
+     * {@link PeriodicSweep} sweeps the sites of a reporter, holding the reporter weakly so that scheduling the sweep
+     * does not prevent its collection; once the reporter is collected, the sweep cancels itself.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+     */
+    private static final class PeriodicSweep implements Runnable
+    {
+        private final WeakReference<ExceptionReporter> m_reporter;
+        private volatile Future<?> m_future;
+
+        /**
+         * Construct a {@link PeriodicSweep} instance.
+         *
+         * @param reporter the reporter.
+         */
+        public PeriodicSweep(final ExceptionReporter reporter)
+        {
+            super();
+            m_reporter = new WeakReference<ExceptionReporter>(reporter);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            final ExceptionReporter reporter = m_reporter.get();
+            if (null != reporter)
+            {
+                /* An escaping exception would silently cancel all further sweeps. */
+                try
+                {
+                    reporter.sweepDue();
+                }
+                catch (final RuntimeException e)
+                {
+                    s_logger.error("Failed to roll up suppressed exceptions.", e);
+                }
+            }
+            else if (null != m_future)
+            {
+                m_future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * {@link Site} holds the buckets and suppression count of a single throw site.
+     * <p/>
+     * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+     */
+    private static final class Site
+    {
+        private final String m_description;
+        private final AtomicLong m_traceArrival;
+        private final AtomicLong m_summaryArrival;
+        private final AtomicLong m_suppressed = new AtomicLong(0L);
+        private final AtomicLong m_nextRollup;
+        private volatile long m_lastRollup;
+        private volatile Logger m_logger;
+
+        /**
+         * Construct a {@link Site} instance, with full buckets.
+         *
+         * @param description the site description, for inclusion in rollups.
+         * @param now the current time.
+         * @param rollupInterval the minimum interval between rollups, in nanoseconds.
+         */
+        public Site(final String description, final long now, final long rollupInterval)
+        {
+            super();
+            m_description = description;
+            m_traceArrival = new AtomicLong(now);
+            m_summaryArrival = new AtomicLong(now);
+            m_nextRollup = new AtomicLong(now + rollupInterval);
+            m_lastRollup = now;
+        }
+    }
+
+    /**
+     * {@link SweeperHolder} lazily holds the executor shared by the periodic sweeps of all reporters, whose single
+     * daemon thread is started on first use.
+     */
+    private static final class SweeperHolder
+    {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(final Runnable runnable)
+                    {
+                        final Thread result = new Thread(runnable, "biglib-exception-reporter");
+                        result.setDaemon(true);
+                        return result;
+                    }
+                });
+    }
+}
@@ -0,0 +1,33 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.List;
+
+/**
+ * {@link ExceptionSink} receives batches of exceptions captured by an {@link ExceptionCapture} pipeline, on one of the
+ * pipeline's consumer threads. A sink which throws a {@link RuntimeException} loses only the batch which failed; the
+ * failure is logged and delivery continues.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access if used with
+ * a pipeline having more than one consumer thread.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface ExceptionSink
+{
+    /**
+     * Write a batch of captured exceptions.
+     *
+     * @param batch the captured exceptions, in the order in which they were dequeued. The list is valid only for the
+     * duration of the call.
+     */
+    void write(List<CapturedException> batch);
+}
@@ -0,0 +1,126 @@
+package com.biglakesystems.biglib.quality;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * {@link ExceptionSiteMetrics} is a snapshot of the occurrences of an exception class at a single site, as taken by
+ * {@link ExceptionMetrics#snapshot(int)}: the total number of occurrences, and the number within a window of recent
+ * seconds. The constructor is annotated with its property names, so that snapshots may be reconstructed by JMX proxies
+ * of {@link ExceptionMetricsMXBean}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are immutable and therefore safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionSiteMetrics
+{
+    private final String m_exceptionClassName;
+    private final String m_site;
+    private final long m_totalCount;
+    private final long m_windowCount;
+    private final int m_windowSeconds;
+
+    /**
+     * Construct an {@link ExceptionSiteMetrics} instance.
+     *
+     * @param exceptionClassName the exception class name.
+     * @param site the site description: a site name, or the innermost stack frame.
+     * @param totalCount the total number of occurrences.
+     * @param windowCount the number of occurrences within the window.
+     * @param windowSeconds the length of the window, in seconds.
+     */
+    @ConstructorProperties({"exceptionClassName", "site", "totalCount", "windowCount", "windowSeconds"})
+    public ExceptionSiteMetrics(final String exceptionClassName, final String site, final long totalCount,
+                                final long windowCount, final int windowSeconds)
+    {
+        super();
+        Assert.argumentNotNull("exceptionClassName", exceptionClassName);
+        Assert.argumentNotNull("site", site);
+        Assert.argumentPositive("windowSeconds", windowSeconds);
+        m_exceptionClassName = exceptionClassName;
+        m_site = site;
+        m_totalCount = totalCount;
+        m_windowCount = windowCount;
+        m_windowSeconds = windowSeconds;
+    }
+
+    /**
+     * Get the exception class name.
+     *
+     * @return {@link String} class name.
+     */
+    public String getExceptionClassName()
+    {
+        return m_exceptionClassName;
+    }
+
+    /**
+     * Get the rate at which the exception occurred within the window.
+     *
+     * @return {@code double} occurrences per second.
+     */
+    public double getRate()
+    {
+        return (double) m_windowCount / m_windowSeconds;
+    }
+
+    /**
+     * Get the site description.
+     *
+     * @return {@link String} site name, or innermost stack frame.
+     */
+    public String getSite()
+    {
+        return m_site;
+    }
+
+    /**
+     * Get the total number of occurrences.
+     *
+     * @return {@code long} total count.
+     */
+    public long getTotalCount()
+    {
+        return m_totalCount;
+    }
+
+    /**
+     * Get the number of occurrences within the window.
+     *
+     * @return {@code long} window count.
+     */
+    public long getWindowCount()
+    {
+        return m_windowCount;
+    }
+
+    /**
+     * Get the length of the window.
+     *
+     * @return {@code int} window length in seconds.
+     */
+    public int getWindowSeconds()
+    {
+        return m_windowSeconds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[exceptionClassName=%s, site=%s, totalCount=%d, windowCount=%d, windowSeconds=%d]",
+                getClass().getSimpleName(), m_exceptionClassName, m_site, m_totalCount, m_windowCount,
+                m_windowSeconds);
+    }
+}
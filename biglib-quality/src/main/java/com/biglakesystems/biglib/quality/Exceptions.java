@@ -1,12 +1,23 @@
 package com.biglakesystems.biglib.quality;
 
-import com.biglakesystems.biglib.impl.quality.WeakIdentityHashMap;
-import org.apache.commons.codec.digest.DigestUtils;
+import com.biglakesystems.biglib.impl.quality.ConcurrentWeakIdentityHashMap;
+import com.biglakesystems.biglib.impl.quality.CounterExceptionIdGenerator;
+import com.biglakesystems.biglib.impl.quality.MappingFunction;
+import com.biglakesystems.biglib.impl.quality.ReferenceDrainer;
+import com.biglakesystems.biglib.impl.quality.Sha1ExceptionIdGenerator;
+import com.biglakesystems.biglib.impl.quality.TimeOrderedExceptionIdGenerator;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link Exceptions} provides utility methods for reporting exceptions.
@@ -27,6 +38,31 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class Exceptions
 {
+    /**
+     * System property selecting the {@link ExceptionIdGenerator} used by {@link #uniqueId(Throwable)}. Recognized
+     * values are {@code sha1} (the default), {@code counter} and {@code time}, or the fully qualified name of an {@link
+     * ExceptionIdGenerator} implementation having a public no-argument constructor.
+     *
+     * @see Sha1ExceptionIdGenerator
+     * @see CounterExceptionIdGenerator
+     * @see TimeOrderedExceptionIdGenerator
+     */
+    public static final String ID_GENERATOR_PROPERTY = "biglib.exceptions.idGenerator";
+
+    /**
+     * System property giving the number of seconds for which an exception's identifier is retained after it was last
+     * requested. By default, identifiers are retained for as long as their exceptions are reachable; an exception held
+     * by a long-lived object, such as a completed future or a cached error, then holds its identifier indefinitely. An
+     * exception whose identifier has expired is assigned a new identifier if one is requested again.
+     */
+    public static final String ID_EXPIRY_PROPERTY = "biglib.exceptions.idExpirySeconds";
+
+    /**
+     * Object name under which {@link #registerStatisticsMBean(MBeanServer)} registers the statistics of the map holding
+     * assigned exception identifiers.
+     */
+    public static final String STATISTICS_MBEAN_NAME = "com.biglakesystems.biglib.quality:type=Exceptions,name=ids";
+
     /**
      * Construct a {@link Exceptions} instance.
      */
@@ -37,8 +73,10 @@ public class Exceptions
 
     /**
      * Get a string uniquely identifying an exception. The returned identifier will be the same each time this method is
-     * invoked for a given exception instance.  This can be used to correlate an exception between a log file and user
-     * error message, for example.
+     * invoked for a given exception instance, unless identifiers are configured to expire via {@value
+     * #ID_EXPIRY_PROPERTY}.  This can be used to correlate an exception between a log file and user error message, for
+     * example. The identifier is retained as the string returned, in place of its compact form, so that repeated calls
+     * return the same instance, and retain no more than the string.
      *
      * @param exception the exception to identify.
      * @return {@link String} exception identifier.
@@ -46,50 +84,465 @@ public class Exceptions
     public static String uniqueId(final Throwable exception)
     {
         Assert.argumentNotNull("exception", exception);
+        return rendered(exception, identify(exception));
+    }
+
+    /**
+     * Get the identifier of an exception in compact form, as {@link #uniqueId(Throwable)} would assign it. Its string
+     * form is only rendered if {@link ExceptionId#toString()} is called, so this is the cheaper method where the
+     * identifier may never be displayed. If the identifier has already been requested as a string, it is parsed again.
+     *
+     * @param exception the exception to identify.
+     * @return {@link ExceptionId} exception identifier.
+     */
+    public static ExceptionId exceptionId(final Throwable exception)
+    {
+        Assert.argumentNotNull("exception", exception);
+        final Object held = identify(exception);
+        return held instanceof String ? ExceptionId.parse((String) held) : (ExceptionId) held;
+    }
+
+    /**
+     * Get a string identifying an exception, reusing any identifier already assigned to another exception in its chain
+     * of causes. Layered code which wraps a failure and identifies each wrapper thereby obtains one identifier per
+     * failure, rather than one per wrapper: the exception itself is checked first, then each cause in turn, together
+     * with the exceptions suppressed by each (on platforms which support suppression). If an identifier is found, the
+     * exception is registered under it without generating a new one and without notifying listeners, since no new
+     * identifier has been assigned. Otherwise, a new identifier is assigned as by {@link #uniqueId(Throwable)}.
+     *
+     * @param exception the exception to identify.
+     * @return {@link String} exception identifier.
+     */
+    public static String chainId(final Throwable exception)
+    {
+        Assert.argumentNotNull("exception", exception);
+        Object result = s_idsByException.get(exception);
+        if (null == result)
+        {
+            final Object inherited = findChainId(exception);
+            if (null == inherited)
+            {
+                result = identify(exception);
+            }
+            else
+            {
+                final Object previous = s_idsByException.putIfAbsent(exception, inherited);
+                result = null == previous ? inherited : previous;
+            }
+        }
+        return rendered(exception, result);
+    }
+
+    /**
+     * Report an exception to a logger at {@code ERROR} level, limiting the output produced by failures which recur at a
+     * high rate. Each throw site is permitted a burst of full stack traces, then a burst of single-line summaries
+     * including the exception identifier; further occurrences are suppressed and periodically rolled up into a count.
+     * See {@link ExceptionReporter} for details.
+     *
+     * @param logger the logger to which to report.
+     * @param exception the exception.
+     * @param template the message template, for {@link String#format(String, Object...)}.
+     * @param args the message arguments.
+     */
+    public static void report(final Logger logger, final Throwable exception, final String template,
+                              final Object... args)
+    {
+        s_reporter.report(logger, exception, template, args);
+    }
+
+    /**
+     * Get the stack trace of an exception in compact form, interned in the {@link StackTraceTable#shared() shared}
+     * table. Code which retains exceptions' stack traces for long periods should retain this in place of the {@link
+     * StackTraceElement} array, since traces thrown from the same call paths then share their frames.
+     *
+     * @param exception the exception.
+     * @return {@link CompactStackTrace} stack trace.
+     */
+    public static CompactStackTrace compactStackTrace(final Throwable exception)
+    {
+        return CompactStackTrace.of(exception);
+    }
+
+    /**
+     * Begin collecting statistics for the map holding assigned exception identifiers, and register them with an MBean
+     * server under {@value #STATISTICS_MBEAN_NAME}. Does nothing if they are already registered with that server.
+     *
+     * @param server the MBean server, such as {@link java.lang.management.ManagementFactory#getPlatformMBeanServer()}.
+     * @return {@link ObjectName} name under which the statistics are registered.
+     * @throws JMException if registration fails.
+     */
+    public static ObjectName registerStatisticsMBean(final MBeanServer server) throws JMException
+    {
+        Assert.argumentNotNull("server", server);
+        final ObjectName result = new ObjectName(STATISTICS_MBEAN_NAME);
+        synchronized (s_idsByException)
+        {
+            if (!server.isRegistered(result))
+            {
+                server.registerMBean(s_idsByException.enableStatistics(), result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Register a listener to be notified each time a new identifier is assigned by {@link #uniqueId(Throwable)}.
+     * Registering the same listener more than once has no additional effect.
+     *
+     * @param listener the listener.
+     */
+    public static void addListener(final ExceptionListener listener)
+    {
+        Assert.argumentNotNull("listener", listener);
+        s_listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Unregister a listener previously registered via {@link #addListener(ExceptionListener)}.
+     *
+     * @param listener the listener.
+     * @return {@code boolean} {@code true} if the listener was registered.
+     */
+    public static boolean removeListener(final ExceptionListener listener)
+    {
+        Assert.argumentNotNull("listener", listener);
+        return s_listeners.remove(listener);
+    }
+
+    /**
+     * Get the strategy used to generate new exception identifiers.
+     *
+     * @return {@link ExceptionIdGenerator} identifier generator.
+     */
+    public static ExceptionIdGenerator getIdGenerator()
+    {
+        return s_idGenerator;
+    }
+
+    /**
+     * Set the strategy used to generate new exception identifiers. This is intended to be called once, during
+     * application startup, as an alternative to the {@value #ID_GENERATOR_PROPERTY} system property. Identifiers
+     * already assigned are unaffected.
+     *
+     * @param generator the identifier generator.
+     */
+    public static void setIdGenerator(final ExceptionIdGenerator generator)
+    {
+        Assert.argumentNotNull("generator", generator);
+        s_idGenerator = generator;
+    }
+
+    /**
+     * Find an identifier already assigned to a cause of an exception, or to an exception suppressed by the exception or
+     * one of its causes. Cycles in the cause chain are tolerated.
+     *
+     * @param exception the exception.
+     * @return {@link Object} identifier, held as by {@link #s_idsByException}, or {@code null} if none has been
+     * assigned.
+     */
+    private static Object findChainId(final Throwable exception)
+    {
+        Object result = null;
+        final List<Throwable> chain = ExceptionUtils.getThrowableList(exception);
+        for (int i = 0; i < chain.size() && null == result; i += 1)
+        {
+            final Throwable next = chain.get(i);
+            if (i > 0)
+            {
+                result = s_idsByException.get(next);
+            }
+            final Throwable[] suppressed = suppressedBy(next);
+            for (int j = 0; j < suppressed.length && null == result; j += 1)
+            {
+                result = s_idsByException.get(suppressed[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the identifier held for an exception, assigning one if none is held.
+     *
+     * @param exception the exception to identify.
+     * @return {@link Object} identifier, held as by {@link #s_idsByException}.
+     */
+    private static Object identify(final Throwable exception)
+    {
+        /* First check for an existing ID for this exception, without locking. */
+        Object result = s_idsByException.get(exception);
+        if (null == result)
+        {
+            /* Haven't already identified this exception; generate a new identifier. Exceptions generally shouldn't be
+            crossing thread boundaries, but if another thread identifies the same exception concurrently, the map
+            ensures that only one identifier is generated and stored, and only its creator notifies listeners. */
+            final IdAssigner assigner = new IdAssigner();
+            result = s_idsByException.getOrCompute(exception, assigner);
+            if (assigner.m_assigned)
+            {
+                notifyListeners(exception, (ExceptionId) result);
+            }
+        }
+        return result;
+    }
 
-        /* First check for an existing ID for this exception. */
+    /**
+     * Get the string form of the identifier held for an exception, replacing an identifier held in compact form with
+     * its string form, so that the string need not be rendered again and is not retained alongside the compact form.
+     *
+     * @param exception the exception.
+     * @param held the identifier held for the exception.
+     * @return {@link String} identifier.
+     */
+    private static String rendered(final Throwable exception, final Object held)
+    {
         final String result;
-        final String existing = s_idsByException.get(exception);
-        if (null != existing)
+        if (held instanceof String)
         {
-            /* Already identified this exception; use that identifier. */
-            result = existing;
+            result = (String) held;
         }
         else
         {
-            /* Haven't already identified this exception; generate a new identifier. Exceptions generally shouldn't be
-            crossing thread boundaries, but we do handle the case where another thread allocates an identifier first. */
-            final String created = newUniqueId(exception);
-            final String previous = s_idsByException.put(exception, created);
-            result = StringUtils.defaultString(previous, created);
+            result = held.toString();
+
+            /* If the identifier has since expired or been replaced, the string is still the one requested. */
+            s_idsByException.replace(exception, held, result);
         }
         return result;
     }
 
     /**
-     * Generate a unique identifier for an exception. Combines the exception class name, identity hash code, and an
-     * ever-incrementing sequence value into a string and then performs a SHA-1 hash of that string, returning the hex
-     * hash.
+     * Get the exceptions suppressed by an exception, via reflection since suppression was introduced after the platform
+     * version this library targets.
      *
      * @param exception the exception.
-     * @return {@link String} unique identifier.
+     * @return {@link Throwable} array, empty if none or if suppression is unsupported.
      */
-    private static String newUniqueId(final Throwable exception)
+    private static Throwable[] suppressedBy(final Throwable exception)
     {
-        final String content = String.format("%s_%08x_%08x", exception.getClass().getName(),
-                System.identityHashCode(exception), s_nextIdSequence.getAndIncrement());
-        return DigestUtils.sha1Hex(content);
+        Throwable[] result = NO_THROWABLES;
+        if (null != GET_SUPPRESSED)
+        {
+            try
+            {
+                result = (Throwable[]) GET_SUPPRESSED.invoke(exception);
+            }
+            catch (final Exception e)
+            {
+                s_logger.debug(String.format("Failed to get exceptions suppressed by [%s].", exception), e);
+            }
+        }
+        return result;
     }
 
+    /**
+     * Find {@code Throwable.getSuppressed()}, if the platform supports it.
+     *
+     * @return {@link Method} method, or {@code null} if unsupported.
+     */
+    private static Method findGetSuppressed()
+    {
+        Method result = null;
+        try
+        {
+            result = Throwable.class.getMethod("getSuppressed");
+        }
+        catch (final NoSuchMethodException e)
+        {
+            /* Platform predates suppression. */
+        }
+        return result;
+    }
+
+    /**
+     * Create the map holding assigned identifiers, with the expiry given by the {@value #ID_EXPIRY_PROPERTY} system
+     * property. A malformed or non-positive expiry is logged, and identifiers do not expire.
+     *
+     * @param expirySeconds the configured expiry in seconds, or {@code null} if none.
+     * @return {@link ConcurrentWeakIdentityHashMap} map.
+     */
+    private static ConcurrentWeakIdentityHashMap<Throwable, Object> createIdMap(final String expirySeconds)
+    {
+        long seconds = 0L;
+        if (!StringUtils.isBlank(expirySeconds))
+        {
+            try
+            {
+                seconds = Long.parseLong(expirySeconds.trim());
+            }
+            catch (final NumberFormatException e)
+            {
+                seconds = -1L;
+            }
+            if (seconds <= 0L)
+            {
+                s_logger.warn(String.format("Ignoring invalid exception ID expiry [%s]; IDs will not expire.",
+                        expirySeconds));
+            }
+        }
+        return seconds > 0L ? new ConcurrentWeakIdentityHashMap<Throwable, Object>(ReferenceDrainer.shared(),
+                ConcurrentWeakIdentityHashMap.Expiry.AFTER_ACCESS, seconds, TimeUnit.SECONDS) :
+                new ConcurrentWeakIdentityHashMap<Throwable, Object>(ReferenceDrainer.shared());
+    }
+
+    /**
+     * Create the identifier generator selected by the {@value #ID_GENERATOR_PROPERTY} system property. An unrecognized
+     * or unusable selection is logged, and the default generator is used instead.
+     *
+     * @param name the selected generator name, or {@code null} if none.
+     * @return {@link ExceptionIdGenerator} identifier generator.
+     */
+    private static ExceptionIdGenerator createIdGenerator(final String name)
+    {
+        ExceptionIdGenerator result = null;
+        if (StringUtils.isBlank(name) || "sha1".equals(name))
+        {
+            result = new Sha1ExceptionIdGenerator();
+        }
+        else if ("counter".equals(name))
+        {
+            result = new CounterExceptionIdGenerator();
+        }
+        else if ("time".equals(name))
+        {
+            result = new TimeOrderedExceptionIdGenerator();
+        }
+        else
+        {
+            try
+            {
+                result = (ExceptionIdGenerator) Class.forName(name.trim()).newInstance();
+            }
+            catch (final Exception e)
+            {
+                s_logger.warn(String.format("Unable to create exception ID generator [%s]; using default.", name), e);
+                result = new Sha1ExceptionIdGenerator();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create the reporter used by {@link #report(Logger, Throwable, String, Object...)}, and register a shutdown hook
+     * which flushes it.
+     *
+     * @return {@link ExceptionReporter} reporter.
+     */
+    private static ExceptionReporter createReporter()
+    {
+        final ExceptionReporter result = new ExceptionReporter();
+        Runtime.getRuntime().addShutdownHook(new Thread("biglib-exception-reporter-flush")
+        {
+            @Override
+            public void run()
+            {
+                result.flush();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Notify all registered listeners of a newly assigned identifier. A failing listener is logged, and does not
+     * prevent notification of the remaining listeners. The identifier's string form is rendered only if there are
+     * listeners, and then only once.
+     *
+     * @param exception the exception.
+     * @param id the identifier assigned.
+     */
+    private static void notifyListeners(final Throwable exception, final ExceptionId id)
+    {
+        String rendered = null;
+        for (final ExceptionListener nextListener : s_listeners)
+        {
+            if (null == rendered)
+            {
+                rendered = id.toString();
+            }
+            try
+            {
+                nextListener.exceptionIdentified(exception, rendered);
+            }
+            catch (final RuntimeException e)
+            {
+                s_logger.error(String.format("Exception listener [%s] failed for exception [%s].", nextListener, id),
+                        e);
+            }
+        }
+    }
+
+    /**
+     * {@link IdAssigner} generates the identifier for an exception not yet identified, and records whether it did so,
+     * so that listeners are notified only by the thread whose identifier was stored.
+     */
+    private static final class IdAssigner implements MappingFunction<Throwable, ExceptionId>
+    {
+        boolean m_assigned;
+
+        /**
+         * Construct a {@link IdAssigner} instance.
+         */
+        public IdAssigner()
+        {
+            super();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ExceptionId apply(final Throwable exception)
+        {
+            final ExceptionIdGenerator generator = s_idGenerator;
+            final ExceptionId result;
+            if (generator instanceof CompactExceptionIdGenerator)
+            {
+                result = ((CompactExceptionIdGenerator) generator).newExceptionId(exception);
+                Assert.state(null != result, "Exception ID generator [%s] returned a null ID.",
+                        generator.getClass().getName());
+            }
+            else
+            {
+                final String id = generator.newId(exception);
+                Assert.state(null != id, "Exception ID generator [%s] returned a null ID.",
+                        generator.getClass().getName());
+                result = ExceptionId.parse(id);
+            }
+            m_assigned = true;
+            return result;
+        }
+    }
+
+    private static final Logger s_logger = LoggerFactory.getLogger(Exceptions.class);
+    private static final Throwable[] NO_THROWABLES = new Throwable[0];
+    private static final Method GET_SUPPRESSED = findGetSuppressed();
+
     /**
      * Weak map correlating exceptions for which {@link #uniqueId(Throwable)} has been called, with the identifiers
-     * assigned to those exceptions.
+     * assigned to those exceptions. Each identifier is held as an {@link ExceptionId} in compact form until it is first
+     * requested as a string, and then as that {@link String} alone, so that neither API retains both. Collected
+     * exceptions are purged in the background, since the map may go untouched for long periods between bursts of
+     * errors. If identifiers expire, they do so after they were last requested, and are removed as identifiers are
+     * assigned.
+     */
+    private static final ConcurrentWeakIdentityHashMap<Throwable, Object> s_idsByException = createIdMap(
+            System.getProperty(ID_EXPIRY_PROPERTY));
+
+    /**
+     * Listeners notified of newly assigned identifiers. Registration is rare and notification frequent, so a
+     * copy-on-write list lets notification iterate without locking.
+     */
+    private static final CopyOnWriteArrayList<ExceptionListener> s_listeners =
+            new CopyOnWriteArrayList<ExceptionListener>();
+
+    /**
+     * Reporter used by {@link #report(Logger, Throwable, String, Object...)}. Flushed on JVM shutdown, so that
+     * occurrences suppressed since its last rollup are not lost.
      */
-    private static final Map<Throwable, String> s_idsByException =
-            Collections.synchronizedMap(new WeakIdentityHashMap<Throwable, String>());
+    private static final ExceptionReporter s_reporter = createReporter();
 
     /**
-     * Entropy sequence used when generating exception identifiers.
+     * Strategy used to generate new exception identifiers.
      */
-    private static final AtomicLong s_nextIdSequence = new AtomicLong(0L);
+    private static volatile ExceptionIdGenerator s_idGenerator = createIdGenerator(System.getProperty(
+            ID_GENERATOR_PROPERTY));
 }
@@ -0,0 +1,278 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.ConcurrentWeakIdentityHashMap;
+import com.biglakesystems.biglib.impl.quality.Platform;
+import com.biglakesystems.biglib.impl.quality.ReferenceDrainer;
+
+import java.util.Arrays;
+
+/**
+ * {@link StackCapturePolicy} determines how much of the stack is captured when an exception is created, for exceptions
+ * thrown on expected paths, such as validation failures and cache misses, where walking the stack in {@link
+ * Throwable#fillInStackTrace()} would otherwise dominate the cost of throwing. A policy captures the {@link #full()}
+ * stack, {@link #none()} of it, a {@link #depthLimited(int) limited} number of innermost frames, or the full stack of a
+ * {@link #sampled(int) sample} of exceptions and none of the rest. Sampling counts throws without synchronization, so
+ * under contention the sample is approximate; the first exception is always captured in full.
+ * <p/>
+ * Policies may be chosen per site, by passing a policy held in a constant to the exception's constructor, or per type,
+ * via {@link #setPolicy(Class, StackCapturePolicy)}; {@link #forType(Class)} finds the policy registered for a class or
+ * its nearest registered superclass, and defaults to {@link #full()}. {@link CheapException} applies a policy in
+ * either way. Other exception types, including checked exceptions, can apply a policy themselves by overriding {@link
+ * Throwable#fillInStackTrace()} to do nothing and calling {@link #applyTo(Throwable)} from their constructors.
+ * <p/>
+ * Stacks are captured via {@link Platform#captureStackTrace(int, int)}, which on Java 9 and later materializes only the
+ * frames kept. On earlier platforms it must walk and materialize the whole stack and then copy the frames kept, so
+ * there a {@link #depthLimited(int) depth-limited} policy saves memory held by the exception but costs as much CPU as
+ * {@link #full()}; only {@link #none()}, and the uncaptured exceptions of a {@link #sampled(int) sampled} policy,
+ * avoid walking the stack.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class StackCapturePolicy
+{
+    private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+    private static final StackCapturePolicy FULL = new StackCapturePolicy(Integer.MAX_VALUE, 1);
+    private static final StackCapturePolicy NONE = new StackCapturePolicy(0, 1);
+
+    /**
+     * Policies registered via {@link #setPolicy(Class, StackCapturePolicy)}, and the policies resolved from them for
+     * each class looked up, so that lookup need not walk the class hierarchy. Neither map keeps a class loadable.
+     */
+    private static final ConcurrentWeakIdentityHashMap<Class<?>, StackCapturePolicy> s_registered =
+            new ConcurrentWeakIdentityHashMap<Class<?>, StackCapturePolicy>(ReferenceDrainer.shared());
+    private static final ConcurrentWeakIdentityHashMap<Class<?>, StackCapturePolicy> s_resolved =
+            new ConcurrentWeakIdentityHashMap<Class<?>, StackCapturePolicy>(ReferenceDrainer.shared());
+
+    private final int m_maximumDepth;
+    private final int m_interval;
+
+    /* Racy by design: a lost update merely shifts the sample. */
+    private int m_throwCount;
+
+    /**
+     * Construct a {@link StackCapturePolicy} instance.
+     *
+     * @param maximumDepth the number of frames captured when the stack is captured.
+     * @param interval the interval between exceptions whose stack is captured.
+     */
+    private StackCapturePolicy(final int maximumDepth, final int interval)
+    {
+        super();
+        m_maximumDepth = maximumDepth;
+        m_interval = interval;
+    }
+
+    /**
+     * Get a policy capturing a limited number of the innermost frames of the stack. Before Java 9, the whole stack is
+     * still walked in order to capture them.
+     *
+     * @param maximumDepth the maximum number of frames.
+     * @return {@link StackCapturePolicy} policy.
+     */
+    public static StackCapturePolicy depthLimited(final int maximumDepth)
+    {
+        Assert.argumentPositive("maximumDepth", maximumDepth);
+        return new StackCapturePolicy(maximumDepth, 1);
+    }
+
+    /**
+     * Get the policy registered for a class, or for its nearest superclass having a registered policy.
+     *
+     * @param type the exception class.
+     * @return {@link StackCapturePolicy} policy, or {@link #full()} if none is registered.
+     */
+    public static StackCapturePolicy forType(final Class<?> type)
+    {
+        Assert.argumentNotNull("type", type);
+        StackCapturePolicy result = s_resolved.get(type);
+        if (null == result)
+        {
+            for (Class<?> next = type; null != next && null == result; next = next.getSuperclass())
+            {
+                result = s_registered.get(next);
+            }
+            if (null == result)
+            {
+                result = FULL;
+            }
+            s_resolved.put(type, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the policy capturing the full stack, as {@link Throwable#fillInStackTrace()} does.
+     *
+     * @return {@link StackCapturePolicy} policy.
+     */
+    public static StackCapturePolicy full()
+    {
+        return FULL;
+    }
+
+    /**
+     * Get the policy capturing none of the stack.
+     *
+     * @return {@link StackCapturePolicy} policy.
+     */
+    public static StackCapturePolicy none()
+    {
+        return NONE;
+    }
+
+    /**
+     * Unregister the policy registered for a class.
+     *
+     * @param type the exception class.
+     * @return {@link StackCapturePolicy} policy which was registered, or {@code null} if none.
+     */
+    public static StackCapturePolicy removePolicy(final Class<? extends Throwable> type)
+    {
+        Assert.argumentNotNull("type", type);
+        final StackCapturePolicy result = s_registered.remove(type);
+        s_resolved.clear();
+        return result;
+    }
+
+    /**
+     * Get a policy capturing the full stack of one in a number of exceptions, and none of the stack of the rest.
+     *
+     * @param interval the interval; {@code 100} captures the stack of the first exception and every hundredth after.
+     * @return {@link StackCapturePolicy} policy.
+     */
+    public static StackCapturePolicy sampled(final int interval)
+    {
+        Assert.argumentPositive("interval", interval);
+        return new StackCapturePolicy(Integer.MAX_VALUE, interval);
+    }
+
+    /**
+     * Register the policy for a class and, unless they have policies of their own, its subclasses. This is intended to
+     * be called during application startup.
+     *
+     * @param type the exception class.
+     * @param policy the policy.
+     */
+    public static void setPolicy(final Class<? extends Throwable> type, final StackCapturePolicy policy)
+    {
+        Assert.argumentNotNull("type", type);
+        Assert.argumentNotNull("policy", policy);
+        s_registered.put(type, policy);
+        s_resolved.clear();
+    }
+
+    /**
+     * Capture the stack of an exception being constructed, according to this policy, replacing its stack trace.
+     * Frames of the exception's own constructors are omitted, as {@link Throwable#fillInStackTrace()} omits them. The
+     * exception's class should override {@link Throwable#fillInStackTrace()} to do nothing, so that the stack is not
+     * also captured in full.
+     *
+     * @param exception the exception.
+     * @return {@code boolean} {@code true} if any frames were elided, {@code false} if the full stack was captured.
+     */
+    public boolean applyTo(final Throwable exception)
+    {
+        Assert.argumentNotNull("exception", exception);
+        final int depth = nextDepth();
+        StackTraceElement[] trace = NO_FRAMES;
+        boolean result = true;
+        if (depth > 0)
+        {
+            /* Allow for the constructor frames, and one more frame to reveal whether any were cut off. */
+            final int constructors = constructorAllowance(exception.getClass());
+            final StackTraceElement[] stack = Platform.captureStackTrace(1, (int) Math.min(Integer.MAX_VALUE,
+                    (long) depth + constructors + 1L));
+            final int from = skipConstructors(stack, exception.getClass());
+            final int count = Math.min(depth, stack.length - from);
+            trace = Arrays.copyOfRange(stack, from, from + count);
+            result = stack.length - from > count;
+        }
+        exception.setStackTrace(trace);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[maximumDepth=%d, interval=%d]", getClass().getSimpleName(), m_maximumDepth,
+                m_interval);
+    }
+
+    /**
+     * Get the number of frames to capture for the next exception.
+     *
+     * @return {@code int} depth; zero for none.
+     */
+    int nextDepth()
+    {
+        int result = m_maximumDepth;
+        if (m_interval > 1)
+        {
+            final int count = m_throwCount;
+            m_throwCount = count + 1;
+            result = 0 == (count & Integer.MAX_VALUE) % m_interval ? m_maximumDepth : 0;
+        }
+        return result;
+    }
+
+    /**
+     * Estimate the number of constructor frames above the caller's frame: two per class from the exception's class up
+     * to {@link Throwable}, allowing each constructor to delegate once.
+     *
+     * @param type the exception class.
+     * @return {@code int} allowance.
+     */
+    private static int constructorAllowance(final Class<?> type)
+    {
+        int result = 0;
+        for (Class<?> next = type; Throwable.class != next && null != next; next = next.getSuperclass())
+        {
+            result += 2;
+        }
+        return result;
+    }
+
+    /**
+     * Count the leading frames of a stack which belong to constructors of an exception class or its superclasses.
+     *
+     * @param stack the stack, innermost frame first.
+     * @param type the exception class.
+     * @return {@code int} number of leading constructor frames.
+     */
+    private static int skipConstructors(final StackTraceElement[] stack, final Class<?> type)
+    {
+        int result = 0;
+        boolean constructor = true;
+        while (constructor && result < stack.length)
+        {
+            constructor = false;
+            if ("<init>".equals(stack[result].getMethodName()))
+            {
+                final String className = stack[result].getClassName();
+                for (Class<?> next = type; null != next && !constructor; next = next.getSuperclass())
+                {
+                    constructor = next.getName().equals(className);
+                }
+            }
+            if (constructor)
+            {
+                result += 1;
+            }
+        }
+        return result;
+    }
+}
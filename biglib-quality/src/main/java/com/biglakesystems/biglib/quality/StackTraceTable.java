@@ -0,0 +1,315 @@
+package com.biglakesystems.biglib.quality;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link StackTraceTable} interns stack traces as {@link CompactStackTrace} instances. Each distinct {@link
+ * StackTraceElement} is stored once, in a frame table, and identified by an {@code int}. Traces are stored as paths in
+ * a trie of {@code (caller, frame)} nodes rooted at the outermost frame, so that traces sharing a common suffix (the
+ * same callers, typically a thread's run method down through a framework's dispatch) share the nodes for that suffix,
+ * and a trace is represented by nothing more than the identifier of the node for its innermost frame. Thousands of
+ * exceptions thrown from the same few call paths therefore cost a few integers each, rather than an array of frame
+ * objects each.
+ * <p/>
+ * Interned traces from the same table are equal exactly when their node identifiers are equal, so comparing them is a
+ * constant-time operation. Expanding a trace back to a {@link StackTraceElement} array returns the canonical frame
+ * instances from the frame table.
+ * <p/>
+ * A table is bounded: once it holds its maximum number of frames or nodes, traces which would need new entries are
+ * returned uninterned, holding a copy of their own frames, and are counted by {@link #getOverflowCount()}. Entries are
+ * never removed, so the bound should be chosen with the diversity of an application's call paths in mind. Most code
+ * should use the {@link #shared()} instance.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access. Interning is serialized;
+ * expansion is lock-free.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class StackTraceTable
+{
+    /**
+     * Default maximum number of distinct frames.
+     */
+    public static final int DEFAULT_MAXIMUM_FRAMES = 1 << 16;
+
+    /**
+     * Default maximum number of trie nodes.
+     */
+    public static final int DEFAULT_MAXIMUM_NODES = 1 << 18;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int m_maximumFrames;
+    private final int m_maximumNodes;
+    private final Map<StackTraceElement, Integer> m_frameIds = new HashMap<StackTraceElement, Integer>();
+
+    /* Guarded by this; arrays are read without locking, up to the volatile counts. */
+    private volatile StackTraceElement[] m_frames = new StackTraceElement[INITIAL_CAPACITY];
+    private volatile int m_frameCount;
+    private volatile int[] m_nodeFrames = new int[INITIAL_CAPACITY];
+    private volatile int[] m_nodeParents = new int[INITIAL_CAPACITY];
+    private volatile int m_nodeCount;
+    private long[] m_childKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] m_childNodes = new int[INITIAL_CAPACITY * 2];
+    private long m_overflowCount;
+
+    /**
+     * Construct a {@link StackTraceTable} instance with default bounds.
+     */
+    public StackTraceTable()
+    {
+        this(DEFAULT_MAXIMUM_FRAMES, DEFAULT_MAXIMUM_NODES);
+    }
+
+    /**
+     * Construct a {@link StackTraceTable} instance.
+     *
+     * @param maximumFrames the maximum number of distinct frames.
+     * @param maximumNodes the maximum number of trie nodes.
+     */
+    public StackTraceTable(final int maximumFrames, final int maximumNodes)
+    {
+        super();
+        Assert.argumentPositive("maximumFrames", maximumFrames);
+        Assert.argumentPositive("maximumNodes", maximumNodes);
+        m_maximumFrames = maximumFrames;
+        m_maximumNodes = maximumNodes;
+    }
+
+    /**
+     * Get the shared table instance.
+     *
+     * @return {@link StackTraceTable} shared instance.
+     */
+    public static StackTraceTable shared()
+    {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Get the number of distinct frames interned.
+     *
+     * @return {@code int} frame count.
+     */
+    public int getFrameCount()
+    {
+        return m_frameCount;
+    }
+
+    /**
+     * Get the number of trie nodes; that is, the number of distinct trace suffixes interned.
+     *
+     * @return {@code int} node count.
+     */
+    public int getNodeCount()
+    {
+        return m_nodeCount;
+    }
+
+    /**
+     * Get the number of traces returned uninterned because the table was full.
+     *
+     * @return {@code long} overflow count.
+     */
+    public synchronized long getOverflowCount()
+    {
+        return m_overflowCount;
+    }
+
+    /**
+     * Intern a stack trace.
+     *
+     * @param stackTrace the stack trace, innermost frame first, as returned by {@link Throwable#getStackTrace()}.
+     * @return {@link CompactStackTrace} interned trace, or an uninterned copy if the table is full.
+     */
+    public CompactStackTrace intern(final StackTraceElement[] stackTrace)
+    {
+        Assert.argumentNotNull("stackTrace", stackTrace);
+        CompactStackTrace result;
+        synchronized (this)
+        {
+            int node = -1;
+            boolean full = false;
+            for (int i = stackTrace.length - 1; i >= 0 && !full; i -= 1)
+            {
+                final int frame = internFrame(stackTrace[i]);
+                if (frame >= 0)
+                {
+                    node = child(node, frame);
+                }
+                full = frame < 0 || node < 0;
+            }
+            if (full)
+            {
+                m_overflowCount += 1L;
+                result = new CompactStackTrace(this, -1, stackTrace.length, stackTrace.clone());
+            }
+            else
+            {
+                result = new CompactStackTrace(this, node, stackTrace.length, null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expand a trie node back into a stack trace.
+     *
+     * @param node the node of the innermost frame, or {@code -1} for an empty trace.
+     * @param depth the number of frames in the trace.
+     * @return {@link StackTraceElement} array, innermost frame first.
+     */
+    StackTraceElement[] expand(final int node, final int depth)
+    {
+        /* Read the count first, so that the arrays read afterward hold every node below it, and their frames. */
+        final int nodeCount = m_nodeCount;
+        final int[] nodeFrames = m_nodeFrames;
+        final int[] nodeParents = m_nodeParents;
+        final StackTraceElement[] frames = m_frames;
+        Assert.state(node < nodeCount, "Node [%s] is not visible.", node);
+        final StackTraceElement[] result = new StackTraceElement[depth];
+        int index = 0;
+        for (int next = node; next >= 0; next = nodeParents[next])
+        {
+            result[index] = frames[nodeFrames[next]];
+            index += 1;
+        }
+        return result;
+    }
+
+    /**
+     * Find or create the child of a node for a frame. Must be called while holding the lock on this table.
+     *
+     * @param parent the parent node, or {@code -1} for the root.
+     * @param frame the frame identifier.
+     * @return {@code int} node identifier, or {@code -1} if the table is full.
+     */
+    private int child(final int parent, final int frame)
+    {
+        /* Neither half of the key is ever zero, so zero marks an empty slot. */
+        final long key = ((long) (parent + 2) << 32) | (frame + 1);
+        int mask = m_childKeys.length - 1;
+        int slot = spread(key) & mask;
+        while (0L != m_childKeys[slot] && key != m_childKeys[slot])
+        {
+            slot = (slot + 1) & mask;
+        }
+        int result;
+        if (key == m_childKeys[slot])
+        {
+            result = m_childNodes[slot];
+        }
+        else if (m_nodeCount >= m_maximumNodes)
+        {
+            result = -1;
+        }
+        else
+        {
+            result = m_nodeCount;
+            if (result == m_nodeFrames.length)
+            {
+                final int capacity = result << 1;
+                m_nodeFrames = Arrays.copyOf(m_nodeFrames, capacity);
+                m_nodeParents = Arrays.copyOf(m_nodeParents, capacity);
+            }
+            m_nodeFrames[result] = frame;
+            m_nodeParents[result] = parent;
+            m_childKeys[slot] = key;
+            m_childNodes[slot] = result;
+            m_nodeCount = result + 1;
+            if (m_nodeCount * 2 > m_childKeys.length)
+            {
+                rehashChildren();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find or assign the identifier of a frame. Must be called while holding the lock on this table.
+     *
+     * @param element the frame.
+     * @return {@code int} frame identifier, or {@code -1} if the table is full.
+     */
+    private int internFrame(final StackTraceElement element)
+    {
+        final Integer existing = m_frameIds.get(element);
+        int result;
+        if (null != existing)
+        {
+            result = existing;
+        }
+        else if (m_frameCount >= m_maximumFrames)
+        {
+            result = -1;
+        }
+        else
+        {
+            result = m_frameCount;
+            if (result == m_frames.length)
+            {
+                m_frames = Arrays.copyOf(m_frames, result << 1);
+            }
+            m_frames[result] = element;
+            m_frameIds.put(element, result);
+            m_frameCount = result + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Double the capacity of the child index. Must be called while holding the lock on this table.
+     */
+    private void rehashChildren()
+    {
+        final long[] keys = m_childKeys;
+        final int[] nodes = m_childNodes;
+        m_childKeys = new long[keys.length << 1];
+        m_childNodes = new int[keys.length << 1];
+        final int mask = m_childKeys.length - 1;
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            if (0L != keys[i])
+            {
+                int slot = spread(keys[i]) & mask;
+                while (0L != m_childKeys[slot])
+                {
+                    slot = (slot + 1) & mask;
+                }
+                m_childKeys[slot] = keys[i];
+                m_childNodes[slot] = nodes[i];
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of a child key into a table index.
+     *
+     * @param key the key.
+     * @return {@code int} hash.
+     */
+    private static int spread(final long key)
+    {
+        final long mixed = key * 0x9e3779b97f4a7c15L;
+        return (int) (mixed >>> 32) ^ (int) mixed;
+    }
+
+    /**
+     * {@link SharedHolder} lazily holds the shared {@link StackTraceTable} instance.
+     */
+    private static final class SharedHolder
+    {
+        private static final StackTraceTable INSTANCE = new StackTraceTable();
+    }
+}
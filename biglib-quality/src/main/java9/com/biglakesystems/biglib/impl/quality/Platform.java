@@ -0,0 +1,95 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * {@link Platform} isolates the few operations for which newer platform versions offer cheaper implementations than
+ * the Java 6 baseline. This is the Java 9 implementation, packaged under {@code META-INF/versions/9} of the
+ * multi-release library JAR: it hints spin loops with {@link Thread#onSpinWait()}, captures stacks lazily with {@link
+ * StackWalker}, and runs cleanup actions on a {@link Cleaner} rather than on the shared {@link ReferenceDrainer}.
+ * <p/>
+ * <strong>Thread Safety:</strong> this class is safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class Platform
+{
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /* Reflection frames are shown, so that captured stacks match those of the baseline implementation. */
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.SHOW_REFLECT_FRAMES);
+
+    /**
+     * Construct a {@link Platform} instance.
+     */
+    private Platform()
+    {
+        super();
+    }
+
+    /**
+     * Capture the stack of the calling thread, as {@link Throwable#getStackTrace()} would for an exception created by
+     * the caller.
+     *
+     * @param skipFrames the number of frames to omit below the caller's own frame.
+     * @param maximumFrames the maximum number of frames to capture.
+     * @return {@link StackTraceElement} array, innermost frame first.
+     */
+    public static StackTraceElement[] captureStackTrace(final int skipFrames, final int maximumFrames)
+    {
+        /* Omit this method's own frame. Only the frames wanted are materialized. */
+        return WALKER.walk(frames -> frames.skip(1L + skipFrames).limit(maximumFrames)
+                .map(StackWalker.StackFrame::toStackTraceElement).toArray(StackTraceElement[]::new));
+    }
+
+    /**
+     * Get the platform level this implementation targets.
+     *
+     * @return {@code int} platform feature version.
+     */
+    public static int featureVersion()
+    {
+        return 9;
+    }
+
+    /**
+     * Indicate to the processor that the caller is in a spin loop, awaiting an action by another thread.
+     */
+    public static void onSpinWait()
+    {
+        Thread.onSpinWait();
+    }
+
+    /**
+     * Register an action to run once an object becomes phantom reachable. The action must not reference the object,
+     * or it will never become unreachable.
+     *
+     * @param referent the object.
+     * @param action the action, which runs on a background thread.
+     * @return {@link Cleanup} handle through which the action may be run early; it runs at most once.
+     */
+    public static Cleanup registerCleanup(final Object referent, final Runnable action)
+    {
+        return CLEANER.register(referent, action)::clean;
+    }
+
+    /**
+     * {@link Cleanup} is a handle to an action registered via {@link #registerCleanup(Object, Runnable)}.
+     */
+    public interface Cleanup
+    {
+        /**
+         * Run the action now, if it has not already run, and unregister it.
+         */
+        void clean();
+    }
+}
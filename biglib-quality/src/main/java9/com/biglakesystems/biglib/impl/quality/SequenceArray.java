@@ -0,0 +1,80 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * {@link SequenceArray} is an array of {@code long} sequence numbers, as used by lock-free queues to hand slots between
+ * producers and consumers, offering only the acquire and release orderings such hand-offs require. This is the Java 9
+ * implementation, packaged under {@code META-INF/versions/9} of the multi-release library JAR: it accesses a plain
+ * array through a {@link VarHandle}, so that reads need only acquire ordering rather than the full volatile ordering of
+ * the baseline's {@link java.util.concurrent.atomic.AtomicLongArray}.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class SequenceArray
+{
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] m_values;
+
+    /**
+     * Construct a {@link SequenceArray} instance, with each element initialized to its own index.
+     *
+     * @param length the array length.
+     */
+    public SequenceArray(final int length)
+    {
+        super();
+        m_values = new long[length];
+        for (int i = 0; i < length; i += 1)
+        {
+            m_values[i] = i;
+        }
+        /* Publish the initial values to threads which obtain this instance through a data race. */
+        VarHandle.releaseFence();
+    }
+
+    /**
+     * Read an element, with acquire ordering: no later read or write by this thread is performed before it.
+     *
+     * @param index the element index.
+     * @return {@code long} value.
+     */
+    public long getAcquire(final int index)
+    {
+        return (long) VALUES.getAcquire(m_values, index);
+    }
+
+    /**
+     * Get the array length.
+     *
+     * @return {@code int} length.
+     */
+    public int length()
+    {
+        return m_values.length;
+    }
+
+    /**
+     * Write an element, with release ordering: no earlier read or write by this thread is performed after it.
+     *
+     * @param index the element index.
+     * @param value the value.
+     */
+    public void setRelease(final int index, final long value)
+    {
+        VALUES.setRelease(m_values, index, value);
+    }
+}
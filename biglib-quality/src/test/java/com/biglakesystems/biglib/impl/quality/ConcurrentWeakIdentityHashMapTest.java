@@ -0,0 +1,604 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.test.GarbageCollection;
+import com.biglakesystems.biglib.test.StressAssertions;
+import com.biglakesystems.biglib.test.StressDriver;
+import com.biglakesystems.biglib.test.StressOperation;
+import com.biglakesystems.biglib.test.StressResult;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ConcurrentWeakIdentityHashMapTest} provides unit test coverage for {@link ConcurrentWeakIdentityHashMap}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ConcurrentWeakIdentityHashMapTest
+{
+    /**
+     * Construct a {@link ConcurrentWeakIdentityHashMapTest} instance.
+     */
+    public ConcurrentWeakIdentityHashMapTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link ConcurrentMap}.
+     */
+    @Test
+    public void testMap()
+    {
+        /* Test basic mutations. */
+        final String firstA = new String(new char[]{'A'});
+        final String secondA = new String(new char[]{'A'});
+        assertEquals(firstA, secondA);
+        assertFalse(firstA == secondA);
+        final ConcurrentMap<String, String> instance = new ConcurrentWeakIdentityHashMap<String, String>();
+        assertTrue(instance.isEmpty());
+        assertNull(instance.putIfAbsent(firstA, "firstAValue"));
+        assertEquals("firstAValue", instance.putIfAbsent(firstA, "ignoredValue"));
+        assertFalse(instance.isEmpty());
+        instance.put(secondA, "secondAValue");
+        assertTrue(instance.values().containsAll(Arrays.asList("firstAValue", "secondAValue")));
+        assertEquals(2, instance.size());
+        assertEquals("firstAValue", instance.get(firstA));
+        assertEquals("secondAValue", instance.get(secondA));
+        assertTrue(instance.replace(firstA, "firstAValue", "newFirstAValue"));
+        assertFalse(instance.replace(firstA, "firstAValue", "ignoredValue"));
+        assertTrue(instance.values().containsAll(Arrays.asList("newFirstAValue", "secondAValue")));
+        assertEquals(2, instance.size());
+        assertEquals("newFirstAValue", instance.get(firstA));
+        assertTrue(instance.containsValue("secondAValue"));
+        assertFalse(instance.containsKey("A"));
+        assertNull(instance.remove("A"));
+        assertFalse(instance.remove(secondA, "wrongValue"));
+        assertTrue(instance.remove(secondA, "secondAValue"));
+        assertEquals("newFirstAValue", instance.remove(firstA));
+        assertTrue(instance.isEmpty());
+        assertNull(instance.replace(firstA, "ignoredValue"));
+        assertFalse(instance.containsKey(firstA));
+
+        /* Test iteration, including removal and write-through via the entry set. */
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 100; i += 1)
+        {
+            final String key = new String(new char[]{'B'});
+            keys.add(key);
+            instance.put(key, Integer.toString(i));
+        }
+        assertEquals(100, instance.size());
+        int seen = 0;
+        for (final Iterator<Map.Entry<String, String>> iterator = instance.entrySet().iterator(); iterator.hasNext(); )
+        {
+            final Map.Entry<String, String> next = iterator.next();
+            seen += 1;
+            if (0 == seen % 2)
+            {
+                iterator.remove();
+            }
+            else
+            {
+                next.setValue("updated");
+            }
+        }
+        assertEquals(100, seen);
+        assertEquals(50, instance.size());
+        for (final String nextValue : instance.values())
+        {
+            assertEquals("updated", nextValue);
+        }
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        keys.clear();
+
+        /* Try to coerce the GC into collecting a key. We'll continue until we witness correct behavior, or until we run
+        out of memory. Whichever comes first. */
+        boolean verifiedCollectedKey = false;
+        for (int i = 1; true; i += 1)
+        {
+            String anotherA = new String(new char[]{'A'});
+            assertNull(instance.put(anotherA, "anotherAValue"));
+            if (instance.size() < i)
+            {
+                /* At least one garbage collected key has been removed from the map; test passed. */
+                verifiedCollectedKey = true;
+                break;
+            }
+            if (0 == i % 1000)
+            {
+                /* Periodically request a GC run. */
+                System.gc();
+            }
+        }
+        assertTrue(verifiedCollectedKey);
+    }
+
+    /**
+     * Test that {@code null} keys and values are rejected with {@link NullPointerException}, as specified by {@link
+     * ConcurrentMap}.
+     */
+    @Test
+    public void testNullRejected()
+    {
+        final ConcurrentMap<Object, Object> instance = new ConcurrentWeakIdentityHashMap<Object, Object>();
+        final Object key = new Object();
+        try
+        {
+            instance.put(null, "value");
+            fail("Invocation with null key did not throw.");
+        }
+        catch (final NullPointerException e)
+        {
+            /* Expected. */
+        }
+        try
+        {
+            instance.putIfAbsent(key, null);
+            fail("Invocation with null value did not throw.");
+        }
+        catch (final NullPointerException e)
+        {
+            /* Expected. */
+        }
+        try
+        {
+            instance.get(null);
+            fail("Invocation with null key did not throw.");
+        }
+        catch (final NullPointerException e)
+        {
+            /* Expected. */
+        }
+        try
+        {
+            instance.replace(key, "value", null);
+            fail("Invocation with null value did not throw.");
+        }
+        catch (final NullPointerException e)
+        {
+            /* Expected. */
+        }
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test that concurrent {@link ConcurrentMap#putIfAbsent(Object, Object)} invocations from many threads establish
+     * exactly one mapping per key.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testConcurrentPutIfAbsent() throws Exception
+    {
+        final int threadCount = 8;
+        final Object[] keys = new Object[1000];
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            keys[i] = new Object();
+        }
+        final ConcurrentMap<Object, Integer> instance = new ConcurrentWeakIdentityHashMap<Object, Integer>();
+        final AtomicInteger winners = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t += 1)
+        {
+            final int threadId = t;
+            final Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (final Object nextKey : keys)
+                    {
+                        if (null == instance.putIfAbsent(nextKey, threadId))
+                        {
+                            winners.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (final Thread nextThread : threads)
+        {
+            nextThread.join();
+        }
+        assertEquals(keys.length, winners.get());
+        assertEquals(keys.length, instance.size());
+        for (final Object nextKey : keys)
+        {
+            assertNotNull(instance.get(nextKey));
+        }
+    }
+
+    /**
+     * Test that concurrent {@link ConcurrentWeakIdentityHashMap#getOrCompute(Object, MappingFunction)} invocations
+     * from many threads compute exactly one value per key, and that every thread observes the value stored.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testConcurrentGetOrCompute() throws Exception
+    {
+        final int threadCount = 8;
+        final Object[] keys = new Object[1000];
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            keys[i] = new Object();
+        }
+        final ConcurrentWeakIdentityHashMap<Object, Integer> instance =
+                new ConcurrentWeakIdentityHashMap<Object, Integer>();
+        final AtomicInteger computations = new AtomicInteger();
+        final AtomicInteger mismatches = new AtomicInteger();
+        final MappingFunction<Object, Integer> function = new MappingFunction<Object, Integer>()
+        {
+            @Override
+            public Integer apply(final Object key)
+            {
+                return computations.incrementAndGet();
+            }
+        };
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t += 1)
+        {
+            final Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (final Object nextKey : keys)
+                    {
+                        final Integer value = instance.getOrCompute(nextKey, function);
+                        if (!value.equals(instance.get(nextKey)))
+                        {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (final Thread nextThread : threads)
+        {
+            nextThread.join();
+        }
+        assertEquals(keys.length, computations.get());
+        assertEquals(0, mismatches.get());
+        assertEquals(keys.length, instance.size());
+
+        /* A function returning null creates no mapping. */
+        final Object absent = new Object();
+        assertNull(instance.getOrCompute(absent, new MappingFunction<Object, Integer>()
+        {
+            @Override
+            public Integer apply(final Object key)
+            {
+                return null;
+            }
+        }));
+        assertFalse(instance.containsKey(absent));
+    }
+
+    /**
+     * Test the map under sustained key churn and allocation pressure from many threads: every operation sees its own
+     * mappings while dead keys are being expunged, and once the keys are unreachable the map releases every entry and
+     * the heap returns to its baseline.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testGcChurn() throws Exception
+    {
+        final long baseline = GarbageCollection.usedHeap(10L, TimeUnit.SECONDS);
+        final ConcurrentWeakIdentityHashMap<Object, Integer> instance =
+                new ConcurrentWeakIdentityHashMap<Object, Integer>();
+        final StressDriver driver = new StressDriver(8, 256, 0.25, 512, 42L);
+        final StressResult result = driver.run(25000L, new StressOperation()
+        {
+            @Override
+            public void perform(final int thread, final Object key)
+            {
+                instance.put(key, thread);
+                assertEquals(Integer.valueOf(thread), instance.get(key));
+            }
+        });
+        result.assertNoFailures();
+        assertEquals(8L * 25000L, result.getOperationCount());
+        StressAssertions.assertNoLeak("Map after churn", instance, 0);
+        StressAssertions.assertHeapBounded("a drained map", baseline, 16L * 1024L * 1024L);
+    }
+
+    /**
+     * Test that a rehash clears the entries it copies, so that each collected key is enqueued and expunged only once,
+     * even while the replaced table remains reachable, as it does from an iterator created before the rehash.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testRehashEnqueuesEachKeyOnce() throws Exception
+    {
+        final ReferenceDrainer drainer = new ReferenceDrainer("test-drainer", 64);
+        try
+        {
+            final ConcurrentWeakIdentityHashMap<Object, Integer> instance =
+                    new ConcurrentWeakIdentityHashMap<Object, Integer>(2, 0.75f, 1, drainer);
+            List<Object> keys = new ArrayList<Object>();
+            for (int i = 0; i < 1000; i += 1)
+            {
+                final Object key = new Object();
+                keys.add(key);
+                instance.put(key, i);
+            }
+
+            /* An exhausted iterator still holds the table it traversed, and strongly holds the last key returned. */
+            final Iterator<Map.Entry<Object, Integer>> iterator = instance.entrySet().iterator();
+            int iterated = 0;
+            while (iterator.hasNext())
+            {
+                iterator.next();
+                iterated += 1;
+            }
+            assertEquals(1000, iterated);
+
+            /* Force a rehash, with keys which remain reachable. */
+            final List<Object> retained = new ArrayList<Object>();
+            for (int i = 0; i < 600; i += 1)
+            {
+                final Object key = new Object();
+                retained.add(key);
+                instance.put(key, i);
+            }
+            for (int i = 0; i < keys.size(); i += 1)
+            {
+                assertEquals(Integer.valueOf(i), instance.get(keys.get(i)));
+            }
+
+            keys = null;
+            assertTrue(GarbageCollection.awaitCondition(new GarbageCollection.Condition()
+            {
+                @Override
+                public boolean isSatisfied()
+                {
+                    return instance.size() <= retained.size() + 1;
+                }
+            }, 10L, TimeUnit.SECONDS));
+            assertTrue(GarbageCollection.awaitReferenceProcessing(10L, TimeUnit.SECONDS));
+            Thread.sleep(100L);
+            assertEquals(1000L + retained.size() - instance.size(), drainer.getExpungedCount());
+            assertNotNull(iterator);
+        }
+        finally
+        {
+            drainer.shutdown();
+        }
+    }
+
+    /**
+     * Test {@link ConcurrentWeakIdentityHashMap.Expiry#AFTER_WRITE}: entries are absent once expired, whether or not
+     * the timing wheel has yet removed them, and writing an entry restarts its expiry.
+     */
+    @Test
+    public void testExpireAfterWrite()
+    {
+        final TestClock clock = new TestClock();
+        final ConcurrentWeakIdentityHashMap<Object, String> instance =
+                newExpiringMap(ConcurrentWeakIdentityHashMap.Expiry.AFTER_WRITE, clock);
+        final WeakMapStatistics statistics = instance.enableStatistics();
+        final Object first = new Object();
+        final Object second = new Object();
+        assertNull(instance.put(first, "first"));
+        assertNull(instance.put(second, "second"));
+
+        clock.m_now = TimeUnit.SECONDS.toNanos(5L);
+        assertEquals("first", instance.get(first));
+        assertEquals("second", instance.put(second, "second2"));
+
+        /* Reading does not restart expiry. */
+        clock.m_now = TimeUnit.SECONDS.toNanos(10L);
+        assertNull(instance.get(first));
+        assertFalse(instance.containsKey(first));
+        assertFalse(instance.containsValue("first"));
+        assertEquals(Collections.singletonList(second), new ArrayList<Object>(instance.keySet()));
+        assertEquals("second2", instance.get(second));
+
+        /* An expired entry is absent to updates too. */
+        assertNull(instance.putIfAbsent(first, "first2"));
+        assertEquals("first2", instance.get(first));
+        clock.m_now = TimeUnit.SECONDS.toNanos(15L);
+        assertNull(instance.replace(second, "ignored"));
+        assertFalse(instance.replace(second, "second2", "ignored"));
+        assertNull(instance.remove(second));
+        assertEquals(1, instance.size());
+        assertTrue(statistics.getExpiredCount() >= 2L);
+
+        clock.m_now = TimeUnit.SECONDS.toNanos(30L);
+        assertEquals(0, instance.size());
+        assertEquals(3L, statistics.getExpiredCount());
+    }
+
+    /**
+     * Test {@link ConcurrentWeakIdentityHashMap.Expiry#AFTER_ACCESS}: entries which are read remain, while the timing
+     * wheel removes those which are not, without any further access to them.
+     */
+    @Test
+    public void testExpireAfterAccess()
+    {
+        final TestClock clock = new TestClock();
+        final ConcurrentWeakIdentityHashMap<Object, String> instance =
+                newExpiringMap(ConcurrentWeakIdentityHashMap.Expiry.AFTER_ACCESS, clock);
+        final WeakMapStatistics statistics = instance.enableStatistics();
+        final Object read = new Object();
+        final Object unread = new Object();
+        instance.put(read, "read");
+        instance.put(unread, "unread");
+        for (long second = 4L; second <= 40L; second += 4L)
+        {
+            clock.m_now = TimeUnit.SECONDS.toNanos(second);
+            assertEquals("read", instance.get(read));
+            if (second >= 12L)
+            {
+                /* The unread entry is removed by the wheel, via the purge performed by size(). */
+                assertEquals(1, instance.size());
+                assertEquals(1L, statistics.getExpiredCount());
+            }
+        }
+        assertEquals("read", instance.putIfAbsent(read, "ignored"));
+        clock.m_now += TimeUnit.SECONDS.toNanos(9L);
+        assertEquals("read", instance.get(read));
+        clock.m_now += TimeUnit.SECONDS.toNanos(11L);
+        assertEquals(0, instance.size());
+        assertEquals(2L, statistics.getExpiredCount());
+    }
+
+    /**
+     * Test that the timing wheel removes every expired entry after rehashes have replaced the scheduled entries, and
+     * after the map has been idle for many revolutions of the wheel.
+     */
+    @Test
+    public void testExpiryAcrossRehashAndIdle()
+    {
+        final TestClock clock = new TestClock();
+        final ConcurrentWeakIdentityHashMap<Object, Integer> instance =
+                newExpiringMap(ConcurrentWeakIdentityHashMap.Expiry.AFTER_WRITE, clock);
+        final WeakMapStatistics statistics = instance.enableStatistics();
+        final List<Object> keys = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i += 1)
+        {
+            final Object key = new Object();
+            keys.add(key);
+            clock.m_now = TimeUnit.MILLISECONDS.toNanos(i);
+            instance.put(key, i);
+        }
+        assertEquals(1000, instance.size());
+        clock.m_now = TimeUnit.HOURS.toNanos(1L);
+        assertEquals(0, instance.size());
+        assertEquals(1000L, statistics.getExpiredCount());
+        for (final Object nextKey : keys)
+        {
+            assertNull(instance.get(nextKey));
+        }
+    }
+
+    /**
+     * Test expiry on the system clock under sustained key churn from many threads: every operation sees its own
+     * mappings while entries expire around it, and once updates stop, purges driven by {@link Map#size()} remove every
+     * expired entry even though its key is still reachable.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testExpiryUnderChurn() throws Exception
+    {
+        final ConcurrentWeakIdentityHashMap<Object, Integer> instance = new ConcurrentWeakIdentityHashMap<Object,
+                Integer>(null, ConcurrentWeakIdentityHashMap.Expiry.AFTER_ACCESS, 2L, TimeUnit.SECONDS);
+        final WeakMapStatistics statistics = instance.enableStatistics();
+        final StressDriver driver = new StressDriver(8, 256, 0.25, 512, 42L);
+        final StressResult result = driver.runFor(4L, TimeUnit.SECONDS, new StressOperation()
+        {
+            @Override
+            public void perform(final int thread, final Object key)
+            {
+                instance.put(key, thread);
+                assertEquals(Integer.valueOf(thread), instance.get(key));
+            }
+        });
+        result.assertNoFailures();
+
+        final List<Object> keys = new ArrayList<Object>();
+        for (int i = 0; i < 100; i += 1)
+        {
+            keys.add(new Object());
+            instance.put(keys.get(i), i);
+        }
+        StressAssertions.assertEventually("Expired entries removed", new GarbageCollection.Condition()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                return instance.isEmpty();
+            }
+        });
+        assertTrue(statistics.getExpiredCount() >= keys.size());
+        assertNull(instance.get(keys.get(0)));
+    }
+
+    /**
+     * Create a single-segment map whose entries expire ten seconds after the given event.
+     *
+     * @param expiry the event after which entries expire.
+     * @param clock the clock by which entries expire.
+     * @param <K> the map key type.
+     * @param <V> the map value type.
+     * @return {@link ConcurrentWeakIdentityHashMap} map.
+     */
+    private static <K, V> ConcurrentWeakIdentityHashMap<K, V> newExpiringMap(
+            final ConcurrentWeakIdentityHashMap.Expiry expiry, final Clock clock)
+    {
+        return new ConcurrentWeakIdentityHashMap<K, V>(16, 0.75f, 1, null, expiry, 10L, TimeUnit.SECONDS, clock);
+    }
+
+    /**
+     * {@link TestClock} is a {@link Clock} which is advanced explicitly.
+     */
+    private static class TestClock implements Clock
+    {
+        private long m_now;
+
+        /**
+         * Construct a {@link TestClock} instance.
+         */
+        public TestClock()
+        {
+            super();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long nanoTime()
+        {
+            return m_now;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CounterExceptionIdGeneratorTest} provides unit test coverage for {@link CounterExceptionIdGenerator}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class CounterExceptionIdGeneratorTest
+{
+    /**
+     * Construct a {@link CounterExceptionIdGeneratorTest} instance.
+     */
+    public CounterExceptionIdGeneratorTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link CounterExceptionIdGenerator#newId(Throwable)}.
+     */
+    @Test
+    public void testNewId()
+    {
+        /* Node identifier 0x21 encodes as eight characters ending "11"; the counter follows in as few as possible. */
+        final CounterExceptionIdGenerator instance = new CounterExceptionIdGenerator(0x21L);
+        final Exception exception = new Exception();
+        assertEquals("000000110", instance.newId(exception));
+        assertEquals("000000111", instance.newId(exception));
+        final Set<String> seen = new HashSet<String>();
+        for (int i = 2; i < 100000; i += 1)
+        {
+            final String next = instance.newId(exception);
+            assertTrue(next.startsWith("00000011"));
+            assertTrue(next.matches("[0-9A-HJKMNP-TV-Z]+"));
+            assertTrue(seen.add(next));
+        }
+
+        /* Only the low-order 40 bits of the node identifier are used. */
+        assertEquals("000000110", new CounterExceptionIdGenerator(0x10000000021L).newId(exception));
+    }
+}
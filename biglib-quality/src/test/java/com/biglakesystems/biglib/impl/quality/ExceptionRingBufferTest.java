@@ -0,0 +1,159 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.quality.CapturedException;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionRingBufferTest} provides unit test coverage for {@link ExceptionRingBuffer}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionRingBufferTest
+{
+    /**
+     * Construct a {@link ExceptionRingBufferTest} instance.
+     */
+    public ExceptionRingBufferTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that snapshots are dequeued in order, and that a full buffer rejects further snapshots.
+     */
+    @Test
+    public void testOfferAndPoll()
+    {
+        final ExceptionRingBuffer instance = new ExceptionRingBuffer(3);
+        assertEquals(4, instance.capacity());
+        assertNull(instance.poll());
+        final IllegalStateException exception = new IllegalStateException("Message.");
+        for (int i = 0; i < 4; i += 1)
+        {
+            assertTrue(instance.offer("id" + i, exception, 1000L + i, "thread"));
+        }
+        assertFalse(instance.offer("id4", exception, 0L, "thread"));
+        assertEquals(4, instance.size());
+        final CapturedException first = instance.poll();
+        assertEquals("id0", first.getId());
+        assertEquals(IllegalStateException.class.getName(), first.getClassName());
+        assertEquals("Message.", first.getMessage());
+        assertArrayEquals(exception.getStackTrace(), first.getStackTrace());
+        assertEquals(1000L, first.getTimestamp());
+        assertEquals("thread", first.getThreadName());
+
+        /* The freed slot is reused on the next lap. */
+        assertTrue(instance.offer("id4", exception, 0L, "thread"));
+        for (int i = 1; i <= 4; i += 1)
+        {
+            assertEquals("id" + i, instance.poll().getId());
+        }
+        assertNull(instance.poll());
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test that concurrent producers and consumers deliver every accepted snapshot exactly once.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testConcurrentProducersAndConsumers() throws Exception
+    {
+        final int producerCount = 4;
+        final int perProducer = 20000;
+        final ExceptionRingBuffer instance = new ExceptionRingBuffer(64);
+        final ConcurrentHashMap<String, Boolean> received = new ConcurrentHashMap<String, Boolean>();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger producersRunning = new AtomicInteger(producerCount);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[producerCount + 2];
+        final RuntimeException exception = new RuntimeException();
+        for (int t = 0; t < producerCount; t += 1)
+        {
+            final int producer = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    awaitQuietly(start);
+                    for (int i = 0; i < perProducer; i += 1)
+                    {
+                        while (!instance.offer(producer + ":" + i, exception, 0L, "producer"))
+                        {
+                            Thread.yield();
+                        }
+                    }
+                    producersRunning.decrementAndGet();
+                }
+            };
+        }
+        for (int t = producerCount; t < threads.length; t += 1)
+        {
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    awaitQuietly(start);
+                    while (producersRunning.get() > 0 || instance.size() > 0)
+                    {
+                        final CapturedException next = instance.poll();
+                        if (null == next)
+                        {
+                            Thread.yield();
+                        }
+                        else if (null != received.put(next.getId(), Boolean.TRUE))
+                        {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+            };
+        }
+        for (final Thread nextThread : threads)
+        {
+            nextThread.start();
+        }
+        start.countDown();
+        for (final Thread nextThread : threads)
+        {
+            nextThread.join();
+        }
+        assertEquals(0, duplicates.get());
+        assertEquals(producerCount * perProducer, received.size());
+    }
+
+    /**
+     * Wait for a latch, ignoring interruption.
+     *
+     * @param latch the latch.
+     */
+    private static void awaitQuietly(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
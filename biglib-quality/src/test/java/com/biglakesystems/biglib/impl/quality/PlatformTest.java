@@ -0,0 +1,141 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PlatformTest} provides unit test coverage for {@link Platform} and {@link SequenceArray}. Run against the
+ * multi-release JAR on Java 9 or later, it covers the Java 9 implementations instead.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class PlatformTest
+{
+    /**
+     * Construct a {@link PlatformTest} instance.
+     */
+    public PlatformTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that {@link Platform#captureStackTrace(int, int)} captures the caller's stack, honoring the number of frames
+     * to skip and the maximum.
+     */
+    @Test
+    public void testCaptureStackTrace()
+    {
+        final StackTraceElement[] expected = new Throwable().getStackTrace();
+        final StackTraceElement[] actual = Platform.captureStackTrace(0, Integer.MAX_VALUE);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i += 1)
+        {
+            /* Compare frame by frame; equality of elements includes module details on some platforms. */
+            assertEquals(expected[i].getClassName(), actual[i].getClassName());
+            assertEquals(expected[i].getMethodName(), actual[i].getMethodName());
+        }
+        assertEquals("testCaptureStackTrace", actual[0].getMethodName());
+
+        final StackTraceElement[] skipped = captureFromHelper();
+        assertEquals(2, skipped.length);
+        assertEquals("testCaptureStackTrace", skipped[0].getMethodName());
+        assertEquals(expected[1].getMethodName(), skipped[1].getMethodName());
+        assertEquals(0, Platform.captureStackTrace(0, 0).length);
+        assertEquals(0, Platform.captureStackTrace(Integer.MAX_VALUE - 1, 1).length);
+    }
+
+    /**
+     * Test that an action registered via {@link Platform#registerCleanup(Object, Runnable)} runs once when cleaned
+     * explicitly, and runs once its referent has been collected otherwise.
+     */
+    @Test
+    public void testRegisterCleanup() throws Exception
+    {
+        final AtomicInteger explicitRuns = new AtomicInteger(0);
+        final Object referent = new Object();
+        final Platform.Cleanup cleanup = Platform.registerCleanup(referent, new CountingAction(explicitRuns));
+        cleanup.clean();
+        cleanup.clean();
+        assertEquals(1, explicitRuns.get());
+
+        final AtomicInteger collectedRuns = new AtomicInteger(0);
+        Platform.registerCleanup(new Object(), new CountingAction(collectedRuns));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (0 == collectedRuns.get() && System.nanoTime() < deadline)
+        {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(1, collectedRuns.get());
+        assertNotNull(referent);
+    }
+
+    /**
+     * Test {@link SequenceArray} initialization, reads and writes.
+     */
+    @Test
+    public void testSequenceArray()
+    {
+        final SequenceArray instance = new SequenceArray(4);
+        assertEquals(4, instance.length());
+        for (int i = 0; i < instance.length(); i += 1)
+        {
+            assertEquals(i, instance.getAcquire(i));
+        }
+        instance.setRelease(2, 42L);
+        assertEquals(42L, instance.getAcquire(2));
+        assertTrue(6 == Platform.featureVersion() || 9 == Platform.featureVersion());
+    }
+
+    /**
+     * Capture the stack from a helper frame, skipping the helper.
+     *
+     * @return {@link StackTraceElement} array of two frames.
+     */
+    private static StackTraceElement[] captureFromHelper()
+    {
+        return Platform.captureStackTrace(1, 2);
+    }
+
+    /**
+     * {@link CountingAction} counts its runs.
+     */
+    private static final class CountingAction implements Runnable
+    {
+        private final AtomicInteger m_runs;
+
+        /**
+         * Construct a {@link CountingAction} instance.
+         *
+         * @param runs the run count.
+         */
+        public CountingAction(final AtomicInteger runs)
+        {
+            super();
+            m_runs = runs;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            m_runs.incrementAndGet();
+        }
+    }
+}
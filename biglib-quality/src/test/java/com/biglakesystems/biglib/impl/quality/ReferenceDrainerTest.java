@@ -0,0 +1,67 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReferenceDrainerTest} provides unit test coverage for {@link ReferenceDrainer}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ReferenceDrainerTest
+{
+    /**
+     * Construct a {@link ReferenceDrainerTest} instance.
+     */
+    public ReferenceDrainerTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that a {@link ConcurrentWeakIdentityHashMap} constructed with a {@link ReferenceDrainer} is purged of
+     * collected entries without any further operations being performed against it.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testBackgroundPurge() throws Exception
+    {
+        final ReferenceDrainer instance = new ReferenceDrainer("test-reference-drainer", 16);
+        try
+        {
+            final Map<Object, String> map = new ConcurrentWeakIdentityHashMap<Object, String>(instance);
+            for (int i = 0; i < 1000; i += 1)
+            {
+                map.put(new Object(), "value");
+            }
+            assertEquals(1000, map.size());
+
+            /* In background mode size() does not purge, so the count can only fall if the drainer is working. */
+            final long deadline = System.currentTimeMillis() + 30000L;
+            while (map.size() > 0 && System.currentTimeMillis() < deadline)
+            {
+                System.gc();
+                Thread.sleep(10L);
+            }
+            assertEquals(0, map.size());
+            assertEquals(1000L, instance.getExpungedCount());
+        }
+        finally
+        {
+            instance.shutdown();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import com.biglakesystems.biglib.test.GarbageCollection;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReferenceMapTest} provides unit test coverage for {@link ReferenceMap}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ReferenceMapTest
+{
+    /**
+     * Construct a {@link ReferenceMapTest} instance.
+     */
+    public ReferenceMapTest()
+    {
+        super();
+    }
+
+    /**
+     * Test a map with strong keys compared by equality against {@link HashMap}, over a random sequence of operations
+     * including removal through the views.
+     */
+    @Test
+    public void testStrongEqualsAgainstHashMap()
+    {
+        final Map<String, Integer> map = ReferenceMap.<String, Integer>builder().keyStrength(ReferenceStrength.STRONG)
+                .equivalence(Equivalence.EQUALS).initialCapacity(4).build();
+        final Map<String, Integer> expected = new HashMap<String, Integer>();
+        final Random random = new Random(1L);
+        for (int i = 0; i < 20000; i += 1)
+        {
+            /* Construct a new but equal key each time. */
+            final String key = "key" + random.nextInt(300);
+            switch (random.nextInt(4))
+            {
+                case 0:
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 2:
+                    assertEquals(expected.keySet().remove(key), map.keySet().remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+
+        /* Removing every other entry through the iterator leaves the rest intact. */
+        boolean remove = false;
+        for (final Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator(); iterator.hasNext(); )
+        {
+            final Map.Entry<String, Integer> next = iterator.next();
+            if (remove)
+            {
+                iterator.remove();
+                expected.remove(next.getKey());
+            }
+            remove = !remove;
+        }
+        assertEquals(expected, map);
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Test that {@link Iterator#remove()} deletes entries immediately, so that {@link Map#size()} reflects every
+     * removal, and that the backward shifting of colliding entries into removed slots never causes the iteration to
+     * skip or repeat an element.
+     */
+    @Test
+    public void testIteratorRemove()
+    {
+        final Random random = new Random(7L);
+        for (int round = 0; round < 50; round += 1)
+        {
+            final Map<CollidingKey, Integer> map = ReferenceMap.<CollidingKey, Integer>builder()
+                    .keyStrength(ReferenceStrength.STRONG).equivalence(Equivalence.EQUALS).loadFactor(0.9f).build();
+            final Map<CollidingKey, Integer> expected = new HashMap<CollidingKey, Integer>();
+            final int count = 1 + random.nextInt(300);
+            for (int i = 0; i < count; i += 1)
+            {
+                map.put(new CollidingKey(i, 1 + round % 8), i);
+                expected.put(new CollidingKey(i, 1 + round % 8), i);
+            }
+            final Set<CollidingKey> seen = new HashSet<CollidingKey>();
+            for (final Iterator<Map.Entry<CollidingKey, Integer>> iterator = map.entrySet().iterator();
+                 iterator.hasNext(); )
+            {
+                final Map.Entry<CollidingKey, Integer> next = iterator.next();
+                assertTrue(seen.add(next.getKey()));
+                if (random.nextInt(3) != 0)
+                {
+                    iterator.remove();
+                    expected.remove(next.getKey());
+                    assertEquals(expected.size(), map.size());
+                }
+            }
+            assertEquals(count, seen.size());
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected, map);
+        }
+    }
+
+    /**
+     * Test that lookups interleaved with iteration, after keys have been collected, do not cause the iteration to skip
+     * live keys. Every key shares one hash code, so that the collected keys, inserted first, precede the live keys in a
+     * single probe cluster; purging them during the iteration would shift the live keys back into slots the iteration
+     * had already passed.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testLookupsDuringIterationAfterCollection() throws Exception
+    {
+        final Map<CollidingKey, Integer> map = ReferenceMap.<CollidingKey, Integer>builder()
+                .equivalence(Equivalence.EQUALS).build();
+        final List<WeakReference<CollidingKey>> collected = new ArrayList<WeakReference<CollidingKey>>();
+        for (int i = 0; i < 100; i += 1)
+        {
+            final CollidingKey key = new CollidingKey(i, 1);
+            collected.add(new WeakReference<CollidingKey>(key));
+            map.put(key, i);
+        }
+        final List<CollidingKey> retained = new ArrayList<CollidingKey>();
+        for (int i = 100; i < 110; i += 1)
+        {
+            final CollidingKey key = new CollidingKey(i, 1);
+            retained.add(key);
+            map.put(key, i);
+        }
+
+        /* Wait for the keys to be cleared without touching the map, so that none of its operations purge meanwhile. */
+        assertTrue(GarbageCollection.awaitCondition(new GarbageCollection.Condition()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                boolean result = true;
+                for (final WeakReference<CollidingKey> nextReference : collected)
+                {
+                    result &= null == nextReference.get();
+                }
+                return result;
+            }
+        }, 30L, TimeUnit.SECONDS));
+        assertTrue(GarbageCollection.awaitReferenceProcessing(30L, TimeUnit.SECONDS));
+        final Set<CollidingKey> seen = new HashSet<CollidingKey>();
+        for (final CollidingKey nextKey : map.keySet())
+        {
+            assertTrue(seen.add(nextKey));
+            assertEquals(Integer.valueOf(100), map.get(retained.get(0)));
+        }
+        assertEquals(new HashSet<CollidingKey>(retained), seen);
+        assertEquals(retained.size(), map.size());
+    }
+
+    /**
+     * Test that the view iterators are fail-fast: structural modification of the map other than through the iterator
+     * causes {@link ConcurrentModificationException}, while lookups and value replacements do not.
+     */
+    @Test
+    public void testIteratorFailFast()
+    {
+        final Map<String, Integer> map = ReferenceMap.<String, Integer>builder().keyStrength(ReferenceStrength.STRONG)
+                .equivalence(Equivalence.EQUALS).build();
+        for (int i = 0; i < 10; i += 1)
+        {
+            map.put("key" + i, i);
+        }
+        final Iterator<String> iterator = map.keySet().iterator();
+        final String first = iterator.next();
+        assertNotNull(map.get(first));
+        map.put(first, -1);
+        iterator.next();
+        map.remove(first);
+        try
+        {
+            iterator.next();
+            fail("Iteration after structural modification did not throw.");
+        }
+        catch (final ConcurrentModificationException e)
+        {
+            /* Expected. */
+        }
+        try
+        {
+            iterator.remove();
+            fail("Removal after structural modification did not throw.");
+        }
+        catch (final ConcurrentModificationException e)
+        {
+            /* Expected. */
+        }
+        assertEquals(9, map.size());
+    }
+
+    /**
+     * Test that entries of a map with weak values disappear once their values are collected, while keys remain
+     * strongly held.
+     */
+    @Test
+    public void testWeakValues() throws Exception
+    {
+        final ReferenceMap<String, Object> map = ReferenceMap.<String, Object>builder()
+                .keyStrength(ReferenceStrength.STRONG).valueStrength(ReferenceStrength.WEAK)
+                .equivalence(Equivalence.EQUALS).build();
+        final Object retained = new Object();
+        map.put("retained", retained);
+        map.put("null", null);
+        for (int i = 0; i < 1000; i += 1)
+        {
+            map.put("key" + i, new Object());
+        }
+        final long deadline = System.currentTimeMillis() + 30000L;
+        while (map.size() > 2 && System.currentTimeMillis() < deadline)
+        {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(2, map.size());
+        assertSame(retained, map.get("retained"));
+        assertTrue(map.containsKey("null"));
+        assertNull(map.get("key0"));
+        assertFalse(map.containsKey("key0"));
+
+        /* Replacing a value releases the old one. */
+        final Object replacement = new Object();
+        assertSame(retained, map.put("retained", replacement));
+        assertSame(replacement, map.get("retained"));
+        assertEquals(new HashSet<String>(Arrays.asList("retained", "null")), map.keySet());
+    }
+
+    /**
+     * Test that {@link ReferenceMap#builder()} defaults to weak identity keys with strong values, and that soft keys
+     * behave as an ordinary identity map while memory is plentiful.
+     */
+    @Test
+    public void testKeyStrengths()
+    {
+        final ReferenceMap<String, String> weak = ReferenceMap.<String, String>builder().build();
+        final ReferenceMap<String, String> soft = ReferenceMap.<String, String>builder()
+                .keyStrength(ReferenceStrength.SOFT).build();
+        final List<Map<String, String>> maps = new ArrayList<Map<String, String>>();
+        maps.add(weak);
+        maps.add(soft);
+        for (final Map<String, String> nextMap : maps)
+        {
+            final String key1 = new String("key");
+            final String key2 = new String("key");
+            nextMap.put(key1, "value1");
+            nextMap.put(key2, "value2");
+            assertEquals(2, nextMap.size());
+            assertEquals("value1", nextMap.get(key1));
+            assertEquals("value2", nextMap.get(key2));
+            assertNull(nextMap.get("key"));
+            assertTrue(nextMap.containsValue("value2"));
+        }
+    }
+
+    /**
+     * {@link CollidingKey} is a key whose hash code is shared by many other keys, so that entries form long probe
+     * clusters.
+     */
+    private static final class CollidingKey
+    {
+        private final int m_value;
+        private final int m_hashes;
+
+        /**
+         * Construct a {@link CollidingKey} instance.
+         *
+         * @param value the key value.
+         * @param hashes the number of distinct hash codes among all keys.
+         */
+        public CollidingKey(final int value, final int hashes)
+        {
+            super();
+            m_value = value;
+            m_hashes = hashes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object other)
+        {
+            return other instanceof CollidingKey && m_value == ((CollidingKey) other).m_value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            return m_value % m_hashes;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link Sha1ExceptionIdGeneratorTest} provides unit test coverage for {@link Sha1ExceptionIdGenerator}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class Sha1ExceptionIdGeneratorTest
+{
+    /**
+     * Construct a {@link Sha1ExceptionIdGeneratorTest} instance.
+     */
+    public Sha1ExceptionIdGeneratorTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link Sha1ExceptionIdGenerator#newId(Throwable)}.
+     */
+    @Test
+    public void testNewId()
+    {
+        final Sha1ExceptionIdGenerator instance = new Sha1ExceptionIdGenerator();
+        final Exception exception = new Exception();
+        final String first = instance.newId(exception);
+        assertTrue(first.matches("[0-9a-f]{40}"));
+        assertFalse(first.equals(instance.newId(exception)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StripedCounterTest} provides unit test coverage for {@link StripedCounter}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class StripedCounterTest
+{
+    /**
+     * Construct a {@link StripedCounterTest} instance.
+     */
+    public StripedCounterTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that concurrent updates to a {@link StripedCounter} are never lost.
+     */
+    @Test
+    public void testConcurrentUpdates() throws Exception
+    {
+        final StripedCounter instance = new StripedCounter();
+        final int threadCount = 8;
+        final int updateCount = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i += 1)
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                    for (int j = 0; j < updateCount; j += 1)
+                    {
+                        instance.increment();
+                    }
+                    instance.add(-1L);
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (final Thread nextThread : threads)
+        {
+            nextThread.join();
+        }
+        assertEquals((long) threadCount * (updateCount - 1), instance.sum());
+        instance.reset();
+        assertEquals(0L, instance.sum());
+    }
+}
@@ -0,0 +1,66 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TimeOrderedExceptionIdGeneratorTest} provides unit test coverage for {@link
+ * TimeOrderedExceptionIdGenerator}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class TimeOrderedExceptionIdGeneratorTest
+{
+    /**
+     * Construct a {@link TimeOrderedExceptionIdGeneratorTest} instance.
+     */
+    public TimeOrderedExceptionIdGeneratorTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link TimeOrderedExceptionIdGenerator#newId(Throwable)}.
+     */
+    @Test
+    public void testNewId()
+    {
+        final long[] now = {1403964855000L};
+        final TimeOrderedExceptionIdGenerator instance = new TimeOrderedExceptionIdGenerator()
+        {
+            @Override
+            protected long currentTimeMillis()
+            {
+                return now[0];
+            }
+        };
+        final Exception exception = new Exception();
+        final String first = instance.newId(exception);
+        assertEquals(26, first.length());
+        assertTrue(first.matches("[0-7][0-9A-HJKMNP-TV-Z]{25}"));
+
+        /* The first ten characters encode the timestamp, as in a ULID. */
+        assertEquals("018VHD74PR", first.substring(0, 10));
+
+        /* Identifiers from later milliseconds sort after earlier ones. */
+        String previous = first;
+        for (int i = 0; i < 1000; i += 1)
+        {
+            now[0] += 1L;
+            final String next = instance.newId(exception);
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+        assertFalse(instance.newId(exception).equals(instance.newId(exception)));
+    }
+}
@@ -0,0 +1,186 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WeakIdentityCacheTest} provides unit test coverage for {@link WeakIdentityCache}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class WeakIdentityCacheTest
+{
+    /**
+     * Construct a {@link WeakIdentityCacheTest} instance.
+     */
+    public WeakIdentityCacheTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that the cache stays within its maximum size, that CLOCK eviction spares recently used entries, and that
+     * statistics are maintained.
+     */
+    @Test
+    public void testEviction() throws Exception
+    {
+        final WeakIdentityCache<Object, String> cache = new WeakIdentityCache<Object, String>(3L);
+        final Object[] keys = {new Object(), new Object(), new Object(), new Object()};
+        cache.put(keys[0], "0");
+        cache.put(keys[1], "1");
+        cache.put(keys[2], "2");
+        assertEquals(3, cache.size());
+        assertEquals("0", cache.get(keys[0]));
+        assertEquals("2", cache.get(keys[2]));
+
+        /* Adding a fourth entry evicts the only one which has not been used since it was added. */
+        cache.put(keys[3], "3");
+        assertEquals(3, cache.size());
+        assertEquals(3L, cache.getWeight());
+        assertEquals(1L, cache.getEvictionCount());
+        assertNull(cache.get(keys[1]));
+        assertEquals("0", cache.get(keys[0]));
+        assertEquals("3", cache.get(keys[3]));
+        assertEquals(4L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+        assertEquals(0.8, cache.getHitRate(), 0.0001);
+
+        assertEquals("3", cache.remove(keys[3]));
+        assertNull(cache.remove(keys[3]));
+        assertEquals(2, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getWeight());
+        assertNull(cache.get(keys[0]));
+    }
+
+    /**
+     * Test that entries are bounded by total weight when a weigher is provided.
+     */
+    @Test
+    public void testWeigher()
+    {
+        final WeakIdentityCache<Object, String> cache = new WeakIdentityCache<Object, String>(10L,
+                new WeakIdentityCache.Weigher<Object, String>()
+                {
+                    @Override
+                    public int weigh(final Object key, final String value)
+                    {
+                        return value.length();
+                    }
+                });
+        final Object key1 = new Object();
+        final Object key2 = new Object();
+        cache.put(key1, "123456");
+        cache.put(key2, "1234");
+        assertEquals(10L, cache.getWeight());
+        cache.put(key1, "12345678");
+        assertEquals(1, cache.size());
+        assertEquals(8L, cache.getWeight());
+        assertEquals("12345678", cache.get(key1));
+        assertNull(cache.get(key2));
+    }
+
+    /**
+     * Test that concurrent misses for the same key compute the value once, and that a failed computation leaves no
+     * entry.
+     */
+    @Test
+    public void testGetOrCompute() throws Exception
+    {
+        final WeakIdentityCache<Object, String> cache = new WeakIdentityCache<Object, String>(100L);
+        final Object key = new Object();
+        final AtomicInteger computations = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final MappingFunction<Object, String> slow = new MappingFunction<Object, String>()
+        {
+            @Override
+            public String apply(final Object ignored)
+            {
+                computations.incrementAndGet();
+                started.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return "value";
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i += 1)
+            {
+                futures[i] = executor.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        assertEquals("value", cache.getOrCompute(key, slow));
+                    }
+                });
+            }
+            assertTrue(started.await(10L, TimeUnit.SECONDS));
+            Thread.sleep(50L);
+            release.countDown();
+            for (final Future<?> future : futures)
+            {
+                future.get(10L, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(1, computations.get());
+        assertEquals(1L, cache.getMissCount());
+        assertEquals(3L, cache.getHitCount());
+
+        /* A failing function creates no entry, and a later call computes again. */
+        final Object other = new Object();
+        try
+        {
+            cache.getOrCompute(other, new MappingFunction<Object, String>()
+            {
+                @Override
+                public String apply(final Object ignored)
+                {
+                    throw new UnsupportedOperationException();
+                }
+            });
+            fail("Expected exception.");
+        }
+        catch (final UnsupportedOperationException e)
+        {
+            /* Expected. */
+        }
+        assertEquals(1L, cache.getLoadFailureCount());
+        assertNull(cache.get(other));
+        assertEquals("value", cache.getOrCompute(other, slow));
+        assertEquals(2, cache.size());
+    }
+}
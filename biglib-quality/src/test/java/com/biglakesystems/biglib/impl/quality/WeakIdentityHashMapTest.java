@@ -1,9 +1,13 @@
 package com.biglakesystems.biglib.impl.quality;
 
+import com.biglakesystems.biglib.test.AllocationMeter;
+import com.biglakesystems.biglib.test.GarbageCollection;
+import org.junit.Assume;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.Map;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -85,4 +89,183 @@ public class WeakIdentityHashMapTest
         }
         assertTrue(verifiedCollectedKey);
     }
+
+    /**
+     * Test that once more keys have been collected than a single capped purge processes, {@link Map#size()} still
+     * counts only the live keys, in agreement with {@link Map#isEmpty()}.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testSizeAfterLargeCollection() throws Exception
+    {
+        final Map<Object, String> instance = new WeakIdentityHashMap<Object, String>();
+        final Object retained = new Object();
+        instance.put(retained, "retained");
+        final List<WeakReference<Object>> collected = new ArrayList<WeakReference<Object>>();
+        for (int i = 0; i < 1000; i += 1)
+        {
+            final Object key = new Object();
+            collected.add(new WeakReference<Object>(key));
+            instance.put(key, "collected");
+        }
+
+        /* Wait for the keys to be cleared without touching the map, so that none of its operations purge meanwhile. */
+        assertTrue(GarbageCollection.awaitCondition(new GarbageCollection.Condition()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                boolean result = true;
+                for (final WeakReference<Object> nextReference : collected)
+                {
+                    result &= null == nextReference.get();
+                }
+                return result;
+            }
+        }, 30L, TimeUnit.SECONDS));
+        assertTrue(GarbageCollection.awaitReferenceProcessing(30L, TimeUnit.SECONDS));
+        assertEquals(1, instance.size());
+        assertFalse(instance.isEmpty());
+        assertEquals("retained", instance.get(retained));
+        instance.remove(retained);
+        assertEquals(0, instance.size());
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test the open-addressing table under a randomized sequence of insertions, replacements and removals, comparing
+     * every result against an {@link IdentityHashMap}.
+     */
+    @Test
+    public void testAgainstIdentityHashMap()
+    {
+        final Random random = new Random(42L);
+        final Object[] keys = new Object[500];
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            keys[i] = new Object();
+        }
+        final Map<Object, Integer> expected = new IdentityHashMap<Object, Integer>();
+        final Map<Object, Integer> instance = new WeakIdentityHashMap<Object, Integer>(2);
+        for (int i = 0; i < 20000; i += 1)
+        {
+            final Object key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), instance.remove(key));
+            }
+            else
+            {
+                assertEquals(expected.put(key, i), instance.put(key, i));
+            }
+            assertEquals(expected.size(), instance.size());
+        }
+        for (final Object nextKey : keys)
+        {
+            assertEquals(expected.get(nextKey), instance.get(nextKey));
+            assertEquals(expected.containsKey(nextKey), instance.containsKey(nextKey));
+        }
+    }
+
+    /**
+     * Test the live {@link Map#keySet()}, {@link Map#values()} and {@link Map#entrySet()} views.
+     */
+    @Test
+    public void testViews()
+    {
+        final Map<String, Integer> instance = new WeakIdentityHashMap<String, Integer>();
+        final Set<String> keySet = instance.keySet();
+        final Collection<Integer> values = instance.values();
+        final Set<Map.Entry<String, Integer>> entrySet = instance.entrySet();
+        assertTrue(keySet.isEmpty());
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 100; i += 1)
+        {
+            final String key = new String(new char[]{'A'});
+            keys.add(key);
+            instance.put(key, i);
+        }
+
+        /* Views reflect changes made through the map after their creation. */
+        assertEquals(100, keySet.size());
+        assertEquals(100, values.size());
+        assertEquals(100, entrySet.size());
+        assertTrue(keySet.contains(keys.get(7)));
+        assertFalse(keySet.contains("A"));
+        assertTrue(values.contains(7));
+
+        /* Update every even entry in place, and remove every odd entry, via the entry set iterator. */
+        int seen = 0;
+        for (final Iterator<Map.Entry<String, Integer>> iterator = entrySet.iterator(); iterator.hasNext(); )
+        {
+            final Map.Entry<String, Integer> next = iterator.next();
+            seen += 1;
+            if (0 == next.getValue() % 2)
+            {
+                assertEquals(next.getValue(), next.setValue(-next.getValue()));
+            }
+            else
+            {
+                iterator.remove();
+            }
+        }
+        assertEquals(100, seen);
+        assertEquals(50, instance.size());
+        for (int i = 0; i < keys.size(); i += 1)
+        {
+            assertEquals(0 == i % 2 ? Integer.valueOf(-i) : null, instance.get(keys.get(i)));
+        }
+
+        /* Removal via the other views writes through to the map. */
+        assertTrue(keySet.remove(keys.get(0)));
+        assertFalse(keySet.remove(keys.get(1)));
+        assertFalse(instance.containsKey(keys.get(0)));
+        for (final Iterator<Integer> iterator = values.iterator(); iterator.hasNext(); )
+        {
+            if (-2 == iterator.next())
+            {
+                iterator.remove();
+            }
+        }
+        assertFalse(instance.containsKey(keys.get(2)));
+        assertEquals(48, instance.size());
+        assertTrue(entrySet.contains(new AbstractMap.SimpleEntry<String, Integer>(keys.get(4), -4)));
+        assertFalse(entrySet.contains(new AbstractMap.SimpleEntry<String, Integer>(keys.get(4), 4)));
+        keySet.clear();
+        assertTrue(instance.isEmpty());
+        assertFalse(entrySet.iterator().hasNext());
+    }
+
+    /**
+     * Test that lookups, hits and misses alike, are allocation-free.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testGetAllocationFree() throws Exception
+    {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+        final WeakIdentityHashMap<Object, String> instance = new WeakIdentityHashMap<Object, String>();
+        final Object[] keys = new Object[64];
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            keys[i] = new Object();
+            if (0 == i % 2)
+            {
+                instance.put(keys[i], Integer.toString(i));
+            }
+        }
+        AllocationMeter.assertAllocationFree("WeakIdentityHashMap.get", new AllocationMeter.Action()
+        {
+            private int m_next;
+
+            @Override
+            public void perform()
+            {
+                m_next = (m_next + 1) & (keys.length - 1);
+                assertEquals(0 == m_next % 2, null != instance.get(keys[m_next]));
+            }
+        });
+    }
 }
@@ -0,0 +1,64 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WeakIdentityIntMapTest} provides unit test coverage for {@link WeakIdentityIntMap}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class WeakIdentityIntMapTest
+{
+    /**
+     * Construct a {@link WeakIdentityIntMapTest} instance.
+     */
+    public WeakIdentityIntMapTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the basic operations of {@link WeakIdentityIntMap}, including growth well beyond the initial capacity.
+     */
+    @Test
+    public void testMap()
+    {
+        final WeakIdentityIntMap<Object> map = new WeakIdentityIntMap<Object>(2);
+        final Object[] keys = new Object[1000];
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            keys[i] = new Object();
+            assertEquals(-1, map.put(keys[i], i, -1));
+        }
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            assertEquals(i + 1, map.increment(keys[i]));
+            assertEquals(i + 1, map.getOrDefault(keys[i], -1));
+        }
+        assertEquals(keys.length, map.size());
+        for (int i = 0; i < keys.length; i += 2)
+        {
+            assertTrue(map.remove(keys[i]));
+        }
+        assertEquals(keys.length / 2, map.size());
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            assertEquals(0 == i % 2 ? -1 : i + 1, map.getOrDefault(keys[i], -1));
+        }
+        assertEquals(-5, map.addAndGet(keys[0], -5));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(keys[1]));
+    }
+}
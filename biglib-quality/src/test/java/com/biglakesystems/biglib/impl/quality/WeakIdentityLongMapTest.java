@@ -0,0 +1,112 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WeakIdentityLongMapTest} provides unit test coverage for {@link WeakIdentityLongMap}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class WeakIdentityLongMapTest
+{
+    /**
+     * Construct a {@link WeakIdentityLongMapTest} instance.
+     */
+    public WeakIdentityLongMapTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the basic operations of {@link WeakIdentityLongMap}.
+     */
+    @Test
+    public void testMap() throws Exception
+    {
+        final WeakIdentityLongMap<Object> map = new WeakIdentityLongMap<Object>();
+        final Object key1 = new Object();
+        final Object key2 = new Object();
+        assertTrue(map.isEmpty());
+        assertEquals(-1L, map.getOrDefault(key1, -1L));
+        assertEquals(-1L, map.put(key1, 10L, -1L));
+        assertEquals(10L, map.put(key1, 20L, -1L));
+        assertEquals(20L, map.getOrDefault(key1, -1L));
+        assertEquals(1L, map.increment(key2));
+        assertEquals(6L, map.addAndGet(key2, 5L));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(key2));
+        assertTrue(map.remove(key2));
+        assertFalse(map.remove(key2));
+        assertFalse(map.containsKey(key2));
+        assertEquals(1L, map.increment(key2));
+        map.clear();
+        assertTrue(map.isEmpty());
+
+        /* Verify that entries are dropped once their keys are collected. */
+        for (int i = 0; i < 1000; i += 1)
+        {
+            map.increment(new Object());
+        }
+        map.put(key1, 1L, 0L);
+        final long deadline = System.currentTimeMillis() + 30000L;
+        while (map.size() > 1 && System.currentTimeMillis() < deadline)
+        {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(1, map.size());
+        assertEquals(1L, map.getOrDefault(key1, 0L));
+    }
+
+    /**
+     * Test {@link WeakIdentityLongMap} against {@link IdentityHashMap} over a random sequence of operations, exercising
+     * resizing and backward-shift deletion.
+     */
+    @Test
+    public void testAgainstIdentityHashMap()
+    {
+        final Random random = new Random(1L);
+        final Object[] keys = new Object[500];
+        for (int i = 0; i < keys.length; i += 1)
+        {
+            keys[i] = new Object();
+        }
+        final WeakIdentityLongMap<Object> map = new WeakIdentityLongMap<Object>(4);
+        final Map<Object, Long> expected = new IdentityHashMap<Object, Long>();
+        for (int i = 0; i < 20000; i += 1)
+        {
+            final Object key = keys[random.nextInt(keys.length)];
+            final Long previous = expected.get(key);
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    final long delta = random.nextInt(100);
+                    expected.put(key, (null == previous ? 0L : previous) + delta);
+                    assertEquals((long) expected.get(key), map.addAndGet(key, delta));
+                    break;
+                case 1:
+                    assertEquals(null != expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(null == previous ? -1L : previous, map.getOrDefault(key, -1L));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.biglakesystems.biglib.impl.quality;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WeakMapStatisticsTest} provides unit test coverage for {@link WeakMapStatistics}, as collected by {@link
+ * WeakIdentityHashMap} and {@link ConcurrentWeakIdentityHashMap}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class WeakMapStatisticsTest
+{
+    /**
+     * Construct a {@link WeakMapStatisticsTest} instance.
+     */
+    public WeakMapStatisticsTest()
+    {
+        super();
+    }
+
+    /**
+     * Test statistics collected by {@link WeakIdentityHashMap}.
+     */
+    @Test
+    public void testWeakIdentityHashMap() throws Exception
+    {
+        final WeakIdentityHashMap<Object, String> map = new WeakIdentityHashMap<Object, String>();
+        assertNull(map.getStatistics());
+        final WeakMapStatistics statistics = map.enableStatistics();
+        assertSame(statistics, map.enableStatistics());
+        assertSame(statistics, map.getStatistics());
+
+        /* Counting the entries drains the queue completely, so a single purge may expunge every collected key. */
+        verify(map, statistics, 100L);
+    }
+
+    /**
+     * Test statistics collected by {@link ConcurrentWeakIdentityHashMap}.
+     */
+    @Test
+    public void testConcurrentWeakIdentityHashMap() throws Exception
+    {
+        final ConcurrentWeakIdentityHashMap<Object, String> map = new ConcurrentWeakIdentityHashMap<Object, String>();
+        assertNull(map.getStatistics());
+        final WeakMapStatistics statistics = map.enableStatistics();
+        assertSame(statistics, map.enableStatistics());
+        assertSame(statistics, map.getStatistics());
+        verify(map, statistics, 64L);
+    }
+
+    /**
+     * Exercise a map, verifying the statistics collected.
+     *
+     * @param map the map.
+     * @param statistics the map's statistics.
+     * @param maximumPurgeBatch the most entries a single purge may expunge.
+     */
+    private static void verify(final Map<Object, String> map, final WeakMapStatistics statistics,
+                               final long maximumPurgeBatch) throws Exception
+    {
+        final Object retained = new Object();
+        map.put(retained, "retained");
+        for (int i = 0; i < 100; i += 1)
+        {
+            map.put(new Object(), "value");
+        }
+        assertEquals("retained", map.get(retained));
+        assertNull(map.get(new Object()));
+        assertEquals(101L, statistics.getPutCount());
+        assertEquals(1L, statistics.getHitCount());
+        assertEquals(1L, statistics.getMissCount());
+        assertTrue(statistics.getCapacity() >= 101);
+        assertTrue(statistics.getLoad() > 0.0);
+        assertTrue(statistics.getEstimatedFootprint() > statistics.getCapacity());
+
+        /* Unreferenced keys are eventually expunged, by purges or table rebuilds. */
+        final long deadline = System.currentTimeMillis() + 30000L;
+        while (map.size() > 1 && System.currentTimeMillis() < deadline)
+        {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(1, map.size());
+        assertEquals(100L, statistics.getExpungedCount());
+        assertEquals(1, statistics.getSize());
+        assertTrue(statistics.getPurgeCount() > 0L);
+        assertTrue(statistics.getMaximumPurgeBatch() > 0L);
+        assertTrue(statistics.getMaximumPurgeBatch() <= maximumPurgeBatch);
+
+        statistics.reset();
+        assertEquals(0L, statistics.getPutCount());
+        assertEquals(0L, statistics.getExpungedCount());
+        assertEquals(0L, statistics.getAveragePurgeNanos());
+    }
+}
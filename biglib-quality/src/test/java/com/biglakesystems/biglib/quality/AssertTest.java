@@ -1,7 +1,14 @@
 package com.biglakesystems.biglib.quality;
 
+import com.biglakesystems.biglib.test.AllocationMeter;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -66,4 +73,223 @@ public class AssertTest
             assertTrue(e.getMessage().contains("testing"));
         }
     }
+
+    /**
+     * Test the implementations of {@link Assert#argument(boolean, String)} and its overloads.
+     */
+    @Test
+    public void testArgument()
+    {
+        Assert.argument(true, "unused");
+        Assert.argument(true, "unused %s", "arg");
+        Assert.argument(true, "unused %s %s", 1L, 2L);
+        try
+        {
+            Assert.argument(false, "Value [%s] is bad because [%s].", "testing", "reasons");
+            fail("Invocation with false condition did not throw.");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            /* Good. */
+            assertEquals("Value [testing] is bad because [reasons].", e.getMessage());
+        }
+        try
+        {
+            Assert.argument(false, "Count [%s] is bad.", 42L);
+            fail("Invocation with false condition did not throw.");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            /* Good. */
+            assertEquals("Count [42] is bad.", e.getMessage());
+        }
+        try
+        {
+            Assert.argument(false, "Unformattable %d.", "testing");
+            fail("Invocation with false condition did not throw.");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            /* Good; an unusable template must not mask the failure. */
+            assertTrue(e.getMessage().contains("testing"));
+        }
+    }
+
+    /**
+     * Test the implementations of {@link Assert#argumentInRange(String, long, long, long)}, {@link
+     * Assert#argumentNotNegative(String, long)} and {@link Assert#argumentPositive(String, long)}.
+     */
+    @Test
+    public void testNumericArguments()
+    {
+        Assert.argumentInRange("testing", 1L, 1L, 3L);
+        Assert.argumentInRange("testing", 3L, 1L, 3L);
+        Assert.argumentNotNegative("testing", 0L);
+        Assert.argumentPositive("testing", 1L);
+        for (final Runnable nextFailure : new Runnable[]{
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        Assert.argumentInRange("testing", 4L, 1L, 3L);
+                    }
+                },
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        Assert.argumentNotNegative("testing", -1L);
+                    }
+                },
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        Assert.argumentPositive("testing", 0L);
+                    }
+                }})
+        {
+            try
+            {
+                nextFailure.run();
+                fail("Invocation with invalid value did not throw.");
+            }
+            catch (final IllegalArgumentException e)
+            {
+                /* Good. */
+                assertTrue(e.getMessage().contains("testing"));
+            }
+        }
+    }
+
+    /**
+     * Test the implementations of {@link Assert#argumentNotEmpty(String, CharSequence)} and its overloads.
+     */
+    @Test
+    public void testArgumentNotEmpty()
+    {
+        Assert.argumentNotEmpty("testing", "value");
+        Assert.argumentNotEmpty("testing", Collections.singleton("value"));
+        Assert.argumentNotEmpty("testing", Collections.singletonMap("key", "value"));
+        Assert.argumentNotEmpty("testing", new Object[]{"value"});
+        for (final Object nextEmpty : new Object[]{null, "", Collections.emptySet(), Collections.emptyMap(),
+                new Object[0]})
+        {
+            try
+            {
+                if (nextEmpty instanceof CharSequence || null == nextEmpty)
+                {
+                    Assert.argumentNotEmpty("testing", (CharSequence) nextEmpty);
+                }
+                else if (nextEmpty instanceof Collection)
+                {
+                    Assert.argumentNotEmpty("testing", (Collection<?>) nextEmpty);
+                }
+                else if (nextEmpty instanceof Map)
+                {
+                    Assert.argumentNotEmpty("testing", (Map<?, ?>) nextEmpty);
+                }
+                else
+                {
+                    Assert.argumentNotEmpty("testing", (Object[]) nextEmpty);
+                }
+                fail("Invocation with empty value did not throw.");
+            }
+            catch (final IllegalArgumentException e)
+            {
+                /* Good. */
+                assertTrue(e.getMessage().contains("testing"));
+            }
+        }
+    }
+
+    /**
+     * Test the implementations of {@link Assert#elementIndex(int, int)} and {@link Assert#positionIndex(int, int)}.
+     */
+    @Test
+    public void testIndexes()
+    {
+        Assert.elementIndex(0, 1);
+        Assert.positionIndex(1, 1);
+        for (final int[] nextFailure : new int[][]{{-1, 1}, {1, 1}})
+        {
+            try
+            {
+                Assert.elementIndex(nextFailure[0], nextFailure[1]);
+                fail("Invocation with invalid index did not throw.");
+            }
+            catch (final IndexOutOfBoundsException e)
+            {
+                /* Good. */
+                assertTrue(e.getMessage().contains(Integer.toString(nextFailure[0])));
+            }
+        }
+        try
+        {
+            Assert.positionIndex(2, 1);
+            fail("Invocation with invalid position did not throw.");
+        }
+        catch (final IndexOutOfBoundsException e)
+        {
+            /* Good. */
+            assertTrue(e.getMessage().contains("2"));
+        }
+    }
+
+    /**
+     * Test the implementations of {@link Assert#state(boolean, String)} and its overloads.
+     */
+    @Test
+    public void testState()
+    {
+        Assert.state(true, "unused");
+        Assert.state(true, "unused %s %s", "arg1", "arg2");
+        Assert.state(true, "unused %s", 1L);
+        try
+        {
+            Assert.state(false, "Object [%s] is in state [%s].", "testing", 3L);
+            fail("Invocation with false condition did not throw.");
+        }
+        catch (final IllegalStateException e)
+        {
+            /* Good. */
+            assertEquals("Object [testing] is in state [3].", e.getMessage());
+        }
+    }
+
+    /**
+     * Test that the success paths of the non-variadic assertions are allocation-free, so that they may be used freely
+     * on hot paths.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testSuccessPathsAllocationFree() throws Exception
+    {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+        final Object value = new Object();
+        final Object[] array = {value};
+        AllocationMeter.assertAllocationFree("Assert success paths", new AllocationMeter.Action()
+        {
+            @Override
+            public void perform()
+            {
+                Assert.argumentNotNull("value", value);
+                Assert.argumentPositive("count", 1L);
+                Assert.argumentNotNegative("count", 0L);
+                Assert.argumentInRange("count", 5L, 0L, 10L);
+                Assert.argumentNotEmpty("name", "value");
+                Assert.argumentNotEmpty("array", array);
+                Assert.argument(true, "Unused [%s].", value);
+                Assert.argument(true, "Unused [%d] [%d].", 1L, 2L);
+                Assert.elementIndex(0, 1);
+                Assert.positionIndex(1, 1);
+                Assert.state(true, "Unused [%s] [%s].", value, value);
+                Assert.state(true, "Unused [%d].", 1L);
+            }
+        });
+    }
 }
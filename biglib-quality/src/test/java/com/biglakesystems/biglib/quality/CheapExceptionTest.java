@@ -0,0 +1,147 @@
+package com.biglakesystems.biglib.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CheapExceptionTest} provides unit test coverage for {@link CheapException} and {@link StackCapturePolicy}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class CheapExceptionTest
+{
+    /**
+     * Construct a {@link CheapExceptionTest} instance.
+     */
+    public CheapExceptionTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that the full stack is captured by default, without the exception's own constructor frames, as {@link
+     * Throwable#fillInStackTrace()} would capture it.
+     */
+    @Test
+    public void testFull()
+    {
+        final StackTraceElement[] expected = new Throwable().getStackTrace();
+        final ValidationException exception = new ValidationException("Full.");
+        final StackTraceElement[] actual = exception.getStackTrace();
+        assertFalse(exception.isStackTraceElided());
+        assertEquals(expected.length, actual.length);
+        assertEquals("testFull", actual[0].getMethodName());
+        for (int i = 1; i < expected.length; i += 1)
+        {
+            assertEquals(expected[i].getClassName(), actual[i].getClassName());
+            assertEquals(expected[i].getMethodName(), actual[i].getMethodName());
+        }
+        assertSame(exception, exception.fillInStackTrace());
+        assertEquals(expected.length, exception.getStackTrace().length);
+    }
+
+    /**
+     * Test the policies capturing none of the stack, and a limited number of frames.
+     */
+    @Test
+    public void testNoneAndDepthLimited()
+    {
+        final CheapException none = new CheapException("None.", StackCapturePolicy.none());
+        assertTrue(none.isStackTraceElided());
+        assertEquals(0, none.getStackTrace().length);
+        assertNotNull(Exceptions.uniqueId(none));
+        assertEquals(Exceptions.uniqueId(none), Exceptions.uniqueId(none));
+
+        final CheapException limited = new ValidationException("Limited.", StackCapturePolicy.depthLimited(2));
+        assertTrue(limited.isStackTraceElided());
+        assertEquals(2, limited.getStackTrace().length);
+        assertEquals("testNoneAndDepthLimited", limited.getStackTrace()[0].getMethodName());
+
+        final CheapException deep = new CheapException("Deep.", null, StackCapturePolicy.depthLimited(10000));
+        assertFalse(deep.isStackTraceElided());
+        assertEquals(new Throwable().getStackTrace().length, deep.getStackTrace().length);
+    }
+
+    /**
+     * Test that a sampled policy captures the full stack of the first exception and every Nth after it.
+     */
+    @Test
+    public void testSampled()
+    {
+        final StackCapturePolicy policy = StackCapturePolicy.sampled(3);
+        for (int i = 0; i < 9; i += 1)
+        {
+            final CheapException exception = new CheapException("Sampled.", policy);
+            assertEquals(0 != i % 3, exception.isStackTraceElided());
+            assertEquals(0 != i % 3, 0 == exception.getStackTrace().length);
+        }
+    }
+
+    /**
+     * Test policies registered per type, which apply to subclasses without policies of their own.
+     */
+    @Test
+    public void testPolicyPerType()
+    {
+        assertSame(StackCapturePolicy.full(), StackCapturePolicy.forType(ValidationException.class));
+        StackCapturePolicy.setPolicy(CheapException.class, StackCapturePolicy.none());
+        try
+        {
+            assertSame(StackCapturePolicy.none(), StackCapturePolicy.forType(ValidationException.class));
+            assertTrue(new ValidationException("Inherited.").isStackTraceElided());
+            StackCapturePolicy.setPolicy(ValidationException.class, StackCapturePolicy.full());
+            assertFalse(new ValidationException("Own.").isStackTraceElided());
+            assertTrue(new CheapException("Base.").isStackTraceElided());
+
+            /* A policy given by the throw site takes precedence. */
+            final CheapException site = new ValidationException("Site.", StackCapturePolicy.depthLimited(1));
+            assertEquals(1, site.getStackTrace().length);
+        }
+        finally
+        {
+            StackCapturePolicy.removePolicy(ValidationException.class);
+            assertSame(StackCapturePolicy.none(), StackCapturePolicy.removePolicy(CheapException.class));
+        }
+        assertFalse(new ValidationException("Default.").isStackTraceElided());
+    }
+
+    /**
+     * {@link ValidationException} is a {@link CheapException} subclass, whose constructors delegate, for verifying
+     * that constructor frames are omitted and that per-type policies are inherited.
+     */
+    private static class ValidationException extends CheapException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Construct a {@link ValidationException} instance, with the policy for its type.
+         *
+         * @param message the detail message.
+         */
+        public ValidationException(final String message)
+        {
+            this(message, null);
+        }
+
+        /**
+         * Construct a {@link ValidationException} instance.
+         *
+         * @param message the detail message.
+         * @param policy the stack capture policy, or {@code null} for the policy for its type.
+         */
+        public ValidationException(final String message, final StackCapturePolicy policy)
+        {
+            super(message, policy);
+        }
+    }
+}
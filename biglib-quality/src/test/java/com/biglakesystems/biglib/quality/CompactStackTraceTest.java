@@ -0,0 +1,132 @@
+package com.biglakesystems.biglib.quality;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CompactStackTraceTest} provides unit test coverage for {@link CompactStackTrace} and {@link StackTraceTable}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class CompactStackTraceTest
+{
+    /**
+     * Construct a {@link CompactStackTraceTest} instance.
+     */
+    public CompactStackTraceTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that traces expand to their original frames, and that traces sharing callers share trie nodes.
+     */
+    @Test
+    public void testInternAndExpand()
+    {
+        final StackTraceTable table = new StackTraceTable();
+        final StackTraceElement[] first = {frame("a"), frame("b"), frame("main")};
+        final StackTraceElement[] second = {frame("c"), frame("b"), frame("main")};
+        final CompactStackTrace compactFirst = table.intern(first);
+        final CompactStackTrace compactSecond = table.intern(second);
+        assertTrue(compactFirst.isInterned());
+        assertEquals(3, compactFirst.getDepth());
+        assertArrayEquals(first, compactFirst.expand());
+        assertArrayEquals(second, compactSecond.expand());
+
+        /* The two traces share the nodes for "main" and "b"; only their innermost frames differ. */
+        assertEquals(4, table.getFrameCount());
+        assertEquals(4, table.getNodeCount());
+
+        /* Equal traces intern to equal instances without adding entries. */
+        final CompactStackTrace again = table.intern(first.clone());
+        assertEquals(compactFirst, again);
+        assertEquals(compactFirst.hashCode(), again.hashCode());
+        assertFalse(compactFirst.equals(compactSecond));
+        assertEquals(4, table.getNodeCount());
+        assertSame(compactFirst.expand()[0], again.expand()[0]);
+
+        /* A proper suffix is a distinct trace. */
+        final CompactStackTrace suffix = table.intern(Arrays.copyOfRange(first, 1, 3));
+        assertEquals(2, suffix.getDepth());
+        assertFalse(suffix.equals(compactFirst));
+        assertEquals(0, table.intern(new StackTraceElement[0]).expand().length);
+    }
+
+    /**
+     * Test that a full table returns uninterned traces which still compare equal to interned ones.
+     */
+    @Test
+    public void testOverflow()
+    {
+        final StackTraceTable table = new StackTraceTable(3, 3);
+        final StackTraceElement[] first = {frame("a"), frame("main")};
+        final StackTraceElement[] second = {frame("c"), frame("b"), frame("main")};
+        final CompactStackTrace compactFirst = table.intern(first);
+        final CompactStackTrace compactSecond = table.intern(second);
+        assertTrue(compactFirst.isInterned());
+        assertFalse(compactSecond.isInterned());
+        assertEquals(1L, table.getOverflowCount());
+        assertArrayEquals(second, compactSecond.expand());
+        assertEquals(compactSecond, new StackTraceTable().intern(second));
+        assertEquals(compactSecond.hashCode(), new StackTraceTable().intern(second).hashCode());
+    }
+
+    /**
+     * Test that {@link CompactStackTrace#copyOf(StackTraceElement[])} holds a private copy of the frames, which
+     * compares equal to interned traces.
+     */
+    @Test
+    public void testCopyOf()
+    {
+        final StackTraceElement[] frames = {frame("a"), frame("main")};
+        final CompactStackTrace copy = CompactStackTrace.copyOf(frames);
+        assertFalse(copy.isInterned());
+        assertEquals(2, copy.getDepth());
+        frames[0] = frame("b");
+        assertArrayEquals(new StackTraceElement[]{frame("a"), frame("main")}, copy.expand());
+        final CompactStackTrace interned = new StackTraceTable().intern(copy.expand());
+        assertEquals(interned, copy);
+        assertEquals(copy, interned);
+        assertEquals(interned.hashCode(), copy.hashCode());
+    }
+
+    /**
+     * Test compaction via {@link Exceptions#compactStackTrace(Throwable)} and {@link CapturedException}.
+     */
+    @Test
+    public void testShared()
+    {
+        final RuntimeException exception = new RuntimeException();
+        final CompactStackTrace compact = Exceptions.compactStackTrace(exception);
+        assertEquals(exception.getStackTrace().length, compact.getDepth());
+        assertEquals(compact, CompactStackTrace.of(exception));
+        final CapturedException captured = new CapturedException("id", "java.lang.RuntimeException", null,
+                exception.getStackTrace(), 0L, "main");
+        assertEquals(compact, captured.getCompactStackTrace());
+        assertEquals(exception.getStackTrace().length, captured.getStackTrace().length);
+    }
+
+    /**
+     * Create a frame.
+     *
+     * @param methodName the method name.
+     * @return {@link StackTraceElement} frame.
+     */
+    private static StackTraceElement frame(final String methodName)
+    {
+        return new StackTraceElement("com.example.Widget", methodName, "Widget.java", methodName.length());
+    }
+}
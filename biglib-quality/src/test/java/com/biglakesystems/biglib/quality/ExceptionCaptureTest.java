@@ -0,0 +1,132 @@
+package com.biglakesystems.biglib.quality;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionCaptureTest} provides unit test coverage for {@link ExceptionCapture}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionCaptureTest
+{
+    /**
+     * Construct a {@link ExceptionCaptureTest} instance.
+     */
+    public ExceptionCaptureTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that exceptions identified via {@link Exceptions#uniqueId(Throwable)} are delivered to every sink, and that
+     * a failing sink does not prevent delivery to the others.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testCapture() throws Exception
+    {
+        final List<CapturedException> captured = Collections.synchronizedList(new ArrayList<CapturedException>());
+        final ExceptionSink failing = new ExceptionSink()
+        {
+            @Override
+            public void write(final List<CapturedException> batch)
+            {
+                throw new UnsupportedOperationException("Failing sink.");
+            }
+        };
+        final ExceptionSink collecting = new ExceptionSink()
+        {
+            @Override
+            public void write(final List<CapturedException> batch)
+            {
+                captured.addAll(batch);
+            }
+        };
+        final ExceptionCapture instance = new ExceptionCapture(16, 2, 4, failing, collecting);
+        Exceptions.addListener(instance);
+        final List<String> ids = new ArrayList<String>();
+        try
+        {
+            for (int i = 0; i < 10; i += 1)
+            {
+                ids.add(Exceptions.uniqueId(new IllegalArgumentException("Failure " + i + ".")));
+            }
+        }
+        finally
+        {
+            Exceptions.removeListener(instance);
+            instance.shutdown();
+        }
+        assertTrue(instance.awaitTermination(10L, TimeUnit.SECONDS));
+        assertEquals(10L, instance.getDeliveredCount());
+        assertEquals(0L, instance.getDroppedCount());
+        assertEquals(10, captured.size());
+        for (final CapturedException nextCaptured : captured)
+        {
+            assertTrue(ids.contains(nextCaptured.getId()));
+            assertEquals(IllegalArgumentException.class.getName(), nextCaptured.getClassName());
+            assertEquals(Thread.currentThread().getName(), nextCaptured.getThreadName());
+        }
+    }
+
+    /**
+     * Test that exceptions are dropped and counted, rather than blocking the caller, when the buffer is full.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testDropWhenFull() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExceptionSink blocking = new ExceptionSink()
+        {
+            @Override
+            public void write(final List<CapturedException> batch)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final ExceptionCapture instance = new ExceptionCapture(4, 1, 1, blocking);
+        final RuntimeException exception = new RuntimeException();
+
+        /* The consumer takes at most one exception before blocking in the sink, so at most five are accepted. */
+        for (int i = 0; i < 20; i += 1)
+        {
+            instance.exceptionIdentified(exception, "id" + i);
+        }
+        assertTrue(instance.getDroppedCount() >= 15L);
+        release.countDown();
+        instance.shutdown();
+        assertTrue(instance.awaitTermination(10L, TimeUnit.SECONDS));
+        assertEquals(20L, instance.getDroppedCount() + instance.getDeliveredCount());
+
+        /* After shutdown, everything is dropped. */
+        instance.exceptionIdentified(exception, "late");
+        assertEquals(21L, instance.getDroppedCount() + instance.getDeliveredCount());
+    }
+}
@@ -0,0 +1,120 @@
+package com.biglakesystems.biglib.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionIdTest} provides unit test coverage for {@link ExceptionId}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionIdTest
+{
+    /**
+     * Construct a {@link ExceptionIdTest} instance.
+     */
+    public ExceptionIdTest()
+    {
+        super();
+    }
+
+    /**
+     * Test rendering of identifiers created from bits.
+     */
+    @Test
+    public void testRender()
+    {
+        assertEquals("00000000deadbeef0123456789abcdef0011223344556677", ExceptionId.hex(0xdeadbeefL,
+                0x0123456789abcdefL, 0x0011223344556677L, 48).toString());
+        assertEquals("f00d", ExceptionId.hex(-1L, -1L, 0xf00dL, 4).toString());
+        assertEquals("7ZZZZZZZZZZZZZZZZZZZZZZZZZ", ExceptionId.base32(0L, -1L, -1L, 26).toString());
+        assertEquals("Z0", ExceptionId.base32(0L, 0L, 31L << 5, 2).toString());
+
+        /* Rendering is not cached, so that an identifier retained with its exception never retains a string. */
+        final ExceptionId id = ExceptionId.base32(0L, 1L, 2L, 26);
+        assertEquals(id.toString(), id.toString());
+        assertNotSame(id.toString(), id.toString());
+        assertEquals(26, id.length());
+    }
+
+    /**
+     * Test that parsing and rendering are inverse, and that equality follows the string form.
+     */
+    @Test
+    public void testParse()
+    {
+        final String[] ids = {"3ca2d1c8d34b1a7e5b8e6c4f2f1bd8b0a1c9e3f7", "01HZX3KQ7N0000000000000000", "0A2B3C4D5",
+                "0123456789", "0", "z", "not an identifier", "", "ABCI",
+                "0123456789012345678901234567890123456789012345678"};
+        for (final String nextId : ids)
+        {
+            final ExceptionId parsed = ExceptionId.parse(nextId);
+            assertEquals(nextId, parsed.toString());
+            assertEquals(nextId.length(), parsed.length());
+            assertEquals(parsed, ExceptionId.parse(new String(nextId.toCharArray())));
+            assertEquals(parsed.hashCode(), ExceptionId.parse(nextId).hashCode());
+            for (final String nextOther : ids)
+            {
+                assertEquals(nextId.equals(nextOther), parsed.equals(ExceptionId.parse(nextOther)));
+            }
+        }
+        assertEquals(ExceptionId.hex(0L, 0L, 0xabcL, 3), ExceptionId.parse("abc"));
+        assertFalse(ExceptionId.parse("abc").equals(ExceptionId.parse("0abc")));
+        assertFalse(ExceptionId.parse("ABC").equals(ExceptionId.parse("abc")));
+    }
+
+    /**
+     * Test that a base 32 identifier consisting entirely of digits equals the same string parsed, which is held in
+     * hexadecimal.
+     */
+    @Test
+    public void testDecimalBase32()
+    {
+        /* "0123456789" in base 32: each digit is its own five-bit value. */
+        long low = 0L;
+        for (int i = 0; i < 10; i += 1)
+        {
+            low = (low << 5) | i;
+        }
+        final ExceptionId id = ExceptionId.base32(0L, 0L, low, 10);
+        assertEquals("0123456789", id.toString());
+        assertEquals(ExceptionId.parse("0123456789"), id);
+        assertEquals(ExceptionId.hex(0L, 0L, 0x0123456789L, 10), id);
+
+        /* The same holds for the longest base 32 identifiers, whose digits span all three words. */
+        final StringBuilder digits = new StringBuilder();
+        long high = 0L;
+        long middle = 0L;
+        low = 0L;
+        for (int i = 0; i < ExceptionId.MAXIMUM_BASE32_CHARACTERS; i += 1)
+        {
+            final int digit = (i * 7) % 10;
+            digits.append((char) ('0' + digit));
+            high = (high << 5) | (middle >>> 59);
+            middle = (middle << 5) | (low >>> 59);
+            low = (low << 5) | digit;
+        }
+        final ExceptionId longest = ExceptionId.base32(high, middle, low, ExceptionId.MAXIMUM_BASE32_CHARACTERS);
+        assertEquals(digits.toString(), longest.toString());
+        assertEquals(ExceptionId.parse(digits.toString()), longest);
+    }
+
+    /**
+     * Test that an identifier of an unsupported length is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength()
+    {
+        ExceptionId.hex(0L, 0L, 0L, ExceptionId.MAXIMUM_HEX_CHARACTERS + 1);
+    }
+}
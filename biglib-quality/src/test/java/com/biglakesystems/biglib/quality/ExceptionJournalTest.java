@@ -0,0 +1,163 @@
+package com.biglakesystems.biglib.quality;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionJournalTest} provides unit test coverage for {@link ExceptionJournal} and {@link
+ * ExceptionJournalTool}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionJournalTest
+{
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @Rule
+    public final TemporaryFolder m_folder = new TemporaryFolder();
+
+    /**
+     * Construct a {@link ExceptionJournalTest} instance.
+     */
+    public ExceptionJournalTest()
+    {
+        super();
+    }
+
+    /**
+     * Test writing and looking up records, including after the journal is reopened.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testWriteAndLookup() throws Exception
+    {
+        final File directory = new File(m_folder.getRoot(), "journal");
+        final ExceptionJournal journal = new ExceptionJournal(directory, SEGMENT_SIZE, 4);
+        final IllegalStateException exception = new IllegalStateException("Failure \u00e9.");
+        final CapturedException captured = new CapturedException("ID1", exception.getClass().getName(),
+                exception.getMessage(), exception.getStackTrace(), 1234L, "worker");
+        journal.write(Collections.singletonList(captured));
+        journal.write(Collections.singletonList(new CapturedException("ID2", "java.lang.Error", null,
+                new StackTraceElement[0], 5678L, null)));
+        assertNull(journal.lookup("ID3"));
+        assertFound(captured, journal.lookup("ID1"));
+        assertNull(journal.lookup("ID2").getMessage());
+
+        /* Records read back are not interned in the shared table. */
+        assertFalse(journal.lookup("ID1").getCompactStackTrace().isInterned());
+        journal.close();
+
+        /* Reopening retains the existing segment, read-only, and starts a new one. */
+        final ExceptionJournal reopened = new ExceptionJournal(directory, SEGMENT_SIZE, 4);
+        assertEquals(2, reopened.getSegmentCount());
+        assertFound(captured, reopened.lookup("ID1"));
+        assertFound(captured, ExceptionJournal.lookup(directory, "ID1"));
+        reopened.close();
+        assertEquals(0L, reopened.getDroppedCount());
+        reopened.write(Collections.singletonList(captured));
+        assertEquals(1L, reopened.getDroppedCount());
+    }
+
+    /**
+     * Test that segments roll over when full, and that the oldest segments are deleted beyond the maximum.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testRolloverAndRetention() throws Exception
+    {
+        final File directory = m_folder.getRoot();
+        final ExceptionJournal journal = new ExceptionJournal(directory, SEGMENT_SIZE, 3);
+        final StackTraceElement[] stackTrace = new RuntimeException().getStackTrace();
+        final List<CapturedException> batch = new ArrayList<CapturedException>();
+        for (int i = 0; i < 2000; i += 1)
+        {
+            batch.add(new CapturedException("ID" + i, "java.lang.RuntimeException", "Failure " + i + ".",
+                    stackTrace, i, "worker"));
+        }
+        journal.write(batch);
+        assertEquals(3, journal.getSegmentCount());
+        assertEquals(3, directory.listFiles().length);
+        assertEquals(0L, journal.getDroppedCount());
+        assertNull(journal.lookup("ID0"));
+        assertEquals("Failure 1999.", journal.lookup("ID1999").getMessage());
+        journal.close();
+    }
+
+    /**
+     * Test the command-line tool.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testTool() throws Exception
+    {
+        final File directory = m_folder.getRoot();
+        final ExceptionJournal journal = new ExceptionJournal(directory, SEGMENT_SIZE, 2);
+        final StackTraceElement[] stackTrace = {new StackTraceElement("com.example.Widget", "frob", "Widget.java", 42)};
+        journal.write(Collections.singletonList(new CapturedException("ABC", "java.lang.IllegalStateException",
+                "Broken.", stackTrace, 0L, "main")));
+        journal.force();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(0, ExceptionJournalTool.run(new String[]{directory.getPath(), "ABC"}, new PrintStream(out, true),
+                new PrintStream(err, true)));
+        final String printed = out.toString();
+        assertTrue(printed, printed.startsWith("ABC at "));
+        assertTrue(printed, printed.contains("java.lang.IllegalStateException: Broken."));
+        assertTrue(printed, printed.contains("\tat com.example.Widget.frob(Widget.java:42)"));
+        assertEquals(1, ExceptionJournalTool.run(new String[]{directory.getPath(), "XYZ"}, new PrintStream(out, true),
+                new PrintStream(err, true)));
+        assertEquals(2, ExceptionJournalTool.run(new String[]{directory.getPath()}, new PrintStream(out, true),
+                new PrintStream(err, true)));
+        journal.close();
+    }
+
+    /**
+     * Assert that a record found in the journal matches the record written.
+     *
+     * @param expected the record written.
+     * @param actual the record found.
+     */
+    private static void assertFound(final CapturedException expected, final CapturedException actual)
+    {
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getThreadName(), actual.getThreadName());
+
+        /* Compare the stored parts of each frame; newer platforms add class loader and module details to equality. */
+        final StackTraceElement[] expectedFrames = expected.getStackTrace();
+        final StackTraceElement[] actualFrames = actual.getStackTrace();
+        assertEquals(expectedFrames.length, actualFrames.length);
+        for (int i = 0; i < expectedFrames.length; i += 1)
+        {
+            assertEquals(expectedFrames[i].getClassName(), actualFrames[i].getClassName());
+            assertEquals(expectedFrames[i].getMethodName(), actualFrames[i].getMethodName());
+            assertEquals(expectedFrames[i].getFileName(), actualFrames[i].getFileName());
+            assertEquals(expectedFrames[i].getLineNumber(), actualFrames[i].getLineNumber());
+        }
+    }
+}
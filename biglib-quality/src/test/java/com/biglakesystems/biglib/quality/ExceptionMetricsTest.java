@@ -0,0 +1,418 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.Clock;
+import com.biglakesystems.biglib.test.AllocationMeter;
+import com.biglakesystems.biglib.test.GarbageCollection;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionMetricsTest} provides unit test coverage for {@link ExceptionMetrics}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionMetricsTest
+{
+    /**
+     * Construct a {@link ExceptionMetricsTest} instance.
+     */
+    public ExceptionMetricsTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionMetrics#recorder(Class, String)} and {@link
+     * ExceptionMetrics.Recorder#record()}.
+     */
+    @Test
+    public void testRecorder()
+    {
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(ExceptionMetrics.DEFAULT_MAXIMUM_SITES, clock);
+        final ExceptionMetrics.Recorder recorder = metrics.recorder(IllegalStateException.class, "op");
+        assertSame(recorder, metrics.recorder(IllegalStateException.class, "op"));
+        assertNotSame(recorder, metrics.recorder(IllegalArgumentException.class, "op"));
+        assertEquals(2, metrics.getSiteCount());
+        recorder.record();
+        recorder.record();
+        recorder.record();
+
+        /* Occurrences in the current second count toward the total, but not yet toward the window. */
+        ExceptionSiteMetrics snapshot = recorder.snapshot(1);
+        assertEquals(IllegalStateException.class.getName(), snapshot.getExceptionClassName());
+        assertEquals("op", snapshot.getSite());
+        assertEquals(3L, snapshot.getTotalCount());
+        assertEquals(0L, snapshot.getWindowCount());
+
+        clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+        snapshot = recorder.snapshot(1);
+        assertEquals(3L, snapshot.getWindowCount());
+        assertEquals(3.0, snapshot.getRate(), 0.0);
+
+        clock.m_now += TimeUnit.SECONDS.toNanos(2L);
+        assertEquals(0L, recorder.snapshot(1).getWindowCount());
+        snapshot = recorder.snapshot(10);
+        assertEquals(3L, snapshot.getWindowCount());
+        assertEquals(0.3, snapshot.getRate(), 1e-9);
+        assertEquals(3L, metrics.getTotalCount());
+        try
+        {
+            recorder.snapshot(ExceptionMetrics.MAXIMUM_WINDOW_SECONDS + 1);
+            fail("Expected IllegalArgumentException.");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            /* Expected. */
+        }
+    }
+
+    /**
+     * Test that buckets are reused as the window slides, without counting occurrences which have left the window.
+     */
+    @Test
+    public void testSlidingWindow()
+    {
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(ExceptionMetrics.DEFAULT_MAXIMUM_SITES, clock);
+        final ExceptionMetrics.Recorder recorder = metrics.recorder(IllegalStateException.class, "op");
+        for (int i = 0; i < 200; i += 1)
+        {
+            for (int j = 0; j <= i % 3; j += 1)
+            {
+                recorder.record();
+            }
+            clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+        }
+
+        /* Each run of three seconds records six occurrences; the last sixty seconds are twenty such runs. */
+        final ExceptionSiteMetrics snapshot = recorder.snapshot(ExceptionMetrics.MAXIMUM_WINDOW_SECONDS);
+        assertEquals(120L, snapshot.getWindowCount());
+        assertEquals(2.0, snapshot.getRate(), 0.0);
+        assertEquals(399L, snapshot.getTotalCount());
+        assertEquals(2.0, metrics.getRate(), 0.0);
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionMetrics#record(Throwable)}, and its use as an {@link
+     * ExceptionListener}.
+     */
+    @Test
+    public void testRecord()
+    {
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(ExceptionMetrics.DEFAULT_MAXIMUM_SITES, clock);
+        for (int i = 0; i < 5; i += 1)
+        {
+            metrics.record(newException());
+        }
+        metrics.record(new IllegalStateException());
+        final IllegalStateException untraced = new IllegalStateException();
+        untraced.setStackTrace(new StackTraceElement[0]);
+        metrics.record(untraced);
+        Exceptions.addListener(metrics);
+        try
+        {
+            Exceptions.uniqueId(newException());
+        }
+        finally
+        {
+            Exceptions.removeListener(metrics);
+        }
+        clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+
+        final List<ExceptionSiteMetrics> snapshot = metrics.snapshot();
+        assertEquals(4, snapshot.size());
+        assertEquals(6L, snapshot.get(0).getWindowCount());
+        assertEquals(IllegalStateException.class.getName(), snapshot.get(0).getExceptionClassName());
+        assertEquals(newException().getStackTrace()[0].toString(), snapshot.get(0).getSite());
+        assertTrue("(no stack trace)".equals(snapshot.get(1).getSite()) ||
+                "(no stack trace)".equals(snapshot.get(2).getSite()));
+        assertEquals("(other sites)", snapshot.get(3).getSite());
+        assertEquals(0L, snapshot.get(3).getTotalCount());
+        assertEquals(8L, metrics.getTotalCount());
+    }
+
+    /**
+     * Test that occurrences at sites beyond the maximum are counted at the overflow site.
+     */
+    @Test
+    public void testMaximumSites()
+    {
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(2, clock);
+        final ExceptionMetrics.Recorder first = metrics.recorder(IllegalStateException.class, "a");
+        final ExceptionMetrics.Recorder second = metrics.recorder(IllegalStateException.class, "b");
+        final ExceptionMetrics.Recorder overflow = metrics.recorder(IllegalStateException.class, "c");
+        assertNotSame(first, second);
+        assertSame(overflow, metrics.recorder(IllegalArgumentException.class, "d"));
+        assertEquals(2, metrics.getSiteCount());
+        overflow.record();
+        overflow.record();
+        first.record();
+
+        final List<ExceptionSiteMetrics> snapshot = metrics.snapshot(1);
+        assertEquals(3, snapshot.size());
+        assertEquals("(other sites)", snapshot.get(0).getSite());
+        assertEquals(2L, snapshot.get(0).getTotalCount());
+        assertEquals("a", snapshot.get(1).getSite());
+    }
+
+    /**
+     * Test that concurrent recording at a single site loses no occurrences.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testConcurrentRecording() throws Exception
+    {
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(ExceptionMetrics.DEFAULT_MAXIMUM_SITES, clock);
+        final ExceptionMetrics.Recorder recorder = metrics.recorder(IllegalStateException.class, "op");
+        final int threadCount = 4;
+        final int perThread = 100000;
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i += 1)
+        {
+            threads.add(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < perThread; j += 1)
+                    {
+                        recorder.record();
+                    }
+                }
+            });
+        }
+        for (final Thread nextThread : threads)
+        {
+            nextThread.start();
+        }
+        for (final Thread nextThread : threads)
+        {
+            nextThread.join();
+        }
+        clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+        final ExceptionSiteMetrics snapshot = recorder.snapshot(1);
+        assertEquals((long) threadCount * perThread, snapshot.getTotalCount());
+        assertEquals((long) threadCount * perThread, snapshot.getWindowCount());
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionMetrics#registerMBean(MBeanServer, String)}.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testRegisterMBean() throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(ExceptionMetrics.DEFAULT_MAXIMUM_SITES, clock);
+        final ObjectName name = metrics.registerMBean(server, "test");
+        assertEquals(name, metrics.registerMBean(server, "test"));
+        metrics.recorder(IllegalStateException.class, "op").record();
+        clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+        assertEquals(1L, server.getAttribute(name, "TotalCount"));
+        assertEquals(1, server.getAttribute(name, "SiteCount"));
+
+        final ExceptionMetricsMXBean proxy = JMX.newMXBeanProxy(server, name, ExceptionMetricsMXBean.class);
+        final List<ExceptionSiteMetrics> sites = proxy.getSites();
+        assertEquals(2, sites.size());
+        assertEquals("op", sites.get(0).getSite());
+        assertEquals(1L, sites.get(0).getWindowCount());
+        assertEquals(ExceptionMetrics.MAXIMUM_WINDOW_SECONDS, sites.get(0).getWindowSeconds());
+    }
+
+    /**
+     * Test that the places of sites discarded along with their unloaded exception class are taken by new sites once
+     * the maximum number of sites has been reached.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUnloadedClassSitesReclaimed() throws Exception
+    {
+        final TestClock clock = new TestClock();
+        final ExceptionMetrics metrics = new ExceptionMetrics(2, clock);
+        final WeakReference<Class<?>> unloaded = recordUnloadable(metrics);
+        assertEquals(2, metrics.getSiteCount());
+        final ExceptionMetrics.Recorder overflow = metrics.recorder(IllegalStateException.class, "c");
+        assertSame(overflow, metrics.recorder(IllegalStateException.class, "d"));
+
+        assertTrue(GarbageCollection.awaitCondition(new GarbageCollection.Condition()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                return null == unloaded.get();
+            }
+        }, 30L, TimeUnit.SECONDS));
+        assertEquals(0, metrics.getSiteCount());
+
+        /* Reconciliation happens at most once per second, and the overflow site's count was reconciled above. */
+        clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+        final ExceptionMetrics.Recorder recorder = metrics.recorder(IllegalStateException.class, "c");
+        assertNotSame(overflow, recorder);
+        assertNotSame(overflow, metrics.recorder(IllegalStateException.class, "d"));
+        assertSame(overflow, metrics.recorder(IllegalStateException.class, "e"));
+        assertEquals(2, metrics.getSiteCount());
+    }
+
+    /**
+     * Test that recording through a held recorder allocates nothing. Unlike {@link ExceptionMetrics#record(Throwable)},
+     * which copies the exception's stack trace, this is the path intended for code on which exceptions are frequent.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testRecordAllocationFree() throws Exception
+    {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+        final ExceptionMetrics.Recorder recorder = new ExceptionMetrics().recorder(IllegalStateException.class, "op");
+        AllocationMeter.assertAllocationFree("ExceptionMetrics.Recorder.record", new AllocationMeter.Action()
+        {
+            @Override
+            public void perform()
+            {
+                recorder.record();
+            }
+        });
+    }
+
+    /**
+     * Create an exception thrown from a single site.
+     *
+     * @return {@link IllegalStateException} exception.
+     */
+    private static IllegalStateException newException()
+    {
+        return new IllegalStateException("Failed.");
+    }
+
+    /**
+     * Record an occurrence at each of two sites of {@link UnloadableException}, as defined by a class loader of its
+     * own, so that the class may be unloaded once nothing but the metrics refers to it.
+     *
+     * @param metrics the metrics.
+     * @return {@link WeakReference} to the class.
+     * @throws Exception if the class cannot be loaded.
+     */
+    private static WeakReference<Class<?>> recordUnloadable(final ExceptionMetrics metrics) throws Exception
+    {
+        final Class<? extends Throwable> type = new IsolatingClassLoader().loadIsolated(UnloadableException.class);
+        assertNotSame(UnloadableException.class, type);
+        metrics.recorder(type, "a").record();
+        metrics.recorder(type, "b").record();
+        return new WeakReference<Class<?>>(type);
+    }
+
+    /**
+     * {@link TestClock} is a {@link Clock} advanced explicitly by the test.
+     */
+    private static class TestClock implements Clock
+    {
+        private long m_now;
+
+        /**
+         * Construct a {@link TestClock} instance.
+         */
+        public TestClock()
+        {
+            super();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long nanoTime()
+        {
+            return m_now;
+        }
+    }
+
+    /**
+     * {@link UnloadableException} is an exception class which {@link IsolatingClassLoader} defines afresh.
+     */
+    public static class UnloadableException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Construct an {@link UnloadableException} instance.
+         */
+        public UnloadableException()
+        {
+            super();
+        }
+    }
+
+    /**
+     * {@link IsolatingClassLoader} defines its own copy of a class from the bytes of the class as loaded by this
+     * test's class loader.
+     */
+    private static class IsolatingClassLoader extends ClassLoader
+    {
+        /**
+         * Construct an {@link IsolatingClassLoader} instance.
+         */
+        public IsolatingClassLoader()
+        {
+            super(ExceptionMetricsTest.class.getClassLoader());
+        }
+
+        /**
+         * Define a copy of a class.
+         *
+         * @param type the class.
+         * @param <T> the class type.
+         * @return {@link Class} the copy.
+         * @throws IOException if the class bytes cannot be read.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Class<? extends T> loadIsolated(final Class<? extends T> type) throws IOException
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final InputStream input = type.getResourceAsStream('/' + type.getName().replace('.', '/') + ".class");
+            try
+            {
+                final byte[] buffer = new byte[4096];
+                for (int read = input.read(buffer); read >= 0; read = input.read(buffer))
+                {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+            finally
+            {
+                input.close();
+            }
+            return (Class<? extends T>) defineClass(type.getName(), bytes.toByteArray(), 0, bytes.size());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.biglakesystems.biglib.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionRegistryTest} provides unit test coverage for {@link ExceptionRegistry}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionRegistryTest
+{
+    /**
+     * Construct a {@link ExceptionRegistryTest} instance.
+     */
+    public ExceptionRegistryTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionRegistry#fingerprint(Throwable, int)}.
+     */
+    @Test
+    public void testFingerprint()
+    {
+        /* Exceptions thrown from the same site share a fingerprint regardless of message; those thrown from different
+        sites, or of different classes, do not. */
+        final Throwable[] sameSite = new Throwable[2];
+        for (int i = 0; i < sameSite.length; i += 1)
+        {
+            sameSite[i] = new IllegalStateException("Failure " + i);
+        }
+        final Throwable otherSite = new IllegalStateException("Failure 0");
+        final Throwable otherClass = new IllegalArgumentException("Failure 0");
+        otherClass.setStackTrace(sameSite[0].getStackTrace());
+        final long fingerprint = ExceptionRegistry.fingerprint(sameSite[0], 8);
+        assertEquals(fingerprint, ExceptionRegistry.fingerprint(sameSite[1], 8));
+        assertFalse(fingerprint == ExceptionRegistry.fingerprint(otherSite, 8));
+        assertFalse(fingerprint == ExceptionRegistry.fingerprint(otherClass, 8));
+
+        /* With no frames, only the class contributes. */
+        assertEquals(ExceptionRegistry.fingerprint(sameSite[0], 0), ExceptionRegistry.fingerprint(otherSite, 0));
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionRegistry#record(Throwable, String)} and {@link
+     * ExceptionRegistry#lookup(String)}.
+     */
+    @Test
+    public void testRecord()
+    {
+        final ExceptionRegistry registry = new ExceptionRegistry();
+        Throwable sample = null;
+        for (int i = 0; i < 100; i += 1)
+        {
+            final Throwable exception = new IllegalStateException("Failure " + i);
+            if (null == sample)
+            {
+                sample = exception;
+            }
+            registry.record(exception, "id" + i);
+        }
+        registry.record(new IllegalArgumentException(), "other");
+        assertEquals(2, registry.size());
+        assertEquals(2, registry.getRecords().size());
+
+        final ExceptionRecord record = registry.get(ExceptionRegistry.fingerprint(sample,
+                ExceptionRegistry.DEFAULT_FINGERPRINT_FRAMES));
+        assertNotNull(record);
+        assertEquals(100L, record.getCount());
+        assertSame(sample, record.getSample());
+        assertEquals("id0", record.getSampleId());
+        assertEquals("id99", record.getLastId());
+        assertTrue(record.getFirstSeen() <= record.getLastSeen());
+        assertSame(record, registry.lookup("id0"));
+        assertSame(record, registry.lookup("id99"));
+        assertNull(registry.lookup("unknown"));
+
+        registry.clear();
+        assertEquals(0, registry.size());
+        assertNull(registry.lookup("id0"));
+    }
+
+    /**
+     * Test that {@link ExceptionRegistry} retains no more than the maximum number of records.
+     */
+    @Test
+    public void testMaximumRecords()
+    {
+        final ExceptionRegistry registry = new ExceptionRegistry(8, 1, 16);
+        assertNotNull(registry.record(new IllegalStateException(), "first"));
+        assertNull(registry.record(new IllegalArgumentException(), "second"));
+        assertEquals(1, registry.size());
+        assertEquals(1L, registry.getOverflowCount());
+        assertNull(registry.lookup("second"));
+    }
+
+    /**
+     * Test that the identifier index resolves exactly the most recently recorded identifiers, up to its size, and that
+     * records outlive the identifiers evicted from it.
+     */
+    @Test
+    public void testLookupAfterEviction()
+    {
+        final ExceptionRegistry registry = new ExceptionRegistry(8, 16, 100);
+        final Throwable exception = new IllegalStateException();
+        ExceptionRecord record = null;
+        for (int i = 0; i < 1000; i += 1)
+        {
+            record = registry.record(exception, "id" + i);
+        }
+        for (int i = 0; i < 900; i += 1)
+        {
+            assertNull(registry.lookup("id" + i));
+        }
+        for (int i = 900; i < 1000; i += 1)
+        {
+            assertSame(record, registry.lookup("id" + i));
+        }
+        assertSame(record, registry.get(ExceptionRegistry.fingerprint(exception,
+                ExceptionRegistry.DEFAULT_FINGERPRINT_FRAMES)));
+        assertEquals("id0", record.getSampleId());
+        assertEquals(1000L, record.getCount());
+
+        /* An identifier recorded again is retained as recent, although its older entry is evicted. */
+        registry.record(exception, "id950");
+        for (int i = 1000; i < 1060; i += 1)
+        {
+            registry.record(exception, "id" + i);
+        }
+        assertNull(registry.lookup("id949"));
+        assertSame(record, registry.lookup("id950"));
+        assertNull(registry.lookup("id951"));
+    }
+}
@@ -0,0 +1,296 @@
+package com.biglakesystems.biglib.quality;
+
+import com.biglakesystems.biglib.impl.quality.Clock;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExceptionReporterTest} provides unit test coverage for {@link ExceptionReporter}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class ExceptionReporterTest
+{
+    private static final StackTraceElement[] SITE = new Exception().getStackTrace();
+
+    /**
+     * Construct a {@link ExceptionReporterTest} instance.
+     */
+    public ExceptionReporterTest()
+    {
+        super();
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionReporter#report(Logger, Throwable, String, Object...)}.
+     */
+    @Test
+    public void testReport()
+    {
+        final List<String> messages = new ArrayList<String>();
+        final Logger logger = recordingLogger(messages);
+        final TestClock clock = new TestClock();
+        final ExceptionReporter reporter = newReporter(clock);
+
+        /* Two traces, then three summaries, then suppression. */
+        final ExceptionReporter.Disposition[] expected = {ExceptionReporter.Disposition.TRACE,
+                ExceptionReporter.Disposition.TRACE, ExceptionReporter.Disposition.SUMMARY,
+                ExceptionReporter.Disposition.SUMMARY, ExceptionReporter.Disposition.SUMMARY,
+                ExceptionReporter.Disposition.SUPPRESSED, ExceptionReporter.Disposition.SUPPRESSED};
+        for (final ExceptionReporter.Disposition nextExpected : expected)
+        {
+            assertEquals(nextExpected, reporter.report(logger, newException(), "Failed [%s].", "op"));
+        }
+        assertEquals(5, messages.size());
+        assertTrue(messages.get(0).startsWith("error+trace:Failed [op]. [exception ID: "));
+        assertTrue(messages.get(2).startsWith("error:Failed [op]. [exception ID: "));
+
+        /* A different site has its own buckets. */
+        assertEquals(ExceptionReporter.Disposition.TRACE, reporter.report(logger, new IllegalStateException(), "x"));
+
+        /* After one summary period, one more summary is permitted. */
+        clock.m_now += TimeUnit.SECONDS.toNanos(1L);
+        assertEquals(ExceptionReporter.Disposition.SUMMARY, reporter.report(logger, newException(), "x"));
+        assertEquals(ExceptionReporter.Disposition.SUPPRESSED, reporter.report(logger, newException(), "x"));
+
+        /* Once the rollup interval elapses, the next occurrence rolls up the suppressed count. */
+        messages.clear();
+        clock.m_now += TimeUnit.SECONDS.toNanos(10L);
+        assertEquals(ExceptionReporter.Disposition.SUMMARY, reporter.report(logger, newException(), "x"));
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(1), messages.get(1).startsWith("warn:Suppressed [3] occurrences of ["));
+
+        /* After the trace period, the trace bucket refills completely. */
+        clock.m_now += TimeUnit.MINUTES.toNanos(5L);
+        assertEquals(ExceptionReporter.Disposition.TRACE, reporter.report(logger, newException(), "x"));
+        assertEquals(ExceptionReporter.Disposition.TRACE, reporter.report(logger, newException(), "x"));
+        assertEquals(ExceptionReporter.Disposition.SUMMARY, reporter.report(logger, newException(), "x"));
+    }
+
+    /**
+     * Test that the count suppressed at the tail of a storm is rolled up once the rollup interval has elapsed, even
+     * though no further exception occurs at the same site.
+     */
+    @Test
+    public void testRollupAfterStormStops()
+    {
+        final List<String> messages = new ArrayList<String>();
+        final Logger logger = recordingLogger(messages);
+        final TestClock clock = new TestClock();
+        final ExceptionReporter reporter = newReporter(clock);
+        for (int i = 0; i < 105; i += 1)
+        {
+            reporter.report(logger, newException(), "x");
+        }
+        assertEquals(5, messages.size());
+
+        /* The storm stops; much later, an exception is reported at another site. */
+        messages.clear();
+        clock.m_now += TimeUnit.SECONDS.toNanos(30L);
+        assertEquals(ExceptionReporter.Disposition.TRACE, reporter.report(logger, new IllegalStateException(), "y"));
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(1), messages.get(1).startsWith("warn:Suppressed [100] occurrences of ["));
+
+        /* Nothing remains to be rolled up. */
+        messages.clear();
+        clock.m_now += TimeUnit.SECONDS.toNanos(30L);
+        reporter.report(logger, new IllegalStateException(), "y");
+        assertEquals(1, messages.size());
+    }
+
+    /**
+     * Test that the count suppressed at the tail of a storm is rolled up by the periodic sweep once the rollup interval
+     * has elapsed, although no further exception is reported anywhere.
+     */
+    @Test
+    public void testSweepAfterStormStops()
+    {
+        final List<String> messages = new ArrayList<String>();
+        final Logger logger = recordingLogger(messages);
+        final TestClock clock = new TestClock();
+        final ExceptionReporter reporter = newReporter(clock);
+        for (int i = 0; i < 105; i += 1)
+        {
+            reporter.report(logger, newException(), "x");
+        }
+        messages.clear();
+
+        /* Nothing is due before the interval elapses. */
+        clock.m_now += TimeUnit.SECONDS.toNanos(5L);
+        reporter.sweepDue();
+        assertEquals(0, messages.size());
+
+        clock.m_now += TimeUnit.SECONDS.toNanos(5L);
+        reporter.sweepDue();
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0), messages.get(0).startsWith("warn:Suppressed [100] occurrences of ["));
+        reporter.sweepDue();
+        assertEquals(1, messages.size());
+    }
+
+    /**
+     * Test that the shared periodic sweep rolls up suppressed occurrences without further reports.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Test
+    public void testPeriodicSweep() throws InterruptedException
+    {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+        final Logger logger = recordingLogger(messages);
+        final ExceptionReporter reporter = new ExceptionReporter(1, TimeUnit.MINUTES.toMillis(1L), 0,
+                TimeUnit.SECONDS.toMillis(1L), 50L);
+        try
+        {
+            for (int i = 0; i < 11; i += 1)
+            {
+                reporter.report(logger, newException(), "x");
+            }
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+            while (messages.size() < 2 && System.nanoTime() - deadline < 0L)
+            {
+                Thread.sleep(10L);
+            }
+            assertEquals(2, messages.size());
+            assertTrue(messages.get(1), messages.get(1).startsWith("warn:Suppressed [10] occurrences of ["));
+        }
+        finally
+        {
+            reporter.shutdown();
+        }
+    }
+
+    /**
+     * Test the implementation of {@link ExceptionReporter#flush()}.
+     */
+    @Test
+    public void testFlush()
+    {
+        final List<String> messages = new ArrayList<String>();
+        final Logger logger = recordingLogger(messages);
+        final ExceptionReporter reporter = newReporter(new TestClock());
+        for (int i = 0; i < 7; i += 1)
+        {
+            reporter.report(logger, newException(), "x");
+        }
+        messages.clear();
+
+        /* Suppressed occurrences are rolled up before the rollup interval elapses. */
+        reporter.flush();
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0), messages.get(0).startsWith("warn:Suppressed [2] occurrences of ["));
+        reporter.flush();
+        assertEquals(1, messages.size());
+    }
+
+    /**
+     * Test {@link Exceptions#report(Logger, Throwable, String, Object...)}.
+     */
+    @Test
+    public void testExceptionsReport()
+    {
+        final List<String> messages = new ArrayList<String>();
+        Exceptions.report(recordingLogger(messages), new IllegalStateException(), "Failed.");
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).startsWith("error+trace:Failed. [exception ID: "));
+    }
+
+    /**
+     * Create an exception, always appearing to have been thrown from the same site.
+     *
+     * @return {@link Exception} exception.
+     */
+    private static Exception newException()
+    {
+        final Exception result = new Exception("Failure.");
+        result.setStackTrace(SITE);
+        return result;
+    }
+
+    /**
+     * Create a logger which records each message logged at {@code ERROR} or {@code WARN} level, prefixed by the level
+     * and whether a throwable was attached.
+     *
+     * @param messages the list to which to append messages.
+     * @return {@link Logger} logger.
+     */
+    private static Logger recordingLogger(final List<String> messages)
+    {
+        return (Logger) Proxy.newProxyInstance(ExceptionReporterTest.class.getClassLoader(),
+                new Class<?>[]{Logger.class}, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args)
+            {
+                Object result = null;
+                if (method.getName().startsWith("is"))
+                {
+                    result = Boolean.TRUE;
+                }
+                else if ("error".equals(method.getName()) || "warn".equals(method.getName()))
+                {
+                    final boolean trace = 2 == args.length && args[1] instanceof Throwable;
+                    messages.add(method.getName() + (trace ? "+trace:" : ":") + args[0]);
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Create a reporter permitting two traces per minute, three summaries per second, and rollups every ten seconds,
+     * with no periodic sweep.
+     *
+     * @param clock the clock used to meter occurrences.
+     * @return {@link ExceptionReporter} reporter.
+     */
+    private static ExceptionReporter newReporter(final Clock clock)
+    {
+        return new ExceptionReporter(2, TimeUnit.MINUTES.toMillis(1L), 3, TimeUnit.SECONDS.toMillis(1L),
+                TimeUnit.SECONDS.toMillis(10L), clock, null);
+    }
+
+    /**
+     * {@link TestClock} is a {@link Clock} which is advanced explicitly.
+     */
+    private static class TestClock implements Clock
+    {
+        private long m_now;
+
+        /**
+         * Construct a {@link TestClock} instance.
+         */
+        public TestClock()
+        {
+            super();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long nanoTime()
+        {
+            return m_now;
+        }
+    }
+}
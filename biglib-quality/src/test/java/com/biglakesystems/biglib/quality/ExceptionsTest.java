@@ -1,8 +1,20 @@
 package com.biglakesystems.biglib.quality;
 
+import com.biglakesystems.biglib.impl.quality.CounterExceptionIdGenerator;
+import com.biglakesystems.biglib.impl.quality.Sha1ExceptionIdGenerator;
+import com.biglakesystems.biglib.impl.quality.TimeOrderedExceptionIdGenerator;
+import com.biglakesystems.biglib.test.AllocationMeter;
 import org.apache.commons.lang3.StringUtils;
+import org.junit.Assume;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -50,6 +62,241 @@ public class ExceptionsTest
         assertFalse(Exceptions.uniqueId(equalException1).equals(Exceptions.uniqueId(equalException2)));
     }
 
+    /**
+     * Test the implementation of {@link Exceptions#chainId(Throwable)}.
+     */
+    @Test
+    public void testChainId()
+    {
+        /* Wrappers inherit the identifier of an identified cause, at any depth. */
+        final Exception root = new Exception("Root.");
+        final String rootId = Exceptions.uniqueId(root);
+        final RuntimeException middle = new RuntimeException(root);
+        final IllegalStateException outer = new IllegalStateException(middle);
+        assertEquals(rootId, Exceptions.chainId(outer));
+        assertEquals(rootId, Exceptions.uniqueId(outer));
+        assertEquals(rootId, Exceptions.chainId(middle));
+
+        /* A chain with no identified member is assigned a new identifier, which its causes do not share. */
+        final Exception unidentifiedRoot = new Exception();
+        final RuntimeException wrapper = new RuntimeException(unidentifiedRoot);
+        final String wrapperId = Exceptions.chainId(wrapper);
+        assertEquals(wrapperId, Exceptions.uniqueId(wrapper));
+        assertFalse(wrapperId.equals(Exceptions.uniqueId(unidentifiedRoot)));
+        assertEquals(wrapperId, Exceptions.chainId(new RuntimeException(wrapper)));
+    }
+
+    /**
+     * Test that {@link Exceptions#chainId(Throwable)} inherits an identifier from a suppressed exception, on platforms
+     * which support suppression.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testChainIdSuppressed() throws Exception
+    {
+        Method addSuppressed = null;
+        try
+        {
+            addSuppressed = Throwable.class.getMethod("addSuppressed", Throwable.class);
+        }
+        catch (final NoSuchMethodException e)
+        {
+            /* Platform predates suppression. */
+        }
+        Assume.assumeNotNull(addSuppressed);
+        final Exception primary = new Exception("Primary.");
+        final Exception suppressed = new Exception("Suppressed.");
+        addSuppressed.invoke(primary, suppressed);
+        final String suppressedId = Exceptions.uniqueId(suppressed);
+        assertEquals(suppressedId, Exceptions.chainId(new RuntimeException(primary)));
+    }
+
+    /**
+     * Test the implementation of {@link Exceptions#setIdGenerator(ExceptionIdGenerator)}.
+     */
+    @Test
+    public void testSetIdGenerator()
+    {
+        final ExceptionIdGenerator original = Exceptions.getIdGenerator();
+        try
+        {
+            Exceptions.setIdGenerator(new ExceptionIdGenerator()
+            {
+                @Override
+                public String newId(final Throwable exception)
+                {
+                    return "custom";
+                }
+            });
+            final Exception testException = new Exception();
+            assertEquals("custom", Exceptions.uniqueId(testException));
+        }
+        finally
+        {
+            Exceptions.setIdGenerator(original);
+        }
+        try
+        {
+            Exceptions.setIdGenerator(null);
+            fail("Invocation with null generator did not throw.");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            /* Good. */
+        }
+    }
+
+    /**
+     * Test that an identifier generator which returns {@code null} is reported as such, rather than causing a {@link
+     * NullPointerException} when the identifier is rendered.
+     */
+    @Test
+    public void testNullIdRejected()
+    {
+        final ExceptionIdGenerator original = Exceptions.getIdGenerator();
+        try
+        {
+            Exceptions.setIdGenerator(new ExceptionIdGenerator()
+            {
+                @Override
+                public String newId(final Throwable exception)
+                {
+                    return null;
+                }
+            });
+            final Exception testException = new Exception();
+            try
+            {
+                Exceptions.uniqueId(testException);
+                fail("Invocation with null-returning generator did not throw.");
+            }
+            catch (final IllegalStateException e)
+            {
+                assertTrue(e.getMessage().contains(ExceptionsTest.class.getName()));
+            }
+            Exceptions.setIdGenerator(original);
+            assertNotNull(Exceptions.uniqueId(testException));
+        }
+        finally
+        {
+            Exceptions.setIdGenerator(original);
+        }
+    }
+
+    /**
+     * Test the implementation of {@link Exceptions#addListener(ExceptionListener)} and {@link
+     * Exceptions#removeListener(ExceptionListener)}.
+     */
+    @Test
+    public void testListeners()
+    {
+        final List<String> identified = new ArrayList<String>();
+        final ExceptionListener recording = new ExceptionListener()
+        {
+            @Override
+            public void exceptionIdentified(final Throwable exception, final String id)
+            {
+                identified.add(id);
+            }
+        };
+        final ExceptionListener failing = new ExceptionListener()
+        {
+            @Override
+            public void exceptionIdentified(final Throwable exception, final String id)
+            {
+                throw new IllegalStateException("Listener failure.");
+            }
+        };
+        Exceptions.addListener(failing);
+        Exceptions.addListener(recording);
+        try
+        {
+            /* Listeners are notified once per exception, and a failing listener does not affect the others. */
+            final Exception testException = new Exception();
+            final String testExceptionId = Exceptions.uniqueId(testException);
+            assertEquals(testExceptionId, Exceptions.uniqueId(testException));
+            assertEquals(1, identified.size());
+            assertEquals(testExceptionId, identified.get(0));
+        }
+        finally
+        {
+            assertTrue(Exceptions.removeListener(failing));
+            assertTrue(Exceptions.removeListener(recording));
+        }
+        assertFalse(Exceptions.removeListener(recording));
+        Exceptions.uniqueId(new Exception());
+        assertEquals(1, identified.size());
+    }
+
+    /**
+     * Test the implementation of {@link Exceptions#registerStatisticsMBean(MBeanServer)}.
+     */
+    @Test
+    public void testRegisterStatisticsMBean() throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = Exceptions.registerStatisticsMBean(server);
+        assertEquals(name, Exceptions.registerStatisticsMBean(server));
+        Exceptions.uniqueId(new Exception());
+        assertTrue((Long) server.getAttribute(name, "PutCount") > 0L);
+        assertTrue((Integer) server.getAttribute(name, "Capacity") > 0);
+    }
+
+    /**
+     * Test that {@link Exceptions#exceptionId(Throwable)} returns the identifier assigned by {@link
+     * Exceptions#uniqueId(Throwable)}, in compact form, for each of the built-in generators.
+     */
+    @Test
+    public void testExceptionId()
+    {
+        final ExceptionIdGenerator original = Exceptions.getIdGenerator();
+        try
+        {
+            for (final ExceptionIdGenerator nextGenerator : new ExceptionIdGenerator[]{new Sha1ExceptionIdGenerator(),
+                    new CounterExceptionIdGenerator(), new TimeOrderedExceptionIdGenerator()})
+            {
+                Exceptions.setIdGenerator(nextGenerator);
+                final Exception testException = new Exception();
+                final ExceptionId id = Exceptions.exceptionId(testException);
+                assertSame(id, Exceptions.exceptionId(testException));
+                final String uniqueId = Exceptions.uniqueId(testException);
+                assertEquals(id.toString(), uniqueId);
+                assertSame(uniqueId, Exceptions.uniqueId(testException));
+                assertEquals(id, ExceptionId.parse(uniqueId));
+
+                /* Once requested as a string, the identifier is held as the string, and the compact form re-parsed. */
+                assertEquals(id, Exceptions.exceptionId(testException));
+                assertSame(uniqueId, Exceptions.chainId(testException));
+            }
+        }
+        finally
+        {
+            Exceptions.setIdGenerator(original);
+        }
+    }
+
+    /**
+     * Test that looking up the identifier of an exception which already has one is allocation-free.
+     *
+     * @throws Exception if the test fails unexpectedly.
+     */
+    @Test
+    public void testCachedUniqueIdAllocationFree() throws Exception
+    {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+        final Throwable exception = new IllegalStateException("Cached.");
+        final String id = Exceptions.uniqueId(exception);
+        AllocationMeter.assertAllocationFree("Cached Exceptions.uniqueId", new AllocationMeter.Action()
+        {
+            @Override
+            public void perform()
+            {
+                assertSame(id, Exceptions.uniqueId(exception));
+            }
+        });
+    }
+
     /**
      * {@link AlwaysEqualException} is used by {@link #testUniqueId()} to verify that two different exception instances,
      * for which {@link Object#equals(Object)} returns {@code true}, produce different unique IDs. It implements {@link
@@ -0,0 +1,204 @@
+package com.biglakesystems.biglib.test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * {@link AllocationMeter} measures the heap allocated by the current thread while it runs an action, so that tests can
+ * assert that hot paths are allocation-free, or within a budget of bytes per operation. It reads the per-thread
+ * allocation counter exposed by {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, which HotSpot
+ * maintains exactly, including partially filled allocation buffers.
+ * <p/>
+ * Allocation by code which has not yet been compiled is not representative: the interpreter does not eliminate
+ * allocations which the JIT compiler would, and the first calls into a class run its lazy initialization. Each
+ * measurement therefore runs the action for a number of warm-up iterations before a number of measured ones. The
+ * measured iterations are repeated for a few rounds and the smallest result kept, so that a round disturbed by a
+ * background compilation or deoptimization does not fail a test. The meter's own overhead, if any, is measured once
+ * and subtracted.
+ * <p/>
+ * The counter is not available on every virtual machine. Tests should check {@link #isSupported()} and skip, for
+ * example via JUnit's {@code Assume}, where it is not; the other methods throw {@link IllegalStateException}.
+ * <p/>
+ * <strong>Thread Safety:</strong> this class is safe for multithreaded access; each thread measures only its own
+ * allocation.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class AllocationMeter
+{
+    /**
+     * Default number of warm-up iterations.
+     */
+    public static final int DEFAULT_WARMUP_ITERATIONS = 20000;
+
+    /**
+     * Default number of measured iterations.
+     */
+    public static final int DEFAULT_ITERATIONS = 10000;
+
+    private static final int ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean s_threadBean = threadBean();
+    private static final long s_overhead = null == s_threadBean ? 0L : overhead();
+
+    /**
+     * Construct a {@link AllocationMeter} instance.
+     */
+    private AllocationMeter()
+    {
+        super();
+    }
+
+    /**
+     * Assert that an action allocates nothing, using the default numbers of iterations.
+     *
+     * @param description a description of the action, for the failure message.
+     * @param action the action.
+     * @throws Exception if the action fails.
+     */
+    public static void assertAllocationFree(final String description, final Action action) throws Exception
+    {
+        assertBytesPerOperation(description, 0L, action);
+    }
+
+    /**
+     * Assert that an action allocates no more than a given number of bytes per invocation, on average, using the
+     * default numbers of iterations.
+     *
+     * @param description a description of the action, for the failure message.
+     * @param maximumBytesPerOperation the budget.
+     * @param action the action.
+     * @throws Exception if the action fails.
+     */
+    public static void assertBytesPerOperation(final String description, final long maximumBytesPerOperation,
+                                               final Action action) throws Exception
+    {
+        final long bytes = bytesAllocated(action, DEFAULT_WARMUP_ITERATIONS, DEFAULT_ITERATIONS);
+        if (bytes > maximumBytesPerOperation * DEFAULT_ITERATIONS)
+        {
+            throw new AssertionError(String.format("%s allocated [%d] bytes over [%d] operations; expected at most " +
+                    "[%d] per operation.", description, bytes, DEFAULT_ITERATIONS, maximumBytesPerOperation));
+        }
+    }
+
+    /**
+     * Measure the bytes allocated by an action.
+     *
+     * @param action the action.
+     * @param warmupIterations the number of unmeasured invocations first.
+     * @param iterations the number of measured invocations.
+     * @return {@code long} bytes allocated over the measured invocations, in the least allocating round.
+     * @throws Exception if the action fails.
+     */
+    public static long bytesAllocated(final Action action, final int warmupIterations, final int iterations)
+            throws Exception
+    {
+        if (null == s_threadBean)
+        {
+            throw new IllegalStateException("Thread allocation measurement is not supported by this virtual machine.");
+        }
+        if (warmupIterations < 0 || iterations <= 0)
+        {
+            throw new IllegalArgumentException(String.format("Invalid iterations: warmupIterations=[%d], " +
+                    "iterations=[%d].", warmupIterations, iterations));
+        }
+        for (int i = 0; i < warmupIterations; i += 1)
+        {
+            action.perform();
+        }
+        final long thread = Thread.currentThread().getId();
+        long result = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && result > 0L; round += 1)
+        {
+            final long start = s_threadBean.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < iterations; i += 1)
+            {
+                action.perform();
+            }
+            final long end = s_threadBean.getThreadAllocatedBytes(thread);
+            result = Math.min(result, Math.max(0L, end - start - s_overhead));
+        }
+        return result;
+    }
+
+    /**
+     * Determine whether allocation can be measured on this virtual machine.
+     *
+     * @return {@code boolean} {@code true} if supported.
+     */
+    public static boolean isSupported()
+    {
+        return null != s_threadBean;
+    }
+
+    /**
+     * Measure the bytes allocated by reading the counter itself, which should be none.
+     *
+     * @return {@code long} overhead in bytes.
+     */
+    private static long overhead()
+    {
+        final long thread = Thread.currentThread().getId();
+        long result = Long.MAX_VALUE;
+        for (int i = 0; i < DEFAULT_WARMUP_ITERATIONS; i += 1)
+        {
+            final long start = s_threadBean.getThreadAllocatedBytes(thread);
+            result = Math.min(result, s_threadBean.getThreadAllocatedBytes(thread) - start);
+        }
+        return result;
+    }
+
+    /**
+     * Get the platform's thread bean, enabling allocation measurement if necessary.
+     *
+     * @return {@link com.sun.management.ThreadMXBean} bean, or {@code null} if allocation measurement is not
+     * supported.
+     */
+    private static com.sun.management.ThreadMXBean threadBean()
+    {
+        com.sun.management.ThreadMXBean result = null;
+        try
+        {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean)
+            {
+                result = (com.sun.management.ThreadMXBean) bean;
+                if (!result.isThreadAllocatedMemorySupported())
+                {
+                    result = null;
+                }
+                else if (!result.isThreadAllocatedMemoryEnabled())
+                {
+                    result.setThreadAllocatedMemoryEnabled(true);
+                }
+            }
+        }
+        catch (final LinkageError e)
+        {
+            /* The com.sun.management extensions are absent on this virtual machine. */
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * {@link Action} is an action whose allocation is measured.
+     */
+    public interface Action
+    {
+        /**
+         * Perform the action once.
+         *
+         * @throws Exception if the action fails.
+         */
+        void perform() throws Exception;
+    }
+}
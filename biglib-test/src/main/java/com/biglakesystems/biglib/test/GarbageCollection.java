@@ -0,0 +1,118 @@
+package com.biglakesystems.biglib.test;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GarbageCollection} provides helpers which drive the garbage collector from tests. A single call to {@link
+ * System#gc()} is only a request; it may be ignored, may not clear every weakly reachable object, and in any case
+ * returns before cleared references have been enqueued. These helpers instead collect repeatedly until a sentinel
+ * reference, or a caller-supplied condition, shows that reference processing has actually happened, up to a timeout.
+ * <p/>
+ * <strong>Thread Safety:</strong> this class is safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class GarbageCollection
+{
+    private static final long POLL_MILLIS = 10L;
+
+    /**
+     * Construct a {@link GarbageCollection} instance.
+     */
+    private GarbageCollection()
+    {
+        super();
+    }
+
+    /**
+     * Collect garbage until a condition is satisfied, or until a timeout elapses. The condition is checked before each
+     * collection.
+     *
+     * @param condition the condition.
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of {@code timeout}.
+     * @return {@code boolean} {@code true} if the condition was satisfied, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static boolean awaitCondition(final Condition condition, final long timeout, final TimeUnit unit)
+            throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean result = condition.isSatisfied();
+        while (!result && System.nanoTime() - deadline < 0L)
+        {
+            System.gc();
+            Thread.sleep(POLL_MILLIS);
+            result = condition.isSatisfied();
+        }
+        return result;
+    }
+
+    /**
+     * Collect garbage until a newly unreachable, weakly referenced sentinel has been cleared and enqueued, or until a
+     * timeout elapses. On return, objects which were weakly reachable on entry have normally been cleared, and their
+     * references enqueued, though threads draining reference queues may not yet have run.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of {@code timeout}.
+     * @return {@code boolean} {@code true} if the sentinel was enqueued, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static boolean awaitReferenceProcessing(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+        final WeakReference<Object> sentinel = new WeakReference<Object>(new Object(), queue);
+        Reference<?> enqueued = null;
+        while (null == enqueued && System.nanoTime() - deadline < 0L)
+        {
+            System.gc();
+            enqueued = queue.remove(POLL_MILLIS);
+        }
+        return sentinel == enqueued;
+    }
+
+    /**
+     * Get the number of bytes of heap in use once garbage has been collected. The figure is approximate: it includes
+     * whatever garbage the collector chose not to reclaim, so comparisons between measurements should allow some
+     * slack.
+     *
+     * @param timeout the maximum time to wait for reference processing.
+     * @param unit the unit of {@code timeout}.
+     * @return {@code long} bytes in use.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static long usedHeap(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        /* Twice: objects finalized or cleaned up in the first round are only reclaimed in the second. */
+        awaitReferenceProcessing(timeout, unit);
+        awaitReferenceProcessing(timeout, unit);
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * {@link Condition} is a condition awaited by {@link #awaitCondition(Condition, long, TimeUnit)}.
+     */
+    public interface Condition
+    {
+        /**
+         * Determine whether the condition is satisfied.
+         *
+         * @return {@code boolean} {@code true} if satisfied.
+         */
+        boolean isSatisfied();
+    }
+}
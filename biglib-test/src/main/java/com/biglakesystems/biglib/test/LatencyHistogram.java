@@ -0,0 +1,213 @@
+package com.biglakesystems.biglib.test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} records a distribution of latencies, in nanoseconds, in a fixed set of log-linear buckets:
+ * each power of two is divided into {@value #SUB_BUCKETS} equal buckets, so that any recorded value is reported within
+ * about six percent of its true value, from single nanoseconds to centuries, in a fixed 8 KiB of counters. Recording
+ * is a single atomic increment and never allocates, so it may be used inside the measured loop of a stress test without
+ * disturbing the garbage collector being measured.
+ * <p/>
+ * Values reported by {@link #getValueAtPercentile(double)} are the upper bounds of their buckets, and so err on the
+ * side of the slower; the maximum is exact.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access. Concurrent recording
+ * contends on shared counters, so heavily multithreaded tests should record into a histogram per thread and combine
+ * them afterward with {@link #add(LatencyHistogram)}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray m_counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong m_count = new AtomicLong(0L);
+    private final AtomicLong m_total = new AtomicLong(0L);
+    private final AtomicLong m_maximum = new AtomicLong(0L);
+
+    /**
+     * Construct a {@link LatencyHistogram} instance.
+     */
+    public LatencyHistogram()
+    {
+        super();
+    }
+
+    /**
+     * Add every value recorded in another histogram to this one.
+     *
+     * @param other the other histogram.
+     */
+    public void add(final LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKET_COUNT; i += 1)
+        {
+            final long count = other.m_counts.get(i);
+            if (0L != count)
+            {
+                m_counts.addAndGet(i, count);
+            }
+        }
+        m_count.addAndGet(other.m_count.get());
+        m_total.addAndGet(other.m_total.get());
+        updateMaximum(other.m_maximum.get());
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return {@code long} count.
+     */
+    public long getCount()
+    {
+        return m_count.get();
+    }
+
+    /**
+     * Get the largest value recorded.
+     *
+     * @return {@code long} maximum, in nanoseconds, or zero if none.
+     */
+    public long getMaximum()
+    {
+        return m_maximum.get();
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return {@code double} mean, in nanoseconds, or zero if none.
+     */
+    public double getMean()
+    {
+        final long count = m_count.get();
+        return 0L == count ? 0.0 : (double) m_total.get() / count;
+    }
+
+    /**
+     * Get the value at or below which a given percentage of the recorded values fall.
+     *
+     * @param percentile the percentile, from {@code 0} through {@code 100}.
+     * @return {@code long} value, in nanoseconds, or zero if none.
+     */
+    public long getValueAtPercentile(final double percentile)
+    {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+        {
+            throw new IllegalArgumentException(String.format("Percentile must be from 0 through 100; was [%s].",
+                    percentile));
+        }
+        final long count = m_count.get();
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long result = 0L;
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT && seen < rank; i += 1)
+        {
+            seen += m_counts.get(i);
+            if (seen >= rank)
+            {
+                result = Math.min(upperBound(i), m_maximum.get());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param nanos the value, in nanoseconds; negative values, which a non-monotonic clock may produce, are recorded as
+     * zero.
+     */
+    public void record(final long nanos)
+    {
+        final long value = Math.max(0L, nanos);
+        m_counts.incrementAndGet(bucketOf(value));
+        m_count.incrementAndGet();
+        m_total.addAndGet(value);
+        updateMaximum(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[count=%d, mean=%.0f, p50=%d, p99=%d, p99.9=%d, max=%d]", getClass().getSimpleName(),
+                getCount(), getMean(), getValueAtPercentile(50.0), getValueAtPercentile(99.0),
+                getValueAtPercentile(99.9), getMaximum());
+    }
+
+    /**
+     * Get the bucket for a value.
+     *
+     * @param value the value, not negative.
+     * @return {@code int} bucket index.
+     */
+    private static int bucketOf(final long value)
+    {
+        int result;
+        if (value < SUB_BUCKETS)
+        {
+            result = (int) value;
+        }
+        else
+        {
+            /* The highest bit selects the power of two; the next bits select the bucket within it. */
+            final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            final int shift = exponent - SUB_BUCKET_BITS;
+            result = (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+        return result;
+    }
+
+    /**
+     * Get the largest value recorded in a bucket.
+     *
+     * @param bucket the bucket index.
+     * @return {@code long} upper bound.
+     */
+    private static long upperBound(final int bucket)
+    {
+        long result;
+        if (bucket < SUB_BUCKETS)
+        {
+            result = bucket;
+        }
+        else
+        {
+            final int shift = bucket / SUB_BUCKETS - 1;
+            final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            result = lower + ((1L << shift) - 1L);
+        }
+        return result;
+    }
+
+    /**
+     * Raise the maximum to a value, if it is larger.
+     *
+     * @param value the value.
+     */
+    private void updateMaximum(final long value)
+    {
+        long current = m_maximum.get();
+        while (value > current && !m_maximum.compareAndSet(current, value))
+        {
+            current = m_maximum.get();
+        }
+    }
+}
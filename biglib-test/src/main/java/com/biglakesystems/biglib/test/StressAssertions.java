@@ -0,0 +1,103 @@
+package com.biglakesystems.biglib.test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StressAssertions} provides assertions for the aftermath of a {@link StressDriver} run: that structures holding
+ * keys which are no longer reachable eventually release them, and that the heap has not grown beyond a bound. Each
+ * assertion collects garbage as necessary via {@link GarbageCollection}, and throws {@link AssertionError} on failure,
+ * as JUnit's own assertions do.
+ * <p/>
+ * <strong>Thread Safety:</strong> this class is safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public final class StressAssertions
+{
+    /**
+     * Default time allowed for the garbage collector to reach a condition, in seconds.
+     */
+    public static final long DEFAULT_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * Construct a {@link StressAssertions} instance.
+     */
+    private StressAssertions()
+    {
+        super();
+    }
+
+    /**
+     * Assert that a condition is satisfied within the default timeout, collecting garbage until it is.
+     *
+     * @param message the failure message.
+     * @param condition the condition.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void assertEventually(final String message, final GarbageCollection.Condition condition)
+            throws InterruptedException
+    {
+        if (!GarbageCollection.awaitCondition(condition, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Assert that the heap in use has grown by no more than a given number of bytes since a baseline taken with {@link
+     * GarbageCollection#usedHeap(long, TimeUnit)}.
+     *
+     * @param description a description of what is being measured, for the failure message.
+     * @param baselineBytes the baseline.
+     * @param maximumGrowthBytes the maximum growth.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void assertHeapBounded(final String description, final long baselineBytes,
+                                         final long maximumGrowthBytes) throws InterruptedException
+    {
+        final long growth = GarbageCollection.usedHeap(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS) - baselineBytes;
+        if (growth > maximumGrowthBytes)
+        {
+            throw new AssertionError(String.format("Heap grew by [%d] bytes for %s; expected at most [%d].", growth,
+                    description, maximumGrowthBytes));
+        }
+    }
+
+    /**
+     * Assert that a map eventually holds no more than a given number of entries, as would be the case for a weakly
+     * keyed map once keys which are no longer reachable have been collected and expunged. {@link Map#size()} is polled
+     * between collections; maps which expunge only on access should be given a condition which accesses them instead.
+     *
+     * @param description a description of the map, for the failure message.
+     * @param map the map.
+     * @param maximumSize the maximum number of entries.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void assertNoLeak(final String description, final Map<?, ?> map, final int maximumSize)
+            throws InterruptedException
+    {
+        final boolean drained = GarbageCollection.awaitCondition(new GarbageCollection.Condition()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                return map.size() <= maximumSize;
+            }
+        }, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!drained)
+        {
+            throw new AssertionError(String.format("%s still holds [%d] entries; expected at most [%d].",
+                    description, map.size(), maximumSize));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.biglakesystems.biglib.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StressDriver} runs a {@link StressOperation} on several threads at once under sustained garbage collection
+ * pressure, to reproduce the conditions in which weakly keyed structures fail in production: keys dying in large
+ * numbers while other threads are mid-operation, and collections running throughout.
+ * <p/>
+ * Each thread holds a fixed number of live keys, and passes one, chosen at random, to each operation. Before an
+ * operation, with a configured probability (the churn rate), the chosen key is first replaced with a new one, so that
+ * the key it replaces becomes garbage. Each operation is also accompanied by the allocation of a configured number of
+ * bytes of garbage; a few of the most recent allocations are retained, so that some survive long enough to be
+ * promoted, as in a real application. Only the operation itself is timed.
+ * <p/>
+ * Keys are plain objects with identity semantics. Each thread uses its own {@link Random}, seeded from the driver's
+ * seed, so that a run's sequence of choices, though not its interleaving, is repeatable.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are safe for multithreaded access, though runs are
+ * typically started from a single test thread.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class StressDriver
+{
+    private static final int RETAINED_ALLOCATIONS = 64;
+
+    private final int m_threadCount;
+    private final int m_liveKeysPerThread;
+    private final double m_churnRate;
+    private final int m_allocationBytes;
+    private final long m_seed;
+
+    /**
+     * Construct a {@link StressDriver} instance.
+     *
+     * @param threadCount the number of threads.
+     * @param liveKeysPerThread the number of live keys held by each thread.
+     * @param churnRate the probability, from {@code 0} through {@code 1}, that an operation's key is replaced first.
+     * @param allocationBytes the number of bytes of garbage allocated with each operation; zero for none.
+     * @param seed the seed from which each thread's random choices are derived.
+     */
+    public StressDriver(final int threadCount, final int liveKeysPerThread, final double churnRate,
+                        final int allocationBytes, final long seed)
+    {
+        super();
+        if (threadCount <= 0 || liveKeysPerThread <= 0 || allocationBytes < 0 ||
+                !(churnRate >= 0.0 && churnRate <= 1.0))
+        {
+            throw new IllegalArgumentException(String.format("Invalid stress configuration: threadCount=[%d], " +
+                    "liveKeysPerThread=[%d], churnRate=[%s], allocationBytes=[%d].", threadCount, liveKeysPerThread,
+                    churnRate, allocationBytes));
+        }
+        m_threadCount = threadCount;
+        m_liveKeysPerThread = liveKeysPerThread;
+        m_churnRate = churnRate;
+        m_allocationBytes = allocationBytes;
+        m_seed = seed;
+    }
+
+    /**
+     * Perform a fixed number of operations on each thread. The keys held by the threads are unreachable once this
+     * method returns.
+     *
+     * @param operationsPerThread the number of operations each thread performs.
+     * @param operation the operation.
+     * @return {@link StressResult} result.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public StressResult run(final long operationsPerThread, final StressOperation operation)
+            throws InterruptedException
+    {
+        return execute(operationsPerThread, Long.MAX_VALUE, operation);
+    }
+
+    /**
+     * Perform operations on each thread for a fixed duration. The keys held by the threads are unreachable once this
+     * method returns.
+     *
+     * @param duration the duration.
+     * @param unit the unit of {@code duration}.
+     * @param operation the operation.
+     * @return {@link StressResult} result.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public StressResult runFor(final long duration, final TimeUnit unit, final StressOperation operation)
+            throws InterruptedException
+    {
+        return execute(Long.MAX_VALUE, unit.toNanos(duration), operation);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[threadCount=%d, liveKeysPerThread=%d, churnRate=%s, allocationBytes=%d, seed=%d]",
+                getClass().getSimpleName(), m_threadCount, m_liveKeysPerThread, m_churnRate, m_allocationBytes,
+                m_seed);
+    }
+
+    /**
+     * Run the driver threads until each has performed a number of operations, a duration has elapsed, or any operation
+     * fails.
+     *
+     * @param operationsPerThread the maximum number of operations per thread.
+     * @param durationNanos the maximum duration.
+     * @param operation the operation.
+     * @return {@link StressResult} result.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    private StressResult execute(final long operationsPerThread, final long durationNanos,
+                                 final StressOperation operation) throws InterruptedException
+    {
+        final Run state = new Run(operationsPerThread, durationNanos, operation);
+        final Thread[] threads = new Thread[m_threadCount];
+        for (int i = 0; i < m_threadCount; i += 1)
+        {
+            final int thread = i;
+            threads[i] = new Thread(String.format("biglib-stress-%d", i))
+            {
+                @Override
+                public void run()
+                {
+                    state.perform(thread);
+                }
+            };
+            threads[i].start();
+        }
+        final long start = System.nanoTime();
+        state.m_start.countDown();
+        for (final Thread nextThread : threads)
+        {
+            nextThread.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+        final LatencyHistogram latencies = new LatencyHistogram();
+        for (final LatencyHistogram nextHistogram : state.m_latencies)
+        {
+            latencies.add(nextHistogram);
+        }
+        final List<Throwable> failures;
+        synchronized (state.m_failures)
+        {
+            failures = new ArrayList<Throwable>(state.m_failures);
+        }
+        return new StressResult(state.m_operationCount.get(), state.m_keyCount.get(), elapsed, latencies, failures);
+    }
+
+    /**
+     * {@link Run} holds the state of a single run, shared by its threads.
+     */
+    private final class Run
+    {
+        private final long m_operationsPerThread;
+        private final long m_durationNanos;
+        private final StressOperation m_operation;
+        private final CountDownLatch m_start = new CountDownLatch(1);
+        private final LatencyHistogram[] m_latencies = new LatencyHistogram[m_threadCount];
+        private final AtomicLong m_operationCount = new AtomicLong(0L);
+        private final AtomicLong m_keyCount = new AtomicLong(0L);
+        private final List<Throwable> m_failures = new ArrayList<Throwable>();
+        private volatile boolean m_failed;
+
+        /**
+         * Construct a {@link Run} instance.
+         *
+         * @param operationsPerThread the maximum number of operations per thread.
+         * @param durationNanos the maximum duration.
+         * @param operation the operation.
+         */
+        public Run(final long operationsPerThread, final long durationNanos, final StressOperation operation)
+        {
+            super();
+            m_operationsPerThread = operationsPerThread;
+            m_durationNanos = durationNanos;
+            m_operation = operation;
+            for (int i = 0; i < m_threadCount; i += 1)
+            {
+                m_latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Perform operations on the calling thread until the run ends.
+         *
+         * @param thread the thread index.
+         */
+        public void perform(final int thread)
+        {
+            final LatencyHistogram latencies = m_latencies[thread];
+            final Random random = new Random(m_seed + thread);
+            final Object[] keys = new Object[m_liveKeysPerThread];
+            for (int i = 0; i < keys.length; i += 1)
+            {
+                keys[i] = new Object();
+            }
+            long keyCount = keys.length;
+            final byte[][] allocations = new byte[RETAINED_ALLOCATIONS][];
+            long operations = 0L;
+            try
+            {
+                m_start.await();
+                final long start = System.nanoTime();
+                long now = start;
+                while (operations < m_operationsPerThread && now - start < m_durationNanos && !m_failed)
+                {
+                    final int slot = random.nextInt(keys.length);
+                    if (random.nextDouble() < m_churnRate)
+                    {
+                        keys[slot] = new Object();
+                        keyCount += 1L;
+                    }
+                    if (0 != m_allocationBytes)
+                    {
+                        allocations[(int) (operations % RETAINED_ALLOCATIONS)] = new byte[m_allocationBytes];
+                    }
+                    operations += 1L;
+                    final long begin = System.nanoTime();
+                    m_operation.perform(thread, keys[slot]);
+                    now = System.nanoTime();
+                    latencies.record(now - begin);
+                }
+            }
+            catch (final Throwable e)
+            {
+                synchronized (m_failures)
+                {
+                    m_failures.add(e);
+                }
+                m_failed = true;
+            }
+            m_operationCount.addAndGet(operations);
+            m_keyCount.addAndGet(keyCount);
+        }
+    }
+}
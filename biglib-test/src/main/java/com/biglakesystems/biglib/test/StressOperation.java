@@ -0,0 +1,31 @@
+package com.biglakesystems.biglib.test;
+
+/**
+ * {@link StressOperation} is the operation under test in a {@link StressDriver} run, invoked repeatedly on each of the
+ * driver's threads. Any exception or error it throws fails the run.
+ * <p/>
+ * <strong>Thread Safety:</strong> implementations of this interface must be safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public interface StressOperation
+{
+    /**
+     * Perform the operation once.
+     *
+     * @param thread the index of the calling driver thread, from zero.
+     * @param key a key drawn from the calling thread's live keys; strongly reachable at least until this method
+     * returns.
+     * @throws Exception if the operation fails.
+     */
+    void perform(int thread, Object key) throws Exception;
+}
@@ -0,0 +1,127 @@
+package com.biglakesystems.biglib.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link StressResult} is the outcome of a {@link StressDriver} run: how many operations were performed, how many keys
+ * were created, how long the operations took, and any failures.
+ * <p/>
+ * <strong>Thread Safety:</strong> instances of this class are immutable and therefore safe for multithreaded access.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class StressResult
+{
+    private final long m_operationCount;
+    private final long m_keyCount;
+    private final long m_elapsedNanos;
+    private final LatencyHistogram m_latencies;
+    private final List<Throwable> m_failures;
+
+    /**
+     * Construct a {@link StressResult} instance.
+     *
+     * @param operationCount the number of operations performed.
+     * @param keyCount the number of keys created.
+     * @param elapsedNanos the duration of the run.
+     * @param latencies the operation latencies; not modified after construction.
+     * @param failures the failures, in the order they occurred.
+     */
+    public StressResult(final long operationCount, final long keyCount, final long elapsedNanos,
+                        final LatencyHistogram latencies, final List<Throwable> failures)
+    {
+        super();
+        m_operationCount = operationCount;
+        m_keyCount = keyCount;
+        m_elapsedNanos = elapsedNanos;
+        m_latencies = latencies;
+        m_failures = Collections.unmodifiableList(new ArrayList<Throwable>(failures));
+    }
+
+    /**
+     * Throw an {@link AssertionError} if any operation failed, with the first failure as its cause.
+     */
+    public void assertNoFailures()
+    {
+        if (!m_failures.isEmpty())
+        {
+            final AssertionError error = new AssertionError(String.format("[%d] stress operations failed; first: %s",
+                    m_failures.size(), m_failures.get(0)));
+            error.initCause(m_failures.get(0));
+            throw error;
+        }
+    }
+
+    /**
+     * Get the duration of the run.
+     *
+     * @return {@code long} elapsed nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return m_elapsedNanos;
+    }
+
+    /**
+     * Get the failures, in the order they occurred. Each driver thread stops at its first failure, and the others stop
+     * soon afterward.
+     *
+     * @return {@link List} of {@link Throwable}, empty if none.
+     */
+    public List<Throwable> getFailures()
+    {
+        return m_failures;
+    }
+
+    /**
+     * Get the number of keys created, including each thread's initial live keys.
+     *
+     * @return {@code long} key count.
+     */
+    public long getKeyCount()
+    {
+        return m_keyCount;
+    }
+
+    /**
+     * Get the operation latencies.
+     *
+     * @return {@link LatencyHistogram} latencies.
+     */
+    public LatencyHistogram getLatencies()
+    {
+        return m_latencies;
+    }
+
+    /**
+     * Get the number of operations performed, including any which failed.
+     *
+     * @return {@code long} operation count.
+     */
+    public long getOperationCount()
+    {
+        return m_operationCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s[operationCount=%d, keyCount=%d, elapsedNanos=%d, failures=%d, latencies=%s]",
+                getClass().getSimpleName(), m_operationCount, m_keyCount, m_elapsedNanos, m_failures.size(),
+                m_latencies);
+    }
+}
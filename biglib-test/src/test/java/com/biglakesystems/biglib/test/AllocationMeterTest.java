@@ -0,0 +1,89 @@
+package com.biglakesystems.biglib.test;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link AllocationMeterTest} provides unit test coverage for {@link AllocationMeter}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class AllocationMeterTest
+{
+    private final List<Object> m_retained = new ArrayList<Object>();
+    private long m_counter;
+
+    /**
+     * Construct a {@link AllocationMeterTest} instance.
+     */
+    public AllocationMeterTest()
+    {
+        super();
+    }
+
+    /**
+     * Skip these tests where allocation cannot be measured.
+     */
+    @Before
+    public void setUp()
+    {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+    }
+
+    /**
+     * Test that an action which allocates nothing passes, and one which does is measured and fails.
+     */
+    @Test
+    public void testMeasurement() throws Exception
+    {
+        AllocationMeter.assertAllocationFree("Increment", new AllocationMeter.Action()
+        {
+            @Override
+            public void perform()
+            {
+                m_counter += 1L;
+            }
+        });
+        assertTrue(m_counter > 0L);
+
+        /* Retain what is allocated, so that the allocation cannot be eliminated. */
+        final AllocationMeter.Action allocating = new AllocationMeter.Action()
+        {
+            @Override
+            public void perform()
+            {
+                if (m_retained.size() >= 1000)
+                {
+                    m_retained.clear();
+                }
+                m_retained.add(new byte[64]);
+            }
+        };
+        assertTrue(AllocationMeter.bytesAllocated(allocating, 1000, 1000) >= 64L * 1000L);
+        AllocationMeter.assertBytesPerOperation("Allocation", 256L, allocating);
+        try
+        {
+            AllocationMeter.assertAllocationFree("Allocation", allocating);
+            fail("Allocation was not detected.");
+        }
+        catch (final AssertionError e)
+        {
+            assertTrue(e.getMessage().startsWith("Allocation allocated"));
+        }
+    }
+}
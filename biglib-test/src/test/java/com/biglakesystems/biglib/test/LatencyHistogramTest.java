@@ -0,0 +1,82 @@
+package com.biglakesystems.biglib.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LatencyHistogramTest} provides unit test coverage for {@link LatencyHistogram}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class LatencyHistogramTest
+{
+    /**
+     * Construct a {@link LatencyHistogramTest} instance.
+     */
+    public LatencyHistogramTest()
+    {
+        super();
+    }
+
+    /**
+     * Test that percentiles are reported within the histogram's precision, and that histograms combine.
+     */
+    @Test
+    public void testPercentiles()
+    {
+        final LatencyHistogram instance = new LatencyHistogram();
+        assertEquals(0L, instance.getValueAtPercentile(99.0));
+        for (long i = 1L; i <= 10000L; i += 1L)
+        {
+            instance.record(i * 1000L);
+        }
+        assertEquals(10000L, instance.getCount());
+        assertEquals(10000000L, instance.getMaximum());
+        assertEquals(5000500.0, instance.getMean(), 0.5);
+        assertWithin(5000000L, instance.getValueAtPercentile(50.0));
+        assertWithin(9900000L, instance.getValueAtPercentile(99.0));
+        assertEquals(10000000L, instance.getValueAtPercentile(100.0));
+        assertWithin(1000L, instance.getValueAtPercentile(0.0));
+
+        final LatencyHistogram other = new LatencyHistogram();
+        other.record(-5L);
+        other.record(7L);
+        other.record(Long.MAX_VALUE);
+        instance.add(other);
+        assertEquals(10003L, instance.getCount());
+        assertEquals(Long.MAX_VALUE, instance.getMaximum());
+        assertEquals(0L, instance.getValueAtPercentile(0.0));
+    }
+
+    /**
+     * Test that a percentile outside of its range is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile()
+    {
+        new LatencyHistogram().getValueAtPercentile(100.5);
+    }
+
+    /**
+     * Assert that a reported value is no less than the expected value, and no more than the histogram's precision
+     * above it.
+     *
+     * @param expected the expected value.
+     * @param actual the reported value.
+     */
+    private static void assertWithin(final long expected, final long actual)
+    {
+        assertTrue(String.format("Expected [%d] within precision; was [%d].", expected, actual),
+                actual >= expected && actual <= expected + expected / 16L);
+    }
+}
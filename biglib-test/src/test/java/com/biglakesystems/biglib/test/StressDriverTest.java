@@ -0,0 +1,110 @@
+package com.biglakesystems.biglib.test;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StressDriverTest} provides unit test coverage for {@link StressDriver}, {@link GarbageCollection} and {@link
+ * StressAssertions}.
+ * <p/>
+ * Copyright 2014 Big Lake Systems, LLC.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+public class StressDriverTest
+{
+    /**
+     * Construct a {@link StressDriverTest} instance.
+     */
+    public StressDriverTest()
+    {
+        super();
+    }
+
+    /**
+     * Test a run against a weakly keyed map: every operation is counted and timed, keys churn, and once the run ends
+     * the map releases every key.
+     */
+    @Test
+    public void testRun() throws Exception
+    {
+        final long baseline = GarbageCollection.usedHeap(10L, TimeUnit.SECONDS);
+        final Map<Object, Integer> map = Collections.synchronizedMap(new WeakHashMap<Object, Integer>());
+        final StressDriver instance = new StressDriver(4, 100, 0.5, 256, 42L);
+        final StressResult result = instance.run(10000L, new StressOperation()
+        {
+            @Override
+            public void perform(final int thread, final Object key)
+            {
+                map.put(key, thread);
+                assertEquals(Integer.valueOf(thread), map.get(key));
+            }
+        });
+        result.assertNoFailures();
+        assertEquals(40000L, result.getOperationCount());
+        assertEquals(40000L, result.getLatencies().getCount());
+        assertTrue(result.getKeyCount() > 400L + 10000L);
+        assertTrue(result.getElapsedNanos() > 0L);
+        StressAssertions.assertNoLeak("Weak map", map, 0);
+        StressAssertions.assertHeapBounded("a drained weak map", baseline, 16L * 1024L * 1024L);
+    }
+
+    /**
+     * Test that a failing operation stops the run and is reported.
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        final StressDriver instance = new StressDriver(2, 1, 0.0, 0, 42L);
+        final StressResult result = instance.runFor(1L, TimeUnit.MINUTES, new StressOperation()
+        {
+            @Override
+            public void perform(final int thread, final Object key)
+            {
+                throw new IllegalStateException("Expected failure.");
+            }
+        });
+        /* Each thread stops at its first failure; the second may see the first's failure and stop before starting. */
+        assertFalse(result.getFailures().isEmpty());
+        assertEquals(result.getFailures().size(), result.getOperationCount());
+        try
+        {
+            result.assertNoFailures();
+            fail("Failures were not reported.");
+        }
+        catch (final AssertionError e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Test that reference processing can be awaited, and that an unsatisfiable condition times out.
+     */
+    @Test
+    public void testGarbageCollection() throws Exception
+    {
+        assertTrue(GarbageCollection.awaitReferenceProcessing(10L, TimeUnit.SECONDS));
+        assertFalse(GarbageCollection.awaitCondition(new GarbageCollection.Condition()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                return false;
+            }
+        }, 50L, TimeUnit.MILLISECONDS));
+    }
+}